@@ -1,13 +1,21 @@
 package com.evolveum.axiom.lang.antlr;
 
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CodePointCharStream;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 
 import com.evolveum.axiom.lang.antlr.query.AxiomQueryLexer;
 import com.evolveum.axiom.lang.antlr.query.AxiomQueryParser;
 import com.evolveum.axiom.lang.antlr.query.AxiomQueryParser.FilterContext;
+import com.evolveum.axiom.lang.antlr.query.AxiomQueryParser.RootContext;
 
+/**
+ * Parsed Axiom query. The parse tree is not modified after parsing, so the source can be shared and reused.
+ */
 public class AxiomQuerySource {
 
     private final FilterContext root;
@@ -19,18 +27,38 @@ public class AxiomQuerySource {
     public static final AxiomQuerySource from(String query) {
         CodePointCharStream stream = CharStreams.fromString(query);
         AxiomQueryLexer lexer = new AxiomQueryLexer(stream);
-        AxiomQueryParser parser = new AxiomQueryParser(new CommonTokenStream(lexer));
+        CommonTokenStream tokens = new CommonTokenStream(lexer);
+        AxiomQueryParser parser = new AxiomQueryParser(tokens);
         // DO NOT log to STDIN
         lexer.removeErrorListeners();
         parser.removeErrorListeners();
 
-        var root = parser.root();
+        var root = parse(parser, tokens);
         if (root.filter() == null) {
             throw new IllegalArgumentException("Unable to parse query: " + query);
         }
         return new AxiomQuerySource(root.filter());
     }
 
+    /**
+     * Two-stage parsing: the faster SLL prediction is sufficient for almost all queries. Only if it fails
+     * (because of a syntax error or a construct that needs full context), the query is parsed again using LL prediction,
+     * with the usual error recovery.
+     */
+    private static RootContext parse(AxiomQueryParser parser, CommonTokenStream tokens) {
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.setErrorHandler(new BailErrorStrategy());
+        try {
+            return parser.root();
+        } catch (ParseCancellationException e) {
+            tokens.seek(0);
+            parser.reset();
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            return parser.root();
+        }
+    }
+
     public FilterContext root() {
         return root;
     }
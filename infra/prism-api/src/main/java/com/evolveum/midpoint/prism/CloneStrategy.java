@@ -28,6 +28,18 @@ public enum CloneStrategy {
      * with the same values but with not identifiers.
      * References will not have full object inside them.
      */
-    REUSE;
+    REUSE,
+
+    /**
+     * Literal clone that shares as much as possible with the (immutable) original.
+     *
+     * Items of immutable container values are not copied when the clone is created, but only when they are
+     * accessed for the first time. Values of inner containers are copied in the same lazy way. So, when the clone
+     * is modified (e.g. by applying a delta), only the container values on the path to the modified items are
+     * actually copied. Mutable parts of the original are copied eagerly, just like with {@link #LITERAL}.
+     *
+     * This is useful e.g. for computing the new state of an object from the old state and a delta.
+     */
+    COPY_ON_WRITE;
 
 }
@@ -183,4 +183,15 @@ public interface ComplexTypeDefinition extends TypeDefinition, LocalItemDefiniti
     default boolean hasOperationalOnlyItems() {
         return false;
     }
+
+    /**
+     * Returns the slot of the item with given name: its index in {@link #getDefinitions()}, or -1 if there is no such item
+     * or slots are not supported by this definition (e.g. because it is mutable, so the indices are not stable).
+     *
+     * Slots allow generated beans to access the items of container values without looking them up by name.
+     */
+    @Experimental
+    default int getItemSlot(@NotNull QName itemName) {
+        return -1;
+    }
 }
@@ -51,4 +51,9 @@ public interface ParsingContext extends Cloneable {
     boolean isFastAddOperations();
 
     ParsingContext fastAddOperations();
+
+    boolean isDefinitionDriven();
+
+    /** See {@link PrismParser#definitionDriven()}. */
+    ParsingContext definitionDriven();
 }
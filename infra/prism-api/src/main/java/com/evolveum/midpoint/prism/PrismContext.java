@@ -9,6 +9,8 @@ package com.evolveum.midpoint.prism;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -54,6 +56,13 @@ public interface PrismContext extends ProtectorCreator {
     String LANG_JSON = "json";
     String LANG_YAML = "yaml";
 
+    /**
+     * Compact binary format, intended for caching and transferring objects between nodes.
+     * Its output is binary, so it is not available via {@link #serializerFor(String)}; use {@link #binarySerializer()}
+     * or {@link #serializerFor(String, OutputStream)}.
+     */
+    String LANG_BINARY = "binary";
+
     /**
      * Initializes the prism context, e.g. loads and parses all the schemas.
      */
@@ -184,6 +193,31 @@ public interface PrismContext extends ProtectorCreator {
     @NotNull
     PrismSerializer<String> serializerFor(@NotNull String language);
 
+    /**
+     * Creates a serializer for the given language that writes the output directly into provided writer,
+     * without materializing it as a String. The serializer returns the writer (flushed, but not closed).
+     *
+     * Besides the usual methods, it supports {@link PrismSerializer#objectsWriter()} for writing
+     * large number of objects one by one.
+     *
+     * @param language Language (like xml, json, yaml).
+     * @param writer Output writer. It is not closed by the serializer.
+     * @return The serializer.
+     */
+    @NotNull
+    PrismSerializer<Writer> serializerFor(@NotNull String language, @NotNull Writer writer);
+
+    /**
+     * Creates a serializer for the given language that writes the output directly into provided stream,
+     * encoded in UTF-8 (for text languages). The serializer returns the stream (flushed, but not closed).
+     *
+     * This is the only streaming serializer available for {@link #LANG_BINARY}.
+     *
+     * @see #serializerFor(String, Writer)
+     */
+    @NotNull
+    PrismSerializer<OutputStream> serializerFor(@NotNull String language, @NotNull OutputStream stream);
+
     /**
      * Creates a serializer for XML language.
      *
@@ -208,6 +242,15 @@ public interface PrismContext extends ProtectorCreator {
     @NotNull
     PrismSerializer<String> yamlSerializer();
 
+    /**
+     * Creates a serializer for the compact binary format ({@link #LANG_BINARY}).
+     * The data can be parsed back e.g. by {@link #parserFor(InputStream)} with language set to {@link #LANG_BINARY}.
+     *
+     * @return The serializer.
+     */
+    @NotNull
+    PrismSerializer<byte[]> binarySerializer();
+
     /**
      * Creates a serializer for DOM. The difference from XML serializer is that XML produces String output
      * whereas this one produces a DOM Element.
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Writes prism objects one by one to an output provided when creating the serializer,
+ * see {@link PrismSerializer#objectsWriter()}.
+ *
+ * The output is equivalent to {@link PrismSerializer#serializeObjects(java.util.List)}, but only one object is
+ * being serialized (i.e. present in its intermediate form) at a time. The output is complete only after {@link #close()}.
+ */
+public interface PrismObjectsWriter extends AutoCloseable {
+
+    /**
+     * Serializes the object and writes it to the output.
+     */
+    void write(@NotNull PrismObject<?> object) throws SchemaException;
+
+    /**
+     * Finishes the output (e.g. writes closing elements/brackets) and flushes it.
+     * The underlying writer or stream is not closed; it is the responsibility of the caller.
+     */
+    @Override
+    void close() throws SchemaException;
+}
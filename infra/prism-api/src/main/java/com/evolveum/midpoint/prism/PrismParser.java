@@ -112,6 +112,17 @@ public interface PrismParser {
      */
     @NotNull PrismParser fastAddOperations();
 
+    /**
+     * Reads JSON/YAML objects directly into prism items, driven by the object definition, without creating
+     * the intermediate XNode tree for the whole object. Only untyped, raw or otherwise special parts of the data
+     * (references, explicitly typed values, metadata, ...) are read via XNodes.
+     *
+     * Applies to {@link #parse()} only. Explicit type (`@type`) of a container value must precede its regular content,
+     * and `@value` and `@element`/`@item` declarations are not supported for container values.
+     * Other languages (XML) are parsed in the usual way.
+     */
+    @NotNull PrismParser definitionDriven();
+
     /**
      * Tells parser which definition to use when parsing item (or an item value). Optional.
      * @param itemDefinition The definition
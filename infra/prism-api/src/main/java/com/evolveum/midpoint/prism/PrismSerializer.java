@@ -108,6 +108,15 @@ public interface PrismSerializer<T> {
     @NotNull
     T serializeObjects(@NotNull List<PrismObject<?>> objects) throws SchemaException;
 
+    /**
+     * Opens a writer that serializes objects one by one, with the same output as {@link #serializeObjects(List)}.
+     * Supported only by serializers writing to a stream, see {@link PrismContext#serializerFor(String, java.io.Writer)}.
+     *
+     * @return Writer that must be closed after all the objects are written.
+     */
+    @NotNull
+    PrismObjectsWriter objectsWriter() throws SchemaException;
+
     T serialize(JAXBElement<?> value) throws SchemaException;
     T serializeRealValue(Object value) throws SchemaException;
     T serializeRealValue(Object value, QName rootName) throws SchemaException;
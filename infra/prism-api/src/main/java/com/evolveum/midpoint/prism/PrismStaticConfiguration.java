@@ -11,6 +11,26 @@ public class PrismStaticConfiguration {
     private static boolean serializationProxiesEnabled = false;
     private static int propertyIndexThreshold = 50;
     private static boolean propertyIndexEnabled = false;
+    private static int containerIdIndexThreshold = 50;
+    private static boolean containerIdIndexEnabled = true;
+    private static int referenceOidIndexThreshold = 50;
+    private static boolean referenceOidIndexEnabled = true;
+    private static int diffBucketingThreshold = 16;
+    private static boolean diffBucketingEnabled = true;
+    private static int valueHashBucketsThreshold = 50;
+    private static boolean valueHashBucketsEnabled = true;
+    private static int modificationIndexThreshold = 16;
+    private static boolean modificationIndexEnabled = true;
+    private static int runtimeSchemaCacheSize = 100;
+    private static boolean runtimeSchemaCacheEnabled = true;
+    private static int queryCacheSize = 500;
+    private static boolean queryCacheEnabled = true;
+    private static int polyStringNormalizationCacheSize = 10_000;
+    private static boolean polyStringNormalizationCacheEnabled = false;
+    private static int matchingRuleCacheSize = 10_000;
+    private static boolean matchingRuleCacheEnabled = false;
+    private static int regexCacheSize = 200;
+    private static boolean regexCacheEnabled = true;
 
     public static boolean javaSerializationProxiesEnabled() {
         return serializationProxiesEnabled;
@@ -20,6 +40,65 @@ public class PrismStaticConfiguration {
         return propertyIndexEnabled ? propertyIndexThreshold :  Integer.MAX_VALUE;
     }
 
+    /** Number of values of a container starting from which the values are indexed by their IDs. */
+    public static int containerIdIndexEnableThreshold() {
+        return containerIdIndexEnabled ? containerIdIndexThreshold : Integer.MAX_VALUE;
+    }
+
+    /** Number of values of a reference starting from which the values are indexed by their OIDs. */
+    public static int referenceOidIndexEnableThreshold() {
+        return referenceOidIndexEnabled ? referenceOidIndexThreshold : Integer.MAX_VALUE;
+    }
+
+    /** Number of values of both compared items starting from which the diff groups the values into buckets. */
+    public static int diffBucketingThreshold() {
+        return diffBucketingEnabled ? diffBucketingThreshold : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Number of values of an item starting from which the values are grouped by their hash codes,
+     * to speed up looking for equivalent values when adding new ones.
+     */
+    public static int valueHashBucketsEnableThreshold() {
+        return valueHashBucketsEnabled ? valueHashBucketsThreshold : Integer.MAX_VALUE;
+    }
+
+    /** Number of modifications of an object delta starting from which the modifications are indexed by their paths. */
+    public static int modificationIndexEnableThreshold() {
+        return modificationIndexEnabled ? modificationIndexThreshold : Integer.MAX_VALUE;
+    }
+
+    /** Maximal number of parsed runtime schemas kept in the schema registry; zero if the cache is disabled. */
+    public static int runtimeSchemaCacheSize() {
+        return runtimeSchemaCacheEnabled ? runtimeSchemaCacheSize : 0;
+    }
+
+    /** Maximal number of parsed Axiom queries (and filters created from them) kept; zero if the cache is disabled. */
+    public static int queryCacheSize() {
+        return queryCacheEnabled ? queryCacheSize : 0;
+    }
+
+    /**
+     * Maximal number of normalized strings kept by the normalizers of the PolyString normalizer registry;
+     * zero if the cache is disabled (the default).
+     */
+    public static int polyStringNormalizationCacheSize() {
+        return polyStringNormalizationCacheEnabled ? polyStringNormalizationCacheSize : 0;
+    }
+
+    /**
+     * Maximal number of normalized values (and match keys) kept by each of the caching matching rules;
+     * zero if the cache is disabled (the default).
+     */
+    public static int matchingRuleCacheSize() {
+        return matchingRuleCacheEnabled ? matchingRuleCacheSize : 0;
+    }
+
+    /** Maximal number of compiled regular expressions used by matching rules kept; zero if the cache is disabled. */
+    public static int regexCacheSize() {
+        return regexCacheEnabled ? regexCacheSize : 0;
+    }
+
     public static void setJavaSerializationProxiesEnabled(boolean value) {
         serializationProxiesEnabled  = value;
     }
@@ -35,4 +114,84 @@ public class PrismStaticConfiguration {
         propertyIndexThreshold  = value;
     }
 
+    public static void setContainerIdIndexEnabled(boolean value) {
+        containerIdIndexEnabled = value;
+    }
+
+    public static void setContainerIdIndexThreshold(int value) {
+        containerIdIndexThreshold = Math.max(value, 0);
+    }
+
+    public static void setReferenceOidIndexEnabled(boolean value) {
+        referenceOidIndexEnabled = value;
+    }
+
+    public static void setReferenceOidIndexThreshold(int value) {
+        referenceOidIndexThreshold = Math.max(value, 0);
+    }
+
+    public static void setDiffBucketingEnabled(boolean value) {
+        diffBucketingEnabled = value;
+    }
+
+    public static void setDiffBucketingThreshold(int value) {
+        diffBucketingThreshold = Math.max(value, 0);
+    }
+
+    public static void setValueHashBucketsEnabled(boolean value) {
+        valueHashBucketsEnabled = value;
+    }
+
+    public static void setValueHashBucketsThreshold(int value) {
+        valueHashBucketsThreshold = Math.max(value, 0);
+    }
+
+    public static void setModificationIndexEnabled(boolean value) {
+        modificationIndexEnabled = value;
+    }
+
+    public static void setModificationIndexThreshold(int value) {
+        modificationIndexThreshold = Math.max(value, 0);
+    }
+
+    public static void setRuntimeSchemaCacheEnabled(boolean value) {
+        runtimeSchemaCacheEnabled = value;
+    }
+
+    public static void setRuntimeSchemaCacheSize(int value) {
+        runtimeSchemaCacheSize = Math.max(value, 0);
+    }
+
+    public static void setQueryCacheEnabled(boolean value) {
+        queryCacheEnabled = value;
+    }
+
+    public static void setQueryCacheSize(int value) {
+        queryCacheSize = Math.max(value, 0);
+    }
+
+    public static void setPolyStringNormalizationCacheEnabled(boolean value) {
+        polyStringNormalizationCacheEnabled = value;
+    }
+
+    public static void setPolyStringNormalizationCacheSize(int value) {
+        polyStringNormalizationCacheSize = Math.max(value, 0);
+    }
+
+    public static void setMatchingRuleCacheEnabled(boolean value) {
+        matchingRuleCacheEnabled = value;
+    }
+
+    public static void setMatchingRuleCacheSize(int value) {
+        matchingRuleCacheSize = Math.max(value, 0);
+    }
+
+    public static void setRegexCacheEnabled(boolean value) {
+        regexCacheEnabled = value;
+    }
+
+    public static void setRegexCacheSize(int value) {
+        regexCacheSize = Math.max(value, 0);
+    }
+
 }
@@ -7,6 +7,7 @@
 package com.evolveum.midpoint.prism.crypto;
 
 import java.security.KeyStore;
+import java.util.Collection;
 import java.util.List;
 import javax.net.ssl.TrustManager;
 
@@ -26,6 +27,35 @@ public interface Protector {
 
     <T> void encrypt(ProtectedData<T> protectedData) throws EncryptionException;
 
+    /**
+     * Decrypts all the (encrypted) data in the collection; the data that are not encrypted are skipped.
+     * This is equivalent to calling {@link #decrypt(ProtectedData)} for each of them, but the implementation
+     * may do it more efficiently, e.g. by reusing the ciphers.
+     *
+     * @param parallel If true, the data may be processed by multiple threads. The caller must not touch them meanwhile.
+     */
+    default void decryptAll(@NotNull Collection<? extends ProtectedData<?>> protectedData, boolean parallel)
+            throws EncryptionException, SchemaException {
+        for (ProtectedData<?> data : protectedData) {
+            decrypt(data);
+        }
+    }
+
+    /**
+     * Encrypts all the (not yet encrypted) data in the collection; the data that are already encrypted are skipped.
+     * Otherwise, this is equivalent to calling {@link #encrypt(ProtectedData)} for each of them.
+     *
+     * @param parallel If true, the data may be processed by multiple threads. The caller must not touch them meanwhile.
+     */
+    default void encryptAll(@NotNull Collection<? extends ProtectedData<?>> protectedData, boolean parallel)
+            throws EncryptionException {
+        for (ProtectedData<?> data : protectedData) {
+            if (!data.isEncrypted()) {
+                encrypt(data);
+            }
+        }
+    }
+
     /**
      * Returns a list of trust managers that will be used to validate communicating party credentials.
      * (e.g. used to validate remote connector connections).
@@ -134,4 +134,9 @@ public interface ComplexTypeDefinitionDelegator extends TypeDefinitionDelegator,
         return delegate().hasOperationalOnlyItems();
     }
 
+    @Override
+    default int getItemSlot(@NotNull QName itemName) {
+        return delegate().getItemSlot(itemName);
+    }
+
 }
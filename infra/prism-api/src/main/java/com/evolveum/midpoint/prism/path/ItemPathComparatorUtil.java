@@ -6,10 +6,13 @@
  */
 package com.evolveum.midpoint.prism.path;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import javax.xml.namespace.QName;
 
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.util.QNameUtil;
@@ -94,6 +97,39 @@ public class ItemPathComparatorUtil {
         }
     }
 
+    /**
+     * Returns keys for segments of the normalized path (see {@link ItemPathNormalizingIterator}) such that equivalent segments
+     * have equal keys. Non-equivalent segments can have equal keys as well (e.g. names differing only in namespaces), so the keys
+     * can be used only to narrow down the candidates for path comparison, e.g. in hash maps or tries.
+     */
+    public static @NotNull List<Object> getSegmentKeys(@Nullable ItemPath path) {
+        List<Object> keys = new ArrayList<>();
+        ItemPathNormalizingIterator iterator = normalizingIterator(path);
+        while (iterator.hasNext()) {
+            keys.add(getSegmentKey(iterator.next()));
+        }
+        return keys;
+    }
+
+    private static Object getSegmentKey(Object segment) {
+        if (ItemPath.isName(segment)) {
+            return ItemPath.toName(segment).getLocalPart();
+        } else if (ItemPath.isVariable(segment)) {
+            return getLocalPart(ItemPath.toVariableName(segment));
+        } else if (ItemPath.isSpecial(segment)) {
+            return getLocalPart(ItemPathSegmentUtil.getSpecialSymbol(segment));
+        } else if (ItemPath.isId(segment)) {
+            Long id = ItemPath.toId(segment);
+            return id != null ? id : ItemPathNormalizingIterator.NULL_ID_ITEM_PATH_SEGMENT;
+        } else {
+            return segment; // not equivalent to anything, so any key will do
+        }
+    }
+
+    private static String getLocalPart(QName name) {
+        return name != null ? name.getLocalPart() : null;
+    }
+
     public static boolean equivalent(ItemPath path1, ItemPath path2) {
         return compareComplex(path1, path2) == ItemPath.CompareResult.EQUIVALENT;
     }
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.path;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Index of item paths by their segments, used by {@link PathSet} and {@link PathKeyedMap} so that the paths need not
+ * be compared with all the paths in the collection. Lookups take time proportional to the length of the path
+ * (plus the size of the result, where applicable).
+ *
+ * The nodes are keyed by {@link ItemPathComparatorUtil#getSegmentKeys(ItemPath)}, so a node can contain paths that
+ * are not equivalent (e.g. names differing only in namespaces). Hence, all the paths found are checked by the usual
+ * path comparison. Multiple paths are returned in the order in which they were added.
+ *
+ * Paths are removed by identity. Not thread safe.
+ */
+class ItemPathTrie {
+
+    @NotNull private final Node root = new Node();
+
+    /** Sequence number of the next path added; used to return the paths in their original order. */
+    private long nextSequence;
+
+    /** Number of stored paths compared with the paths looked up; for tests (lookups should not depend on the size). */
+    private long comparisons;
+
+    ItemPathTrie(@NotNull Collection<? extends ItemPath> paths) {
+        paths.forEach(this::add);
+    }
+
+    void add(@NotNull ItemPath path) {
+        Node node = root;
+        for (Object key : ItemPathComparatorUtil.getSegmentKeys(path)) {
+            node = node.children.computeIfAbsent(key, k -> new Node());
+        }
+        node.entries.add(new Entry(path, nextSequence++));
+    }
+
+    void remove(@NotNull ItemPath path) {
+        Node node = findNode(ItemPathComparatorUtil.getSegmentKeys(path));
+        if (node != null) {
+            node.entries.removeIf(entry -> entry.path == path);
+        }
+    }
+
+    /** Returns paths equivalent to the given one. */
+    @NotNull List<ItemPath> findEquivalent(@NotNull ItemPath path) {
+        Node node = findNode(ItemPathComparatorUtil.getSegmentKeys(path));
+        if (node == null) {
+            return List.of();
+        }
+        List<ItemPath> result = new ArrayList<>(1);
+        for (Entry entry : node.entries) {
+            comparisons++;
+            if (entry.path.equivalent(path)) {
+                result.add(entry.path);
+            }
+        }
+        return result;
+    }
+
+    /** Returns true if there is a path that is a sub-path (prefix) of the given path, or equivalent to it. */
+    boolean containsSubPathOrEquivalent(@NotNull ItemPath path) {
+        Predicate<ItemPath> predicate = stored -> stored.isSubPathOrEquivalent(path);
+        Node node = root;
+        for (Object key : ItemPathComparatorUtil.getSegmentKeys(path)) {
+            if (anyMatches(node.entries, predicate)) {
+                return true;
+            }
+            node = node.children.get(key);
+            if (node == null) {
+                return false;
+            }
+        }
+        return anyMatches(node.entries, predicate);
+    }
+
+    /** Returns true if there is a path that is a sub-path, a super-path, or equivalent to the given path. */
+    boolean containsRelated(@NotNull ItemPath path) {
+        Predicate<ItemPath> predicate = stored -> stored.compareComplex(path) != ItemPath.CompareResult.NO_RELATION;
+        Node node = root;
+        for (Object key : ItemPathComparatorUtil.getSegmentKeys(path)) {
+            if (anyMatches(node.entries, predicate)) {
+                return true;
+            }
+            node = node.children.get(key);
+            if (node == null) {
+                return false;
+            }
+        }
+        List<Entry> candidates = new ArrayList<>(node.entries);
+        node.collectDescendants(candidates);
+        return anyMatches(candidates, predicate);
+    }
+
+    private boolean anyMatches(List<Entry> entries, Predicate<ItemPath> predicate) {
+        for (Entry entry : entries) {
+            comparisons++;
+            if (predicate.test(entry.path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns paths that are super-paths of the given one, or equivalent to it. */
+    @NotNull List<ItemPath> findSuperPathsOrEquivalent(@NotNull ItemPath prefix) {
+        Node node = findNode(ItemPathComparatorUtil.getSegmentKeys(prefix));
+        if (node == null) {
+            return List.of();
+        }
+        List<Entry> candidates = new ArrayList<>(node.entries);
+        node.collectDescendants(candidates);
+        candidates.sort(Comparator.comparingLong(entry -> entry.sequence));
+        List<ItemPath> result = new ArrayList<>(candidates.size());
+        for (Entry candidate : candidates) {
+            comparisons++;
+            if (candidate.path.isSuperPathOrEquivalent(prefix)) {
+                result.add(candidate.path);
+            }
+        }
+        return result;
+    }
+
+    long getComparisons() {
+        return comparisons;
+    }
+
+    private Node findNode(List<Object> keys) {
+        Node node = root;
+        for (Object key : keys) {
+            node = node.children.get(key);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    private static class Node {
+
+        /** Paths ending at this node. */
+        private final List<Entry> entries = new ArrayList<>(1);
+
+        private final Map<Object, Node> children = new HashMap<>();
+
+        private void collectDescendants(List<Entry> result) {
+            for (Node child : children.values()) {
+                result.addAll(child.entries);
+                child.collectDescendants(result);
+            }
+        }
+    }
+
+    private static class Entry {
+
+        @NotNull private final ItemPath path;
+        private final long sequence;
+
+        private Entry(@NotNull ItemPath path, long sequence) {
+            this.path = path;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -7,6 +7,8 @@
 
 package com.evolveum.midpoint.prism.path;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
 import javax.xml.namespace.QName;
@@ -22,6 +24,9 @@ import com.evolveum.midpoint.util.QNameUtil;
  * The main issue with path-keyed maps is that comparing item paths using equals/hashCode is
  * unreliable.
  *
+ * Keys are indexed by their local parts (as {@link QNameUtil#match(QName, QName)} requires the local parts to be equal),
+ * so the operations need not compare the key with all the keys in the map.
+ *
  * This map does _not_ support null keys. Also, collections returned by keySet(), values(), entrySet()
  * are not modifiable.
  *
@@ -31,6 +36,9 @@ public class NameKeyedMap<K extends QName, T> implements Map<K, T>, Serializable
 
     private final Map<K, T> internalMap = new HashMap<>();
 
+    /** Keys of {@link #internalMap} by their local parts. Must be kept in sync with it. */
+    private transient Map<String, List<K>> keysByLocalPart = new HashMap<>();
+
     @Override
     public int size() {
         return internalMap.size();
@@ -43,8 +51,7 @@ public class NameKeyedMap<K extends QName, T> implements Map<K, T>, Serializable
 
     @Override
     public boolean containsKey(Object key) {
-        return key instanceof QName &&
-                QNameUtil.contains(internalMap.keySet(), (QName) key);
+        return findExistingKey(key) != null;
     }
 
     @Override
@@ -54,35 +61,43 @@ public class NameKeyedMap<K extends QName, T> implements Map<K, T>, Serializable
 
     @Override
     public T get(Object key) {
-        // TODO optimize if all is fully qualified
-        if (key instanceof QName) {
-            for (Entry<K, T> entry : internalMap.entrySet()) {
-                if (QNameUtil.match(entry.getKey(), (QName) key)) {
-                    return entry.getValue();
-                }
-            }
-        }
-        return null;
+        K existingKey = findExistingKey(key);
+        return existingKey != null ? internalMap.get(existingKey) : null;
     }
 
     @Nullable
     @Override
     public T put(K key, T value) {
         Objects.requireNonNull(key);
-        for (K existingKey : internalMap.keySet()) {
-            if (QNameUtil.match(existingKey, key)) {
-                return internalMap.put(existingKey, value);
-            }
+        K existingKey = findExistingKey(key);
+        if (existingKey != null) {
+            return internalMap.put(existingKey, value);
+        } else {
+            keysByLocalPart.computeIfAbsent(key.getLocalPart(), k -> new ArrayList<>(1)).add(key);
+            return internalMap.put(key, value);
         }
-        return internalMap.put(key, value);
     }
 
     @Override
     public T remove(Object key) {
+        K existingKey = findExistingKey(key);
+        if (existingKey != null) {
+            List<K> sameLocalPart = keysByLocalPart.get(existingKey.getLocalPart());
+            sameLocalPart.remove(existingKey);
+            if (sameLocalPart.isEmpty()) {
+                keysByLocalPart.remove(existingKey.getLocalPart());
+            }
+            return internalMap.remove(existingKey);
+        } else {
+            return null;
+        }
+    }
+
+    private K findExistingKey(Object key) {
         if (key instanceof QName) {
-            for (K existingKey : internalMap.keySet()) {
+            for (K existingKey : keysByLocalPart.getOrDefault(((QName) key).getLocalPart(), List.of())) {
                 if (QNameUtil.match(existingKey, (QName) key)) {
-                    return internalMap.remove(existingKey);
+                    return existingKey;
                 }
             }
         }
@@ -99,6 +114,7 @@ public class NameKeyedMap<K extends QName, T> implements Map<K, T>, Serializable
     @Override
     public void clear() {
         internalMap.clear();
+        keysByLocalPart.clear();
     }
 
     @NotNull
@@ -123,4 +139,12 @@ public class NameKeyedMap<K extends QName, T> implements Map<K, T>, Serializable
     public String toString() {
         return internalMap.toString();
     }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        keysByLocalPart = new HashMap<>();
+        for (K key : internalMap.keySet()) {
+            keysByLocalPart.computeIfAbsent(key.getLocalPart(), k -> new ArrayList<>(1)).add(key);
+        }
+    }
 }
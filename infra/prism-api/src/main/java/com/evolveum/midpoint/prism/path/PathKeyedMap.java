@@ -12,6 +12,8 @@ import com.evolveum.midpoint.util.annotation.Experimental;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
 
@@ -25,6 +27,9 @@ import java.util.*;
  * An alternative design to this class would be to use some wrapper class for ItemPath that would
  * provide equals() method with the same semantics as equivalent(). But what about hashCode then?
  *
+ * Keys are indexed by an {@link ItemPathTrie}, so the operations take time proportional to the length
+ * of the key, not to the size of the map.
+ *
  * This map does _not_ support null keys. Also, collections returned by keySet(), values(), entrySet()
  * are not modifiable.
  */
@@ -33,6 +38,9 @@ public class PathKeyedMap<T> implements Map<ItemPath, T>, Serializable {
 
     private final Map<ItemPath, T> internalMap = new HashMap<>();
 
+    /** Index of keys of {@link #internalMap}. Must be kept in sync with it. */
+    private transient ItemPathTrie keys = new ItemPathTrie(List.of());
+
     @Override
     public int size() {
         return internalMap.size();
@@ -45,8 +53,7 @@ public class PathKeyedMap<T> implements Map<ItemPath, T>, Serializable {
 
     @Override
     public boolean containsKey(Object key) {
-        return key instanceof ItemPath &&
-                ItemPathCollectionsUtil.containsEquivalent(internalMap.keySet(), (ItemPath) key);
+        return findExistingKey(key) != null;
     }
 
     @Override
@@ -56,38 +63,41 @@ public class PathKeyedMap<T> implements Map<ItemPath, T>, Serializable {
 
     @Override
     public T get(Object key) {
-        if (key instanceof ItemPath) {
-            for (Map.Entry<ItemPath, T> entry : internalMap.entrySet()) {
-                if (entry.getKey().equivalent((ItemPath) key)) {
-                    return entry.getValue();
-                }
-            }
-        }
-        return null;
+        ItemPath existingKey = findExistingKey(key);
+        return existingKey != null ? internalMap.get(existingKey) : null;
     }
 
     @Nullable
     @Override
     public T put(ItemPath key, T value) {
         Objects.requireNonNull(key);
-        for (ItemPath existingKey : internalMap.keySet()) {
-            if (existingKey.equivalent(key)) {
-                return internalMap.put(existingKey, value);
-            }
+        ItemPath existingKey = findExistingKey(key);
+        if (existingKey != null) {
+            return internalMap.put(existingKey, value);
+        } else {
+            keys.add(key);
+            return internalMap.put(key, value);
         }
-        return internalMap.put(key, value);
     }
 
     @Override
     public T remove(Object key) {
+        ItemPath existingKey = findExistingKey(key);
+        if (existingKey != null) {
+            keys.remove(existingKey);
+            return internalMap.remove(existingKey);
+        } else {
+            return null;
+        }
+    }
+
+    private ItemPath findExistingKey(Object key) {
         if (key instanceof ItemPath) {
-            for (ItemPath existingKey : internalMap.keySet()) {
-                if (existingKey.equivalent((ItemPath) key)) {
-                    return internalMap.remove(existingKey);
-                }
-            }
+            List<ItemPath> equivalent = keys.findEquivalent((ItemPath) key);
+            return !equivalent.isEmpty() ? equivalent.get(0) : null;
+        } else {
+            return null;
         }
-        return null;
     }
 
     @Override
@@ -100,6 +110,7 @@ public class PathKeyedMap<T> implements Map<ItemPath, T>, Serializable {
     @Override
     public void clear() {
         internalMap.clear();
+        keys = new ItemPathTrie(List.of());
     }
 
     @NotNull
@@ -124,4 +135,9 @@ public class PathKeyedMap<T> implements Map<ItemPath, T>, Serializable {
     public String toString() {
         return internalMap.toString();
     }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        keys = new ItemPathTrie(internalMap.keySet());
+    }
 }
@@ -7,11 +7,14 @@
 
 package com.evolveum.midpoint.prism.path;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
 
 import com.evolveum.midpoint.prism.AbstractFreezable;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.util.annotation.Experimental;
@@ -20,7 +23,9 @@ import com.evolveum.midpoint.util.annotation.Experimental;
  * A "safe" set of {@link ItemPath} - i.e. the one where (e.g.) presence is checked using {@link ItemPath#equivalent(ItemPath)},
  * not {@link Object#equals(Object)} method.
  *
- * Slower than standard set! Operations are evaluated in `O(n)` time.
+ * The paths are indexed by an {@link ItemPathTrie}, so lookups (including {@link #containsSubpathOrEquivalent(ItemPath)},
+ * {@link #containsRelated(ItemPath)} and {@link #remainder(ItemPath)}) are evaluated in time proportional to the length
+ * of the path (plus the size of the result), not to the size of the set. Iteration order is the order of addition.
  */
 @Experimental
 public class PathSet extends AbstractFreezable implements Set<ItemPath>, Serializable {
@@ -30,9 +35,13 @@ public class PathSet extends AbstractFreezable implements Set<ItemPath>, Seriali
     /** Can be mutable or immutable. */
     @NotNull private List<ItemPath> content;
 
+    /** Index of {@link #content}. Must be kept in sync with it. */
+    @NotNull private transient ItemPathTrie trie;
+
     private PathSet(@NotNull List<ItemPath> initialContent, boolean cloneOnCreation) {
         content = cloneOnCreation ?
                 new ArrayList<>(initialContent) : initialContent;
+        trie = new ItemPathTrie(content);
     }
 
     public PathSet() {
@@ -67,17 +76,43 @@ public class PathSet extends AbstractFreezable implements Set<ItemPath>, Seriali
 
     @Override
     public boolean contains(Object o) {
-        return o instanceof ItemPath && ItemPathCollectionsUtil.containsEquivalent(content, (ItemPath) o);
+        return o instanceof ItemPath && !trie.findEquivalent((ItemPath) o).isEmpty();
     }
 
     public boolean containsSubpathOrEquivalent(@NotNull ItemPath path) {
-        return ItemPathCollectionsUtil.containsSubpathOrEquivalent(this, path);
+        return trie.containsSubPathOrEquivalent(path);
+    }
+
+    /** Returns the number of stored paths compared with the paths looked up so far. */
+    @VisibleForTesting
+    long getPathComparisons() {
+        return trie.getComparisons();
     }
 
     @NotNull
     @Override
     public Iterator<ItemPath> iterator() {
-        return content.iterator();
+        Iterator<ItemPath> contentIterator = content.iterator();
+        return new Iterator<>() {
+            private ItemPath current;
+
+            @Override
+            public boolean hasNext() {
+                return contentIterator.hasNext();
+            }
+
+            @Override
+            public ItemPath next() {
+                current = contentIterator.next();
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                contentIterator.remove();
+                trie.remove(current);
+            }
+        };
     }
 
     @SuppressWarnings("NullableProblems")
@@ -100,13 +135,24 @@ public class PathSet extends AbstractFreezable implements Set<ItemPath>, Seriali
         if (contains(itemPath)) {
             return false;
         } else {
-            return content.add(itemPath);
+            content.add(itemPath);
+            trie.add(itemPath);
+            return true;
         }
     }
 
     @Override
     public boolean remove(Object o) {
-        return content.removeIf(path -> o instanceof ItemPath && path.equivalent((ItemPath) o));
+        if (!(o instanceof ItemPath)) {
+            return false;
+        }
+        List<ItemPath> equivalent = trie.findEquivalent((ItemPath) o);
+        if (equivalent.isEmpty()) {
+            return false;
+        }
+        content.removeIf(path -> equivalent.stream().anyMatch(e -> e == path));
+        equivalent.forEach(trie::remove);
+        return true;
     }
 
     @Override
@@ -140,6 +186,7 @@ public class PathSet extends AbstractFreezable implements Set<ItemPath>, Seriali
     @Override
     public void clear() {
         content.clear();
+        trie = new ItemPathTrie(List.of());
     }
 
     /**
@@ -157,9 +204,11 @@ public class PathSet extends AbstractFreezable implements Set<ItemPath>, Seriali
     }
 
     public @NotNull PathSet remainder(@NotNull ItemPath prefix) {
-        return new PathSet(
-                ItemPathCollectionsUtil.remainder(this, prefix, true),
-                false); // the list returned by the callee is not shared
+        List<ItemPath> remainders = new ArrayList<>();
+        for (ItemPath path : trie.findSuperPathsOrEquivalent(prefix)) {
+            remainders.add(path.remainder(prefix));
+        }
+        return new PathSet(remainders, false); // the list is not shared
     }
 
     @Override
@@ -174,6 +223,11 @@ public class PathSet extends AbstractFreezable implements Set<ItemPath>, Seriali
 
     /** Returns `true` it the set (at least partially) covers given item. */
     public boolean containsRelated(@NotNull ItemPath path) {
-        return ItemPathCollectionsUtil.containsRelated(this, path);
+        return trie.containsRelated(path);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        trie = new ItemPathTrie(content);
     }
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.query;
+
+import com.evolveum.midpoint.prism.PrismContainerValue;
+import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * An {@link ObjectFilter} prepared for repeated in-memory evaluation, see {@link ObjectFilter#compile(MatchingRuleRegistry)}.
+ *
+ * It gives the same results as {@link ObjectFilter#match(PrismContainerValue, MatchingRuleRegistry)}, but the work
+ * that does not depend on the value being matched (resolving matching rules, building regular expressions, and so on)
+ * is done only once. The compiled filter reflects the state of the filter at the time of compilation; it is thread-safe
+ * (as long as the matching rules are).
+ */
+@FunctionalInterface
+public interface CompiledObjectFilter {
+
+    /** Cost of a filter of unknown complexity, see {@link #getEstimatedCost()}. */
+    int DEFAULT_COST = 10;
+
+    boolean match(PrismContainerValue<?> value) throws SchemaException;
+
+    /**
+     * Relative cost of a single evaluation of this filter. It is used to order the conditions of AND/OR filters
+     * so that cheap conditions are evaluated (and can short-circuit the evaluation) first.
+     */
+    default int getEstimatedCost() {
+        return DEFAULT_COST;
+    }
+}
@@ -13,6 +13,7 @@ import javax.xml.namespace.QName;
 
 import com.evolveum.midpoint.prism.query.fuzzy.LevenshteinComputer;
 
+import com.evolveum.midpoint.prism.query.fuzzy.TriGramSignature;
 import com.evolveum.midpoint.prism.query.fuzzy.TriGramSimilarityComputer;
 
 import com.google.common.collect.ImmutableMap;
@@ -69,6 +70,9 @@ public interface FuzzyStringMatchFilter<T> extends PropertyValueFilter<T> {
          */
         public abstract @NotNull T computeMatchMetricValue(String lValue, String rValue);
 
+        /** Returns true if the metric value satisfies the threshold. */
+        public abstract boolean accepts(@NotNull T metricValue);
+
         /** Returns the Java type of the metric being used by this method (Integer, Float, ...). TODO consider removal */
         public abstract Class<T> getMetricValueClass();
 
@@ -109,13 +113,19 @@ public interface FuzzyStringMatchFilter<T> extends PropertyValueFilter<T> {
             return Integer.class;
         }
 
+        @Override
+        public boolean accepts(@NotNull Integer distance) {
+            return distance <= getMaxDistance();
+        }
+
+        /** The maximal distance that is accepted; negative if none is. */
+        public int getMaxDistance() {
+            return isInclusive() ? getThresholdRequired() : getThresholdRequired() - 1;
+        }
+
         @Override
         public boolean matches(String lValue, String rValue) {
-            if (isInclusive()) {
-                return computeMatchMetricValue(lValue, rValue) <= getThresholdRequired();
-            } else {
-                return computeMatchMetricValue(lValue, rValue) < getThresholdRequired();
-            }
+            return LevenshteinComputer.computeLevenshteinDistance(lValue, rValue, getMaxDistance()) >= 0;
         }
     }
 
@@ -148,13 +158,23 @@ public interface FuzzyStringMatchFilter<T> extends PropertyValueFilter<T> {
         }
 
         @Override
-        public boolean matches(String lValue, String rValue) {
+        public boolean accepts(@NotNull Float similarity) {
             if (isInclusive()) {
-                return computeMatchMetricValue(lValue, rValue) >= getThresholdRequired();
+                return similarity >= getThresholdRequired();
             } else {
-                return computeMatchMetricValue(lValue, rValue) > getThresholdRequired();
+                return similarity > getThresholdRequired();
             }
         }
+
+        @Override
+        public boolean matches(String lValue, String rValue) {
+            return accepts(computeMatchMetricValue(lValue, rValue));
+        }
+
+        /** Variant of {@link #matches(String, String)} for precomputed signatures. */
+        public boolean matches(@NotNull TriGramSignature lValue, @NotNull TriGramSignature rValue) {
+            return accepts((float) lValue.getSimilarity(rValue));
+        }
     }
 
     static Levenshtein levenshtein(int threshold, boolean inclusive) {
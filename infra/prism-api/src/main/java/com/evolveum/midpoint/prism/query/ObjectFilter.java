@@ -8,6 +8,7 @@ package com.evolveum.midpoint.prism.query;
 
 import java.io.Serializable;
 
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.prism.*;
@@ -26,6 +27,15 @@ public interface ObjectFilter extends DebugDumpable, Serializable, Revivable, Fr
 
     boolean match(PrismContainerValue<?> value, MatchingRuleRegistry matchingRuleRegistry) throws SchemaException;
 
+    /**
+     * Prepares the filter for matching many values, see {@link CompiledObjectFilter}.
+     *
+     * The default implementation simply delegates to {@link #match(PrismContainerValue, MatchingRuleRegistry)}.
+     */
+    default @NotNull CompiledObjectFilter compile(MatchingRuleRegistry matchingRuleRegistry) {
+        return value -> match(value, matchingRuleRegistry);
+    }
+
     void accept(Visitor visitor);
 
     @Override
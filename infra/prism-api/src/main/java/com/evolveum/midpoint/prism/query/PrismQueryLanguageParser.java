@@ -6,6 +6,8 @@
  */
 package com.evolveum.midpoint.prism.query;
 
+import java.util.Map;
+
 import com.evolveum.midpoint.prism.ItemDefinition;
 import com.evolveum.midpoint.util.exception.SchemaException;
 
@@ -23,4 +25,17 @@ public interface PrismQueryLanguageParser {
     <T> ObjectFilter parseFilter(Class<T> typeClass, String query) throws SchemaException;
 
     ObjectFilter parseFilter(ItemDefinition<?> definition, String query) throws SchemaException;
+
+    /**
+     * Parses Axiom Query filter with parameters. A parameter is referenced in the query as a variable,
+     * e.g. `name = $userName`; if the parameter is present in the map, its value is used instead of an expression.
+     * String values are interpreted in the same way as string literals; a collection stands for multiple values.
+     *
+     * The query text does not contain the values, so the parsing of queries differing only in them can be reused.
+     */
+    <T> ObjectFilter parseFilter(Class<T> typeClass, String query, Map<String, ?> parameters) throws SchemaException;
+
+    /** See {@link #parseFilter(Class, String, Map)}. */
+    ObjectFilter parseFilter(ItemDefinition<?> definition, String query, Map<String, ?> parameters)
+            throws SchemaException;
 }
@@ -20,7 +20,18 @@ public class LevenshteinComputer {
     }
 
     public static int computeLevenshteinDistance(String lObject, String rObject) {
-        return new LevenshteinDistance().apply(lObject, rObject);
+        return LevenshteinDistance.getDefaultInstance().apply(lObject, rObject);
+    }
+
+    /**
+     * Computes the distance only as far as it is needed to decide whether it exceeds the threshold:
+     * returns the distance, or -1 if it is greater than the threshold.
+     */
+    public static int computeLevenshteinDistance(String lObject, String rObject, int threshold) {
+        if (threshold < 0 || Math.abs(lObject.length() - rObject.length()) > threshold) {
+            return -1;
+        }
+        return new LevenshteinDistance(threshold).apply(lObject, rObject);
     }
 
 }
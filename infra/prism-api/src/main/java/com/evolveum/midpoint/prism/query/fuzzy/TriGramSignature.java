@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.prism.query.fuzzy;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Set of trigrams of a string, as defined by {@link TriGramSimilarityComputer#generateTriGram(String)}, computed
+ * once and stored in a compact form, so it can be compared with many other signatures cheaply.
+ *
+ * The string is split into words consisting of ASCII letters and digits (lower-cased), and each word is padded
+ * by two spaces on the left and one on the right. As there are only 37 possible characters in a trigram, each trigram
+ * is encoded as a three-digit base-37 number. The codes are kept sorted and without duplicates.
+ */
+public final class TriGramSignature implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int BASE = 37;
+    private static final int SPACE = 0;
+
+    /** Number of possible trigram codes. */
+    public static final int CODES = BASE * BASE * BASE;
+
+    @NotNull private final int[] codes;
+
+    private TriGramSignature(@NotNull int[] codes) {
+        this.codes = codes;
+    }
+
+    public static @NotNull TriGramSignature of(@NotNull String text) {
+        int length = text.length();
+        // Each word of L characters has L+1 trigrams; there may be one artificial trigram if there are no words.
+        int[] buffer = new int[length + (length + 1) / 2 + 1];
+        int count = 0;
+        int i = 0;
+        while (i < length) {
+            if (encode(text.charAt(i)) < 0) {
+                i++;
+                continue;
+            }
+            int first = SPACE;
+            int second = SPACE;
+            int c;
+            while (i < length && (c = encode(text.charAt(i))) >= 0) {
+                buffer[count++] = code(first, second, c);
+                first = second;
+                second = c;
+                i++;
+            }
+            buffer[count++] = code(first, second, SPACE);
+        }
+        if (count == 0) {
+            // An empty word still produces a trigram of three spaces.
+            buffer[count++] = code(SPACE, SPACE, SPACE);
+        }
+        Arrays.sort(buffer, 0, count);
+        int distinct = 0;
+        for (int j = 0; j < count; j++) {
+            if (distinct == 0 || buffer[j] != buffer[distinct - 1]) {
+                buffer[distinct++] = buffer[j];
+            }
+        }
+        return new TriGramSignature(Arrays.copyOf(buffer, distinct));
+    }
+
+    /** Returns the code of the (lower-cased) character, or -1 if it is not an ASCII letter or digit. */
+    private static int encode(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return 11 + c - 'a';
+        } else if (c >= 'A' && c <= 'Z') {
+            return 11 + c - 'A';
+        } else if (c >= '0' && c <= '9') {
+            return 1 + c - '0';
+        } else {
+            return -1;
+        }
+    }
+
+    private static int code(int first, int second, int third) {
+        return (first * BASE + second) * BASE + third;
+    }
+
+    /** Codes of the trigrams, sorted. The array must not be modified. */
+    public @NotNull int[] getCodes() {
+        return codes;
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    /** Number of trigrams present in both signatures. */
+    public int countCommon(@NotNull TriGramSignature other) {
+        int[] a = codes;
+        int[] b = other.codes;
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                common++;
+                i++;
+                j++;
+            }
+        }
+        return common;
+    }
+
+    /** Size of the intersection divided by the size of the union of the trigram sets. */
+    public double getSimilarity(@NotNull TriGramSignature other) {
+        return getSimilarity(countCommon(other), size(), other.size());
+    }
+
+    /** The similarity of two signatures of given sizes, having given number of trigrams in common. */
+    public static double getSimilarity(int common, int size1, int size2) {
+        return ((double) common) / (size1 + size2 - common);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o
+                || o instanceof TriGramSignature && Arrays.equals(codes, ((TriGramSignature) o).codes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(codes);
+    }
+
+    @Override
+    public String toString() {
+        return "TriGramSignature" + Arrays.toString(codes);
+    }
+}
@@ -7,9 +7,7 @@
 package com.evolveum.midpoint.prism.query.fuzzy;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 /**
  * TODO move to a better place?
@@ -50,30 +48,8 @@ public class TriGramSimilarityComputer {
         return strArray;
     }
 
+    /** See {@link TriGramSignature}; to compare one string with many others, the signatures should be reused. */
     public static double getSimilarity(String lObject, String rObject) {
-        List<String> firstTriGrams = generateTriGram(lObject);
-        List<String> secondTriGrams = generateTriGram(rObject);
-
-        List<String> intersectionList = intersection(firstTriGrams, secondTriGrams);
-        List<String> unionList = union(firstTriGrams, secondTriGrams);
-
-        double intersectionListSize = intersectionList.size();
-        double unionListSize = unionList.size();
-
-        return (intersectionListSize / unionListSize);
-    }
-
-    private static <T> List<T> union(List<T> list1, List<T> list2) {
-        Set<T> set = new HashSet<>();
-        set.addAll(list1);
-        set.addAll(list2);
-        return new ArrayList<>(set);
-    }
-
-    private static <T> List<T> intersection(List<T> list1, List<T> list2) {
-        List<T> list = new ArrayList<>(list1);
-        list.retainAll(list2);
-        return list;
+        return TriGramSignature.of(lObject).getSimilarity(TriGramSignature.of(rObject));
     }
-
 }
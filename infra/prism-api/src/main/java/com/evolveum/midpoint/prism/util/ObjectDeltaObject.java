@@ -17,6 +17,7 @@ import org.apache.commons.collections4.CollectionUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import com.evolveum.midpoint.prism.CloneStrategy;
 import com.evolveum.midpoint.prism.Item;
 import com.evolveum.midpoint.prism.ItemDefinition;
 import com.evolveum.midpoint.prism.Objectable;
@@ -273,7 +274,7 @@ public class ObjectDeltaObject<O extends Objectable> extends ItemDeltaItem<Prism
     public void recompute() throws SchemaException {
         if (delta == null) {
             // TODO: do we need clone() here? new object may be read-only
-            newObject = oldObject.clone();
+            newObject = cloneForChange(oldObject);
             return;
         }
         if (delta.isAdd()) {
@@ -287,7 +288,7 @@ public class ObjectDeltaObject<O extends Objectable> extends ItemDeltaItem<Prism
         if (oldObject == null) {
             return;
         }
-        newObject = oldObject.clone();
+        newObject = cloneForChange(oldObject);
         delta.applyTo(newObject);
     }
 
@@ -296,7 +297,7 @@ public class ObjectDeltaObject<O extends Objectable> extends ItemDeltaItem<Prism
             if (newObject == null) {
                 if (deep) {
                     // TODO: do we need clone() here? new object may be read-only
-                    newObject = oldObject.clone();
+                    newObject = cloneForChange(oldObject);
                 } else {
                     newObject = oldObject;
                 }
@@ -317,13 +318,21 @@ public class ObjectDeltaObject<O extends Objectable> extends ItemDeltaItem<Prism
             return;
         }
         if (newObject == null) {
-            newObject = oldObject.clone();
+            newObject = cloneForChange(oldObject);
             delta.applyTo(newObject);
         }
     }
 
+    /**
+     * The new object shares unchanged (immutable) parts with the old one; only the parts modified by the delta
+     * are really copied. See {@link CloneStrategy#COPY_ON_WRITE}.
+     */
+    private static <T extends Objectable> PrismObject<T> cloneForChange(PrismObject<T> oldObject) {
+        return oldObject.cloneComplex(CloneStrategy.COPY_ON_WRITE);
+    }
+
     public static <T extends Objectable> ObjectDeltaObject<T> create(PrismObject<T> oldObject, ObjectDelta<T> delta) throws SchemaException {
-        PrismObject<T> newObject = oldObject.clone();
+        PrismObject<T> newObject = cloneForChange(oldObject);
         delta.applyTo(newObject);
         return new ObjectDeltaObject<>(oldObject, delta, newObject, oldObject.getDefinition());
     }
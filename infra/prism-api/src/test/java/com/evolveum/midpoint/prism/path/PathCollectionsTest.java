@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.prism.path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.namespace.QName;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+
+/**
+ * Tests {@link PathSet}, {@link PathKeyedMap} and {@link NameKeyedMap}, comparing them with the straightforward
+ * (linear) implementations in {@link ItemPathCollectionsUtil}.
+ */
+public class PathCollectionsTest extends AbstractUnitTest {
+
+    private static final String NS = "http://midpoint.evolveum.com/xml/ns/test/path";
+    private static final String NS_OTHER = "http://midpoint.evolveum.com/xml/ns/test/path-other";
+
+    private static final ItemName A = new ItemName(NS, "a");
+    private static final ItemName B = new ItemName(NS, "b");
+    private static final ItemName C = new ItemName(NS, "c");
+    private static final ItemName A_OTHER = new ItemName(NS_OTHER, "a");
+    private static final ItemName A_UNQUALIFIED = new ItemName("a");
+    private static final ItemName B_UNQUALIFIED = new ItemName("b");
+
+    private static final int BENCHMARK_PATHS = 2_000;
+
+    private static final double NANOS_TO_MILLIS_DOUBLE = 1_000_000d;
+
+    @Test
+    public void test100PathSetLookups() {
+        given();
+        List<ItemPath> paths = List.of(
+                ItemPath.create(A, B),
+                ItemPath.create(A, 10L, C),
+                ItemPath.create(B),
+                ItemPath.create(A_OTHER, C));
+        PathSet pathSet = new PathSet(paths);
+        List<ItemPath> queries = List.of(
+                ItemPath.create(A),
+                ItemPath.create(A_UNQUALIFIED),
+                ItemPath.create(A, B),
+                ItemPath.create(A_UNQUALIFIED, B_UNQUALIFIED),
+                ItemPath.create(A, null, B),
+                ItemPath.create(A, 1L, B),
+                ItemPath.create(A, B, C),
+                ItemPath.create(A, 10L),
+                ItemPath.create(A, 10L, C),
+                ItemPath.create(A, C),
+                ItemPath.create(A_OTHER),
+                ItemPath.create(A_OTHER, B),
+                ItemPath.create(B, 5L, C),
+                ItemPath.create(C),
+                ItemPath.EMPTY_PATH);
+
+        expect("the results are the same as for the linear implementation");
+        for (ItemPath query : queries) {
+            assertThat(pathSet.contains(query))
+                    .as("contains " + query)
+                    .isEqualTo(ItemPathCollectionsUtil.containsEquivalent(paths, query));
+            assertThat(pathSet.containsSubpathOrEquivalent(query))
+                    .as("contains subpath or equivalent " + query)
+                    .isEqualTo(ItemPathCollectionsUtil.containsSubpathOrEquivalent(paths, query));
+            assertThat(pathSet.containsRelated(query))
+                    .as("contains related " + query)
+                    .isEqualTo(ItemPathCollectionsUtil.containsRelated(paths, query));
+            assertThat(pathSet.remainder(query))
+                    .as("remainder " + query)
+                    .containsExactlyElementsOf(ItemPathCollectionsUtil.remainder(paths, query, true));
+        }
+    }
+
+    @Test
+    public void test110PathSetModifications() {
+        given();
+        PathSet pathSet = PathSet.of(ItemPath.create(A, B), ItemPath.create(B), ItemPath.create(A, 10L, C));
+
+        when("paths are added and removed");
+        boolean addedEquivalent = pathSet.add(ItemPath.create(A_UNQUALIFIED, B));
+        boolean added = pathSet.add(ItemPath.create(C));
+        boolean removed = pathSet.remove(ItemPath.create(A_UNQUALIFIED, B_UNQUALIFIED));
+        pathSet.iterator().next(); // the first path is now B
+        var iterator = pathSet.iterator();
+        iterator.next();
+        iterator.remove();
+
+        then("the set and its index are updated");
+        assertThat(addedEquivalent).as("equivalent path added").isFalse();
+        assertThat(added).as("new path added").isTrue();
+        assertThat(removed).as("path removed").isTrue();
+        assertThat(pathSet).hasSize(2);
+        assertThat(pathSet.contains(ItemPath.create(A, B))).as("contains removed path").isFalse();
+        assertThat(pathSet.contains(B)).as("contains path removed via iterator").isFalse();
+        assertThat(pathSet.contains(C)).as("contains added path").isTrue();
+        assertThat(pathSet.containsRelated(A)).as("contains related to A").isTrue();
+        assertThat(pathSet.factor().get(A_UNQUALIFIED)).as("factored set for A")
+                .containsExactly(ItemPath.create(10L, C));
+
+        and("frozen set cannot be changed");
+        pathSet.freeze();
+        try {
+            pathSet.add(B);
+            fail("unexpected success");
+        } catch (UnsupportedOperationException e) {
+            displayExpectedException(e);
+        }
+        assertThat(pathSet.contains(B)).as("contains path not added").isFalse();
+    }
+
+    @Test
+    public void test120PathKeyedMap() {
+        given();
+        PathKeyedMap<String> map = new PathKeyedMap<>();
+
+        when();
+        map.put(ItemPath.create(A, B), "a/b");
+        map.put(ItemPath.create(A, 10L, C), "a/10/c");
+        map.put(ItemPath.create(A_UNQUALIFIED, B_UNQUALIFIED), "a/b again");
+        map.put(ItemPath.create(B), "b");
+        String removed = map.remove(ItemPath.create(B));
+
+        then();
+        assertThat(map).hasSize(2);
+        assertThat(map.get(ItemPath.create(A, null, B))).isEqualTo("a/b again");
+        assertThat(map.get(ItemPath.create(A, 10L, C))).isEqualTo("a/10/c");
+        assertThat(map.get(ItemPath.create(A, C))).isNull();
+        assertThat(map.containsKey(ItemPath.create(B))).isFalse();
+        assertThat(removed).isEqualTo("b");
+    }
+
+    @Test
+    public void test130NameKeyedMap() {
+        given();
+        NameKeyedMap<QName, String> map = new NameKeyedMap<>();
+
+        when();
+        map.put(A, "a");
+        map.put(A_OTHER, "a-other");
+        map.put(B_UNQUALIFIED, "b");
+        map.put(B, "b again");
+        String removed = map.remove(A_OTHER);
+
+        then();
+        assertThat(map).hasSize(2);
+        assertThat(map.get(A_UNQUALIFIED)).isEqualTo("a");
+        assertThat(map.get(A_OTHER)).isNull();
+        assertThat(map.get(B)).isEqualTo("b again");
+        assertThat(map.containsKey(new QName(NS_OTHER, "b"))).isTrue();
+        assertThat(map.containsKey(C)).isFalse();
+        assertThat(removed).isEqualTo("a-other");
+    }
+
+    /**
+     * Compares lookups in a large path set with the linear implementation. The times are only displayed;
+     * what is checked is that each lookup compares the path with a single stored path, regardless of the set size.
+     */
+    @Test
+    public void test200PathSetBenchmark() {
+        given("many paths");
+        List<ItemPath> paths = new ArrayList<>();
+        for (int i = 0; i < BENCHMARK_PATHS; i++) {
+            paths.add(ItemPath.create(new ItemName(NS, "item" + i), (long) i, C));
+        }
+        PathSet pathSet = new PathSet(paths);
+
+        when("all the paths (and their super-paths) are looked up");
+        long start = System.nanoTime();
+        int linearFound = 0;
+        for (ItemPath path : paths) {
+            if (ItemPathCollectionsUtil.containsSubpathOrEquivalent(paths, path.append(A))) {
+                linearFound++;
+            }
+        }
+        long middle = System.nanoTime();
+        int indexedFound = 0;
+        for (ItemPath path : paths) {
+            if (pathSet.containsSubpathOrEquivalent(path.append(A))) {
+                indexedFound++;
+            }
+        }
+        long end = System.nanoTime();
+
+        then();
+        displayValue("Linear lookups (ms)", (middle - start) / NANOS_TO_MILLIS_DOUBLE);
+        displayValue("Indexed lookups (ms)", (end - middle) / NANOS_TO_MILLIS_DOUBLE);
+        displayValue("Indexed path comparisons", pathSet.getPathComparisons());
+        assertThat(indexedFound).as("paths found").isEqualTo(linearFound).isEqualTo(BENCHMARK_PATHS);
+        assertThat(pathSet.getPathComparisons()).as("path comparisons").isEqualTo(BENCHMARK_PATHS);
+    }
+}
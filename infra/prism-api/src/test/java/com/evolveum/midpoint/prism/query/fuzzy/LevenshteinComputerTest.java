@@ -59,6 +59,13 @@ public class LevenshteinComputerTest extends AbstractUnitTest {
         Assertions.assertThat(distanceSimilarity).isEqualTo(result);
     }
 
+    @Test(dataProvider = "loadObject")
+    private void computeBoundedLevenshteinDistanceTest(String lObject, String rObject, int result) {
+        Assertions.assertThat(LevenshteinComputer.computeLevenshteinDistance(lObject, rObject, result)).isEqualTo(result);
+        Assertions.assertThat(LevenshteinComputer.computeLevenshteinDistance(lObject, rObject, result + 1)).isEqualTo(result);
+        Assertions.assertThat(LevenshteinComputer.computeLevenshteinDistance(lObject, rObject, result - 1)).isEqualTo(-1);
+    }
+
     private static List<String[]> getResourceData() throws IOException, CsvException {
         List<String[]> csvDataList;
         CSVParser csvParser = new CSVParserBuilder().withSeparator(',').withQuoteChar('\"').build();
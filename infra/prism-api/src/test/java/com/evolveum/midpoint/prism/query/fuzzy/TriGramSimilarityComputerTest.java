@@ -89,6 +89,19 @@ public class TriGramSimilarityComputerTest extends AbstractUnitTest {
         Assertions.assertThat(similarity).isEqualTo(trigramSimilarity);
     }
 
+    @Test(dataProvider = "data-provider")
+    public void trigramSignatureTest(String lObject, String rObject,
+            String ignoredResult, String lTriGrams, String rTriGrams) {
+        TriGramSignature signatureL = TriGramSignature.of(lObject);
+        TriGramSignature signatureR = TriGramSignature.of(rObject);
+
+        Assertions.assertThat(signatureL.size()).isEqualTo(new HashSet<>(Arrays.asList(lTriGrams.split(stringSplitter))).size());
+        Assertions.assertThat(signatureR.size()).isEqualTo(new HashSet<>(Arrays.asList(rTriGrams.split(stringSplitter))).size());
+        Set<String> common = new HashSet<>(TriGramSimilarityComputer.generateTriGram(lObject));
+        common.retainAll(TriGramSimilarityComputer.generateTriGram(rObject));
+        Assertions.assertThat(signatureL.countCommon(signatureR)).isEqualTo(common.size());
+    }
+
     @DataProvider(name = "data-provider")
     private Object[][] dpMethod(Method method) {
 
@@ -103,6 +116,7 @@ public class TriGramSimilarityComputerTest extends AbstractUnitTest {
 
         switch (method.getName()) {
             case "trigramGenerateTest":
+            case "trigramSignatureTest":
             case "computeSimilarityFromTrigramTest":
                 csvDataObject = new Object[resourceDataSize][5];
                 for (int i = 0; i < resourceDataSize; i++) {
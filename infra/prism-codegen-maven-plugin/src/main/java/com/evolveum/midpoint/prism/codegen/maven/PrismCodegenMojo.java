@@ -69,6 +69,10 @@ public class PrismCodegenMojo extends AbstractMojo {
     @Parameter(defaultValue="${project.build.finalName}")
     private String finalName;
 
+    /** Whether generated containerables should access their items via slots instead of by name. */
+    @Parameter(defaultValue="false")
+    private boolean slotAccess;
+
     @Component
     private MavenProjectHelper projectHelper;
 
@@ -103,6 +107,7 @@ public class PrismCodegenMojo extends AbstractMojo {
 
         try {
             CodeGenerator generator = new CodeGenerator(outDir, context);
+            generator.setSlotAccess(slotAccess);
             generator.process();
             generator.write();
 
@@ -62,6 +62,12 @@ public class CodeGenerator {
             .build();
 
 
+    /**
+     * If true, generated containerables access their items via slots ({@code ItemSlot}) instead of looking them up
+     * by name on each call.
+     */
+    private boolean slotAccess;
+
     public CodeGenerator(CodeWriter codeWriter, BindingContext context) {
         this.codeWriter = codeWriter;
         this.context = context;
@@ -115,6 +121,14 @@ public class CodeGenerator {
         return generator;
     }
 
+    public boolean isSlotAccess() {
+        return slotAccess;
+    }
+
+    public void setSlotAccess(boolean slotAccess) {
+        this.slotAccess = slotAccess;
+    }
+
     public void write() throws IOException {
         model.build(codeWriter);
     }
@@ -15,6 +15,7 @@ import com.evolveum.midpoint.prism.PrismContainerValue;
 import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.prism.PrismReferenceDefinition;
 import com.evolveum.midpoint.prism.impl.binding.AbstractMutableContainerable;
+import com.evolveum.midpoint.prism.impl.binding.ItemSlot;
 import com.evolveum.midpoint.prism.impl.xjc.PrismForJAXBUtil;
 import com.evolveum.prism.codegen.binding.ContainerableContract;
 import com.evolveum.prism.codegen.binding.ItemBinding;
@@ -51,6 +52,8 @@ public class ContainerableGenerator<T extends ContainerableContract> extends Str
     private static final String GET_REFERENCABLE = "prismGetReferencable";
     private static final String SET_REFERENCABLE = "prismSetReferencable";
 
+    private static final String SLOT_PREFIX = "SLOT_";
+
 
     private final Class<?> baseClass;
 
@@ -80,6 +83,9 @@ public class ContainerableGenerator<T extends ContainerableContract> extends Str
         applyDocumentation(clazz.javadoc(), contract.getDocumentation());
         annotateType(clazz, contract, XmlAccessType.PROPERTY);
         declareConstants(clazz, contract, contract.getLocalDefinitions());
+        if (isSlotAccess()) {
+            declareSlots(clazz, contract);
+        }
 
 
         clazz.constructor(JMod.PUBLIC).body().invoke("super");
@@ -96,6 +102,17 @@ public class ContainerableGenerator<T extends ContainerableContract> extends Str
         return clazz;
     }
 
+    private void declareSlots(JDefinedClass clazz, T contract) {
+        for (ItemBinding def : contract.getLocalDefinitions()) {
+            clazz.field(JMod.PRIVATE | JMod.STATIC | JMod.FINAL, ItemSlot.class, SLOT_PREFIX + def.constantName(),
+                    clazz(ItemSlot.class).staticInvoke("of").arg(fieldConstant(def.constantName())));
+        }
+    }
+
+    private boolean isSlotAccess() {
+        return getCodeGenerator().isSlotAccess();
+    }
+
     @Override
     protected boolean shouldUseJaxbElement(ItemBinding definition, T contract) {
         return false;
@@ -139,7 +156,7 @@ public class ContainerableGenerator<T extends ContainerableContract> extends Str
             }
         }
         // push arguments
-        invocation.arg(fieldConstant(definition.constantName()));
+        invocation.arg(itemAccess(definition.constantName()));
 
         JType type = returnType;
         if (type.isPrimitive()) {
@@ -175,6 +192,11 @@ public class ContainerableGenerator<T extends ContainerableContract> extends Str
         return JExpr.ref("F_" + constantName);
     }
 
+    /** Item name constant, or the slot (if slot access is enabled). */
+    private JExpression itemAccess(String constantName) {
+        return isSlotAccess() ? JExpr.ref(SLOT_PREFIX + constantName) : fieldConstant(constantName);
+    }
+
 
     @Override
     protected boolean shouldImplementSetter(JDefinedClass clazz, T contract, ItemBinding definition) {
@@ -195,7 +217,10 @@ public class ContainerableGenerator<T extends ContainerableContract> extends Str
         }
         JInvocation invocation = body.invoke(JExpr._this(),call);
         //push arguments
-        invocation.arg(fieldConstant(definition.constantName()));
+        // Containers and references are set by name (there are no slot-based variants of these setters).
+        invocation.arg(SET_PROPERTY_VALUE.equals(call)
+                ? itemAccess(definition.constantName())
+                : fieldConstant(definition.constantName()));
         invocation.arg(value);
     }
 
@@ -6,24 +6,38 @@
  */
 package com.evolveum.prism.codegen.impl;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
 
 import com.sun.codemodel.writer.FileCodeWriter;
 import org.testng.annotations.Test;
 
 import com.evolveum.midpoint.prism.AbstractPrismTest;
 import com.evolveum.midpoint.prism.ComplexTypeDefinition;
+import com.evolveum.midpoint.prism.Containerable;
+import com.evolveum.midpoint.prism.PrismContainerValue;
 import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.prism.PrismInternalTestUtil;
-import com.evolveum.midpoint.tools.testng.UnusedTestElement;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.PrismProperty;
+import com.evolveum.midpoint.prism.foo.ActivationType;
+import com.evolveum.midpoint.prism.foo.UserType;
 import com.evolveum.prism.codegen.binding.BindingContext;
 import com.evolveum.prism.codegen.binding.TypeBinding;
 
-@UnusedTestElement // TODO do we want this in testng-unit.xml?
 public class TestCodeGeneration extends AbstractPrismTest {
 
     private static final File TARGET = new File("target/test-code");
+    private static final File TARGET_SLOTS = new File("target/test-code-slots");
+    private static final File TARGET_SLOTS_CLASSES = new File("target/test-code-slots-classes");
     private static final String TEST_JAVA_NS = "com.evolveum.prism.example.foo";
 
     @Test
@@ -51,4 +65,136 @@ public class TestCodeGeneration extends AbstractPrismTest {
         codeGen.write();
     }
 
+    /**
+     * Generates and compiles beans with slot access, and checks that their getters and setters
+     * work with the same items as the name-based access (via {@link PrismContainerValue#findProperty}).
+     */
+    @Test
+    public void test100SlotAccess() throws Exception {
+        given("beans generated with slot access and compiled");
+        TARGET_SLOTS.mkdirs();
+        TARGET_SLOTS_CLASSES.mkdirs();
+        PrismContext prismContext = getPrismContext();
+
+        BindingContext context = new BindingContext();
+        context.addSchemas(prismContext.getSchemaRegistry().getSchemas());
+        context.addNamespaceMapping(PrismInternalTestUtil.NS_FOO, TEST_JAVA_NS);
+        context.process();
+
+        var codeGen = new CodeGenerator(new FileCodeWriter(TARGET_SLOTS), context);
+        codeGen.setSlotAccess(true);
+        codeGen.process(context.requireBinding(PrismInternalTestUtil.ACTIVATION_TYPE_QNAME));
+        codeGen.write();
+
+        // The schema maps the type to the existing (hand-written) bean class, so the generated one has the same name.
+        String beanClassName = ActivationType.class.getName();
+        Path activationFile = TARGET_SLOTS.toPath().resolve(beanClassName.replace('.', '/') + ".java");
+        String activationSource = Files.readString(activationFile);
+        displayValue("Generated ActivationType", activationSource);
+        assertThat(activationSource)
+                .as("generated ActivationType")
+                .contains("SLOT_ENABLED = ItemSlot.of(F_ENABLED)")
+                .contains("prismGetPropertyValue(SLOT_ENABLED")
+                .contains("prismSetPropertyValue(SLOT_ENABLED");
+
+        // The bean refers to the NAMESPACE constant of the generated ObjectFactory in its package; here the package
+        // contains the hand-written ObjectFactory, so a stub with the constant is provided (it is inlined by the compiler).
+        Path objectFactoryStub = TARGET_SLOTS.toPath().resolve("stub").resolve("ObjectFactory.java");
+        Files.createDirectories(objectFactoryStub.getParent());
+        Files.writeString(objectFactoryStub, "package " + ActivationType.class.getPackageName() + ";\n"
+                + "class ObjectFactory { static final String NAMESPACE = \"" + PrismInternalTestUtil.NS_FOO + "\"; }\n");
+
+        compile(TARGET_SLOTS_CLASSES, activationFile, objectFactoryStub);
+
+        and("a user with activation");
+        PrismObject<UserType> user = prismContext.getSchemaRegistry()
+                .findObjectDefinitionByCompileTimeClass(UserType.class)
+                .instantiate();
+        PrismContainerValue<?> activation = user.findOrCreateContainer(UserType.F_ACTIVATION).getValue();
+        activation.findOrCreateProperty(ActivationType.F_ENABLED).setRealValue(true);
+        assertThat(activation.getComplexTypeDefinition().getItemSlot(ActivationType.F_ENABLED))
+                .as("slot of 'enabled'")
+                .isNotNegative();
+
+        Class<?> beanClass = new GeneratedClassLoader(TARGET_SLOTS_CLASSES.toPath(), getClass().getClassLoader())
+                .loadClass(beanClassName);
+        assertThat(beanClass).isNotSameAs(ActivationType.class);
+        Containerable bean = (Containerable) beanClass.getConstructor().newInstance();
+        bean.setupContainerValue(activation);
+
+        when("the items are read via generated getters");
+        Object enabledViaGetter = beanClass.getMethod("isEnabled").invoke(bean);
+        Object validFromViaGetter = beanClass.getMethod("getValidFrom").invoke(bean);
+
+        then("the values are the same as when accessed by name");
+        assertThat(enabledViaGetter).isEqualTo(activation.findProperty(ActivationType.F_ENABLED).getRealValue());
+        assertThat(validFromViaGetter).isNull();
+        assertThat(activation.findProperty(ActivationType.F_VALID_FROM)).isNull();
+
+        when("the item is modified via generated setter");
+        beanClass.getMethod("setEnabled", Boolean.class).invoke(bean, false);
+
+        then("the change is visible by name and via getter");
+        PrismProperty<Boolean> enabled = activation.findProperty(ActivationType.F_ENABLED);
+        assertThat(enabled.getRealValue()).isFalse();
+        assertThat(beanClass.getMethod("isEnabled").invoke(bean)).isEqualTo(false);
+
+        when("the item is removed via generated setter");
+        beanClass.getMethod("setEnabled", Boolean.class).invoke(bean, (Object) null);
+
+        then("the item is gone");
+        assertThat(activation.findProperty(ActivationType.F_ENABLED)).isNull();
+        assertThat(beanClass.getMethod("isEnabled").invoke(bean)).isNull();
+
+        when("an item not present before is set via generated setter");
+        beanClass.getMethod("setEnabled", Boolean.class).invoke(bean, true);
+
+        then("it is created and visible by name and via getter");
+        assertThat(activation.findProperty(ActivationType.F_ENABLED).getRealValue()).isEqualTo(true);
+        assertThat(beanClass.getMethod("isEnabled").invoke(bean)).isEqualTo(true);
+    }
+
+    private void compile(File outputDir, Path... sourceFiles) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "-d", outputDir.getPath(),
+                "-classpath", System.getProperty("java.class.path"),
+                "-proc:none", "-nowarn"));
+        for (Path sourceFile : sourceFiles) {
+            arguments.add(sourceFile.toString());
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int result = compiler.run(null, null, null, arguments.toArray(new String[0]));
+        assertThat(result).as("compilation result").isZero();
+    }
+
+    /** Loads the generated classes even if classes with the same names are on the classpath. */
+    private static class GeneratedClassLoader extends ClassLoader {
+
+        private final Path classesDir;
+
+        GeneratedClassLoader(Path classesDir, ClassLoader parent) {
+            super(parent);
+            this.classesDir = classesDir;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            Path classFile = classesDir.resolve(name.replace('.', '/') + ".class");
+            if (!Files.exists(classFile)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    try {
+                        byte[] bytes = Files.readAllBytes(classFile);
+                        loaded = defineClass(name, bytes, 0, bytes.length);
+                    } catch (IOException e) {
+                        throw new ClassNotFoundException(name, e);
+                    }
+                }
+                return loaded;
+            }
+        }
+    }
 }
@@ -84,6 +84,9 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Mut
 
     private transient List<PrismPropertyDefinition<?>> attributeDefinitions;
 
+    /** Item name -> slot (see {@link #getItemSlot(QName)}). Created lazily, only when this definition is immutable. */
+    private transient volatile Map<QName, Integer> itemSlots;
+
     private boolean strictAnyMarker;
 
     public ComplexTypeDefinitionImpl(@NotNull QName typeName) {
@@ -585,6 +588,23 @@ public class ComplexTypeDefinitionImpl extends TypeDefinitionImpl implements Mut
         return this;
     }
 
+    @Override
+    public int getItemSlot(@NotNull QName itemName) {
+        if (!isImmutable()) {
+            return -1; // item definitions can be added or removed, so the indices are not stable
+        }
+        Map<QName, Integer> slots = itemSlots;
+        if (slots == null) {
+            slots = new HashMap<>();
+            for (int i = 0; i < itemDefinitions.size(); i++) {
+                slots.putIfAbsent(itemDefinitions.get(i).getItemName(), i);
+            }
+            itemSlots = slots;
+        }
+        Integer slot = slots.get(itemName);
+        return slot != null ? slot : -1;
+    }
+
     @Override
     public void performFreeze() {
         itemDefinitions.forEach(Freezable::freeze);
@@ -7,6 +7,7 @@
 
 package com.evolveum.midpoint.prism.impl;
 
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -42,7 +43,9 @@ public class EnumerationTypeDefinitionImpl extends SimpleTypeDefinitionImpl impl
         return clone;
     }
 
-    public static class ValueDefinitionImpl implements ValueDefinition {
+    public static class ValueDefinitionImpl implements ValueDefinition, Serializable {
+
+        private static final long serialVersionUID = 1L;
 
         private final String value;
         private final String documentation;
@@ -62,7 +62,11 @@ public abstract class ItemDefinitionImpl<I extends Item<?, ?>>
 
     private boolean indexOnly = false;
 
-    private final transient SerializationProxy serializationProxy;
+    /**
+     * Type in which this item is defined; used to create {@link SerializationProxy}. Not transient, so that
+     * the definitions restored from a schema snapshot can be proxied as well.
+     */
+    private final QName definedInType;
 
     // TODO: annotations
 
@@ -82,7 +86,7 @@ public abstract class ItemDefinitionImpl<I extends Item<?, ?>>
     ItemDefinitionImpl(@NotNull QName itemName, @NotNull QName typeName, QName definedInType) {
         super(typeName);
         this.itemName = ItemName.fromQName(itemName);
-        this.serializationProxy = definedInType != null ? SerializationProxy.forItemDef(definedInType, this.itemName) : null;
+        this.definedInType = definedInType;
     }
 
     protected static boolean useSerializationProxy(boolean localEnabled) {
@@ -469,6 +473,6 @@ public abstract class ItemDefinitionImpl<I extends Item<?, ?>>
     }
 
     protected Object writeReplace() {
-        return useSerializationProxy(serializationProxy != null) ? serializationProxy : this;
+        return useSerializationProxy(definedInType != null) ? SerializationProxy.forItemDef(definedInType, itemName, this) : this;
     }
 }
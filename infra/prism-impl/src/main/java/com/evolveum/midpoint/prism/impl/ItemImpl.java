@@ -59,7 +59,11 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition<?>
     protected PrismContainerValue<?> parent;
     protected D definition;
     // FIXME: THis should be Collection, not list, since list implementations does not allow hashing
-    @NotNull protected final List<V> values = new ArrayList<>();
+    @NotNull protected final List<V> values = new ItemValueList<>();
+
+    /** Values grouped by hash codes, created when there are many values; see {@link #getEquivalenceCandidates}. */
+    private transient ValueHashBuckets<V> hashBuckets;
+
     private transient Map<String, Object> userData = new HashMap<>();
 
     protected boolean incomplete;
@@ -378,7 +382,8 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition<?>
         if (checkEquivalents) {
             boolean exactEquivalentFound = false;
             boolean somethingRemoved = false;
-            Iterator<V> iterator = values.iterator();
+            List<V> candidates = getEquivalenceCandidates(newValue, equivalenceStrategy);
+            Iterator<V> iterator = candidates != null ? new ArrayList<>(candidates).iterator() : values.iterator();
             while (iterator.hasNext()) {
                 V currentValue = iterator.next();
                 if (equivalenceStrategy.equals(currentValue, newValue)) {
@@ -386,7 +391,11 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition<?>
                             (DEFAULT_FOR_EQUALS.equals(equivalenceStrategy) || DEFAULT_FOR_EQUALS.equals(currentValue, newValue))) {
                         exactEquivalentFound = true;
                     } else {
-                        iterator.remove();
+                        if (candidates != null) {
+                            removeByIdentity(currentValue);
+                        } else {
+                            iterator.remove();
+                        }
                         valueRemoved(currentValue);
                         currentValue.setParent(null);
                         somethingRemoved = true;
@@ -410,13 +419,50 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition<?>
         return addInternalExecution(newValue);
     }
 
+    /**
+     * Returns the values that may be equivalent to given one (in their original order), or null if all the values
+     * have to be checked. For many values, we look them up by hash codes, if the strategy and values allow it.
+     */
+    protected @Nullable List<V> getEquivalenceCandidates(@NotNull V newValue, @NotNull EquivalenceStrategy strategy) {
+        if (!(strategy instanceof ParameterizedEquivalenceStrategy) || !ValueHashBuckets.isHashable(newValue)) {
+            return null;
+        }
+        ParameterizedEquivalenceStrategy parameterizedStrategy = (ParameterizedEquivalenceStrategy) strategy;
+        if (hashBuckets == null || !hashBuckets.isUpToDate(values, parameterizedStrategy)) {
+            hashBuckets = values.size() >= PrismStaticConfiguration.valueHashBucketsEnableThreshold()
+                    ? ValueHashBuckets.create(values, parameterizedStrategy)
+                    : null;
+        }
+        return hashBuckets != null ? hashBuckets.getCandidates(newValue) : null;
+    }
+
+    private void removeByIdentity(V value) {
+        for (Iterator<V> iterator = values.iterator(); iterator.hasNext(); ) {
+            if (iterator.next() == value) {
+                iterator.remove();
+                return;
+            }
+        }
+    }
+
+    /** Must be called after the value is removed from {@link #values}. */
     protected void valueRemoved(V currentValue) {
-        // NOOP
+        if (hashBuckets != null) {
+            hashBuckets.valueRemoved(currentValue, values);
+        }
+    }
 
+    /** Called when a hash code of any of our values may have changed. */
+    void valueHashChanged() {
+        hashBuckets = null;
     }
 
     protected boolean addInternalExecution(@NotNull V newValue) {
-        return values.add(newValue);
+        boolean added = values.add(newValue);
+        if (hashBuckets != null && !hashBuckets.valueAdded(newValue, values)) {
+            hashBuckets = null;
+        }
+        return added;
     }
 
     /**
@@ -426,6 +472,7 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition<?>
     @Experimental
     public void addForced(@NotNull V newValue) {
         values.add(newValue);
+        hashBuckets = null;
     }
 
     @Override
@@ -539,6 +586,7 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition<?>
             value.setParent(null);
         }
         values.clear();
+        hashBuckets = null;
     }
 
     @Override
@@ -594,9 +642,10 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition<?>
                 }
             }
             // the other exists, this means that we need to compare the values one by one
-            Collection<PrismValue> outstandingOtherValues = new ArrayList<>(other.getValues());
+            OutstandingValues outstandingOtherValues = new OutstandingValues(
+                    other.getValues(), strategy, shouldUseDiffBuckets(other), !rootValuesOnly);
             for (PrismValue thisValue : getValues()) {
-                Iterator<PrismValue> iterator = outstandingOtherValues.iterator();
+                Iterator<PrismValue> iterator = outstandingOtherValues.candidatesFor(thisValue);
                 boolean found = false;
                 while (iterator.hasNext()) {
                     PrismValueImpl otherValue = (PrismValueImpl) iterator.next();
@@ -634,7 +683,7 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition<?>
                 }
             } else {
                 assert delta != null;
-                for (PrismValue outstandingOtherValue : outstandingOtherValues) {
+                for (PrismValue outstandingOtherValue : outstandingOtherValues.getRemaining()) {
                     delta.addValueToAdd(outstandingOtherValue.clone());
                 }
                 // Some deltas may need to be polished a bit. E.g. transforming add/delete delta to a replace delta.
@@ -649,6 +698,18 @@ public abstract class ItemImpl<V extends PrismValue, D extends ItemDefinition<?>
         }
     }
 
+    /**
+     * Bucketing pays off only for larger items. Single-valued items are excluded also because their values
+     * represent the same thing regardless of their IDs.
+     */
+    private boolean shouldUseDiffBuckets(Item<V, D> other) {
+        int threshold = PrismStaticConfiguration.diffBucketingThreshold();
+        return getValues().size() >= threshold
+                && other.getValues().size() >= threshold
+                && !isSingleValueByDefinition()
+                && !other.isSingleValueByDefinition();
+    }
+
     protected ItemDelta<V, D> fixupDelta(ItemDelta<V, D> delta, Item<V, D> other) {
         return delta;
     }
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.PrismValue;
+
+/**
+ * Index of values of a multivalued item by a key: container value ID or reference OID.
+ *
+ * Maps each key to the first value having it (the same value that would be found by iterating the values).
+ * Values with null keys are not indexed.
+ *
+ * The index does not observe the values, so the owning item has to:
+ *
+ * - report added and removed values, after changing the list ({@link #valueAdded(PrismValue, List)},
+ * {@link #valueRemoved(PrismValue, List)}),
+ * - drop the index if a key of any value changes, or if {@link #valueRemoved(PrismValue, List)} says so,
+ * - check that the index is not outdated ({@link #isUpToDate(List)}) before using it; this covers the cases when
+ * the list of values is manipulated directly (e.g. via {@link ItemImpl#addForced(PrismValue)}). The check is based
+ * on the modification count of the list, see {@link ItemValueList}.
+ *
+ * Not thread safe. Indexes of immutable items must be created before the item is frozen.
+ */
+class ItemValueIndex<K, V extends PrismValue> {
+
+    @NotNull private final Function<V, K> keyFunction;
+
+    @NotNull private final Map<K, V> valuesByKey;
+
+    /**
+     * Modification count of the list of values the index corresponds to, or -1 if the index cannot be trusted
+     * (the list does not count the modifications, or it was changed without the change being reported).
+     */
+    private int modificationCount;
+
+    /** Number of values with null keys (not indexed). */
+    private int nullKeys;
+
+    /** Whether there are more values with the same key. Removal of such values cannot be processed incrementally. */
+    private boolean duplicateKeys;
+
+    ItemValueIndex(@NotNull Function<V, K> keyFunction, @NotNull List<V> values) {
+        this.keyFunction = keyFunction;
+        this.valuesByKey = new HashMap<>(values.size() * 2);
+        for (V value : values) {
+            addKey(value);
+        }
+        this.modificationCount = getModificationCount(values);
+    }
+
+    @Nullable V get(@NotNull K key) {
+        return valuesByKey.get(key);
+    }
+
+    boolean isUpToDate(@NotNull List<V> values) {
+        return modificationCount >= 0 && modificationCount == getModificationCount(values);
+    }
+
+    boolean hasNullKeys() {
+        return nullKeys > 0;
+    }
+
+    void valueAdded(@NotNull V value, @NotNull List<V> values) {
+        addKey(value);
+        modificationChanged(values);
+    }
+
+    private void addKey(@NotNull V value) {
+        K key = keyFunction.apply(value);
+        if (key == null) {
+            nullKeys++;
+        } else if (valuesByKey.putIfAbsent(key, value) != null) {
+            duplicateKeys = true;
+        }
+    }
+
+    /** Returns false if the index cannot be updated, and therefore has to be dropped. */
+    boolean valueRemoved(@NotNull V value, @NotNull List<V> values) {
+        modificationChanged(values);
+        K key = keyFunction.apply(value);
+        if (key == null) {
+            nullKeys--;
+            return true;
+        } else if (valuesByKey.get(key) != value) {
+            return true;
+        } else if (duplicateKeys) {
+            return false; // we would have to find the next value with the same key
+        } else {
+            valuesByKey.remove(key);
+            return true;
+        }
+    }
+
+    /** Each reported change is a single modification of the list; more modifications mean an unreported change. */
+    private void modificationChanged(List<V> values) {
+        int current = getModificationCount(values);
+        modificationCount = modificationCount >= 0 && current == modificationCount + 1 ? current : -1;
+    }
+
+    private static int getModificationCount(List<?> values) {
+        return values instanceof ItemValueList ? ((ItemValueList<?>) values).getModificationCount() : -1;
+    }
+}
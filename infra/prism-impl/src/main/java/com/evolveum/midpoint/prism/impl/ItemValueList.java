@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl;
+
+import java.util.ArrayList;
+
+/**
+ * List of values of an item that counts its modifications, so the auxiliary structures built over the values
+ * (like {@link ValueHashBuckets}) can tell whether the list was changed without them being notified,
+ * e.g. directly via {@link ItemImpl#getValues()}.
+ */
+class ItemValueList<V> extends ArrayList<V> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Changes the modification count also when a value is replaced, unlike {@link ArrayList}. */
+    @Override
+    public V set(int index, V element) {
+        modCount++;
+        return super.set(index, element);
+    }
+
+    /** The number of structural modifications (and replacements) of the list so far. */
+    int getModificationCount() {
+        return modCount;
+    }
+}
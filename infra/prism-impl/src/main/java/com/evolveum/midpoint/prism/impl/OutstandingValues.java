@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl;
+
+import java.util.*;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.PrismContainerValue;
+import com.evolveum.midpoint.prism.PrismReferenceValue;
+import com.evolveum.midpoint.prism.PrismValue;
+import com.evolveum.midpoint.prism.equivalence.ParameterizedEquivalenceStrategy;
+
+/**
+ * Values of the "other" item during {@link ItemImpl#diffInternal(com.evolveum.midpoint.prism.Item, Collection, boolean,
+ * ParameterizedEquivalenceStrategy, boolean)} that were not matched to any value of "this" item yet.
+ *
+ * For each value of "this" item, the diff iterates over the outstanding values ({@link #candidatesFor(PrismValue)})
+ * until it finds the first matching one, and removes it. Without bucketing, all the outstanding values are iterated
+ * in their original order, making the diff quadratic.
+ *
+ * With bucketing, the values are grouped by a key (container value ID when matching by representation, reference OID)
+ * and by hash code (computed by the equivalence strategy). The values from the buckets of the given value are
+ * iterated first, in their original order, so the match is usually found immediately; the rest of the values
+ * is iterated only if there is no match in the buckets. Every value that can match the given one is in one of its
+ * buckets (assuming the hash code is consistent with equals), so the first match is the same value as without
+ * bucketing; and the diff is quadratic only in the number of values that do not match anything, i.e. in the size
+ * of the change.
+ */
+class OutstandingValues {
+
+    private static final int[] NO_CANDIDATES = new int[0];
+
+    @NotNull private final List<PrismValue> values;
+    private final boolean[] removed;
+
+    @NotNull private final ParameterizedEquivalenceStrategy strategy;
+
+    /**
+     * Value indices by container value ID (if matching by representation) or by reference OID; see {@link #getKey}.
+     * Null if not bucketing.
+     */
+    private final Map<Object, List<Integer>> byKey;
+
+    private final boolean matchingRepresentation;
+
+    /** Value indices by hash code. Null if not bucketing. */
+    private final Map<Integer, List<Integer>> byHash;
+
+    OutstandingValues(@NotNull List<? extends PrismValue> values, @NotNull ParameterizedEquivalenceStrategy strategy,
+            boolean bucketing, boolean matchingRepresentation) {
+        this.values = new ArrayList<>(values);
+        this.removed = new boolean[values.size()];
+        this.strategy = strategy;
+        this.matchingRepresentation = matchingRepresentation;
+        if (bucketing) {
+            byHash = new HashMap<>();
+            byKey = new HashMap<>();
+            for (int i = 0; i < this.values.size(); i++) {
+                PrismValue value = this.values.get(i);
+                byHash.computeIfAbsent(strategy.hashCode(value), k -> new ArrayList<>()).add(i);
+                Object key = getKey(value);
+                if (key != null) {
+                    byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+                }
+            }
+        } else {
+            byHash = null;
+            byKey = null;
+        }
+    }
+
+    /**
+     * Container values match by representation if they have the same ID. Reference values can be equal only if they
+     * have the same OID; grouping them by OID keeps them together even if their hash codes differ (e.g. because
+     * the relations are compared in a more lenient way than they are hashed).
+     */
+    private Object getKey(PrismValue value) {
+        if (value instanceof PrismContainerValue) {
+            return matchingRepresentation ? ((PrismContainerValue<?>) value).getId() : null;
+        } else if (value instanceof PrismReferenceValue) {
+            return ((PrismReferenceValue) value).getOid();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Returns an iterator over the outstanding values: the ones that are likely to match given value first, then the rest.
+     * Removing a value via the iterator means it is matched, so it is not returned by any later iteration.
+     */
+    @NotNull Iterator<PrismValue> candidatesFor(@NotNull PrismValue thisValue) {
+        return new CandidateIterator(getPreferredCandidates(thisValue));
+    }
+
+    private int[] getPreferredCandidates(PrismValue thisValue) {
+        if (byHash == null) {
+            return NO_CANDIDATES;
+        }
+        List<Integer> sameHash = byHash.getOrDefault(strategy.hashCode(thisValue), List.of());
+        Object key = getKey(thisValue);
+        List<Integer> sameKey = key != null ? byKey.getOrDefault(key, List.of()) : List.of();
+        return mergeSorted(sameHash, sameKey);
+    }
+
+    /** Both lists are sorted, as values are put into buckets in their original order. */
+    private static int[] mergeSorted(List<Integer> first, List<Integer> second) {
+        int[] result = new int[first.size() + second.size()];
+        int i = 0, j = 0, count = 0;
+        while (i < first.size() || j < second.size()) {
+            int next;
+            if (j == second.size() || i < first.size() && first.get(i) <= second.get(j)) {
+                next = first.get(i++);
+            } else {
+                next = second.get(j++);
+            }
+            if (count == 0 || result[count - 1] != next) {
+                result[count++] = next;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    boolean isEmpty() {
+        for (boolean r : removed) {
+            if (!r) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Values that were not matched, in their original order. */
+    @NotNull List<PrismValue> getRemaining() {
+        List<PrismValue> remaining = new ArrayList<>();
+        for (int i = 0; i < values.size(); i++) {
+            if (!removed[i]) {
+                remaining.add(values.get(i));
+            }
+        }
+        return remaining;
+    }
+
+    private class CandidateIterator implements Iterator<PrismValue> {
+
+        private final int[] preferred;
+        private int preferredPosition;
+        private int scanPosition;
+        private int next = -1;
+        private int current = -1;
+
+        private CandidateIterator(int[] preferred) {
+            this.preferred = preferred;
+            advance();
+        }
+
+        private void advance() {
+            while (preferredPosition < preferred.length) {
+                int index = preferred[preferredPosition++];
+                if (!removed[index]) {
+                    next = index;
+                    return;
+                }
+            }
+            while (scanPosition < values.size()) {
+                int index = scanPosition++;
+                if (!removed[index] && Arrays.binarySearch(preferred, index) < 0) {
+                    next = index;
+                    return;
+                }
+            }
+            next = -1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        public PrismValue next() {
+            if (next < 0) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            advance();
+            return values.get(current);
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0 || removed[current]) {
+                throw new IllegalStateException();
+            }
+            removed[current] = true;
+        }
+    }
+}
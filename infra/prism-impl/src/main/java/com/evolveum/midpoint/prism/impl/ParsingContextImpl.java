@@ -26,6 +26,8 @@ public class ParsingContextImpl implements ParsingContext {
     private final List<String> warnings = new ArrayList<>();
     /** Not checking for duplicates when adding parsed data. For trusted sources. */
     private boolean fastAddOperations;
+    /** Reading JSON/YAML directly into prism structures, see {@link com.evolveum.midpoint.prism.PrismParser#definitionDriven()}. */
+    private boolean definitionDriven;
 
     private ParsingContextImpl() {
     }
@@ -162,4 +164,15 @@ public class ParsingContextImpl implements ParsingContext {
         fastAddOperations = true;
         return this;
     }
+
+    @Override
+    public boolean isDefinitionDriven() {
+        return definitionDriven;
+    }
+
+    @Override
+    public ParsingContext definitionDriven() {
+        definitionDriven = true;
+        return this;
+    }
 }
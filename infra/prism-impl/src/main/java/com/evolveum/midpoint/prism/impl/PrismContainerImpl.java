@@ -22,6 +22,7 @@ import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 import org.apache.commons.collections4.CollectionUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.xml.namespace.QName;
 import java.lang.reflect.Modifier;
@@ -59,6 +60,12 @@ public class PrismContainerImpl<C extends Containerable>
 
     protected Class<C> compileTimeClass;
 
+    /**
+     * Index of values by their IDs, created when there are many values.
+     * See {@link PrismStaticConfiguration#containerIdIndexEnableThreshold()}.
+     */
+    private transient ItemValueIndex<Long, PrismContainerValue<C>> idIndex;
+
     public PrismContainerImpl(QName name) {
         super(name);
     }
@@ -218,14 +225,56 @@ public class PrismContainerImpl<C extends Containerable>
 
     @Override
     protected boolean addInternalExecution(@NotNull PrismContainerValue<C> newValue) {
-        if (newValue.getId() != null) {
-            for (PrismContainerValue existingValue : getValues()) {
-                if (existingValue.getId() != null && existingValue.getId().equals(newValue.getId())) {
-                    throw new IllegalStateException("Attempt to add a container value with an id that already exists: " + newValue.getId());
-                }
-            }
+        if (newValue.getId() != null && findValueById(newValue.getId()) != null) {
+            throw new IllegalStateException("Attempt to add a container value with an id that already exists: " + newValue.getId());
+        }
+        boolean added = super.addInternalExecution(newValue);
+        if (idIndex != null) {
+            idIndex.valueAdded(newValue, getValues());
         }
-        return super.addInternalExecution(newValue);
+        return added;
+    }
+
+    /**
+     * If the strategy considers container IDs, a value with an ID can be equivalent only to a value with the same ID,
+     * or to a value without ID. This is much cheaper than looking up values by hash codes, which is not possible
+     * for container values anyway, as their content can change without our knowledge.
+     */
+    @Override
+    protected @Nullable List<PrismContainerValue<C>> getEquivalenceCandidates(
+            @NotNull PrismContainerValue<C> newValue, @NotNull EquivalenceStrategy strategy) {
+        Long id = newValue.getId();
+        if (id == null
+                || !(strategy instanceof ParameterizedEquivalenceStrategy)
+                || !((ParameterizedEquivalenceStrategy) strategy).isConsideringContainerIds()
+                        && !((ParameterizedEquivalenceStrategy) strategy).isConsideringDifferentContainerIds()) {
+            return null;
+        }
+        ItemValueIndex<Long, PrismContainerValue<C>> index = getIdIndex();
+        if (index == null || index.hasNullKeys()) {
+            return null;
+        }
+        PrismContainerValue<C> sameId = index.get(id);
+        return sameId != null ? List.of(sameId) : List.of();
+    }
+
+    @Override
+    protected void valueRemoved(PrismContainerValue<C> currentValue) {
+        super.valueRemoved(currentValue);
+        if (idIndex != null && !idIndex.valueRemoved(currentValue, getValues())) {
+            idIndex = null;
+        }
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        idIndex = null;
+    }
+
+    /** Called when an ID of any of our values changes. */
+    void valueIdChanged() {
+        idIndex = null;
     }
 
     private boolean canAssumeSingleValue() {
@@ -238,9 +287,11 @@ public class PrismContainerImpl<C extends Containerable>
 
     @Override
     public PrismContainerValue<C> getValue(Long id) {
+        if (id != null) {
+            return findValueById(id);
+        }
         for (PrismContainerValue<C> pval: getValues()) {
-            if ((id == null && pval.getId() == null) ||
-                    id.equals(pval.getId())) {
+            if (pval.getId() == null) {
                 return pval;
             }
         }
@@ -333,6 +384,7 @@ public class PrismContainerImpl<C extends Containerable>
             if (thisValue.getId() != null && thisValue.getId().equals(otherValue.getId())) {
                 // Different value but same id. New value overwrites.
                 iterator.remove();
+                valueRemoved(thisValue);
             }
         }
         PrismContainerValue<C> clonedOtherValue = otherValue.clone();
@@ -353,6 +405,7 @@ public class PrismContainerImpl<C extends Containerable>
             if (pval.isEmpty()) {
                 checkMutable();
                 iterator.remove();
+                valueRemoved(pval);
             }
         }
     }
@@ -521,12 +574,7 @@ public class PrismContainerImpl<C extends Containerable>
 
     @Override
     public PrismContainerValue<C> findValue(long id) {
-        for (PrismContainerValue<C> pval : getValues()) {
-            if (id == pval.getId()) {
-                return pval;
-            }
-        }
-        return null;
+        return findValueById(id);
     }
 
     private PrismContainerValue<C> findValue(Long id) {
@@ -537,11 +585,35 @@ public class PrismContainerImpl<C extends Containerable>
                 throw new IllegalArgumentException("Attempt to get segment without an ID from a multi-valued container "+ getElementName());
             }
         } else {
-            for (PrismContainerValue<C> pval : getValues()) {
-                if (id.equals(pval.getId())) {
-                    return pval;
-                }
+            return findValueById(id);
+        }
+    }
+
+    private PrismContainerValue<C> findValueById(@NotNull Long id) {
+        ItemValueIndex<Long, PrismContainerValue<C>> index = getIdIndex();
+        if (index != null) {
+            return index.get(id);
+        }
+        for (PrismContainerValue<C> pval : getValues()) {
+            if (id.equals(pval.getId())) {
+                return pval;
             }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the index of values by IDs, creating or re-creating it if needed. Returns null if there are not enough
+     * values to make the index worth it. For immutable containers we only use the index created during freezing,
+     * as they may be shared among threads.
+     */
+    private ItemValueIndex<Long, PrismContainerValue<C>> getIdIndex() {
+        if (idIndex != null && idIndex.isUpToDate(getValues())) {
+            return idIndex;
+        } else if (isMutable() && getValues().size() >= PrismStaticConfiguration.containerIdIndexEnableThreshold()) {
+            idIndex = new ItemValueIndex<>(value -> value.getId(), getValues());
+            return idIndex;
+        } else {
             return null;
         }
     }
@@ -764,7 +836,7 @@ public class PrismContainerImpl<C extends Containerable>
             try {
                 // No need to check for uniqueness here. If the value is unique in this object, it will also be unique in clone.
                 // Not comparing values makes clones faster.
-                clone.addInternal(pval.cloneComplex(strategy), false, null);
+                clone.addClonedValue(pval.cloneComplex(strategy));
             } catch (SchemaException e) {
                 // This should not happen
                 throw new SystemException("Internal Error: "+e.getMessage(),e);
@@ -772,6 +844,25 @@ public class PrismContainerImpl<C extends Containerable>
         }
     }
 
+    /**
+     * Adds a value copied from another container. Values (and their IDs) are unique there, so they are unique here as well;
+     * hence we skip the checks done by {@link #addInternal(PrismContainerValue, boolean, EquivalenceStrategy)}.
+     */
+    private void addClonedValue(@NotNull PrismContainerValue<C> clonedValue) throws SchemaException {
+        clonedValue.setParent(this);
+        PrismContainerDefinition<C> definition = getDefinition();
+        if (definition != null) {
+            clonedValue.applyDefinition(definition, false);
+        }
+        super.addInternalExecution(clonedValue);
+    }
+
+    @Override
+    public void performFreeze() {
+        super.performFreeze();
+        getIdIndex();
+    }
+
     @Override
     public PrismContainerDefinition<C> deepCloneDefinition(@NotNull DeepCloneOperation operation) {
         PrismContainerDefinition<C> clonedDef = (PrismContainerDefinition<C>) getDefinition().deepClone(operation);
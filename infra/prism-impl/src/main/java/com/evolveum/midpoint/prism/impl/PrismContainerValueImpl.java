@@ -15,6 +15,7 @@ import javax.xml.namespace.QName;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
+import com.google.common.annotations.VisibleForTesting;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -23,6 +24,7 @@ import com.evolveum.midpoint.prism.ItemDefinitionTransformer.TransformableItem;
 import com.evolveum.midpoint.prism.delta.ItemDelta;
 import com.evolveum.midpoint.prism.equivalence.EquivalenceStrategy;
 import com.evolveum.midpoint.prism.equivalence.ParameterizedEquivalenceStrategy;
+import com.evolveum.midpoint.prism.impl.binding.ItemSlot;
 import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
 import com.evolveum.midpoint.prism.marshaller.JaxbDomHack;
 import com.evolveum.midpoint.prism.path.ItemName;
@@ -51,9 +53,23 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     // The QNames here should be qualified if at all possible. Unqualified names are kept here nevertheless
     // (in order to maintain the ordering) but they are maintained in a separate set to know they require a separate
     // handling.
+    // In copy-on-write clones, the items may not be copied from copyOnWriteSource yet: use items() to access them
+    // (or itemsForReading() if they are only read and not provided to the clients).
     protected final LinkedHashMap<QName, Item<?, ?>> items = new LinkedHashMap<>();
     protected final Set<String> unqualifiedItemNames = new HashSet<>();
 
+    /**
+     * Immutable value whose items were not copied into this one yet; see {@link CloneStrategy#COPY_ON_WRITE}.
+     * They are copied on the first access to the items.
+     */
+    private PrismContainerValueImpl<C> copyOnWriteSource;
+
+    /**
+     * Index of {@link #items} by their slots in the complex type definition; see {@link ItemSlot}.
+     * Created on the first access via a slot, and then kept up to date when items are added or removed.
+     */
+    private Slots slots;
+
     private Long id;
 
     private C containerable = null;
@@ -123,9 +139,10 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @NotNull
     public Collection<Item<?, ?>> getItems() {
         if (isImmutable()) {
-            return Collections.unmodifiableCollection(items.values());
+            return Collections.unmodifiableCollection(items().values());
         } else {
-            return items.values();
+            slots = null; // the live collection may be modified by the caller
+            return items().values();
         }
     }
 
@@ -133,7 +150,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @SuppressWarnings("unchecked")
     public <I extends Item<?, ?>> List<I> getItems(Class<I> type) {
         List<I> rv = new ArrayList<>();
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (type.isAssignableFrom(item.getClass())) {
                 rv.add(((I) item));
             }
@@ -143,7 +160,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     @Override
     public int size() {
-        return items.size();
+        return itemsForReading().size();
     }
 
     /**
@@ -160,7 +177,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @NotNull
     public Set<PrismProperty<?>> getProperties() {
         Set<PrismProperty<?>> properties = new HashSet<>();
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (item instanceof PrismProperty) {
                 properties.add((PrismProperty<?>) item);
             }
@@ -176,7 +193,13 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @Override
     public void setId(Long id) {
         checkMutable();
-        this.id = id;
+        if (!Objects.equals(this.id, id)) {
+            this.id = id;
+            Itemable parent = super.getParent();
+            if (parent instanceof PrismContainerImpl) {
+                ((PrismContainerImpl<?>) parent).valueIdChanged();
+            }
+        }
     }
 
     @Override
@@ -329,7 +352,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @Override
     @NotNull
     public Collection<QName> getItemNames() {
-        return new ArrayList<>(items.keySet());
+        return new ArrayList<>(itemsForReading().keySet());
     }
 
     @Override
@@ -370,7 +393,8 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     private <IV extends PrismValue, ID extends ItemDefinition<?>> void simpleAdd(Item<IV, ID> item) {
         @NotNull ItemName itemName = item.getElementName();
-        items.put(itemName, item);
+        items().put(itemName, item);
+        updateSlot(itemName, item);
         if (QNameUtil.isUnqualified(itemName)) {
             unqualifiedItemNames.add(itemName.getLocalPart());
         }
@@ -445,7 +469,8 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         Item<IV, ID> existingItem = findItem(item.getElementName(), Item.class);
         if (existingItem != null) {
             ItemName existingItemName = existingItem.getElementName();
-            items.remove(existingItemName);
+            items().remove(existingItemName);
+            updateSlot(existingItemName, null);
             removeFromUnqualifiedIfNeeded(existingItemName);
             existingItem.setParent(null);
         }
@@ -454,12 +479,13 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @Override
     public void removeAll() {
         checkMutable();
-        Iterator<Item<?, ?>> iterator = items.values().iterator();
+        Iterator<Item<?, ?>> iterator = items().values().iterator();
         while (iterator.hasNext()) {
             Item<?, ?> item = iterator.next();
             item.setParent(null);
             iterator.remove();
         }
+        slots = null;
         unqualifiedItemNames.clear();
     }
 
@@ -498,13 +524,14 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @Override
     public void clear() {
         checkMutable();
-        items.clear();
+        items().clear();
+        slots = null;
         unqualifiedItemNames.clear();
     }
 
     @Override
     public boolean contains(Item item) {
-        return items.values().contains(item);
+        return itemsForReading().values().contains(item);
     }
 
     @Override
@@ -593,7 +620,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     // todo optimize this some day
     @Override
     public PrismReference findReferenceByCompositeObjectElementName(QName elementName) {
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (item instanceof PrismReference) {
                 PrismReference ref = (PrismReference) item;
                 PrismReferenceDefinition refDef = ref.getDefinition();
@@ -734,6 +761,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     }
 
     private <IV extends PrismValue, ID extends ItemDefinition<?>> Item<IV, ID> findItemByQName(QName subName) throws SchemaException {
+        copyItemsFromSourceIfNeeded(); // unqualifiedItemNames are filled-in by the copying
         // We assume that "unqualifiedItemNames" is empty most of the time. Hence, we do not want to spend time
         // calling .contains(..) method unnecessarily.
         if (QNameUtil.isUnqualified(subName) ||
@@ -741,14 +769,63 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
             return findItemByQNameFullScan(subName);
         } else {
             //noinspection unchecked
-            return (Item<IV, ID>) items.get(subName);
+            return (Item<IV, ID>) items().get(subName);
+        }
+    }
+
+    /**
+     * Finds an item using its slot; the result is the same as of `findItem(slot.getName(), Item.class)`.
+     * Falls back to the lookup by name if the slot cannot be used.
+     */
+    public @Nullable Item<?, ?> findItemInSlot(@NotNull ItemSlot slot) {
+        copyItemsFromSourceIfNeeded();
+        ComplexTypeDefinition ctd = getComplexTypeDefinition();
+        int index = ctd != null && unqualifiedItemNames.isEmpty() ? slot.getIndex(ctd) : -1;
+        if (index < 0) {
+            return findItem(slot.getName(), Item.class);
+        }
+        Slots current = slots;
+        if (current == null || current.definition != ctd) {
+            current = new Slots(ctd, items.values());
+            slots = current;
+        }
+        return current.items[index];
+    }
+
+    private void updateSlot(@NotNull QName itemName, Item<?, ?> item) {
+        Slots current = slots;
+        if (current != null) {
+            int index = current.definition.getItemSlot(itemName);
+            if (index >= 0) {
+                current.items[index] = item;
+            }
+        }
+    }
+
+    /**
+     * Items of a value placed into slots given by a complex type definition. (The whole structure is replaced when
+     * the definition changes; so it is safe to be created lazily even for immutable values shared among threads.)
+     */
+    private static class Slots {
+        @NotNull private final ComplexTypeDefinition definition;
+        @NotNull private final Item<?, ?>[] items;
+
+        private Slots(@NotNull ComplexTypeDefinition definition, Collection<Item<?, ?>> itemsToPlace) {
+            this.definition = definition;
+            this.items = new Item<?, ?>[definition.getDefinitions().size()];
+            for (Item<?, ?> item : itemsToPlace) {
+                int index = definition.getItemSlot(item.getElementName());
+                if (index >= 0) {
+                    items[index] = item;
+                }
+            }
         }
     }
 
     private <IV extends PrismValue, ID extends ItemDefinition<?>> Item<IV, ID> findItemByQNameFullScan(QName subName) throws SchemaException {
 //        LOGGER.warn("Full scan while finding {} in {}", subName, this);
         Item<IV, ID> matching = null;
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (QNameUtil.match(subName, item.getElementName())) {
                 if (matching != null) {
                     String containerName = getParent() != null ? DebugUtil.formatElementName(getParent().getElementName()) : "";
@@ -910,7 +987,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         }
         QName subName = itemPath.firstToName();
         ItemPath rest = itemPath.rest();
-        Iterator<Item<?, ?>> itemsIterator = items.values().iterator();
+        Iterator<Item<?, ?>> itemsIterator = items().values().iterator();
         while (itemsIterator.hasNext()) {
             Item<?, ?> item = itemsIterator.next();
             ItemName itemName = item.getElementName();
@@ -921,6 +998,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
                 } else {
                     if (itemType.isAssignableFrom(item.getClass())) {
                         itemsIterator.remove();
+                        updateSlot(itemName, null);
                         removeFromUnqualifiedIfNeeded(itemName);
                     } else {
                         throw new IllegalArgumentException("Attempt to remove item " + subName + " from " + this +
@@ -938,7 +1016,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     }
 
     private void removeUnqualifiedItemName(ItemName itemName) {
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (itemName.equals(item.getElementName())) {
                 return;
             }
@@ -973,7 +1051,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @Override
     public void accept(Visitor visitor) {
         super.accept(visitor);
-        for (Item<?, ?> item : new ArrayList<>(items.values())) {     // to allow modifying item list via the acceptor
+        for (Item<?, ?> item : new ArrayList<>(items().values())) {     // to allow modifying item list via the acceptor
             item.accept(visitor);
         }
     }
@@ -994,7 +1072,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
             }
             QName subName = ItemPath.toName(first);
             ItemPath rest = path.rest();
-            for (Item<?, ?> item : items.values()) {            // todo unqualified names!
+            for (Item<?, ?> item : items().values()) {            // todo unqualified names!
                 if (subName.equals(item.getElementName())) {
                     item.accept(visitor, rest, recursive);
                 }
@@ -1013,7 +1091,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     @Override
     public boolean hasCompleteDefinition() {
-        for (Item<?, ?> item : getItems()) {
+        for (Item<?, ?> item : itemsForReading().values()) {
             if (!item.hasCompleteDefinition()) {
                 return false;
             }
@@ -1109,6 +1187,18 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     private boolean diffItems(PrismContainerValue<C> thisValue, PrismContainerValue<C> other,
             Collection<? extends ItemDelta> deltas, ParameterizedEquivalenceStrategy strategy, boolean exitOnDiff) {
 
+        // Shared items (e.g. of a copy-on-write clone and its source) are the same. And if we only look for
+        // a difference, the items need not be copied from their copy-on-write sources.
+        PrismContainerValue<C> thisHolder = itemsHolder(thisValue);
+        PrismContainerValue<C> otherHolder = itemsHolder(other);
+        if (thisHolder == otherHolder) {
+            return false;
+        }
+        if (exitOnDiff) {
+            thisValue = thisHolder;
+            other = otherHolder;
+        }
+
         for (Item<?, ?> thisItem : thisValue.getItems()) {
             Item otherItem = other.findItem(thisItem.getElementName());
             if (!strategy.isConsideringOperationalData()) {
@@ -1247,7 +1337,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     private void applyDefinitionToItems(boolean force) throws SchemaException {
         // We change items during this operation, so we need to create a copy of them.
-        ArrayList<Item<?, ?>> existingItems = new ArrayList<>(items.values());
+        ArrayList<Item<?, ?>> existingItems = new ArrayList<>(items().values());
 
         for (Item item : existingItems) {
             if (item.getDefinition() == null || force) {
@@ -1326,7 +1416,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @Override
     public void revive(PrismContext prismContext) {
         super.revive(prismContext);
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             item.revive(prismContext);
         }
     }
@@ -1338,7 +1428,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     @Override
     public boolean hasNoItems() {
-        return items.isEmpty();
+        return itemsForReading().isEmpty();
     }
 
     @Override
@@ -1349,7 +1439,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     @Override
     public void normalize() {
 //        checkMutable();
-//        for (Item<?, ?> item : items.values()) {
+//        for (Item<?, ?> item : items().values()) {
 //            item.normalize();
 //        }
     }
@@ -1360,7 +1450,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         if (getDefinition() == null) {
             throw new IllegalStateException("Definition-less container value " + this + " (" + myPath + " in " + rootItem + ")");
         }
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (scope.isThorough()) {
                 if (item == null) {
                     throw new IllegalStateException("Null item in container value " + this + " (" + myPath + " in " + rootItem + ")");
@@ -1412,16 +1502,68 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     protected void copyValues(CloneStrategy strategy, PrismContainerValueImpl<C> clone) {
         super.copyValues(strategy, clone);
-        if (strategy == CloneStrategy.LITERAL) {
+        if (strategy != CloneStrategy.REUSE) {
             clone.id = this.id;
         }
-        for (Item<?, ?> item : this.items.values()) {
+        if (strategy == CloneStrategy.COPY_ON_WRITE && isImmutable()) {
+            // Immutable value cannot change, so its items can be copied later, if they are needed at all.
+            clone.copyOnWriteSource = this;
+        } else {
+            copyItems(strategy, clone);
+        }
+    }
+
+    private void copyItems(CloneStrategy strategy, PrismContainerValueImpl<C> clone) {
+        for (Item<?, ?> item : items().values()) {
             Item<?, ?> clonedItem = item.cloneComplex(strategy);
             clonedItem.setParent(clone);
             clone.simpleAdd(clonedItem);
         }
     }
 
+    /**
+     * Returns the items of this value, copying them from {@link #copyOnWriteSource} first, if needed.
+     * Only the items of this value are copied; values of inner containers are again copied lazily.
+     *
+     * To be used whenever the items are (or may be) modified, or provided to the clients, as these may modify them.
+     */
+    protected Map<QName, Item<?, ?>> items() {
+        copyItemsFromSourceIfNeeded();
+        return items;
+    }
+
+    /**
+     * Returns the items of this value without copying them from {@link #copyOnWriteSource}; so they may belong
+     * to the source. Only for reading that does not provide the items to the clients (size, names, hash code, dumps).
+     */
+    protected Map<QName, Item<?, ?>> itemsForReading() {
+        return itemsHolder().items;
+    }
+
+    /** Returns the value that holds the items of this value: this one, or (the source of) the copy-on-write source. */
+    private PrismContainerValueImpl<C> itemsHolder() {
+        PrismContainerValueImpl<C> source = copyOnWriteSource;
+        return source != null ? source.itemsHolder() : this;
+    }
+
+    private static <C extends Containerable> PrismContainerValue<C> itemsHolder(PrismContainerValue<C> value) {
+        return value instanceof PrismContainerValueImpl ? ((PrismContainerValueImpl<C>) value).itemsHolder() : value;
+    }
+
+    /** Returns true if the items of this value are still to be copied from the copy-on-write source. */
+    @VisibleForTesting
+    public boolean isCopyOnWritePending() {
+        return copyOnWriteSource != null;
+    }
+
+    private void copyItemsFromSourceIfNeeded() {
+        if (copyOnWriteSource != null) {
+            PrismContainerValueImpl<C> source = copyOnWriteSource;
+            copyOnWriteSource = null;
+            source.copyItems(CloneStrategy.COPY_ON_WRITE, this);
+        }
+    }
+
     void deepCloneDefinition(DeepCloneOperation operation, PrismContainerDefinition<C> clonedContainerDef) {
         // special treatment of CTD (we must not simply overwrite it with clonedPCD.CTD!)
         PrismContainerable<?> parent = getParent();
@@ -1434,7 +1576,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
                         complexTypeDefinition.deepClone(operation));
             }
         }
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             deepCloneDefinitionItem(operation, item, clonedContainerDef);
         }
     }
@@ -1510,7 +1652,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         // We also need to make sure that container valus that contain only metadata will produce zero hashcode
         // so it will not ruin hashcodes of parent containers
         int itemsHash;
-        itemsHash = MiscUtil.unorderedCollectionHashcode(items.values(), item -> !item.isOperational());
+        itemsHash = MiscUtil.unorderedCollectionHashcode(itemsForReading().values(), item -> !item.isOperational());
         if (itemsHash != 0) {
             result = prime * result + itemsHash;
         }
@@ -1523,7 +1665,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         sb.append("PCV(");
         sb.append(getId());
         sb.append("):");
-        sb.append(getItems());
+        sb.append(itemsForReading().values());
         if (isTransient()) {
             sb.append(", transient");
         }
@@ -1546,7 +1688,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         }
         wasIndent = dumpIdentifiers(sb, indent, wasIndent, multivalue);
         appendOriginDump(sb);
-        Collection<Item<?, ?>> items = getItems();
+        Collection<Item<?, ?>> items = itemsForReading().values();
         if (items.isEmpty()) {
             if (wasIndent) {
                 sb.append("\n");
@@ -1554,7 +1696,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
             DebugUtil.indentDebugDump(sb, indent + 1);
             sb.append("(no items)");
         } else {
-            Iterator<Item<?, ?>> i = getItems().iterator();
+            Iterator<Item<?, ?>> i = items.iterator();
             if (wasIndent && i.hasNext()) {
                 sb.append("\n");
             }
@@ -1600,7 +1742,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
 
     @Override
     public String toHumanReadableString() {
-        return "id=" + id + ": " + items.size() + " items";
+        return "id=" + id + ": " + itemsForReading().size() + " items";
     }
 
     @Override
@@ -1664,7 +1806,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
         }
 
         // And now let's freeze it; from the bottom up.
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             item.freeze();
         }
         super.performFreeze();
@@ -1798,7 +1940,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
     // Removes all unused definitions, in order to conserve heap. Assumes that the definition is not shared. Use with care!
     void trimItemsDefinitionsTrees(Collection<? extends ItemPath> alwaysKeep) {
         // to play safe, we won't touch PCV-specific complexTypeDefinition
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (item instanceof PrismContainer) {
                 Collection<ItemPath> alwaysKeepInSub = ItemPathCollectionsUtil.remainder(CollectionUtils.emptyIfNull(alwaysKeep),
                         item.getElementName(), false);
@@ -1887,7 +2029,7 @@ public class PrismContainerValueImpl<C extends Containerable> extends PrismValue
             replaceComplexTypeDefinition(newDefinition);
         }
 
-        for (Item<?, ?> item : items.values()) {
+        for (Item<?, ?> item : items().values()) {
             if (item instanceof TransformableItem) {
                 ((TransformableItem) item).transformDefinition(complexTypeDefinition, transformation);
             }
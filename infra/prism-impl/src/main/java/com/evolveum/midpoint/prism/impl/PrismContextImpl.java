@@ -9,8 +9,12 @@ package com.evolveum.midpoint.prism.impl;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import javax.xml.namespace.QName;
@@ -36,9 +40,11 @@ import com.evolveum.midpoint.prism.impl.lex.dom.DomLexicalProcessor;
 import com.evolveum.midpoint.prism.impl.marshaller.*;
 import com.evolveum.midpoint.prism.impl.path.CanonicalItemPathImpl;
 import com.evolveum.midpoint.prism.impl.polystring.AlphanumericPolyStringNormalizer;
+import com.evolveum.midpoint.prism.impl.polystring.CachingPolyStringNormalizer;
 import com.evolveum.midpoint.prism.impl.polystring.ConfigurableNormalizer;
 import com.evolveum.midpoint.prism.impl.query.QueryFactoryImpl;
 import com.evolveum.midpoint.prism.impl.query.builder.QueryBuilder;
+import com.evolveum.midpoint.prism.impl.query.lang.AxiomQueryCache;
 import com.evolveum.midpoint.prism.impl.query.lang.PrismQueryLanguageParserImpl;
 import com.evolveum.midpoint.prism.impl.query.lang.PrismQuerySerializerImpl;
 import com.evolveum.midpoint.prism.impl.schema.SchemaDefinitionFactory;
@@ -120,6 +126,8 @@ public final class PrismContextImpl implements PrismContext {
     private QName defaultReferenceTypeName;
     private PrismQueryExpressionFactory queryExpressionFactory;
 
+    @NotNull private final AxiomQueryCache queryCache = new AxiomQueryCache();
+
     static {
         PrismPrettyPrinter.initialize();
     }
@@ -145,7 +153,7 @@ public final class PrismContextImpl implements PrismContext {
         this.itemPathParser = new ItemPathParserImpl(this);
         this.itemPathSerializer = new ItemPathSerializerImpl();
         this.schemaFactory = new SchemaFactoryImpl(this);
-        this.defaultPolyStringNormalizer = new AlphanumericPolyStringNormalizer();
+        this.defaultPolyStringNormalizer = new CachingPolyStringNormalizer(new AlphanumericPolyStringNormalizer());
 
         try {
             configurePolyStringNormalizer(null);
@@ -170,10 +178,14 @@ public final class PrismContextImpl implements PrismContext {
         schemaRegistry.initialize();
     }
 
+    /**
+     * The normalizer is wrapped by {@link CachingPolyStringNormalizer}; the cache is used only if enabled
+     * (see {@link com.evolveum.midpoint.prism.PrismStaticConfiguration#polyStringNormalizationCacheSize()}).
+     */
     @Override
     public void configurePolyStringNormalizer(PolyStringNormalizerConfigurationType configuration)
             throws ClassNotFoundException, InstantiationException, IllegalAccessException {
-        this.defaultPolyStringNormalizer = createConfiguredPolyStringNormalizer(configuration);
+        this.defaultPolyStringNormalizer = new CachingPolyStringNormalizer(createConfiguredPolyStringNormalizer(configuration));
     }
 
     @Override
@@ -473,9 +485,29 @@ public final class PrismContextImpl implements PrismContext {
     @NotNull
     @Override
     public PrismSerializer<String> serializerFor(@NotNull String language) {
+        checkTextLanguage(language);
         return new PrismSerializerImpl<>(new SerializerStringTarget(this, language), null, null, null, this, null);
     }
 
+    @NotNull
+    @Override
+    public PrismSerializer<Writer> serializerFor(@NotNull String language, @NotNull Writer writer) {
+        checkTextLanguage(language);
+        return new PrismSerializerImpl<>(
+                new SerializerStreamTarget<>(this, language, writer, writer), null, null, null, this, null);
+    }
+
+    @NotNull
+    @Override
+    public PrismSerializer<OutputStream> serializerFor(@NotNull String language, @NotNull OutputStream stream) {
+        if (LANG_BINARY.equals(language)) {
+            return new PrismSerializerImpl<>(new SerializerBinaryStreamTarget(this, stream), null, null, null, this, null);
+        }
+        Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+        return new PrismSerializerImpl<>(
+                new SerializerStreamTarget<>(this, language, stream, writer), null, null, null, this, null);
+    }
+
     @NotNull
     @Override
     public PrismSerializer<String> xmlSerializer() {
@@ -494,6 +526,18 @@ public final class PrismContextImpl implements PrismContext {
         return serializerFor(LANG_YAML);
     }
 
+    @NotNull
+    @Override
+    public PrismSerializer<byte[]> binarySerializer() {
+        return new PrismSerializerImpl<>(new SerializerBinaryTarget(this), null, null, null, this, null);
+    }
+
+    private void checkTextLanguage(@NotNull String language) {
+        if (LANG_BINARY.equals(language)) {
+            throw new IllegalArgumentException("Binary format is not a text one; use binarySerializer() or a serializer for OutputStream instead");
+        }
+    }
+
     @NotNull
     @Override
     public PrismSerializer<Element> domSerializer() {
@@ -747,7 +791,11 @@ public final class PrismContextImpl implements PrismContext {
 
     @Override
     public PrismQueryLanguageParser createQueryParser(Map<String, String> prefixToNamespace) {
-        return new PrismQueryLanguageParserImpl(this, prefixToNamespace, queryExpressionFactory);
+        return new PrismQueryLanguageParserImpl(this, prefixToNamespace, queryExpressionFactory, queryCache);
+    }
+
+    public @NotNull AxiomQueryCache getQueryCache() {
+        return queryCache;
     }
 
     @Override
@@ -159,7 +159,7 @@ public class PrismObjectValueImpl<O extends Objectable> extends PrismContainerVa
 
     @Override
     public String toHumanReadableString() {
-        return "oid="+oid+": "+items.size()+" items";
+        return "oid="+oid+": "+itemsForReading().size()+" items";
     }
 
     @Override
@@ -7,6 +7,8 @@
 
 package com.evolveum.midpoint.prism.impl;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.Collection;
 import java.util.Objects;
 import java.util.Optional;
@@ -73,9 +75,7 @@ public class PrismPropertyDefinitionImpl<T> extends ItemDefinitionImpl<PrismProp
 
     public PrismPropertyDefinitionImpl(QName elementName, QName typeName, QName definedInType) {
         super(elementName, typeName, definedInType);
-        this.structuredType = Lazy.from(() ->
-            Optional.ofNullable(getPrismContext().getSchemaRegistry().findComplexTypeDefinitionByType(getTypeName()))
-        );
+        this.structuredType = createStructuredType();
     }
 
     public PrismPropertyDefinitionImpl(QName elementName, QName typeName, T defaultValue) {
@@ -87,6 +87,16 @@ public class PrismPropertyDefinitionImpl<T> extends ItemDefinitionImpl<PrismProp
         this.defaultValue = defaultValue;
     }
 
+    private Lazy<Optional<ComplexTypeDefinition>> createStructuredType() {
+        return Lazy.from(() ->
+                Optional.ofNullable(getPrismContext().getSchemaRegistry().findComplexTypeDefinitionByType(getTypeName())));
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        structuredType = createStructuredType();
+    }
+
     @Nullable
     @Override
     public Collection<? extends DisplayableValue<T>> getAllowedValues() {
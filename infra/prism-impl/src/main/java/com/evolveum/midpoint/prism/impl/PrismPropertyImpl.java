@@ -235,6 +235,7 @@ public class PrismPropertyImpl<T> extends ItemImpl<PrismPropertyValue<T>, PrismP
                     LOGGER.warn("Adding value to property " + getElementName() + " that already exists (overwriting), value: "
                             + pValueToAdd);
                     iterator.remove();
+                    valueRemoved(pValue);
                 }
             }
         }
@@ -284,6 +285,7 @@ public class PrismPropertyImpl<T> extends ItemImpl<PrismPropertyValue<T>, PrismP
                 PrismPropertyValue<T> pValue = iterator.next();
                 if (pValue.equals(pValueToDelete, EquivalenceStrategy.REAL_VALUE)) {
                     iterator.remove();
+                    valueRemoved(pValue);
                     pValue.setParent(null);
 
                     found = true;
@@ -662,6 +664,7 @@ public class PrismPropertyImpl<T> extends ItemImpl<PrismPropertyValue<T>, PrismP
      */
     void valueChangeStart(PrismPropertyValue<T> propertyValue) {
         removeFromIndex(propertyValue);
+        valueHashChanged();
     }
 
     private void addToIndex(PrismPropertyValue<T> value, boolean createIndex) {
@@ -8,8 +8,11 @@
 package com.evolveum.midpoint.prism.impl;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.BiConsumer;
 
 import jakarta.xml.bind.JAXBElement;
@@ -54,6 +57,11 @@ import com.evolveum.prism.xml.ns._public.types_3.SchemaDefinitionType;
 public class PrismPropertyValueImpl<T> extends PrismValueImpl
         implements DebugDumpable, Serializable, PrismPropertyValue<T> {
 
+    /** Real values with hash codes consistent with equals; see {@link #isHashable()}. */
+    private static final Set<Class<?>> HASHABLE_REAL_VALUE_CLASSES = Set.of(
+            String.class, PolyString.class, Boolean.class, Integer.class, Long.class, Short.class, Byte.class,
+            BigInteger.class, BigDecimal.class, Double.class, Float.class, QName.class);
+
     private T value;
 
     // The rawElement is set during a schema-less parsing, e.g. during parsing without a definition.
@@ -498,6 +506,17 @@ public class PrismPropertyValueImpl<T> extends PrismValueImpl
         return result;
     }
 
+    /**
+     * Raw values are equal to their parsed forms, and some real values (e.g. protected strings, byte arrays) are compared
+     * in a way not reflected by their hash codes. So we accept only well-known types of real values.
+     */
+    @Override
+    boolean isHashable() {
+        return rawElement == null
+                && expression == null
+                && (value == null || HASHABLE_REAL_VALUE_CLASSES.contains(value.getClass()) || value instanceof Enum);
+    }
+
     @Override
     public String debugDump() {
         return toString();
@@ -7,6 +7,8 @@
 
 package com.evolveum.midpoint.prism.impl;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.Optional;
 
 import javax.xml.namespace.QName;
@@ -55,9 +57,17 @@ public class PrismReferenceDefinitionImpl extends ItemDefinitionImpl<PrismRefere
 
     public PrismReferenceDefinitionImpl(QName elementName, QName typeName, QName definedInType) {
         super(elementName, typeName, definedInType);
-        structuredType = Lazy.from(() ->
-            Optional.ofNullable(getPrismContext().getSchemaRegistry().findComplexTypeDefinitionByType(getTypeName()))
-        );
+        this.structuredType = createStructuredType();
+    }
+
+    private Lazy<Optional<ComplexTypeDefinition>> createStructuredType() {
+        return Lazy.from(() ->
+                Optional.ofNullable(getPrismContext().getSchemaRegistry().findComplexTypeDefinitionByType(getTypeName())));
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        structuredType = createStructuredType();
     }
 
     /**
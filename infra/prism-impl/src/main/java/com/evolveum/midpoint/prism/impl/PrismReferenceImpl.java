@@ -19,6 +19,8 @@ import com.evolveum.midpoint.util.PrettyPrinter;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import org.jetbrains.annotations.NotNull;
 
+import com.google.common.annotations.VisibleForTesting;
+
 import javax.xml.namespace.QName;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -39,6 +41,19 @@ import java.util.List;
 public class PrismReferenceImpl extends ItemImpl<PrismReferenceValue, PrismReferenceDefinition> implements PrismReference {
     private static final long serialVersionUID = 1872343401395762657L;
 
+    /**
+     * Index of values by their OIDs, created when there are many values.
+     * See {@link PrismStaticConfiguration#referenceOidIndexEnableThreshold()}.
+     */
+    private transient ItemValueIndex<String, PrismReferenceValue> oidIndex;
+
+    /**
+     * Set when we encounter a value whose OID is taken from the embedded object. Such OIDs can change without us knowing,
+     * so the index cannot be used while the value is here. Reset when any value is removed (or its OID is changed),
+     * so the index is considered again then.
+     */
+    private transient boolean oidIndexDisabled;
+
     @SuppressWarnings("unused") // called dynamically from ItemImpl.createNewDefinitionlessItem
     public PrismReferenceImpl(QName name) {
         super(name);
@@ -166,6 +181,10 @@ public class PrismReferenceImpl extends ItemImpl<PrismReferenceValue, PrismRefer
 
     @Override
     public PrismReferenceValue findValueByOid(String oid) {
+        ItemValueIndex<String, PrismReferenceValue> index = getOidIndex();
+        if (index != null) {
+            return index.get(oid);
+        }
         for (PrismReferenceValue pval: getValues()) {
             if (oid.equals(pval.getOid())) {
                 return pval;
@@ -174,6 +193,81 @@ public class PrismReferenceImpl extends ItemImpl<PrismReferenceValue, PrismRefer
         return null;
     }
 
+    /**
+     * Returns the index of values by OIDs, creating or re-creating it if needed. Returns null if the index cannot be used
+     * or there are not enough values to make it worth it. For immutable references we only use the index created during
+     * freezing, as they may be shared among threads.
+     */
+    private ItemValueIndex<String, PrismReferenceValue> getOidIndex() {
+        if (oidIndex != null && oidIndex.isUpToDate(getValues())) {
+            return oidIndex;
+        } else if (isImmutable()) {
+            return null;
+        }
+        oidIndex = null;
+        if (!oidIndexDisabled && getValues().size() >= PrismStaticConfiguration.referenceOidIndexEnableThreshold()) {
+            if (getValues().stream().allMatch(PrismReferenceImpl::isOidStable)) {
+                oidIndex = new ItemValueIndex<>(PrismReferenceValue::getOid, getValues());
+            } else {
+                oidIndexDisabled = true;
+            }
+        }
+        return oidIndex;
+    }
+
+    private static boolean isOidStable(PrismReferenceValue value) {
+        return value instanceof PrismReferenceValueImpl && ((PrismReferenceValueImpl) value).isOidStable();
+    }
+
+    @Override
+    protected boolean addInternalExecution(@NotNull PrismReferenceValue newValue) {
+        boolean added = super.addInternalExecution(newValue);
+        if (oidIndex != null) {
+            if (isOidStable(newValue)) {
+                oidIndex.valueAdded(newValue, getValues());
+            } else {
+                oidIndex = null;
+                oidIndexDisabled = true;
+            }
+        }
+        return added;
+    }
+
+    @Override
+    protected void valueRemoved(PrismReferenceValue currentValue) {
+        super.valueRemoved(currentValue);
+        if (oidIndex != null && !oidIndex.valueRemoved(currentValue, getValues())) {
+            oidIndex = null;
+        }
+        oidIndexDisabled = false;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        oidIndex = null;
+        oidIndexDisabled = false;
+    }
+
+    /** Called when an OID (or embedded object) of any of our values changes. */
+    void valueOidChanged() {
+        oidIndex = null;
+        oidIndexDisabled = false;
+        valueHashChanged();
+    }
+
+    /** Returns true if the lookups by OID use the index. */
+    @VisibleForTesting
+    public boolean isOidIndexed() {
+        return getOidIndex() != null;
+    }
+
+    @Override
+    public void performFreeze() {
+        super.performFreeze();
+        getOidIndex();
+    }
+
     @Override
     public Object find(ItemPath path) {
         if (path == null || path.isEmpty()) {
@@ -94,6 +94,7 @@ public class PrismReferenceValueImpl extends PrismValueImpl implements PrismRefe
     public void setOid(String oid) {
         checkMutable();
         this.oid = oid;
+        oidChanged();
     }
 
     /**
@@ -114,6 +115,27 @@ public class PrismReferenceValueImpl extends PrismValueImpl implements PrismRefe
     public void setObject(PrismObject object) {
         checkMutable();
         this.object = object;
+        oidChanged();
+    }
+
+    private void oidChanged() {
+        if (getParent() instanceof PrismReferenceImpl) {
+            ((PrismReferenceImpl) getParent()).valueOidChanged();
+        }
+    }
+
+    /**
+     * Returns true if the OID of this value can be changed only by {@link #setOid(String)} or {@link #setObject(PrismObject)}.
+     * This is not the case if it is taken from the embedded object.
+     */
+    boolean isOidStable() {
+        return oid != null || object == null;
+    }
+
+    /** The hash code is computed from the OID, so it is consistent with equals only if the OID is stable. */
+    @Override
+    boolean isHashable() {
+        return isOidStable();
     }
 
     /**
@@ -218,6 +240,9 @@ public class PrismReferenceValueImpl extends PrismValueImpl implements PrismRefe
     public void setRelation(QName relation) {
         checkMutable();
         this.relation = relation;
+        if (getParent() instanceof ItemImpl) {
+            ((ItemImpl<?, ?>) getParent()).valueHashChanged();
+        }
     }
 
     @Override
@@ -657,8 +682,8 @@ public class PrismReferenceValueImpl extends PrismValueImpl implements PrismRefe
     protected void copyValues(CloneStrategy strategy, PrismReferenceValueImpl clone) {
         super.copyValues(strategy, clone);
         clone.targetType = this.targetType;
-        if (this.object != null && strategy == CloneStrategy.LITERAL) {
-            clone.object = this.object.clone();
+        if (this.object != null && strategy != CloneStrategy.REUSE) {
+            clone.object = this.object.cloneComplex(strategy);
         }
         clone.description = this.description;
         clone.filter = this.filter;
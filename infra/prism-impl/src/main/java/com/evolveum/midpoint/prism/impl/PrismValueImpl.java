@@ -259,6 +259,15 @@ public abstract class PrismValueImpl extends AbstractFreezable implements PrismV
         return 0;
     }
 
+    /**
+     * Returns true if {@link #hashCode(ParameterizedEquivalenceStrategy)} is consistent with
+     * {@link #equals(PrismValue, ParameterizedEquivalenceStrategy)} for any strategy, i.e. if equivalent values have
+     * always the same hash code. Only such values can be looked up by their hash codes.
+     */
+    boolean isHashable() {
+        return false;
+    }
+
     @Override
     public int hashCode(@NotNull EquivalenceStrategy equivalenceStrategy) {
         return equivalenceStrategy.hashCode(this);
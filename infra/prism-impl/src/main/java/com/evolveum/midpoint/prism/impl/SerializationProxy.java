@@ -5,6 +5,7 @@ import java.io.Serializable;
 import javax.xml.namespace.QName;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.prism.ComplexTypeDefinition;
 import com.evolveum.midpoint.prism.PrismConstants;
@@ -19,6 +20,21 @@ public abstract class SerializationProxy implements Serializable {
      */
     private static final long serialVersionUID = 1L;
 
+    /** The object this proxy stands for; not serialized. */
+    @Nullable private final transient Object original;
+
+    protected SerializationProxy(@Nullable Object original) {
+        this.original = original;
+    }
+
+    /**
+     * Returns the object this proxy was created for, or null if it is not known (e.g. after deserialization).
+     * Used by streams that need to write the full object instead of the proxy.
+     */
+    public @Nullable Object getOriginal() {
+        return original;
+    }
+
     protected Object readResolve() {
         return resolve(PrismContext.get().getSchemaRegistry());
     }
@@ -35,7 +51,8 @@ public abstract class SerializationProxy implements Serializable {
 
 
 
-        public TypeDef(QName typeName) {
+        public TypeDef(QName typeName, Object original) {
+            super(original);
             this.typeName = typeName;
         }
 
@@ -56,7 +73,8 @@ public abstract class SerializationProxy implements Serializable {
         private final QName complexType;
         private final QName itemName;
 
-        public ItemDef(QName complexType, QName itemName) {
+        public ItemDef(QName complexType, QName itemName, Object original) {
+            super(original);
             this.complexType = complexType;
             this.itemName = itemName;
         }
@@ -77,11 +95,11 @@ public abstract class SerializationProxy implements Serializable {
 
     }
 
-    public static SerializationProxy forTypeDef(@NotNull QName typeName) {
-        return new TypeDef(typeName);
+    public static SerializationProxy forTypeDef(@NotNull QName typeName, @Nullable Object original) {
+        return new TypeDef(typeName, original);
     }
 
-    public static SerializationProxy forItemDef(QName definedInType, @NotNull ItemName itemName) {
-        return new ItemDef(definedInType, itemName);
+    public static SerializationProxy forItemDef(QName definedInType, @NotNull ItemName itemName, @Nullable Object original) {
+        return new ItemDef(definedInType, itemName, original);
     }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl;
+
+import static com.evolveum.midpoint.prism.PrismContext.LANG_BINARY;
+
+import java.io.OutputStream;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.SerializationContext;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
+import com.evolveum.midpoint.prism.impl.lex.binary.BinaryLexicalProcessor;
+import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Writes the compact binary format directly into an {@link OutputStream}. The result of the serialization is the stream.
+ *
+ * The stream is flushed after each serialization, but it is never closed; this is the responsibility of the caller.
+ */
+public class SerializerBinaryStreamTarget extends SerializerTarget<OutputStream> {
+
+    @NotNull private final OutputStream output;
+
+    SerializerBinaryStreamTarget(@NotNull PrismContextImpl prismContext, @NotNull OutputStream output) {
+        super(prismContext);
+        this.output = output;
+    }
+
+    @NotNull
+    @Override
+    public OutputStream write(@NotNull RootXNodeImpl xroot, SerializationContext context) throws SchemaException {
+        return write(List.of(xroot), context);
+    }
+
+    @NotNull
+    @Override
+    public OutputStream write(@NotNull List<RootXNodeImpl> roots, @Nullable SerializationContext context)
+            throws SchemaException {
+        try (LexicalProcessor.RootXNodeWriter objectsWriter = openObjectsWriter(context)) {
+            for (RootXNodeImpl root : roots) {
+                objectsWriter.write(root);
+            }
+        }
+        return output;
+    }
+
+    @NotNull
+    @Override
+    public LexicalProcessor.RootXNodeWriter openObjectsWriter(@Nullable SerializationContext context) {
+        return getLexicalProcessor().openObjectsWriter(output, context);
+    }
+
+    private BinaryLexicalProcessor getLexicalProcessor() {
+        return (BinaryLexicalProcessor) prismContext.getLexicalProcessorRegistry().<byte[]>processorFor(LANG_BINARY);
+    }
+}
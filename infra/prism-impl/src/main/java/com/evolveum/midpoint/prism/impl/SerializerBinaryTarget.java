@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl;
+
+import static com.evolveum.midpoint.prism.PrismContext.LANG_BINARY;
+
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.SerializationContext;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
+import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Serializes into the compact binary format; the result is a byte array.
+ */
+public class SerializerBinaryTarget extends SerializerTarget<byte[]> {
+
+    SerializerBinaryTarget(@NotNull PrismContextImpl prismContext) {
+        super(prismContext);
+    }
+
+    @NotNull
+    @Override
+    public byte[] write(@NotNull RootXNodeImpl xroot, SerializationContext context) throws SchemaException {
+        return getLexicalProcessor().write(xroot, context);
+    }
+
+    @NotNull
+    @Override
+    public byte[] write(@NotNull List<RootXNodeImpl> roots, @Nullable SerializationContext context)
+            throws SchemaException {
+        return getLexicalProcessor().write(roots, context);
+    }
+
+    private LexicalProcessor<byte[]> getLexicalProcessor() {
+        return prismContext.getLexicalProcessorRegistry().processorFor(LANG_BINARY);
+    }
+
+    @NotNull
+    @Override
+    public LexicalProcessor.RootXNodeWriter openObjectsWriter(@Nullable SerializationContext context) {
+        throw createObjectsWriterNotSupportedException();
+    }
+}
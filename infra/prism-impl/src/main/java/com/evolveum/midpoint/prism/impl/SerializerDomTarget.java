@@ -8,6 +8,7 @@
 package com.evolveum.midpoint.prism.impl;
 
 import com.evolveum.midpoint.prism.SerializationContext;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
 import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import org.jetbrains.annotations.NotNull;
@@ -34,4 +35,10 @@ public class SerializerDomTarget extends SerializerTarget<Element> {
             throws SchemaException {
         return prismContext.getLexicalProcessorRegistry().domProcessor().writeXRootListToElement(roots);
     }
+
+    @NotNull
+    @Override
+    public LexicalProcessor.RootXNodeWriter openObjectsWriter(@Nullable SerializationContext context) {
+        throw createObjectsWriterNotSupportedException();
+    }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl;
+
+import java.io.Writer;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.SerializationContext;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
+import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Writes the serialized form directly into a {@link Writer}, without creating the whole output as a string.
+ * The result of the serialization is the output object (writer or stream) itself.
+ *
+ * The output is flushed after each serialization, but it is never closed; this is the responsibility of the caller.
+ */
+public class SerializerStreamTarget<O> extends SerializerTarget<O> {
+
+    @NotNull private final String language;
+    @NotNull private final O output;
+    @NotNull private final Writer writer;
+
+    /**
+     * @param output Object returned as the result of serialization.
+     * @param writer Writer that is used to write to the output; may be the output itself.
+     */
+    SerializerStreamTarget(@NotNull PrismContextImpl prismContext, @NotNull String language,
+            @NotNull O output, @NotNull Writer writer) {
+        super(prismContext);
+        this.language = language;
+        this.output = output;
+        this.writer = writer;
+    }
+
+    @NotNull
+    @Override
+    public O write(@NotNull RootXNodeImpl xroot, SerializationContext context) throws SchemaException {
+        getLexicalProcessor().write(xroot, context, writer);
+        return output;
+    }
+
+    @NotNull
+    @Override
+    public O write(@NotNull List<RootXNodeImpl> roots, @Nullable SerializationContext context) throws SchemaException {
+        try (LexicalProcessor.RootXNodeWriter objectsWriter = openObjectsWriter(context)) {
+            for (RootXNodeImpl root : roots) {
+                objectsWriter.write(root);
+            }
+        }
+        return output;
+    }
+
+    @NotNull
+    @Override
+    public LexicalProcessor.RootXNodeWriter openObjectsWriter(@Nullable SerializationContext context) throws SchemaException {
+        return getLexicalProcessor().openObjectsWriter(writer, context);
+    }
+
+    private LexicalProcessor<String> getLexicalProcessor() {
+        return prismContext.getLexicalProcessorRegistry().processorFor(language);
+    }
+}
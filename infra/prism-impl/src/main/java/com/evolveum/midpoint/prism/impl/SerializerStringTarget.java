@@ -39,4 +39,10 @@ public class SerializerStringTarget extends SerializerTarget<String> {
         LexicalProcessor<String> lexicalProcessor = prismContext.getLexicalProcessorRegistry().processorFor(language);
         return lexicalProcessor.write(roots, context);
     }
+
+    @NotNull
+    @Override
+    public LexicalProcessor.RootXNodeWriter openObjectsWriter(@Nullable SerializationContext context) {
+        throw createObjectsWriterNotSupportedException();
+    }
 }
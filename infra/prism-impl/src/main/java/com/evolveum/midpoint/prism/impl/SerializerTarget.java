@@ -8,6 +8,7 @@
 package com.evolveum.midpoint.prism.impl;
 
 import com.evolveum.midpoint.prism.SerializationContext;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
 import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import org.jetbrains.annotations.NotNull;
@@ -28,4 +29,19 @@ public abstract class SerializerTarget<T> {
 
     @NotNull
     abstract public T write(@NotNull List<RootXNodeImpl> roots, @Nullable SerializationContext context) throws SchemaException;
+
+    /**
+     * Opens a writer for writing objects one by one. Only targets that accept the data incrementally (i.e. streams)
+     * can support this; the others have no way of providing the result, so they must refuse it explicitly.
+     */
+    @NotNull
+    abstract public LexicalProcessor.RootXNodeWriter openObjectsWriter(@Nullable SerializationContext context)
+            throws SchemaException;
+
+    /** To be used by targets that produce the result in memory; see {@link #openObjectsWriter(SerializationContext)}. */
+    @NotNull
+    protected UnsupportedOperationException createObjectsWriterNotSupportedException() {
+        return new UnsupportedOperationException("Writing objects one by one is not supported for "
+                + getClass().getSimpleName() + "; use a serializer writing to a Writer or OutputStream");
+    }
 }
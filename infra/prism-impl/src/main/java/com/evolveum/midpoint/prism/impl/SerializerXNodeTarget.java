@@ -8,10 +8,12 @@
 package com.evolveum.midpoint.prism.impl;
 
 import com.evolveum.midpoint.prism.SerializationContext;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
 import com.evolveum.midpoint.prism.xnode.RootXNode;
 import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 
@@ -33,4 +35,10 @@ public class SerializerXNodeTarget extends SerializerTarget<RootXNode> {
             throws SchemaException {
         throw new UnsupportedOperationException("Serialization of a collection of objects is not supported for XNode target.");
     }
+
+    @NotNull
+    @Override
+    public LexicalProcessor.RootXNodeWriter openObjectsWriter(@Nullable SerializationContext context) {
+        throw createObjectsWriterNotSupportedException();
+    }
 }
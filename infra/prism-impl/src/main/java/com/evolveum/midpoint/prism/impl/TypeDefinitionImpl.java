@@ -39,7 +39,7 @@ public abstract class TypeDefinitionImpl extends DefinitionImpl implements TypeD
 
     private TypeDefinitionImpl(QName typeName, boolean schemaRegistryProvided) {
         super(typeName);
-        this.serializationProxy = schemaRegistryProvided ? SerializationProxy.forTypeDef(typeName) : null;
+        this.serializationProxy = schemaRegistryProvided ? SerializationProxy.forTypeDef(typeName, this) : null;
     }
 
     protected static boolean useSerializationProxy(boolean localeEnabled) {
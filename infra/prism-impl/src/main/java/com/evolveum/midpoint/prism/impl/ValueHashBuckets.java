@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.PrismValue;
+import com.evolveum.midpoint.prism.equivalence.ParameterizedEquivalenceStrategy;
+
+/**
+ * Values of an item grouped by their hash codes computed by given equivalence strategy. Used to find values equivalent
+ * to a value being added, without comparing it with all the values of the item.
+ *
+ * Can be used only for values whose hash codes are consistent with equals, see {@link PrismValueImpl#isHashable()}.
+ * Values in each bucket are kept in their original order.
+ *
+ * The same rules as for {@link ItemValueIndex} apply: the owning item must report added and removed values
+ * (after changing the list), and must drop the buckets if a hash code of any value may change. Changes of the list
+ * that were not reported are detected by {@link #isUpToDate(List, ParameterizedEquivalenceStrategy)}.
+ */
+class ValueHashBuckets<V extends PrismValue> {
+
+    @NotNull private final ParameterizedEquivalenceStrategy strategy;
+
+    @NotNull private final Map<Integer, List<V>> buckets = new HashMap<>();
+
+    /**
+     * Modification count of the list of values the buckets correspond to (see {@link ItemValueList}),
+     * or -1 if the buckets cannot be trusted (the list does not count the modifications, or it was changed
+     * without the change being reported).
+     */
+    private int modificationCount;
+
+    private ValueHashBuckets(@NotNull ParameterizedEquivalenceStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /** Returns null if some of the values cannot be put into buckets. */
+    static <V extends PrismValue> @Nullable ValueHashBuckets<V> create(
+            @NotNull List<V> values, @NotNull ParameterizedEquivalenceStrategy strategy) {
+        ValueHashBuckets<V> hashBuckets = new ValueHashBuckets<>(strategy);
+        for (V value : values) {
+            if (!hashBuckets.addToBucket(value)) {
+                return null;
+            }
+        }
+        hashBuckets.modificationCount = getModificationCount(values);
+        return hashBuckets;
+    }
+
+    boolean isUpToDate(@NotNull List<V> values, @NotNull ParameterizedEquivalenceStrategy strategy) {
+        return modificationCount >= 0
+                && modificationCount == getModificationCount(values)
+                && this.strategy.equals(strategy);
+    }
+
+    /** Values that may be equivalent to given one, in their original order. */
+    @NotNull List<V> getCandidates(@NotNull V value) {
+        return buckets.getOrDefault(strategy.hashCode(value), List.of());
+    }
+
+    /**
+     * Reports a value that was added to the list. Returns false if the value cannot be put into a bucket,
+     * so the buckets have to be dropped.
+     */
+    boolean valueAdded(@NotNull V value, @NotNull List<V> values) {
+        if (!addToBucket(value)) {
+            return false;
+        }
+        modificationChanged(values);
+        return true;
+    }
+
+    private boolean addToBucket(@NotNull V value) {
+        if (!isHashable(value)) {
+            return false;
+        }
+        buckets.computeIfAbsent(strategy.hashCode(value), k -> new ArrayList<>(1)).add(value);
+        return true;
+    }
+
+    /** Reports a value that was removed from the list. */
+    void valueRemoved(@NotNull V value, @NotNull List<V> values) {
+        int hash = strategy.hashCode(value);
+        List<V> bucket = buckets.get(hash);
+        if (bucket != null) {
+            bucket.removeIf(v -> v == value);
+            if (bucket.isEmpty()) {
+                buckets.remove(hash);
+            }
+        }
+        modificationChanged(values);
+    }
+
+    /**
+     * Each reported change is a single modification of the list. If there were more modifications since the last
+     * reported one, someone changed the list without telling us, so the buckets are outdated.
+     */
+    private void modificationChanged(List<V> values) {
+        int current = getModificationCount(values);
+        modificationCount = modificationCount >= 0 && current == modificationCount + 1 ? current : -1;
+    }
+
+    private static int getModificationCount(List<?> values) {
+        return values instanceof ItemValueList ? ((ItemValueList<?>) values).getModificationCount() : -1;
+    }
+
+    static boolean isHashable(PrismValue value) {
+        return value instanceof PrismValueImpl && ((PrismValueImpl) value).isHashable();
+    }
+}
@@ -110,6 +110,61 @@ public interface ContainerablePrismBinding extends Containerable {
     }
 
 
+    // Variants of the above methods that access items via slots (used by beans generated with slot access).
+
+    default <T> T prismGetPropertyValue(ItemSlot slot, Class<T> clazz) {
+        return PrismForJAXBUtil.getPropertyValue(asPrismContainerValue(), slot, clazz);
+    }
+
+    default <T> List<T> prismGetPropertyValues(ItemSlot slot, Class<T> clazz) {
+        try {
+            return PrismForJAXBUtil.getPropertyValues(asPrismContainerValue(), slot, clazz);
+        } catch (PrismContainerValue.RemovedItemDefinitionException e) {
+            // See MID-7968 in the name-based variant.
+            return List.of();
+        }
+    }
+
+    default <T extends ContainerablePrismBinding> List<T> prismGetContainerableList(Producer<T> producer, ItemSlot slot, Class<T> clazz) {
+        PrismContainerValue<?> pcv = asPrismContainerValue();
+        try {
+            PrismContainer<T> container = PrismForJAXBUtil.getContainer(pcv, slot);
+            return new ContainerableList<>(container, pcv, producer);
+        } catch (PrismContainerValue.RemovedItemDefinitionException e) {
+            // See MID-7968 in the name-based variant.
+            return List.of();
+        }
+    }
+
+    default <T extends Referencable> List<T> prismGetReferencableList(Producer<T> producer, ItemSlot slot, Class<?> clazz) {
+        PrismContainerValue<?> pcv = asPrismContainerValue();
+        try {
+            PrismReference reference = PrismForJAXBUtil.getReference(pcv, slot);
+            return new ReferencableList<>(reference, pcv, producer);
+        } catch (PrismContainerValue.RemovedItemDefinitionException e) {
+            // See MID-7968 in the name-based variant.
+            return List.of();
+        }
+    }
+
+    default <T> void prismSetPropertyValue(ItemSlot slot, T value) {
+        PrismForJAXBUtil.setPropertyValue(asPrismContainerValue(), slot, value);
+    }
+
+    default <T extends Containerable> T prismGetSingleContainerable(ItemSlot slot, Class<T> clazz) {
+        return PrismForJAXBUtil.getFieldSingleContainerable(asPrismContainerValue(), slot, clazz);
+    }
+
+    default <T extends Referencable> T prismGetReferencable(ItemSlot slot, Class<T> type, Producer<T> factory) {
+        var value = PrismForJAXBUtil.getReferenceValue(asPrismContainerValue(), slot);
+        if (value == null) {
+            return null;
+        }
+        T ret = factory.run();
+        ret.setupReferenceValue(value);
+        return ret;
+    }
+
     static class ContainerableList<T extends Containerable> extends PrismContainerArrayList<T> {
 
         private static final long serialVersionUID = -8244451828909384509L;
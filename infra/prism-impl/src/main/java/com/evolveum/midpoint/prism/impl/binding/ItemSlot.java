@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.binding;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.ComplexTypeDefinition;
+import com.evolveum.midpoint.prism.Item;
+import com.evolveum.midpoint.prism.PrismContainerValue;
+import com.evolveum.midpoint.prism.impl.PrismContainerValueImpl;
+import com.evolveum.midpoint.prism.path.ItemName;
+
+/**
+ * Access to an item of container values via its slot in the complex type definition
+ * (see {@link ComplexTypeDefinition#getItemSlot(javax.xml.namespace.QName)}), used by generated beans.
+ *
+ * The slot index depends on the definition, so it is remembered for the definitions the slot was used with
+ * (usually only a few: the type declaring the item and its subtypes). Hence, the item name is looked up only
+ * on the first access for given definition; later, the item is taken directly from the slots of the container value.
+ *
+ * Items that cannot be accessed this way (e.g. because the definition is not known or is mutable) are looked up
+ * by name, as usual.
+ */
+public final class ItemSlot {
+
+    /** Maximal number of definitions whose slot indices are remembered. */
+    private static final int MAX_BINDINGS = 8;
+
+    @NotNull private final ItemName name;
+
+    /**
+     * Known slot indices. The array is never modified, only replaced; so it can be read without synchronization.
+     * (Losing an update in a race is harmless.)
+     */
+    @NotNull private Binding[] bindings = new Binding[0];
+
+    private ItemSlot(@NotNull ItemName name) {
+        this.name = name;
+    }
+
+    public static @NotNull ItemSlot of(@NotNull ItemName name) {
+        return new ItemSlot(name);
+    }
+
+    public @NotNull ItemName getName() {
+        return name;
+    }
+
+    /** Returns the slot index for given definition, or -1 if the item has no slot there. */
+    public int getIndex(@NotNull ComplexTypeDefinition definition) {
+        Binding[] current = bindings;
+        for (Binding binding : current) {
+            if (binding.definition == definition) {
+                return binding.index;
+            }
+        }
+        int index = definition.getItemSlot(name);
+        if (current.length < MAX_BINDINGS) {
+            Binding[] updated = new Binding[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, current.length);
+            updated[current.length] = new Binding(definition, index);
+            bindings = updated;
+        }
+        return index;
+    }
+
+    /** Finds the item in given container value; the result is the same as of {@link PrismContainerValue#findItem}. */
+    public <I extends Item<?, ?>> @Nullable I findItem(@NotNull PrismContainerValue<?> value, @NotNull Class<I> type) {
+        if (value instanceof PrismContainerValueImpl) {
+            Item<?, ?> item = ((PrismContainerValueImpl<?>) value).findItemInSlot(this);
+            return type.isInstance(item) ? type.cast(item) : null;
+        } else {
+            //noinspection unchecked
+            return (I) value.findItem(name, (Class) type);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ItemSlot{" + name + "}";
+    }
+
+    private static class Binding {
+        @NotNull private final ComplexTypeDefinition definition;
+        private final int index;
+
+        private Binding(@NotNull ComplexTypeDefinition definition, int index) {
+            this.definition = definition;
+            this.index = index;
+        }
+    }
+}
@@ -7,6 +7,11 @@
 
 package com.evolveum.midpoint.prism.impl.crypto;
 
+import java.util.Collection;
+import java.util.concurrent.CompletionException;
+
+import org.jetbrains.annotations.NotNull;
+
 import com.evolveum.midpoint.prism.crypto.EncryptionException;
 import com.evolveum.midpoint.prism.crypto.ProtectedData;
 import com.evolveum.midpoint.prism.crypto.Protector;
@@ -33,6 +38,68 @@ public abstract class BaseProtector implements Protector {
 
     protected abstract <T> byte[] decryptBytes(ProtectedData<T> protectedData) throws SchemaException, EncryptionException;
 
+    @Override
+    public void decryptAll(@NotNull Collection<? extends ProtectedData<?>> protectedData, boolean parallel)
+            throws EncryptionException, SchemaException {
+        if (parallel) {
+            forEachInParallel(protectedData, this::decrypt);
+        } else {
+            Protector.super.decryptAll(protectedData, false);
+        }
+    }
+
+    @Override
+    public void encryptAll(@NotNull Collection<? extends ProtectedData<?>> protectedData, boolean parallel)
+            throws EncryptionException {
+        if (parallel) {
+            try {
+                forEachInParallel(protectedData, data -> {
+                    if (!data.isEncrypted()) {
+                        encrypt(data);
+                    }
+                });
+            } catch (SchemaException e) {
+                throw new IllegalStateException("Unexpected schema exception: " + e.getMessage(), e);
+            }
+        } else {
+            Protector.super.encryptAll(protectedData, false);
+        }
+    }
+
+    /**
+     * Processes the data using the common fork-join pool. The first exception (if any) is re-thrown.
+     */
+    private void forEachInParallel(Collection<? extends ProtectedData<?>> protectedData, DataProcessor processor)
+            throws EncryptionException, SchemaException {
+        try {
+            protectedData.parallelStream().forEach(data -> {
+                try {
+                    processor.process(data);
+                } catch (EncryptionException | SchemaException e) {
+                    throw new CompletionException(e);
+                }
+            });
+        } catch (CompletionException e) {
+            // The fork-join framework may wrap the exception thrown in another thread once more.
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof EncryptionException) {
+                throw (EncryptionException) cause;
+            } else if (cause instanceof SchemaException) {
+                throw (SchemaException) cause;
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface DataProcessor {
+        void process(ProtectedData<?> data) throws EncryptionException, SchemaException;
+    }
+
     @Override
     public String decryptString(ProtectedData<String> protectedString) throws EncryptionException {
         try {
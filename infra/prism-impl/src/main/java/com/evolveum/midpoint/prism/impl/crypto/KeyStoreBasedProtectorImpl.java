@@ -12,6 +12,7 @@ import java.io.InputStream;
 import java.security.*;
 import java.security.spec.InvalidKeySpecException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.crypto.*;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
@@ -29,6 +30,7 @@ import com.evolveum.midpoint.prism.crypto.EncryptionException;
 import com.evolveum.midpoint.prism.crypto.KeyStoreBasedProtector;
 import com.evolveum.midpoint.prism.crypto.KeyStoreBasedProtectorBuilder;
 import com.evolveum.midpoint.prism.crypto.ProtectedData;
+import com.evolveum.midpoint.util.ObjectPool;
 import com.evolveum.midpoint.util.QNameUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.exception.SystemException;
@@ -82,6 +84,15 @@ public class KeyStoreBasedProtectorImpl extends BaseProtector implements KeyStor
     private static final Map<String, SecretKey> DIGEST_TO_SECRET_KEY_HASH_MAP = new HashMap<>();
     private static final Map<String, String> XMLSEC_TO_JCE_ALGORITHM_MAP = new HashMap<>();
 
+    /** Maximal number of idle ciphers kept for each algorithm. */
+    private static final int MAX_IDLE_CIPHERS = Math.max(16, 2 * Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Pooled ciphers, keyed by algorithm URI. Obtaining a cipher from JCE (including provider lookup) is quite expensive,
+     * so we reuse them. They are (re)initialized with the key on each use, so the pools need not be keyed by the key.
+     */
+    private final Map<String, ObjectPool<Cipher>> cipherPools = new ConcurrentHashMap<>();
+
     static {
         try {
             KEY_STORE = KeyStore.getInstance("jceks");
@@ -346,46 +357,48 @@ public class KeyStoreBasedProtectorImpl extends BaseProtector implements KeyStor
             throws NoSuchAlgorithmException, NoSuchPaddingException, NoSuchProviderException,
             InvalidKeyException, IllegalBlockSizeException, BadPaddingException {
         Cipher cipher = getCipher(Cipher.ENCRYPT_MODE, algorithmUri);
-        cipher.init(Cipher.ENCRYPT_MODE, key);
+        try {
+            // (Re)initialization generates a fresh IV, so the pooled cipher can be safely reused.
+            cipher.init(Cipher.ENCRYPT_MODE, key);
 
-        byte[] encryptedData = cipher.doFinal(clearData);
+            byte[] encryptedData = cipher.doFinal(clearData);
 
-        // Place IV at the beginning of the encrypted bytes so it can be reused on decryption
-        byte[] iv = cipher.getIV();
-        byte[] encryptedBytes = new byte[iv.length + encryptedData.length];
-        System.arraycopy(iv, 0, encryptedBytes, 0, iv.length);
-        System.arraycopy(encryptedData, 0, encryptedBytes, iv.length, encryptedData.length);
+            // Place IV at the beginning of the encrypted bytes so it can be reused on decryption
+            byte[] iv = cipher.getIV();
+            byte[] encryptedBytes = new byte[iv.length + encryptedData.length];
+            System.arraycopy(iv, 0, encryptedBytes, 0, iv.length);
+            System.arraycopy(encryptedData, 0, encryptedBytes, iv.length, encryptedData.length);
 
-        return encryptedBytes;
+            return encryptedBytes;
+        } finally {
+            releaseCipher(algorithmUri, cipher);
+        }
     }
 
     private byte[] decryptBytes(byte[] encryptedBytes, String algorithmUri, Key key)
             throws NoSuchAlgorithmException, NoSuchPaddingException, NoSuchProviderException,
             InvalidKeyException, IllegalBlockSizeException, BadPaddingException, InvalidAlgorithmParameterException {
         Cipher cipher = getCipher(Cipher.DECRYPT_MODE, algorithmUri);
+        try {
+            // Extract IV from the beginning of the encrypted bytes
+            int ivLen = cipher.getBlockSize();
+            IvParameterSpec iv = new IvParameterSpec(encryptedBytes, 0, ivLen);
 
-        // Extract IV from the beginning of the encrypted bytes
-        int ivLen = cipher.getBlockSize();
-        byte[] ivBytes = new byte[ivLen];
-        System.arraycopy(encryptedBytes, 0, ivBytes, 0, ivLen);
-        IvParameterSpec iv = new IvParameterSpec(ivBytes);
-
-        cipher.init(Cipher.DECRYPT_MODE, key, iv);
-
-        byte[] decryptedData = cipher.doFinal(encryptedBytes, ivLen, encryptedBytes.length - ivLen);
+            cipher.init(Cipher.DECRYPT_MODE, key, iv);
 
-        return decryptedData;
+            return cipher.doFinal(encryptedBytes, ivLen, encryptedBytes.length - ivLen);
+        } finally {
+            releaseCipher(algorithmUri, cipher);
+        }
     }
 
+    /**
+     * Returns a cipher for given algorithm. It must be initialized before use, and returned to the pool
+     * by {@link #releaseCipher(String, Cipher)} afterwards.
+     */
     private Cipher getCipher(int cipherMode, String algorithmUri)
             throws NoSuchAlgorithmException, NoSuchPaddingException, NoSuchProviderException {
-        String jceAlgorithm = XMLSEC_TO_JCE_ALGORITHM_MAP.get(algorithmUri);
-        Cipher cipher;
-        if (requestedJceProviderName == null) {
-            cipher = Cipher.getInstance(jceAlgorithm);
-        } else {
-            cipher = Cipher.getInstance(jceAlgorithm, requestedJceProviderName);
-        }
+        Cipher cipher = getCipherPool(algorithmUri).borrow();
         if (LOGGER.isTraceEnabled()) {
             String desc;
             if (cipherMode == Cipher.ENCRYPT_MODE) {
@@ -395,13 +408,49 @@ public class KeyStoreBasedProtectorImpl extends BaseProtector implements KeyStor
             } else {
                 desc = "Ciphering (mode " + cipherMode + ")";
             }
-            LOGGER.trace("{} data by JCE algorithm {} (URI {}), cipher {}, provider {}",
-                    desc, jceAlgorithm, algorithmUri, cipher.getAlgorithm(),
-                    cipher.getProvider().getName());
+            LOGGER.trace("{} data by JCE algorithm {} (URI {}), provider {}",
+                    desc, cipher.getAlgorithm(), algorithmUri, cipher.getProvider().getName());
         }
         return cipher;
     }
 
+    private void releaseCipher(String algorithmUri, Cipher cipher) {
+        ObjectPool<Cipher> pool = cipherPools.get(algorithmUri);
+        if (pool != null) {
+            pool.release(cipher);
+        }
+    }
+
+    private ObjectPool<Cipher> getCipherPool(String algorithmUri)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, NoSuchProviderException {
+        ObjectPool<Cipher> pool = cipherPools.get(algorithmUri);
+        if (pool != null) {
+            return pool;
+        }
+        String jceAlgorithm = XMLSEC_TO_JCE_ALGORITHM_MAP.get(algorithmUri);
+        // Checks the algorithm and the provider, so that the pool factory does not have to deal with checked exceptions.
+        Cipher first = createCipher(jceAlgorithm);
+        ObjectPool<Cipher> newPool = new ObjectPool<>(() -> {
+            try {
+                return createCipher(jceAlgorithm);
+            } catch (GeneralSecurityException e) {
+                throw new SystemException("Couldn't create cipher for " + jceAlgorithm + ": " + e.getMessage(), e);
+            }
+        }, cipher -> {}, MAX_IDLE_CIPHERS);
+        newPool.release(first);
+        ObjectPool<Cipher> existing = cipherPools.putIfAbsent(algorithmUri, newPool);
+        return existing != null ? existing : newPool;
+    }
+
+    private Cipher createCipher(String jceAlgorithm)
+            throws NoSuchAlgorithmException, NoSuchPaddingException, NoSuchProviderException {
+        if (requestedJceProviderName == null) {
+            return Cipher.getInstance(jceAlgorithm);
+        } else {
+            return Cipher.getInstance(jceAlgorithm, requestedJceProviderName);
+        }
+    }
+
     /**
      * TODO remove, used only in midpoint ninja cmd tool, not part of API
      */
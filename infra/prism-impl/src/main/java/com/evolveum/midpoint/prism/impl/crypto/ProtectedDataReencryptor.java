@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.crypto;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.crypto.EncryptionException;
+import com.evolveum.midpoint.prism.crypto.Protector;
+import com.evolveum.midpoint.prism.delta.ObjectDelta;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.util.MiscUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.util.statistics.OperationInvocationRecord;
+import com.evolveum.prism.xml.ns._public.types_3.ProtectedDataType;
+
+/**
+ * Re-encrypts protected values in objects with the current encryption key, e.g. after the key alias was changed.
+ *
+ * The objects are walked through (by the calling thread) and the encrypted values that are not encrypted by the current
+ * key are collected. They are then re-encrypted in batches on a worker pool, using the batch operations of the
+ * {@link Protector}. For each object with such values, an {@link ObjectDelta} is emitted, containing only the changed
+ * values. The objects themselves are not modified; the deltas are emitted in the order of the objects, and always
+ * by the calling thread.
+ *
+ * Progress is available via {@link #getProgress()}; the time spent in batches is recorded also in the global
+ * operations performance information (see {@link com.evolveum.midpoint.util.statistics.OperationsPerformanceMonitor}),
+ * under {@link #OP_REENCRYPT_BATCH}.
+ */
+public class ProtectedDataReencryptor {
+
+    public static final String OP_REENCRYPT_BATCH = ProtectedDataReencryptor.class.getName() + ".reencryptBatch";
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    @NotNull private final Protector protector;
+    @NotNull private final Executor executor;
+    private final int batchSize;
+
+    /** Maximal number of batches being processed (or waiting for their deltas to be emitted) at once. */
+    private final int maxBatchesInFlight;
+
+    @NotNull private final Progress progress = new Progress();
+
+    public ProtectedDataReencryptor(@NotNull Protector protector) {
+        this(protector, ForkJoinPool.commonPool(), DEFAULT_BATCH_SIZE);
+    }
+
+    public ProtectedDataReencryptor(@NotNull Protector protector, @NotNull Executor executor, int batchSize) {
+        MiscUtil.argCheck(batchSize > 0, "Batch size must be positive: %s", batchSize);
+        this.protector = protector;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.maxBatchesInFlight = 2 * Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Processes the objects, passing the deltas for objects with values to be re-encrypted to the consumer.
+     * Returns when all the objects are processed. The first failure (if any) stops the processing.
+     */
+    public <O extends Objectable> void process(@NotNull Stream<PrismObject<O>> objects,
+            @NotNull Consumer<ObjectDelta<O>> deltaConsumer) throws EncryptionException, SchemaException {
+        Deque<Future<List<ObjectDelta<O>>>> inFlight = new ArrayDeque<>();
+        List<ObjectToRotate<O>> batch = new ArrayList<>();
+        int valuesInBatch = 0;
+        for (PrismObject<O> object : (Iterable<PrismObject<O>>) objects::iterator) {
+            ObjectToRotate<O> toRotate = collect(object);
+            progress.objects.incrementAndGet();
+            if (toRotate.values.isEmpty()) {
+                continue;
+            }
+            batch.add(toRotate);
+            valuesInBatch += toRotate.values.size();
+            if (valuesInBatch >= batchSize) {
+                inFlight.add(submit(batch));
+                batch = new ArrayList<>();
+                valuesInBatch = 0;
+                while (inFlight.size() > maxBatchesInFlight || (!inFlight.isEmpty() && inFlight.peek().isDone())) {
+                    emit(inFlight.remove(), deltaConsumer);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            inFlight.add(submit(batch));
+        }
+        while (!inFlight.isEmpty()) {
+            emit(inFlight.remove(), deltaConsumer);
+        }
+    }
+
+    private <O extends Objectable> ObjectToRotate<O> collect(PrismObject<O> object) throws EncryptionException {
+        ObjectToRotate<O> toRotate = new ObjectToRotate<>(object);
+        List<PrismPropertyValue<?>> encryptedValues = new ArrayList<>();
+        object.accept(visitable -> {
+            if (visitable instanceof PrismPropertyValue<?>) {
+                Object realValue = ((PrismPropertyValue<?>) visitable).getRealValue();
+                if (realValue instanceof ProtectedDataType<?> && ((ProtectedDataType<?>) realValue).isEncrypted()) {
+                    encryptedValues.add((PrismPropertyValue<?>) visitable);
+                }
+            }
+        });
+        for (PrismPropertyValue<?> value : encryptedValues) {
+            progress.valuesChecked.incrementAndGet();
+            ProtectedDataType<?> data = (ProtectedDataType<?>) value.getRealValue();
+            //noinspection ConstantConditions
+            if (!protector.isEncryptedByCurrentKey(data.getEncryptedDataType())) {
+                toRotate.values.add(new ValueToRotate(value, data.clone()));
+            }
+        }
+        return toRotate;
+    }
+
+    private <O extends Objectable> Future<List<ObjectDelta<O>>> submit(List<ObjectToRotate<O>> batch) {
+        CompletableFuture<List<ObjectDelta<O>>> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(reencrypt(batch));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    /** Executed by a worker. */
+    private <O extends Objectable> List<ObjectDelta<O>> reencrypt(List<ObjectToRotate<O>> batch)
+            throws EncryptionException, SchemaException {
+        OperationInvocationRecord record = OperationInvocationRecord.create(OP_REENCRYPT_BATCH, null, false);
+        try {
+            List<ProtectedDataType<?>> data = new ArrayList<>();
+            for (ObjectToRotate<O> object : batch) {
+                for (ValueToRotate value : object.values) {
+                    data.add(value.newData);
+                }
+            }
+            protector.decryptAll(data, false);
+            protector.encryptAll(data, false);
+
+            List<ObjectDelta<O>> deltas = new ArrayList<>(batch.size());
+            for (ObjectToRotate<O> object : batch) {
+                deltas.add(object.createDelta());
+            }
+            progress.valuesReencrypted.addAndGet(data.size());
+            return deltas;
+        } catch (Throwable t) {
+            record.processException(t);
+            throw t;
+        } finally {
+            record.afterCall();
+        }
+    }
+
+    private <O extends Objectable> void emit(Future<List<ObjectDelta<O>>> batchFuture,
+            Consumer<ObjectDelta<O>> deltaConsumer) throws EncryptionException, SchemaException {
+        List<ObjectDelta<O>> deltas;
+        try {
+            deltas = batchFuture.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SystemException("Interrupted while waiting for re-encryption", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof EncryptionException) {
+                throw (EncryptionException) cause;
+            } else if (cause instanceof SchemaException) {
+                throw (SchemaException) cause;
+            } else {
+                throw new SystemException("Couldn't re-encrypt protected data: " + cause.getMessage(), cause);
+            }
+        }
+        for (ObjectDelta<O> delta : deltas) {
+            deltaConsumer.accept(delta);
+            progress.objectsChanged.incrementAndGet();
+        }
+    }
+
+    public @NotNull Progress getProgress() {
+        return progress;
+    }
+
+    /** Counters of the processing; safe to be read by other threads while the processing is running. */
+    public static class Progress {
+
+        private final long start = System.nanoTime();
+        private final AtomicLong objects = new AtomicLong();
+        private final AtomicLong objectsChanged = new AtomicLong();
+        private final AtomicLong valuesChecked = new AtomicLong();
+        private final AtomicLong valuesReencrypted = new AtomicLong();
+
+        /** Objects walked through so far. */
+        public long getObjects() {
+            return objects.get();
+        }
+
+        /** Objects whose deltas were emitted so far. */
+        public long getObjectsChanged() {
+            return objectsChanged.get();
+        }
+
+        /** Encrypted values checked so far. */
+        public long getValuesChecked() {
+            return valuesChecked.get();
+        }
+
+        public long getValuesReencrypted() {
+            return valuesReencrypted.get();
+        }
+
+        /** Re-encrypted values per second (since the creation of the re-encryptor). */
+        public double getThroughput() {
+            long elapsed = System.nanoTime() - start;
+            return elapsed > 0 ? valuesReencrypted.get() * 1e9 / elapsed : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("objects: %d (changed: %d), values checked: %d, re-encrypted: %d (%.1f per second)",
+                    getObjects(), getObjectsChanged(), getValuesChecked(), getValuesReencrypted(), getThroughput());
+        }
+    }
+
+    private static class ObjectToRotate<O extends Objectable> {
+        @NotNull private final PrismObject<O> object;
+        @NotNull private final List<ValueToRotate> values = new ArrayList<>();
+
+        private ObjectToRotate(@NotNull PrismObject<O> object) {
+            this.object = object;
+        }
+
+        /** Each value is replaced by its re-encrypted version; other values (if any) are not touched. */
+        private ObjectDelta<O> createDelta() {
+            ObjectDelta<O> delta = object.createModifyDelta();
+            for (ValueToRotate value : values) {
+                ItemPath path = value.oldValue.getPath();
+                Itemable parent = value.oldValue.getParent();
+                if (parent instanceof Item<?, ?> && ((Item<?, ?>) parent).isSingleValue()) {
+                    delta.addModificationReplaceProperty(path, value.newData);
+                } else {
+                    delta.addModificationDeleteProperty(path, value.oldValue.getRealValue());
+                    delta.addModificationAddProperty(path, value.newData);
+                }
+            }
+            return delta;
+        }
+    }
+
+    private static class ValueToRotate {
+        @NotNull private final PrismPropertyValue<?> oldValue;
+        @NotNull private final ProtectedDataType<?> newData;
+
+        private ValueToRotate(@NotNull PrismPropertyValue<?> oldValue, @NotNull ProtectedDataType<?> newData) {
+            this.oldValue = oldValue;
+            this.newData = newData;
+        }
+    }
+}
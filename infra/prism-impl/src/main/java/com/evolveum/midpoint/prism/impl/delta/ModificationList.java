@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.delta;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.PrismStaticConfiguration;
+import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.path.ItemPathComparatorUtil;
+
+/**
+ * Modifications of {@link ObjectDeltaImpl}, with an index (a trie) of the modifications by their paths.
+ *
+ * The index only narrows the modifications down to the candidates for given path (using keys provided by
+ * {@link ItemPathComparatorUtil#getSegmentKeys(ItemPath)}); the callers still apply their usual path comparisons
+ * to the candidates.
+ *
+ * The candidates are returned in their original order, so the callers get the same results as when iterating
+ * over the whole list.
+ *
+ * The index is created lazily (for lists having at least {@link PrismStaticConfiguration#modificationIndexEnableThreshold()}
+ * modifications), and maintained when modifications are appended. Any other change of the list (detected by
+ * {@link #modCount}) invalidates it. It is assumed that paths of the modifications do not change while they are
+ * in the list.
+ */
+class ModificationList extends ArrayList<ItemDelta<?, ?>> {
+
+    private transient Node index;
+
+    /** Value of {@link #modCount} the index corresponds to. */
+    private transient int indexModCount;
+
+    @Override
+    public boolean add(ItemDelta<?, ?> modification) {
+        boolean indexUpToDate = isIndexUpToDate();
+        super.add(modification);
+        if (indexUpToDate) {
+            index.add(ItemPathComparatorUtil.getSegmentKeys(modification.getPath()), 0, size() - 1);
+            indexModCount = modCount;
+        }
+        return true;
+    }
+
+    @Override
+    public ItemDelta<?, ?> set(int index, ItemDelta<?, ?> modification) {
+        this.index = null; // set does not change modCount
+        return super.set(index, modification);
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<ItemDelta<?, ?>> operator) {
+        index = null;
+        super.replaceAll(operator);
+    }
+
+    /**
+     * Returns modifications that can have a path equivalent to given one (if `self` is true),
+     * or a path that is a (strict) subpath or superpath of it (if `ancestors` or `descendants` is true, respectively).
+     */
+    @NotNull List<ItemDelta<?, ?>> getCandidates(ItemPath path, boolean ancestors, boolean self, boolean descendants) {
+        if (size() < PrismStaticConfiguration.modificationIndexEnableThreshold()) {
+            return this;
+        }
+        if (!isIndexUpToDate()) {
+            index = new Node();
+            for (int i = 0; i < size(); i++) {
+                index.add(ItemPathComparatorUtil.getSegmentKeys(get(i).getPath()), 0, i);
+            }
+            indexModCount = modCount;
+        }
+        List<Integer> positions = new ArrayList<>();
+        List<Object> keys = ItemPathComparatorUtil.getSegmentKeys(path);
+        Node node = index;
+        for (int i = 0; i < keys.size() && node != null; i++) {
+            if (ancestors) {
+                positions.addAll(node.positions);
+            }
+            node = node.children.get(keys.get(i));
+        }
+        if (node != null) {
+            if (self) {
+                positions.addAll(node.positions);
+            }
+            if (descendants) {
+                node.collectDescendants(positions);
+            }
+        }
+        Collections.sort(positions);
+        List<ItemDelta<?, ?>> candidates = new ArrayList<>(positions.size());
+        for (int position : positions) {
+            candidates.add(get(position));
+        }
+        return candidates;
+    }
+
+    private boolean isIndexUpToDate() {
+        return index != null && indexModCount == modCount;
+    }
+
+    private static class Node {
+
+        /** Positions (in the list) of modifications whose paths end at this node. */
+        private final List<Integer> positions = new ArrayList<>(1);
+
+        private final Map<Object, Node> children = new HashMap<>();
+
+        private void add(List<Object> keys, int depth, int position) {
+            if (depth == keys.size()) {
+                positions.add(position);
+            } else {
+                children.computeIfAbsent(keys.get(depth), k -> new Node())
+                        .add(keys, depth + 1, position);
+            }
+        }
+
+        private void collectDescendants(List<Integer> result) {
+            for (Node child : children.values()) {
+                result.addAll(child.positions);
+                child.collectDescendants(result);
+            }
+        }
+    }
+}
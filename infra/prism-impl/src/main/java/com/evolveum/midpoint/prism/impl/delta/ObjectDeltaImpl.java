@@ -58,7 +58,7 @@ public class ObjectDeltaImpl<O extends Objectable> extends AbstractFreezable imp
     /**
      * Set of relative property deltas. Valid only if changeType==MODIFY
      */
-    @NotNull private final Collection<? extends ItemDelta<?, ?>> modifications;
+    @NotNull private final ModificationList modifications;
 
     /**
      * Class of the object that we describe.
@@ -305,7 +305,7 @@ public class ObjectDeltaImpl<O extends Objectable> extends AbstractFreezable imp
             return deltas;
         } else if (changeType == ChangeType.MODIFY) {
             Collection<PartiallyResolvedDelta<IV, ID>> deltas = new ArrayList<>();
-            for (ItemDelta<?, ?> modification : modifications) {
+            for (ItemDelta<?, ?> modification : modifications.getCandidates(propertyPath, true, true, true)) {
                 CompareResult compareComplex = modification.getPath().compareComplex(propertyPath);
                 if (compareComplex == CompareResult.EQUIVALENT) {
                     deltas.add(new PartiallyResolvedDelta<>((ItemDelta<IV, ID>) modification, null));
@@ -342,7 +342,7 @@ public class ObjectDeltaImpl<O extends Objectable> extends AbstractFreezable imp
             //noinspection unchecked
             return objectToAdd.findItem(itemPath, Item.class) != null;
         } else if (changeType == ChangeType.MODIFY) {
-            for (ItemDelta<?, ?> modification : getModifications()) {
+            for (ItemDelta<?, ?> modification : modifications.getCandidates(itemPath, true, true, false)) {
                 CompareResult compare = modification.getPath().compareComplex(itemPath);
                 if (compare == CompareResult.EQUIVALENT || compare == CompareResult.SUBPATH) {
                     return true;
@@ -426,7 +426,8 @@ public class ObjectDeltaImpl<O extends Objectable> extends AbstractFreezable imp
 
     private <D extends ItemDelta> D findModification(ItemPath propertyPath, Class<D> deltaType, boolean strict) {
         if (isModify()) {
-            return ItemDeltaCollectionsUtil.findItemDelta(modifications, propertyPath, deltaType, strict);
+            return ItemDeltaCollectionsUtil.findItemDelta(
+                    modifications.getCandidates(propertyPath, !strict, true, false), propertyPath, deltaType, strict);
         } else if (isAdd()) {
             Item<PrismValue, ItemDefinition<?>> item = getObjectToAdd().findItem(propertyPath);
             if (item == null) {
@@ -450,7 +451,8 @@ public class ObjectDeltaImpl<O extends Objectable> extends AbstractFreezable imp
      */
     @Override
     public @NotNull Collection<? extends ItemDelta<?, ?>> findItemDeltasSubPath(ItemPath itemPath) {
-        return ItemDeltaCollectionsUtil.findItemDeltasSubPath(modifications, itemPath);
+        return ItemDeltaCollectionsUtil.findItemDeltasSubPath(
+                modifications.getCandidates(itemPath, false, false, true), itemPath);
     }
 
     private <D extends ItemDelta> void removeModification(ItemPath propertyPath, Class<D> deltaType) {
@@ -683,8 +685,8 @@ public class ObjectDeltaImpl<O extends Objectable> extends AbstractFreezable imp
         if (getChangeType() == ChangeType.DELETE) {
             return null;
         }
-        // MODIFY change
-        PrismObject<O> objectNew = objectOld.clone();
+        // MODIFY change; only the parts of (immutable) old object touched by the modifications are copied
+        PrismObject<O> objectNew = objectOld.cloneComplex(CloneStrategy.COPY_ON_WRITE);
         for (ItemDelta modification : modifications) {
             modification.applyTo(objectNew);
         }
@@ -698,9 +700,9 @@ public class ObjectDeltaImpl<O extends Objectable> extends AbstractFreezable imp
         }
     }
 
-    private Collection<? extends ItemDelta<?, ?>> createEmptyModifications() {
+    private ModificationList createEmptyModifications() {
         // Lists are easier to debug
-        return new ArrayList<>();
+        return new ModificationList();
     }
 
     @Override
@@ -1375,7 +1377,7 @@ public class ObjectDeltaImpl<O extends Objectable> extends AbstractFreezable imp
         } else if (isDelete()) {
             return Collections.emptyList();
         } else {
-            ItemDelta itemDelta = ItemDeltaCollectionsUtil.findItemDelta(modifications, itemPath, ItemDelta.class, false);
+            ItemDelta itemDelta = findModification(itemPath, ItemDelta.class, false);
             if (itemDelta != null) {
                 if (itemDelta.getValuesToReplace() != null) {
                     return (List<PrismValue>) itemDelta.getValuesToReplace();
@@ -1406,7 +1408,7 @@ public class ObjectDeltaImpl<O extends Objectable> extends AbstractFreezable imp
         } else if (isDelete()) {
             return Collections.emptyList();
         } else {
-            ItemDelta itemDelta = ItemDeltaCollectionsUtil.findItemDelta(modifications, itemPath, ItemDelta.class, false);
+            ItemDelta itemDelta = findModification(itemPath, ItemDelta.class, false);
             if (itemDelta != null) {
                 if (itemDelta.getValuesToDelete() != null) {
                     return (List<PrismValue>) itemDelta.getValuesToDelete();
@@ -8,8 +8,11 @@
 
 import com.evolveum.midpoint.prism.ParserSource;
 import com.evolveum.midpoint.prism.ParsingContext;
+import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.SerializationContext;
 import com.evolveum.midpoint.prism.xnode.RootXNode;
+import com.evolveum.midpoint.prism.impl.marshaller.ItemInfo;
+import com.evolveum.midpoint.prism.impl.marshaller.PrismUnmarshaller;
 import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
 import com.evolveum.midpoint.prism.xnode.XNode;
 import com.evolveum.midpoint.util.exception.SchemaException;
@@ -19,6 +22,7 @@ import org.jetbrains.annotations.Nullable;
 import javax.xml.namespace.QName;
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 
 /**
@@ -52,6 +56,26 @@ public interface LexicalProcessor<T> {
 
     void readObjectsIteratively(@NotNull ParserSource source, @NotNull ParsingContext parsingContext, RootXNodeHandler handler) throws SchemaException, IOException;
 
+    /**
+     * Reads a single object directly into prism structures, driven by its definition; see
+     * {@link com.evolveum.midpoint.prism.PrismParser#definitionDriven()}.
+     *
+     * @param unmarshaller Used to parse the parts of the data that are read as XNodes.
+     * @param objectInfoResolver Determines the object definition when root element name and explicit type are known.
+     * @return Parsed object or null if the processor does not support direct reading.
+     */
+    @Nullable
+    default PrismObject<?> readObjectDirectly(@NotNull ParserSource source, @NotNull ParsingContext parsingContext,
+            @NotNull PrismUnmarshaller unmarshaller, @NotNull ObjectInfoResolver objectInfoResolver)
+            throws SchemaException, IOException {
+        return null;
+    }
+
+    @FunctionalInterface
+    interface ObjectInfoResolver {
+        @NotNull ItemInfo<?> resolve(QName rootElementName, QName explicitTypeName) throws SchemaException;
+    }
+
     /**
      * Checks if the processor can read from a given file. (Guessed by file extension, for now.)
      * Used for autodetection of language.
@@ -86,4 +110,34 @@ public interface LexicalProcessor<T> {
      */
     @NotNull
     T write(@NotNull List<RootXNodeImpl> roots, @Nullable SerializationContext context) throws SchemaException;
+
+    /**
+     * Serializes a root node directly into the writer. The writer is flushed but not closed.
+     *
+     * Not supported for NullLexicalProcessor.
+     */
+    void write(@NotNull RootXNode xnode, @Nullable SerializationContext serializationContext, @NotNull Writer out)
+            throws SchemaException;
+
+    /**
+     * Opens a writer that writes root nodes (objects) one by one into given output. The result is the same as if
+     * {@link #write(List, SerializationContext)} was called on all the nodes.
+     *
+     * Not supported for NullLexicalProcessor.
+     */
+    @NotNull
+    RootXNodeWriter openObjectsWriter(@NotNull Writer out, @Nullable SerializationContext serializationContext)
+            throws SchemaException;
+
+    /**
+     * Counterpart of {@link RootXNodeHandler} for writing.
+     */
+    interface RootXNodeWriter extends AutoCloseable {
+
+        void write(@NotNull RootXNodeImpl root) throws SchemaException;
+
+        /** Completes and flushes the output. Does not close the underlying writer. */
+        @Override
+        void close() throws SchemaException;
+    }
 }
@@ -27,7 +27,9 @@ import com.evolveum.midpoint.prism.ParserSource;
 import com.evolveum.midpoint.prism.ParserStringSource;
 import com.evolveum.midpoint.prism.ParserXNodeSource;
 import com.evolveum.midpoint.prism.impl.ParserElementSource;
+import com.evolveum.midpoint.prism.impl.lex.binary.BinaryLexicalProcessor;
 import com.evolveum.midpoint.prism.impl.lex.dom.DomLexicalProcessor;
+import com.evolveum.midpoint.prism.impl.lex.dom.StaxLexicalProcessor;
 import com.evolveum.midpoint.prism.schema.SchemaRegistry;
 import com.evolveum.midpoint.util.DebugUtil;
 import com.evolveum.midpoint.util.exception.SystemException;
@@ -36,10 +38,12 @@ public class LexicalProcessorRegistry {
 
     private final Map<String, LexicalProcessor<?>> parserMap;
 
-    private final DomLexicalProcessor domLexicalProcessor;
+    private final SchemaRegistry schemaRegistry;
+    private DomLexicalProcessor domLexicalProcessor;
     private final NullLexicalProcessor nullLexicalProcessor;
 
     public LexicalProcessorRegistry(@NotNull SchemaRegistry schemaRegistry) {
+        this.schemaRegistry = schemaRegistry;
         domLexicalProcessor = new DomLexicalProcessor(schemaRegistry);
         nullLexicalProcessor = new NullLexicalProcessor();
 
@@ -47,6 +51,7 @@ public class LexicalProcessorRegistry {
         parserMap.put(LANG_XML, domLexicalProcessor);
         parserMap.put(LANG_JSON, new DelegatingLexicalProcessor(new JsonReader(schemaRegistry), new JsonWriter(schemaRegistry)));
         parserMap.put(LANG_YAML, new DelegatingLexicalProcessor(new YamlReader(schemaRegistry), new YamlWriter(schemaRegistry)));
+        parserMap.put(LANG_BINARY, new BinaryLexicalProcessor());
     }
 
     @NotNull
@@ -85,6 +90,24 @@ public class LexicalProcessorRegistry {
         return domLexicalProcessor;
     }
 
+    /**
+     * Selects the XML reader: if enabled, XML is read directly from StAX events into XNode tree
+     * ({@link StaxLexicalProcessor}); otherwise it is parsed to DOM first ({@link DomLexicalProcessor}, the default).
+     *
+     * Intended to be called during initialization, before any parsing takes place.
+     */
+    public void setStaxXmlReaderEnabled(boolean value) {
+        if (value == isStaxXmlReaderEnabled()) {
+            return;
+        }
+        domLexicalProcessor = value ? new StaxLexicalProcessor(schemaRegistry) : new DomLexicalProcessor(schemaRegistry);
+        parserMap.put(LANG_XML, domLexicalProcessor);
+    }
+
+    public boolean isStaxXmlReaderEnabled() {
+        return domLexicalProcessor instanceof StaxLexicalProcessor;
+    }
+
     @NotNull
     public <T> LexicalProcessor<T> processorFor(String language) {
         LexicalProcessor<?> lexicalProcessor = parserMap.get(language);
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.lex.binary;
+
+import java.util.List;
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+
+import com.evolveum.midpoint.prism.PrismConstants;
+import com.evolveum.midpoint.prism.impl.xnode.XNodeImpl;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.prism.xml.ns._public.types_3.ItemPathType;
+import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
+
+/**
+ * Constants describing the binary format ({@link com.evolveum.midpoint.prism.PrismContext#LANG_BINARY}).
+ *
+ * The data consist of a header ({@link #MAGIC}, {@link #VERSION}), followed by a sequence of root nodes, each starting
+ * with {@link #ROOT}, terminated by {@link #END}. Nodes are written as tag-length-value records:
+ *
+ * - node tag is a byte containing the kind of the node (lower bits) and flags (upper bits),
+ * - maps and lists are followed by the number of their entries, strings and byte arrays by their length in bytes,
+ * - primitive values start with a value tag, followed by the value in a type-specific encoding.
+ *
+ * Namespaces and qualified names are dictionary-coded: the first occurrence is written in full, and gets the next free
+ * index; all following occurrences are written as that index. The dictionaries are shared by all the objects written
+ * to a single stream, and are pre-seeded by the well-known values below. (These are a part of the format, so any change
+ * in them requires increasing {@link #VERSION}.)
+ *
+ * Plain references, i.e. maps containing nothing but the {@code oid}, {@code type} and {@code relation} attributes
+ * with simple values, are written as {@link #KIND_REFERENCE}: a byte with presence bits ({@link #REF_OID}, ...),
+ * followed by the OID as a string value, and the type and relation as dictionary-coded names. They are read back
+ * as the same maps.
+ *
+ * Type names are written only if they are declared explicitly; otherwise they are implied by the schema (the same
+ * as for JSON and YAML). So the values are decoded according to their definitions, when parsed by the unmarshaller.
+ */
+final class BinaryFormat {
+
+    static final byte[] MAGIC = { 'P', 'R', 'S', 'M' };
+    /** Version 2 added {@link #KIND_REFERENCE}; data of version 1 are still readable. */
+    static final int VERSION = 2;
+    static final int MIN_VERSION = 1;
+
+    // Top-level records
+    static final int ROOT = 0x01;
+    static final int END = 0x00;
+
+    // Node kinds
+    static final int KIND_MASK = 0x07;
+    static final int KIND_NULL = 0x00;
+    static final int KIND_MAP = 0x01;
+    static final int KIND_LIST = 0x02;
+    static final int KIND_PRIMITIVE = 0x03;
+    static final int KIND_SCHEMA = 0x04;
+    static final int KIND_INCOMPLETE = 0x05;
+    /** Map representing a plain reference, see below. */
+    static final int KIND_REFERENCE = 0x06;
+
+    // Node flags
+    static final int FLAG_EXPLICIT_TYPE = 0x08;
+    static final int FLAG_ELEMENT_NAME = 0x10;
+    static final int FLAG_METADATA = 0x20;
+    static final int FLAG_ATTRIBUTE = 0x40;
+    static final int FLAG_INFRA = 0x80;
+
+    // Primitive value tags
+    static final int VALUE_NULL = 0x00;
+    static final int VALUE_STRING = 0x01;
+    /** String value with namespace declarations that are potentially relevant for it (QNames, item paths). */
+    static final int VALUE_TEXT_WITH_NAMESPACES = 0x02;
+    /** String in the canonical UUID form (typically OID), written as 16 bytes. */
+    static final int VALUE_UUID = 0x03;
+    static final int VALUE_LONG = 0x04;
+    static final int VALUE_TRUE = 0x05;
+    static final int VALUE_FALSE = 0x06;
+    static final int VALUE_DOUBLE = 0x07;
+    static final int VALUE_FLOAT = 0x08;
+    static final int VALUE_BIG_INTEGER = 0x09;
+    static final int VALUE_BIG_DECIMAL = 0x0A;
+    static final int VALUE_DATE_TIME = 0x0B;
+    static final int VALUE_POLY_STRING = 0x0C;
+    static final int VALUE_QNAME = 0x0D;
+    static final int VALUE_BYTES = 0x0E;
+
+    // Presence bits of reference fields
+    static final int REF_OID = 0x01;
+    static final int REF_TYPE = 0x02;
+    static final int REF_RELATION = 0x04;
+
+    // Presence bits of date-time fields
+    static final int DT_YEAR = 0x01;
+    static final int DT_MONTH = 0x02;
+    static final int DT_DAY = 0x04;
+    static final int DT_HOUR = 0x08;
+    static final int DT_MINUTE = 0x10;
+    static final int DT_SECOND = 0x20;
+    static final int DT_FRACTION = 0x40;
+    static final int DT_TIMEZONE = 0x80;
+
+    /** Well-known namespaces; the empty namespace is always the first one. */
+    static final List<String> WELL_KNOWN_NAMESPACES = List.of(
+            XMLConstants.NULL_NS_URI,
+            XMLConstants.W3C_XML_SCHEMA_NS_URI,
+            PrismConstants.NS_TYPES,
+            PrismConstants.NS_QUERY,
+            PrismConstants.NS_ANNOTATION);
+
+    /** Well-known names: infrastructure keys and the most common type names. */
+    static final List<QName> WELL_KNOWN_NAMES = List.of(
+            XNodeImpl.KEY_OID,
+            XNodeImpl.KEY_VERSION,
+            XNodeImpl.KEY_CONTAINER_ID,
+            XNodeImpl.KEY_REFERENCE_TYPE,
+            XNodeImpl.KEY_REFERENCE_RELATION,
+            XNodeImpl.KEY_REFERENCE_DESCRIPTION,
+            XNodeImpl.KEY_REFERENCE_FILTER,
+            XNodeImpl.KEY_REFERENCE_RESOLUTION_TIME,
+            XNodeImpl.KEY_REFERENCE_REFERENTIAL_INTEGRITY,
+            XNodeImpl.KEY_REFERENCE_TARGET_NAME,
+            XNodeImpl.KEY_REFERENCE_OBJECT,
+            PolyString.F_ORIG,
+            PolyString.F_NORM,
+            PolyString.F_TRANSLATION,
+            PolyString.F_LANG,
+            DOMUtil.XSD_STRING,
+            DOMUtil.XSD_INT,
+            DOMUtil.XSD_LONG,
+            DOMUtil.XSD_BOOLEAN,
+            DOMUtil.XSD_DATETIME,
+            DOMUtil.XSD_QNAME,
+            DOMUtil.XSD_ANYTYPE,
+            PolyStringType.COMPLEX_TYPE,
+            ItemPathType.COMPLEX_TYPE);
+
+    private BinaryFormat() {
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.lex.binary;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.xml.namespace.QName;
+
+import org.apache.commons.io.IOUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.ParserSource;
+import com.evolveum.midpoint.prism.ParsingContext;
+import com.evolveum.midpoint.prism.SerializationContext;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
+import com.evolveum.midpoint.prism.impl.lex.LexicalUtils;
+import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
+import com.evolveum.midpoint.prism.impl.xnode.XNodeImpl;
+import com.evolveum.midpoint.prism.xnode.RootXNode;
+import com.evolveum.midpoint.prism.xnode.XNode;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.exception.SystemException;
+
+/**
+ * Lexical processor for the compact binary format ({@link com.evolveum.midpoint.prism.PrismContext#LANG_BINARY}).
+ *
+ * The data are written as bytes, so writing to character streams ({@link Writer}) is not supported.
+ * Objects can be written one by one into a byte stream using {@link #openObjectsWriter(OutputStream, SerializationContext)}.
+ */
+public class BinaryLexicalProcessor implements LexicalProcessor<byte[]> {
+
+    @NotNull
+    @Override
+    public RootXNodeImpl read(@NotNull ParserSource source, @NotNull ParsingContext parsingContext)
+            throws SchemaException, IOException {
+        List<RootXNodeImpl> roots = readObjects(source, parsingContext);
+        if (roots.size() != 1) {
+            throw new SchemaException("Expected exactly one object in binary data; got " + roots.size());
+        }
+        return roots.get(0);
+    }
+
+    @NotNull
+    @Override
+    public List<RootXNodeImpl> readObjects(@NotNull ParserSource source, @NotNull ParsingContext parsingContext)
+            throws SchemaException, IOException {
+        List<RootXNodeImpl> roots = new ArrayList<>();
+        readObjectsIteratively(source, parsingContext, roots::add);
+        return roots;
+    }
+
+    @Override
+    public void readObjectsIteratively(@NotNull ParserSource source, @NotNull ParsingContext parsingContext,
+            RootXNodeHandler handler) throws SchemaException, IOException {
+        InputStream is = source.getInputStream();
+        try {
+            BinaryReader reader = new BinaryReader(new BufferedInputStream(is));
+            reader.readHeader();
+            RootXNodeImpl root;
+            while ((root = reader.readRoot()) != null) {
+                if (!handler.handleData(root)) {
+                    break;
+                }
+            }
+        } catch (EOFException e) {
+            throw new SchemaException("Unexpected end of binary prism data", e);
+        } finally {
+            if (source.closeStreamAfterParsing()) {
+                IOUtils.closeQuietly(is);
+            }
+        }
+    }
+
+    @Override
+    public boolean canRead(@NotNull File file) throws IOException {
+        if (!file.isFile()) {
+            return false;
+        }
+        try (InputStream is = Files.newInputStream(file.toPath())) {
+            byte[] header = new byte[BinaryFormat.MAGIC.length];
+            return IOUtils.read(is, header) == header.length && Arrays.equals(header, BinaryFormat.MAGIC);
+        }
+    }
+
+    @Override
+    public boolean canRead(@NotNull String dataString) {
+        return false; // binary data are never provided as a string
+    }
+
+    @NotNull
+    @Override
+    public byte[] write(@NotNull RootXNode xnode, @Nullable SerializationContext serializationContext) {
+        return write(List.of((RootXNodeImpl) xnode), serializationContext);
+    }
+
+    @NotNull
+    @Override
+    public byte[] write(@NotNull XNode xnode, @NotNull QName rootElementName,
+            @Nullable SerializationContext serializationContext) {
+        return write(LexicalUtils.createRootXNode((XNodeImpl) xnode, rootElementName), serializationContext);
+    }
+
+    @NotNull
+    @Override
+    public byte[] write(@NotNull List<RootXNodeImpl> roots, @Nullable SerializationContext context) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectsWriter objectsWriter = new ObjectsWriter(out)) {
+            for (RootXNodeImpl root : roots) {
+                objectsWriter.write(root);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Opens a writer that writes objects one by one into a byte stream. All the objects share the name dictionaries.
+     * The data are completed and the stream is flushed on {@link RootXNodeWriter#close()}; the stream is not closed.
+     */
+    @NotNull
+    public RootXNodeWriter openObjectsWriter(@NotNull OutputStream out, @Nullable SerializationContext serializationContext) {
+        return new ObjectsWriter(out);
+    }
+
+    private static SystemException createWriteException(IOException e) {
+        return new SystemException("Error during writing binary prism data: " + e.getMessage(), e);
+    }
+
+    @Override
+    public void write(@NotNull RootXNode xnode, @Nullable SerializationContext serializationContext, @NotNull Writer out) {
+        throw new UnsupportedOperationException("Binary format cannot be written to a character stream");
+    }
+
+    @NotNull
+    @Override
+    public RootXNodeWriter openObjectsWriter(@NotNull Writer out, @Nullable SerializationContext serializationContext) {
+        throw new UnsupportedOperationException("Binary format cannot be written to a character stream");
+    }
+
+    /** Writes the header when created, objects on {@link #write(RootXNodeImpl)}, and the end mark on {@link #close()}. */
+    private static class ObjectsWriter implements RootXNodeWriter {
+
+        @NotNull private final BinaryWriter writer;
+
+        ObjectsWriter(@NotNull OutputStream out) {
+            writer = new BinaryWriter(out);
+            try {
+                writer.writeHeader();
+            } catch (IOException e) {
+                throw createWriteException(e);
+            }
+        }
+
+        @Override
+        public void write(@NotNull RootXNodeImpl root) {
+            try {
+                writer.writeRoot(root);
+            } catch (IOException e) {
+                throw createWriteException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                writer.writeEnd();
+            } catch (IOException e) {
+                throw createWriteException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.lex.binary;
+
+import static com.evolveum.midpoint.prism.impl.lex.binary.BinaryFormat.*;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.impl.lex.json.JsonNullValueParser;
+import com.evolveum.midpoint.prism.impl.xnode.*;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.prism.xnode.MapXNode;
+import com.evolveum.midpoint.prism.xnode.MetadataAware;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Reads XNode trees from the binary format. See {@link BinaryFormat} for the description of the format.
+ *
+ * Primitive values are kept unparsed (see {@link BinaryValueParser}), so they are converted to the types
+ * required by their definitions when parsed by the unmarshaller.
+ */
+class BinaryReader {
+
+    private static final DatatypeFactory DATATYPE_FACTORY;
+
+    static {
+        try {
+            DATATYPE_FACTORY = DatatypeFactory.newInstance();
+        } catch (DatatypeConfigurationException e) {
+            throw new IllegalStateException("Cannot construct DatatypeFactory: " + e.getMessage(), e);
+        }
+    }
+
+    @NotNull private final DataInputStream in;
+
+    @NotNull private final List<String> namespaces = new ArrayList<>(WELL_KNOWN_NAMESPACES);
+    @NotNull private final List<QName> names = new ArrayList<>(WELL_KNOWN_NAMES);
+
+    BinaryReader(@NotNull InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    void readHeader() throws IOException, SchemaException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new SchemaException("Not a binary prism data: wrong header");
+        }
+        int version = in.readUnsignedByte();
+        if (version < MIN_VERSION || version > VERSION) {
+            throw new SchemaException("Unsupported version of binary prism data: " + version);
+        }
+    }
+
+    /** Returns the next root node, or null if there are no more of them. */
+    @Nullable RootXNodeImpl readRoot() throws IOException, SchemaException {
+        int record = in.readUnsignedByte();
+        if (record == END) {
+            return null;
+        } else if (record != ROOT) {
+            throw new SchemaException("Malformed binary prism data: unexpected record " + record);
+        }
+        QName rootElementName = readQName();
+        int flags = in.readUnsignedByte();
+        QName ownType = (flags & FLAG_EXPLICIT_TYPE) != 0 ? readQName() : null;
+        RootXNodeImpl root = new RootXNodeImpl(rootElementName, readNode());
+        if (ownType != null) {
+            root.setTypeQName(ownType);
+            root.setExplicitTypeDeclaration(true);
+        }
+        return root;
+    }
+
+    private XNodeImpl readNode() throws IOException, SchemaException {
+        int tag = in.readUnsignedByte();
+        int kind = tag & KIND_MASK;
+        if (kind == KIND_NULL) {
+            return null;
+        }
+        QName typeName = (tag & FLAG_EXPLICIT_TYPE) != 0 ? readQName() : null;
+        QName elementName = (tag & FLAG_ELEMENT_NAME) != 0 ? readQName() : null;
+        List<MapXNode> metadataNodes = (tag & FLAG_METADATA) != 0 ? readMetadataNodes() : null;
+
+        XNodeImpl node;
+        switch (kind) {
+            case KIND_MAP:
+                node = readMapContent();
+                break;
+            case KIND_LIST:
+                node = readListContent();
+                break;
+            case KIND_PRIMITIVE:
+                node = readPrimitiveContent((tag & FLAG_ATTRIBUTE) != 0, (tag & FLAG_INFRA) != 0);
+                break;
+            case KIND_SCHEMA:
+                SchemaXNodeImpl schema = new SchemaXNodeImpl();
+                schema.setSchemaElement(DOMUtil.parseDocument(readString()).getDocumentElement());
+                node = schema;
+                break;
+            case KIND_INCOMPLETE:
+                node = new IncompleteMarkerXNodeImpl();
+                break;
+            case KIND_REFERENCE:
+                node = readReferenceContent();
+                break;
+            default:
+                throw new SchemaException("Malformed binary prism data: unknown node kind " + kind);
+        }
+        if (typeName != null) {
+            node.setTypeQName(typeName);
+            node.setExplicitTypeDeclaration(true);
+        }
+        if (elementName != null) {
+            node.setElementName(elementName);
+        }
+        if (metadataNodes != null) {
+            if (!(node instanceof MetadataAware)) {
+                throw new SchemaException("Malformed binary prism data: metadata for " + node.getDesc());
+            }
+            ((MetadataAware) node).setMetadataNodes(metadataNodes);
+        }
+        return node;
+    }
+
+    private List<MapXNode> readMetadataNodes() throws IOException, SchemaException {
+        int count = readVarInt();
+        List<MapXNode> metadataNodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            XNodeImpl metadataNode = readNode();
+            if (!(metadataNode instanceof MapXNodeImpl)) {
+                throw new SchemaException("Malformed binary prism data: metadata is not a map: " + metadataNode);
+            }
+            metadataNodes.add((MapXNodeImpl) metadataNode);
+        }
+        return metadataNodes;
+    }
+
+    private MapXNodeImpl readMapContent() throws IOException, SchemaException {
+        MapXNodeImpl map = new MapXNodeImpl();
+        int count = readVarInt();
+        for (int i = 0; i < count; i++) {
+            QName key = readQName();
+            XNodeImpl value = readNode();
+            if (value == null) {
+                throw new SchemaException("Malformed binary prism data: null value for " + key);
+            }
+            map.put(key, value);
+        }
+        return map;
+    }
+
+    private MapXNodeImpl readReferenceContent() throws IOException, SchemaException {
+        MapXNodeImpl map = new MapXNodeImpl();
+        int presence = in.readUnsignedByte();
+        if ((presence & REF_OID) != 0) {
+            int valueTag = in.readUnsignedByte();
+            if (valueTag != VALUE_STRING && valueTag != VALUE_UUID) {
+                throw new SchemaException("Malformed binary prism data: unexpected reference OID value type " + valueTag);
+            }
+            map.put(XNodeImpl.KEY_REFERENCE_OID, createReferenceAttribute(readValue(valueTag)));
+        }
+        if ((presence & REF_TYPE) != 0) {
+            map.put(XNodeImpl.KEY_REFERENCE_TYPE, createReferenceAttribute(readQName()));
+        }
+        if ((presence & REF_RELATION) != 0) {
+            map.put(XNodeImpl.KEY_REFERENCE_RELATION, createReferenceAttribute(readQName()));
+        }
+        return map;
+    }
+
+    private PrimitiveXNodeImpl<?> createReferenceAttribute(Object value) {
+        PrimitiveXNodeImpl<Object> primitive = new PrimitiveXNodeImpl<>();
+        primitive.setValueParser(new BinaryValueParser<>(value, Map.of()));
+        primitive.setAttribute(true);
+        return primitive;
+    }
+
+    private ListXNodeImpl readListContent() throws IOException, SchemaException {
+        ListXNodeImpl list = new ListXNodeImpl();
+        int count = readVarInt();
+        for (int i = 0; i < count; i++) {
+            list.add(readNode());
+        }
+        return list;
+    }
+
+    private PrimitiveXNodeImpl<?> readPrimitiveContent(boolean attribute, boolean infra)
+            throws IOException, SchemaException {
+        PrimitiveXNodeImpl<Object> primitive = new PrimitiveXNodeImpl<>();
+        int valueTag = in.readUnsignedByte();
+        if (valueTag == VALUE_NULL) {
+            // The same as null in JSON/YAML.
+            primitive.setValueParser(new JsonNullValueParser<>());
+        } else if (valueTag == VALUE_TEXT_WITH_NAMESPACES) {
+            String text = readString();
+            int count = readVarInt();
+            Map<String, String> declarations = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String prefix = readString();
+                declarations.put(prefix, readNamespace());
+            }
+            primitive.setValueParser(new BinaryValueParser<>(text, declarations));
+        } else {
+            primitive.setValueParser(new BinaryValueParser<>(readValue(valueTag), Map.of()));
+        }
+        primitive.setAttribute(attribute);
+        primitive.setInfra(infra);
+        return primitive;
+    }
+
+    private @NotNull Object readValue(int valueTag) throws IOException, SchemaException {
+        switch (valueTag) {
+            case VALUE_STRING:
+                return readString();
+            case VALUE_UUID:
+                return new UUID(in.readLong(), in.readLong()).toString();
+            case VALUE_LONG:
+                return unZigZag(readVarLong());
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_DOUBLE:
+                return in.readDouble();
+            case VALUE_FLOAT:
+                return in.readFloat();
+            case VALUE_BIG_INTEGER:
+                return new BigInteger(readString());
+            case VALUE_BIG_DECIMAL:
+                return new BigDecimal(readString());
+            case VALUE_DATE_TIME:
+                return readDateTime();
+            case VALUE_POLY_STRING:
+                String orig = readString();
+                return new PolyString(orig, readNullableString());
+            case VALUE_QNAME:
+                return readQName();
+            case VALUE_BYTES:
+                byte[] bytes = new byte[readVarInt()];
+                in.readFully(bytes);
+                return bytes;
+            default:
+                throw new SchemaException("Malformed binary prism data: unknown value type " + valueTag);
+        }
+    }
+
+    private Object readDateTime() throws IOException {
+        int presence = in.readUnsignedByte();
+        BigInteger year = (presence & DT_YEAR) != 0 ? BigInteger.valueOf(unZigZag(readVarLong())) : null;
+        int month = (presence & DT_MONTH) != 0 ? in.readUnsignedByte() : DatatypeConstants.FIELD_UNDEFINED;
+        int day = (presence & DT_DAY) != 0 ? in.readUnsignedByte() : DatatypeConstants.FIELD_UNDEFINED;
+        int hour = (presence & DT_HOUR) != 0 ? in.readUnsignedByte() : DatatypeConstants.FIELD_UNDEFINED;
+        int minute = (presence & DT_MINUTE) != 0 ? in.readUnsignedByte() : DatatypeConstants.FIELD_UNDEFINED;
+        int second = (presence & DT_SECOND) != 0 ? in.readUnsignedByte() : DatatypeConstants.FIELD_UNDEFINED;
+        BigDecimal fraction = null;
+        if ((presence & DT_FRACTION) != 0) {
+            int scale = in.readUnsignedByte();
+            fraction = BigDecimal.valueOf(readVarLong(), scale);
+        }
+        int timezone = (presence & DT_TIMEZONE) != 0
+                ? (int) unZigZag(readVarLong()) : DatatypeConstants.FIELD_UNDEFINED;
+        return DATATYPE_FACTORY.newXMLGregorianCalendar(year, month, day, hour, minute, second, fraction, timezone);
+    }
+
+    private QName readQName() throws IOException, SchemaException {
+        int index = readVarInt();
+        if (index > 0) {
+            return lookup(names, index - 1, "name");
+        }
+        String namespace = readNamespace();
+        QName name = new QName(namespace, readString());
+        names.add(name);
+        return name;
+    }
+
+    private String readNamespace() throws IOException, SchemaException {
+        int index = readVarInt();
+        if (index > 0) {
+            return lookup(namespaces, index - 1, "namespace");
+        }
+        String namespace = readString();
+        namespaces.add(namespace);
+        return namespace;
+    }
+
+    private static <T> T lookup(List<T> dictionary, int index, String what) throws SchemaException {
+        if (index >= dictionary.size()) {
+            throw new SchemaException("Malformed binary prism data: unknown " + what + " #" + index);
+        }
+        return dictionary.get(index);
+    }
+
+    private String readNullableString() throws IOException {
+        int length = readVarInt();
+        return length == 0 ? null : readBytesAsString(length - 1);
+    }
+
+    private String readString() throws IOException {
+        return readBytesAsString(readVarInt());
+    }
+
+    private String readBytesAsString(int length) throws IOException {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int readVarInt() throws IOException {
+        long value = readVarLong();
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Malformed binary prism data: length or index out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed binary prism data: variable-length number is too long");
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
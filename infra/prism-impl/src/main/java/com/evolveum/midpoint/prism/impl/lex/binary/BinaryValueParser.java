@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.lex.binary;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Base64;
+import java.util.Map;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.impl.marshaller.ItemPathHolder;
+import com.evolveum.midpoint.prism.marshaller.XNodeProcessorEvaluationMode;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
+import com.evolveum.midpoint.prism.xml.XsdTypeMapper;
+import com.evolveum.midpoint.prism.xnode.ValueParser;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.PrettyPrinter;
+import com.evolveum.midpoint.util.QNameUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.prism.xml.ns._public.types_3.ItemPathType;
+
+/**
+ * Holds a primitive value decoded from the binary format, and converts it to the type requested by the definition.
+ *
+ * Strings are treated the same way as XML text content; typed values (numbers, booleans, dates, ...) are returned
+ * as they are if they match the requested type, or converted to it.
+ */
+class BinaryValueParser<T> implements ValueParser<T>, Serializable {
+
+    @NotNull private final Object value;
+    @NotNull private final Map<String, String> namespaces;
+
+    BinaryValueParser(@NotNull Object value, @NotNull Map<String, String> namespaces) {
+        this.value = value;
+        this.namespaces = namespaces;
+    }
+
+    @NotNull Object getValue() {
+        return value;
+    }
+
+    @NotNull Map<String, String> getNamespaces() {
+        return namespaces;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T parse(QName typeName, XNodeProcessorEvaluationMode mode) throws SchemaException {
+        if (ItemPathType.COMPLEX_TYPE.equals(typeName)) {
+            return (T) new ItemPathType(ItemPathHolder.parseFromString(getStringValue(), namespaces));
+        }
+        Class<?> javaType = XsdTypeMapper.getXsdToJavaMapping(typeName);
+        if (javaType == null) {
+            if (DOMUtil.XSD_ANYTYPE.equals(typeName)) {
+                return (T) value;
+            }
+            throw new SchemaException("Cannot convert binary value '" + getStringValue() + "' to " + typeName);
+        }
+        javaType = ClassUtils.primitiveToWrapper(javaType);
+        try {
+            if (javaType.isInstance(value)) {
+                return (T) value;
+            } else if (value instanceof Number) {
+                return (T) convertNumber((Number) value, javaType);
+            } else {
+                return (T) XmlTypeConverter.toJavaValue(getStringValue(), namespaces, javaType);
+            }
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            throw new SchemaException("Cannot convert binary value '" + getStringValue() + "' to " + typeName
+                    + ": " + e.getMessage(), e);
+        }
+    }
+
+    private Object convertNumber(Number number, Class<?> javaType) {
+        if (javaType == Integer.class) {
+            return Math.toIntExact(number.longValue());
+        } else if (javaType == Long.class) {
+            return number.longValue();
+        } else if (javaType == Short.class) {
+            return (short) Math.toIntExact(number.longValue());
+        } else if (javaType == Byte.class) {
+            return (byte) Math.toIntExact(number.longValue());
+        } else if (javaType == Double.class) {
+            return number.doubleValue();
+        } else if (javaType == Float.class) {
+            return number.floatValue();
+        } else if (javaType == BigInteger.class) {
+            return new BigInteger(number.toString());
+        } else if (javaType == BigDecimal.class) {
+            return new BigDecimal(number.toString());
+        } else {
+            return XmlTypeConverter.toJavaValue(number.toString(), namespaces, javaType);
+        }
+    }
+
+    @Override
+    public boolean canParseAs(QName typeName) {
+        return ItemPathType.COMPLEX_TYPE.equals(typeName)
+                || XmlTypeConverter.canConvert(typeName)
+                || DOMUtil.XSD_ANYTYPE.equals(typeName);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return value instanceof String && StringUtils.isBlank((String) value);
+    }
+
+    @Override
+    public String getStringValue() {
+        if (value instanceof XMLGregorianCalendar) {
+            return ((XMLGregorianCalendar) value).toXMLFormat();
+        } else if (value instanceof PolyString) {
+            return ((PolyString) value).getOrig();
+        } else if (value instanceof QName) {
+            return QNameUtil.qNameToUri((QName) value);
+        } else if (value instanceof byte[]) {
+            return Base64.getEncoder().encodeToString((byte[]) value);
+        } else {
+            return value.toString();
+        }
+    }
+
+    @Override
+    public Map<String, String> getPotentiallyRelevantNamespaces() {
+        return namespaces;
+    }
+
+    @Override
+    public ValueParser<T> freeze() {
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "BinaryValueParser(" + PrettyPrinter.prettyPrint(value) + ")";
+    }
+}
@@ -0,0 +1,460 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.lex.binary;
+
+import static com.evolveum.midpoint.prism.impl.lex.binary.BinaryFormat.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.PrismNamespaceContext;
+import com.evolveum.midpoint.prism.impl.marshaller.ItemPathSerialization;
+import com.evolveum.midpoint.prism.impl.xnode.*;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.path.UniformItemPath;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.prism.xnode.MapXNode;
+import com.evolveum.midpoint.prism.xnode.MetadataAware;
+import com.evolveum.midpoint.prism.xnode.ValueParser;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.prism.xml.ns._public.types_3.ItemPathType;
+
+/**
+ * Writes XNode trees in the binary format. See {@link BinaryFormat} for the description of the format.
+ *
+ * The name dictionaries are kept for the whole lifetime of the writer, so all objects written by a single
+ * instance share them.
+ */
+class BinaryWriter {
+
+    /** Fraction of seconds with more digits than this is written as a plain string. */
+    private static final int MAX_FRACTION_SCALE = 18;
+
+    @NotNull private final DataOutputStream out;
+
+    @NotNull private final Map<String, Integer> namespaces = new HashMap<>();
+    @NotNull private final Map<QName, Integer> names = new HashMap<>();
+
+    BinaryWriter(@NotNull OutputStream out) {
+        this.out = new DataOutputStream(out);
+        for (String namespace : WELL_KNOWN_NAMESPACES) {
+            namespaces.put(namespace, namespaces.size());
+        }
+        for (QName name : WELL_KNOWN_NAMES) {
+            names.put(name, names.size());
+        }
+    }
+
+    void writeHeader() throws IOException {
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    void writeRoot(@NotNull RootXNodeImpl root) throws IOException {
+        out.writeByte(ROOT);
+        writeQName(root.getRootElementName());
+        XNodeImpl subnode = root.getSubnode();
+        // The root node inherits the type of the subnode; we write only its own type, if there's any.
+        QName ownType = root.getTypeQName();
+        boolean hasOwnType = ownType != null
+                && (subnode == null || !ownType.equals(subnode.getTypeQName()))
+                && root.isExplicitTypeDeclaration();
+        out.writeByte(hasOwnType ? FLAG_EXPLICIT_TYPE : 0);
+        if (hasOwnType) {
+            writeQName(ownType);
+        }
+        writeNode(subnode);
+    }
+
+    void writeEnd() throws IOException {
+        out.writeByte(END);
+        out.flush();
+    }
+
+    private void writeNode(XNodeImpl node) throws IOException {
+        if (node == null) {
+            out.writeByte(KIND_NULL);
+            return;
+        }
+        int tag = getKind(node);
+        QName typeName = node.getTypeQName();
+        boolean explicitType = typeName != null && node.isExplicitTypeDeclaration();
+        if (explicitType) {
+            tag |= FLAG_EXPLICIT_TYPE;
+        }
+        if (node.getElementName() != null) {
+            tag |= FLAG_ELEMENT_NAME;
+        }
+        List<MapXNode> metadataNodes = node instanceof MetadataAware ? ((MetadataAware) node).getMetadataNodes() : List.of();
+        if (!metadataNodes.isEmpty()) {
+            tag |= FLAG_METADATA;
+        }
+        if (node instanceof PrimitiveXNodeImpl) {
+            PrimitiveXNodeImpl<?> primitive = (PrimitiveXNodeImpl<?>) node;
+            if (primitive.isAttribute()) {
+                tag |= FLAG_ATTRIBUTE;
+            }
+            if (primitive.isInfra()) {
+                tag |= FLAG_INFRA;
+            }
+        }
+        out.writeByte(tag);
+        if (explicitType) {
+            writeQName(typeName);
+        }
+        if (node.getElementName() != null) {
+            writeQName(node.getElementName());
+        }
+        if (!metadataNodes.isEmpty()) {
+            writeVarInt(metadataNodes.size());
+            for (MapXNode metadataNode : metadataNodes) {
+                writeNode((MapXNodeImpl) metadataNode);
+            }
+        }
+        if ((tag & KIND_MASK) == KIND_REFERENCE) {
+            writeReferenceContent((MapXNodeImpl) node);
+        } else if (node instanceof MapXNodeImpl) {
+            writeMapContent((MapXNodeImpl) node);
+        } else if (node instanceof ListXNodeImpl) {
+            writeListContent((ListXNodeImpl) node);
+        } else if (node instanceof PrimitiveXNodeImpl) {
+            writePrimitiveContent((PrimitiveXNodeImpl<?>) node);
+        } else if (node instanceof SchemaXNodeImpl) {
+            writeString(DOMUtil.serializeDOMToString(((SchemaXNodeImpl) node).getSchemaElement()));
+        }
+    }
+
+    private int getKind(XNodeImpl node) {
+        if (node instanceof MapXNodeImpl) {
+            return isPlainReference((MapXNodeImpl) node) ? KIND_REFERENCE : KIND_MAP;
+        } else if (node instanceof ListXNodeImpl) {
+            return KIND_LIST;
+        } else if (node instanceof PrimitiveXNodeImpl) {
+            return KIND_PRIMITIVE;
+        } else if (node instanceof SchemaXNodeImpl) {
+            return KIND_SCHEMA;
+        } else if (node instanceof IncompleteMarkerXNodeImpl) {
+            return KIND_INCOMPLETE;
+        } else {
+            throw new IllegalArgumentException("Unsupported XNode for binary serialization: " + node);
+        }
+    }
+
+    private void writeMapContent(MapXNodeImpl map) throws IOException {
+        int count = 0;
+        for (Map.Entry<QName, XNodeImpl> entry : map.entrySet()) {
+            if (entry.getValue() != null) {
+                count++;
+            }
+        }
+        writeVarInt(count);
+        for (Map.Entry<QName, XNodeImpl> entry : map.entrySet()) {
+            if (entry.getValue() != null) {
+                writeQName(entry.getKey());
+                writeNode(entry.getValue());
+            }
+        }
+    }
+
+    /** Is this a map consisting only of simple OID, type and relation attributes? See {@link BinaryFormat}. */
+    private static boolean isPlainReference(MapXNodeImpl map) {
+        if (map.isEmpty()) {
+            return false;
+        }
+        for (Map.Entry<QName, XNodeImpl> entry : map.entrySet()) {
+            QName key = entry.getKey();
+            Object value = getSimpleAttributeValue(entry.getValue());
+            if (XNodeImpl.KEY_REFERENCE_OID.equals(key)) {
+                if (!(value instanceof String)) {
+                    return false;
+                }
+            } else if (XNodeImpl.KEY_REFERENCE_TYPE.equals(key) || XNodeImpl.KEY_REFERENCE_RELATION.equals(key)) {
+                if (!(value instanceof QName)) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value of a primitive attribute node that carries nothing else than the value itself
+     * (no explicit type, metadata, nor namespace declarations); null if there's no such value.
+     */
+    private static Object getSimpleAttributeValue(XNodeImpl node) {
+        if (!(node instanceof PrimitiveXNodeImpl)) {
+            return null;
+        }
+        PrimitiveXNodeImpl<?> primitive = (PrimitiveXNodeImpl<?>) node;
+        if (!primitive.isAttribute() || primitive.isInfra()
+                || primitive.getTypeQName() != null && primitive.isExplicitTypeDeclaration()
+                || primitive.getElementName() != null || !primitive.getMetadataNodes().isEmpty()) {
+            return null;
+        }
+        if (primitive.isParsed()) {
+            return primitive.getValue();
+        }
+        ValueParser<?> valueParser = primitive.getValueParser();
+        if (valueParser instanceof BinaryValueParser) {
+            BinaryValueParser<?> binaryValueParser = (BinaryValueParser<?>) valueParser;
+            return binaryValueParser.getNamespaces().isEmpty() ? binaryValueParser.getValue() : null;
+        } else if (valueParser != null && primitive.getRelevantNamespaceDeclarations().isEmpty()) {
+            return primitive.getStringValue();
+        } else {
+            return null;
+        }
+    }
+
+    private void writeReferenceContent(MapXNodeImpl reference) throws IOException {
+        Object oid = getSimpleAttributeValue(reference.get(XNodeImpl.KEY_REFERENCE_OID));
+        Object type = getSimpleAttributeValue(reference.get(XNodeImpl.KEY_REFERENCE_TYPE));
+        Object relation = getSimpleAttributeValue(reference.get(XNodeImpl.KEY_REFERENCE_RELATION));
+        out.writeByte((oid != null ? REF_OID : 0) | (type != null ? REF_TYPE : 0) | (relation != null ? REF_RELATION : 0));
+        if (oid != null) {
+            writeStringValue((String) oid, Map.of());
+        }
+        if (type != null) {
+            writeQName((QName) type);
+        }
+        if (relation != null) {
+            writeQName((QName) relation);
+        }
+    }
+
+    private void writeListContent(ListXNodeImpl list) throws IOException {
+        writeVarInt(list.size());
+        for (XNodeImpl item : list) {
+            writeNode(item);
+        }
+    }
+
+    private void writePrimitiveContent(PrimitiveXNodeImpl<?> primitive) throws IOException {
+        if (primitive.isParsed()) {
+            writeValue(primitive.getValue());
+        } else {
+            ValueParser<?> valueParser = primitive.getValueParser();
+            if (valueParser instanceof BinaryValueParser) {
+                BinaryValueParser<?> binaryValueParser = (BinaryValueParser<?>) valueParser;
+                writeValue(binaryValueParser.getValue(), binaryValueParser.getNamespaces());
+            } else {
+                String text = primitive.getStringValue();
+                if (text == null) {
+                    out.writeByte(VALUE_NULL);
+                } else {
+                    writeValue(text, primitive.getRelevantNamespaceDeclarations());
+                }
+            }
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value instanceof ItemPathType) {
+            value = ((ItemPathType) value).getItemPath();
+        }
+        if (value instanceof ItemPath) {
+            ItemPathSerialization serialization = ItemPathSerialization.serialize(
+                    UniformItemPath.from((ItemPath) value), PrismNamespaceContext.EMPTY, true);
+            writeValue(serialization.getXPathWithoutDeclarations(), serialization.undeclaredPrefixes());
+        } else {
+            writeValue(value, Map.of());
+        }
+    }
+
+    private void writeValue(Object value, @NotNull Map<String, String> relevantNamespaces) throws IOException {
+        if (value == null) {
+            out.writeByte(VALUE_NULL);
+        } else if (value instanceof String) {
+            writeStringValue((String) value, relevantNamespaces);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(VALUE_LONG);
+            writeVarLong(zigZag(((Number) value).longValue()));
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? VALUE_TRUE : VALUE_FALSE);
+        } else if (value instanceof Double) {
+            out.writeByte(VALUE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(VALUE_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof BigInteger) {
+            out.writeByte(VALUE_BIG_INTEGER);
+            writeString(value.toString());
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(VALUE_BIG_DECIMAL);
+            writeString(value.toString());
+        } else if (value instanceof XMLGregorianCalendar) {
+            writeDateTime((XMLGregorianCalendar) value);
+        } else if (value instanceof PolyString) {
+            PolyString polyString = (PolyString) value;
+            out.writeByte(VALUE_POLY_STRING);
+            writeString(polyString.getOrig());
+            writeNullableString(polyString.getNorm());
+        } else if (value instanceof QName) {
+            out.writeByte(VALUE_QNAME);
+            writeQName((QName) value);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            out.writeByte(VALUE_BYTES);
+            writeVarInt(bytes.length);
+            out.write(bytes);
+        } else {
+            // Enums and other values are written in their XML form; they are converted back according to the definition.
+            writeStringValue(new PrimitiveXNodeImpl<>(value).getFormattedValue(), relevantNamespaces);
+        }
+    }
+
+    private void writeStringValue(String value, @NotNull Map<String, String> relevantNamespaces) throws IOException {
+        if (!relevantNamespaces.isEmpty()) {
+            out.writeByte(VALUE_TEXT_WITH_NAMESPACES);
+            writeString(value);
+            writeVarInt(relevantNamespaces.size());
+            for (Map.Entry<String, String> declaration : relevantNamespaces.entrySet()) {
+                writeString(declaration.getKey());
+                writeNamespace(declaration.getValue());
+            }
+        } else if (isCanonicalUuid(value)) {
+            UUID uuid = UUID.fromString(value);
+            out.writeByte(VALUE_UUID);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        } else {
+            out.writeByte(VALUE_STRING);
+            writeString(value);
+        }
+    }
+
+    /** Only values that are reproduced exactly by {@link UUID#toString()} can be written in the compact form. */
+    private static boolean isCanonicalUuid(String value) {
+        if (value.length() != 36 || value.charAt(8) != '-' || value.charAt(13) != '-'
+                || value.charAt(18) != '-' || value.charAt(23) != '-') {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '-' && !(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeDateTime(XMLGregorianCalendar value) throws IOException {
+        BigDecimal fraction = value.getFractionalSecond();
+        if (value.getEon() != null || fraction != null && fraction.scale() > MAX_FRACTION_SCALE) {
+            out.writeByte(VALUE_STRING);
+            writeString(value.toXMLFormat());
+            return;
+        }
+        int presence = 0;
+        presence |= value.getYear() != DatatypeConstants.FIELD_UNDEFINED ? DT_YEAR : 0;
+        presence |= value.getMonth() != DatatypeConstants.FIELD_UNDEFINED ? DT_MONTH : 0;
+        presence |= value.getDay() != DatatypeConstants.FIELD_UNDEFINED ? DT_DAY : 0;
+        presence |= value.getHour() != DatatypeConstants.FIELD_UNDEFINED ? DT_HOUR : 0;
+        presence |= value.getMinute() != DatatypeConstants.FIELD_UNDEFINED ? DT_MINUTE : 0;
+        presence |= value.getSecond() != DatatypeConstants.FIELD_UNDEFINED ? DT_SECOND : 0;
+        presence |= fraction != null ? DT_FRACTION : 0;
+        presence |= value.getTimezone() != DatatypeConstants.FIELD_UNDEFINED ? DT_TIMEZONE : 0;
+        out.writeByte(VALUE_DATE_TIME);
+        out.writeByte(presence);
+        if ((presence & DT_YEAR) != 0) {
+            writeVarLong(zigZag(value.getYear()));
+        }
+        if ((presence & DT_MONTH) != 0) {
+            out.writeByte(value.getMonth());
+        }
+        if ((presence & DT_DAY) != 0) {
+            out.writeByte(value.getDay());
+        }
+        if ((presence & DT_HOUR) != 0) {
+            out.writeByte(value.getHour());
+        }
+        if ((presence & DT_MINUTE) != 0) {
+            out.writeByte(value.getMinute());
+        }
+        if ((presence & DT_SECOND) != 0) {
+            out.writeByte(value.getSecond());
+        }
+        if ((presence & DT_FRACTION) != 0) {
+            out.writeByte(fraction.scale());
+            writeVarLong(fraction.unscaledValue().longValueExact());
+        }
+        if ((presence & DT_TIMEZONE) != 0) {
+            writeVarLong(zigZag(value.getTimezone()));
+        }
+    }
+
+    private void writeQName(QName name) throws IOException {
+        Integer index = names.get(name);
+        if (index != null) {
+            writeVarInt(index + 1);
+        } else {
+            writeVarInt(0);
+            writeNamespace(name.getNamespaceURI());
+            writeString(name.getLocalPart());
+            names.put(name, names.size());
+        }
+    }
+
+    private void writeNamespace(String namespace) throws IOException {
+        Integer index = namespaces.get(namespace);
+        if (index != null) {
+            writeVarInt(index + 1);
+        } else {
+            writeVarInt(0);
+            writeString(namespace);
+            namespaces.put(namespace, namespaces.size());
+        }
+    }
+
+    private void writeNullableString(String value) throws IOException {
+        if (value == null) {
+            writeVarInt(0);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1);
+            out.write(bytes);
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        writeVarLong(value);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+}
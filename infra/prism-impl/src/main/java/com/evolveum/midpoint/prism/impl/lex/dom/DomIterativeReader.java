@@ -12,7 +12,7 @@ import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 import javax.xml.namespace.QName;
-import javax.xml.stream.XMLInputFactory;
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
@@ -42,24 +42,37 @@ class DomIterativeReader {
     private final LexicalProcessor.RootXNodeHandler handler;
     private final SchemaRegistry schemaRegistry;
 
+    /**
+     * If true, objects are read directly from the stream by {@link StaxReader}; otherwise
+     * each object is converted to DOM first and then read by {@link DomReader}.
+     */
+    private final boolean streaming;
+
     DomIterativeReader(ParserSource source, LexicalProcessor.RootXNodeHandler handler, SchemaRegistry schemaRegistry) {
+        this(source, handler, schemaRegistry, false);
+    }
+
+    DomIterativeReader(ParserSource source, LexicalProcessor.RootXNodeHandler handler, SchemaRegistry schemaRegistry,
+            boolean streaming) {
         this.source = source;
         this.handler = handler;
         this.schemaRegistry = schemaRegistry;
+        this.streaming = streaming;
     }
 
     // code taken from Validator class
     public void readObjectsIteratively() throws SchemaException, IOException {
         InputStream is = source.getInputStream();
         XMLStreamReader stream = null;
+        DocumentBuilder documentBuilder = streaming ? null : DOMUtil.DOCUMENT_BUILDERS.borrow();
         try {
-            stream = getXMLInputFactory().createXMLStreamReader(is);
+            stream = DOMUtil.getXMLInputFactory().createXMLStreamReader(is);
 
             int eventType = stream.nextTag();
             if (eventType != XMLStreamConstants.START_ELEMENT) {
                 throw new SystemException("StAX Malfunction?");
             }
-            DOMConverter domConverter = new DOMConverter(DOMUtil.createDocumentBuilder());
+            DOMConverter domConverter = documentBuilder != null ? new DOMConverter(documentBuilder) : null;
             Map<String, String> rootNamespaceDeclarations = new HashMap<>();
 
             QName objectsMarker = schemaRegistry.getPrismContext().getObjectsElementName();
@@ -84,6 +97,9 @@ class DomIterativeReader {
             throw new SchemaException(
                     "Exception while parsing XML" + lineInfo + ": " + ex.getMessage(), ex);
         } finally {
+            if (documentBuilder != null) {
+                DOMUtil.DOCUMENT_BUILDERS.release(documentBuilder);
+            }
             if (source.closeStreamAfterParsing()) {
                 IOUtils.closeQuietly(is);
             }
@@ -95,18 +111,17 @@ class DomIterativeReader {
             XMLStreamReader stream, Map<String, String> rootNamespaceDeclarations,
             DOMConverter domConverter, LexicalProcessor.RootXNodeHandler handler)
             throws XMLStreamException, SchemaException {
+        if (streaming) {
+            Map<String, String> declarations = new HashMap<>();
+            rootNamespaceDeclarations.forEach((prefix, ns) -> declarations.put(prefix != null ? prefix : "", ns));
+            PrismNamespaceContext rootContext = PrismNamespaceContext.EMPTY.childContext(declarations);
+            return handler.handleData(
+                    new StaxReader(stream, schemaRegistry).read(rootContext.inherited()));
+        }
         Document objectDoc = domConverter.buildDocument(stream);
         Element objectElement = DOMUtil.getFirstChildElement(objectDoc);
         DOMUtil.setNamespaceDeclarations(objectElement, rootNamespaceDeclarations);
         RootXNodeImpl rootNode = new DomReader(objectElement, schemaRegistry, PrismNamespaceContext.EMPTY).read();
         return handler.handleData(rootNode);
     }
-
-    private XMLInputFactory getXMLInputFactory() {
-        XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
-        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
-        xmlInputFactory.setProperty("javax.xml.stream.isSupportingExternalEntities", false);
-        // TODO: cache? static? prism context?
-        return xmlInputFactory;
-    }
 }
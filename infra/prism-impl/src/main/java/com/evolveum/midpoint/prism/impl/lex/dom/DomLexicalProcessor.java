@@ -9,9 +9,13 @@ package com.evolveum.midpoint.prism.impl.lex.dom;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
 import java.util.*;
 import java.util.regex.Pattern;
+import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import com.evolveum.midpoint.prism.marshaller.XNodeProcessorEvaluationMode;
 
@@ -27,10 +31,12 @@ import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
 import com.evolveum.midpoint.prism.impl.lex.LexicalUtils;
 import com.evolveum.midpoint.prism.impl.xnode.*;
 import com.evolveum.midpoint.prism.schema.SchemaRegistry;
+import com.evolveum.midpoint.prism.xml.DynamicNamespacePrefixMapper;
 import com.evolveum.midpoint.prism.xnode.RootXNode;
 import com.evolveum.midpoint.prism.xnode.XNode;
 import com.evolveum.midpoint.util.DOMUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.exception.SystemException;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 
@@ -125,6 +131,108 @@ public class DomLexicalProcessor implements LexicalProcessor<String> {
         return DOMUtil.serializeDOMToString(element);
     }
 
+    @Override
+    public void write(@NotNull RootXNode xnode, @Nullable SerializationContext serializationContext, @NotNull Writer out)
+            throws SchemaException {
+        Element element =
+                new DomWriter(schemaRegistry, serializationContext)
+                        .writeRoot(xnode);
+        DOMUtil.serializeDOMToWriter(element, out);
+        flush(out);
+    }
+
+    /**
+     * Each object is converted to DOM and serialized separately; only the aggregate (objects) element
+     * is written by a {@link XMLStreamWriter}. So the memory needed is proportional to the size of a single object.
+     *
+     * The objects go through {@link DomWriter}, as it decides on the namespace declarations (including the ones
+     * for QName values and `xsi:type`) by looking at the whole element. Each object element declares all the namespaces
+     * it uses, so it does not depend on the aggregate element. The aggregate element gets the same prefix as in
+     * {@link #write(List, SerializationContext)}.
+     */
+    @NotNull
+    @Override
+    public RootXNodeWriter openObjectsWriter(@NotNull Writer out, @Nullable SerializationContext serializationContext) {
+        QName aggregateElementName = schemaRegistry.getPrismContext().getObjectsElementName();
+        if (aggregateElementName == null) {
+            throw new IllegalStateException("Couldn't serialize list of objects because the aggregated element name is not set");
+        }
+        XMLStreamWriter aggregateWriter;
+        try {
+            aggregateWriter = DOMUtil.getXMLOutputFactory().createXMLStreamWriter(out);
+        } catch (XMLStreamException e) {
+            throw new SystemException("Couldn't write XML: " + e.getMessage(), e);
+        }
+        return new RootXNodeWriter() {
+
+            private boolean started;
+
+            @Override
+            public void write(@NotNull RootXNodeImpl root) throws SchemaException {
+                Element element =
+                        new DomWriter(schemaRegistry, serializationContext)
+                                .writeRoot(root);
+                if (!started) {
+                    writeAggregateElementStart(false);
+                    started = true;
+                }
+                DOMUtil.serializeDOMToWriter(element, out);
+            }
+
+            @Override
+            public void close() {
+                try {
+                    if (started) {
+                        aggregateWriter.writeEndElement();
+                        aggregateWriter.writeCharacters("\n");
+                        aggregateWriter.flush();
+                    } else {
+                        writeAggregateElementStart(true);
+                    }
+                } catch (XMLStreamException e) {
+                    throw new SystemException("Couldn't write XML: " + e.getMessage(), e);
+                }
+                flush(out);
+            }
+
+            /** Writes the start of the element, and flushes it, so the objects can be written directly to the output. */
+            private void writeAggregateElementStart(boolean empty) {
+                String namespace = aggregateElementName.getNamespaceURI();
+                String prefix = getAggregateElementPrefix(aggregateElementName);
+                try {
+                    if (empty) {
+                        aggregateWriter.writeEmptyElement(prefix, aggregateElementName.getLocalPart(), namespace);
+                    } else {
+                        aggregateWriter.writeStartElement(prefix, aggregateElementName.getLocalPart(), namespace);
+                    }
+                    if (prefix.isEmpty()) {
+                        aggregateWriter.writeDefaultNamespace(namespace);
+                    } else {
+                        aggregateWriter.writeNamespace(prefix, namespace);
+                    }
+                    aggregateWriter.writeCharacters("\n");
+                    aggregateWriter.flush();
+                } catch (XMLStreamException e) {
+                    throw new SystemException("Couldn't write XML: " + e.getMessage(), e);
+                }
+            }
+        };
+    }
+
+    private String getAggregateElementPrefix(QName aggregateElementName) {
+        DynamicNamespacePrefixMapper prefixMapper = schemaRegistry.getNamespacePrefixMapper();
+        String prefix = prefixMapper != null ? prefixMapper.setQNamePrefix(aggregateElementName).getPrefix() : null;
+        return prefix != null ? prefix : XMLConstants.DEFAULT_NS_PREFIX;
+    }
+
+    private static void flush(Writer out) {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new SystemException("Couldn't write XML: " + e.getMessage(), e);
+        }
+    }
+
     @NotNull
     public Element writeXRootListToElement(@NotNull List<RootXNodeImpl> roots) throws SchemaException {
         return new DomWriter(schemaRegistry, null)
@@ -257,9 +257,21 @@ class DomReader {
     }
 
     private boolean elementsAreCompatible(List<Element> elements) {
-        QName unified = null;
+        List<QName> names = new ArrayList<>(elements.size());
         for (Element element : elements) {
-            QName root = getHierarchyRoot(DOMUtil.getQName(element));
+            names.add(DOMUtil.getQName(element));
+        }
+        return namesAreCompatible(names, schemaRegistry);
+    }
+
+    /**
+     * Checks whether elements with given names can form a list, i.e. whether they share the same (substitution
+     * hierarchy root) name. Shared with {@link StaxReader} that has only names at hand, not DOM elements.
+     */
+    static boolean namesAreCompatible(List<QName> names, SchemaRegistry schemaRegistry) {
+        QName unified = null;
+        for (QName name : names) {
+            QName root = getHierarchyRoot(name, schemaRegistry);
             if (unified == null) {
                 unified = root;
             } else if (!QNameUtil.match(unified, root)) {
@@ -271,7 +283,7 @@ class DomReader {
         return true;
     }
 
-    private QName getHierarchyRoot(QName name) {
+    private static QName getHierarchyRoot(QName name, SchemaRegistry schemaRegistry) {
         ItemDefinition<?> def = schemaRegistry.findItemDefinitionByElementName(name);
         if (def == null || !def.isHeterogeneousListItem()) {
             return name;
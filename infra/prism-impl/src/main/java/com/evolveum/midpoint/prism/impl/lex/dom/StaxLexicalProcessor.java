@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.lex.dom;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.ParserSource;
+import com.evolveum.midpoint.prism.ParsingContext;
+import com.evolveum.midpoint.prism.PrismNamespaceContext;
+import com.evolveum.midpoint.prism.impl.ParserElementSource;
+import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
+import com.evolveum.midpoint.prism.schema.SchemaRegistry;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * XML lexical processor that reads XNode trees directly from StAX events (see {@link StaxReader}),
+ * without building intermediate DOM document. This lowers peak memory needed to parse large XML inputs.
+ *
+ * Writing, as well as reading from DOM elements ({@link ParserElementSource}), is the same as in {@link DomLexicalProcessor}.
+ *
+ * Can be switched on by {@link com.evolveum.midpoint.prism.impl.lex.LexicalProcessorRegistry#setStaxXmlReaderEnabled(boolean)}.
+ */
+public class StaxLexicalProcessor extends DomLexicalProcessor {
+
+    @NotNull private final SchemaRegistry schemaRegistry;
+
+    // XMLInputFactory is thread-safe after it is configured
+    @NotNull private final XMLInputFactory xmlInputFactory = DOMUtil.getXMLInputFactory();
+
+    public StaxLexicalProcessor(@NotNull SchemaRegistry schemaRegistry) {
+        super(schemaRegistry);
+        this.schemaRegistry = schemaRegistry;
+    }
+
+    @NotNull
+    @Override
+    public RootXNodeImpl read(@NotNull ParserSource source, @NotNull ParsingContext parsingContext) throws SchemaException, IOException {
+        if (source instanceof ParserElementSource) {
+            return super.read(source, parsingContext);
+        }
+        InputStream is = source.getInputStream();
+        XMLStreamReader stream = null;
+        try {
+            stream = openStream(is);
+            return new StaxReader(stream, schemaRegistry).read(PrismNamespaceContext.EMPTY);
+        } catch (XMLStreamException e) {
+            throw createSchemaException(stream, e);
+        } finally {
+            closeStream(source, is, stream);
+        }
+    }
+
+    @NotNull
+    @Override
+    public List<RootXNodeImpl> readObjects(@NotNull ParserSource source, @NotNull ParsingContext parsingContext) throws SchemaException, IOException {
+        InputStream is = source.getInputStream();
+        XMLStreamReader stream = null;
+        try {
+            stream = openStream(is);
+            return new StaxReader(stream, schemaRegistry).readObjects();
+        } catch (XMLStreamException e) {
+            throw createSchemaException(stream, e);
+        } finally {
+            closeStream(source, is, stream);
+        }
+    }
+
+    @Override
+    public void readObjectsIteratively(@NotNull ParserSource source,
+            @NotNull ParsingContext parsingContext, RootXNodeHandler handler)
+            throws SchemaException, IOException {
+        new DomIterativeReader(source, handler, schemaRegistry, true)
+                .readObjectsIteratively();
+    }
+
+    /** Opens the stream and moves it to the root element. */
+    private XMLStreamReader openStream(InputStream is) throws XMLStreamException, SchemaException {
+        XMLStreamReader stream = xmlInputFactory.createXMLStreamReader(is);
+        if (stream.nextTag() != XMLStreamConstants.START_ELEMENT) {
+            throw new SchemaException("No root element found in XML document");
+        }
+        return stream;
+    }
+
+    private SchemaException createSchemaException(XMLStreamReader stream, XMLStreamException e) {
+        String lineInfo = stream != null
+                ? " on line " + stream.getLocation().getLineNumber()
+                : "";
+        return new SchemaException("Exception while parsing XML" + lineInfo + ": " + e.getMessage(), e);
+    }
+
+    private void closeStream(ParserSource source, InputStream is, XMLStreamReader stream) {
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (XMLStreamException e) {
+                LOGGER.warn("Couldn't close XML stream reader: {}", e.getMessage(), e);
+            }
+        }
+        if (source.closeStreamAfterParsing()) {
+            IOUtils.closeQuietly(is);
+        }
+    }
+}
@@ -0,0 +1,414 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.lex.dom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.lang3.StringUtils;
+import org.codehaus.staxmate.dom.DOMConverter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import com.evolveum.midpoint.prism.PrismConstants;
+import com.evolveum.midpoint.prism.PrismNamespaceContext;
+import com.evolveum.midpoint.prism.impl.xnode.*;
+import com.evolveum.midpoint.prism.schema.SchemaRegistry;
+import com.evolveum.midpoint.prism.xnode.MapXNode;
+import com.evolveum.midpoint.prism.xnode.MetadataAware;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.QNameUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Builds XNode tree directly from {@link XMLStreamReader} events, without creating intermediate DOM tree.
+ *
+ * Produces the same XNode structures as {@link DomReader}. The main difference is that element content is not known
+ * in advance (there is no look-ahead in StAX), so child nodes are parsed eagerly and the decision whether the
+ * parent is a map or a list is made after the whole element is read.
+ *
+ * The only exception is embedded XSD schema (xsd:schema element), which is converted to DOM, because {@link SchemaXNodeImpl}
+ * requires it.
+ */
+class StaxReader {
+
+    private static final QName SCHEMA_ELEMENT_QNAME = DOMUtil.XSD_SCHEMA_ELEMENT;
+
+    @NotNull private final XMLStreamReader stream;
+    @NotNull private final SchemaRegistry schemaRegistry;
+    @NotNull private final XNodeDefinition.Root schema;
+
+    @NotNull private final QName valueElementName;
+    @NotNull private final QName metadataElementName;
+
+    StaxReader(@NotNull XMLStreamReader stream, @NotNull SchemaRegistry schemaRegistry) {
+        this.stream = stream;
+        this.schemaRegistry = schemaRegistry;
+        this.valueElementName = new QName(schemaRegistry.getDefaultNamespace(), DomReader.VALUE_LOCAL_PART);
+        this.metadataElementName = new QName(schemaRegistry.getDefaultNamespace(), DomReader.METADATA_LOCAL_PART);
+        this.schema = XNodeDefinition.root(schemaRegistry);
+    }
+
+    /**
+     * Reads the element the stream is positioned at (START_ELEMENT) as a root node.
+     * Stream is left at the corresponding END_ELEMENT.
+     */
+    @NotNull RootXNodeImpl read(@NotNull PrismNamespaceContext rootContext) throws XMLStreamException, SchemaException {
+        RootXNodeImpl xroot = new RootXNodeImpl(stream.getName(), rootContext);
+        xroot.setSubnode(readElementContent(null, schema, rootContext));
+        return xroot;
+    }
+
+    /**
+     * Reads either a single object or a list of objects wrapped in "objects" marker element.
+     * Stream must be positioned at the root START_ELEMENT.
+     */
+    @NotNull List<RootXNodeImpl> readObjects() throws XMLStreamException, SchemaException {
+        if (!isObjectsMarker(stream.getName())) {
+            return Collections.singletonList(read(PrismNamespaceContext.EMPTY));
+        }
+        PrismNamespaceContext context = PrismNamespaceContext.EMPTY.childContext(readNamespaceDeclarations());
+        List<RootXNodeImpl> rv = new ArrayList<>();
+        while (nextChildElement()) {
+            rv.add(read(context.inherited()));
+        }
+        return rv;
+    }
+
+    boolean isObjectsMarker(QName elementName) {
+        QName objectsMarker = schemaRegistry.getPrismContext().getObjectsElementName();
+        return objectsMarker == null || QNameUtil.match(elementName, objectsMarker);
+    }
+
+    /**
+     * Reads namespace declarations of the current element. Default namespace is stored under empty prefix,
+     * like in {@link DOMUtil#getNamespaceDeclarationsNonNull(Element)}.
+     */
+    @NotNull Map<String, String> readNamespaceDeclarations() {
+        int count = stream.getNamespaceCount();
+        if (count == 0) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> declarations = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String prefix = stream.getNamespacePrefix(i);
+            String namespace = stream.getNamespaceURI(i);
+            declarations.put(prefix != null ? prefix : "", namespace != null ? namespace : "");
+        }
+        return declarations;
+    }
+
+    /**
+     * Reads the content of the current element. Mirrors DomReader#readElementContent.
+     *
+     * @pre stream is at START_ELEMENT
+     * @post stream is at corresponding END_ELEMENT
+     */
+    @NotNull
+    private XNodeImpl readElementContent(@Nullable XNodeDefinition itemDef, @NotNull XNodeDefinition parentDef,
+            PrismNamespaceContext parentContext) throws XMLStreamException, SchemaException {
+        QName rawElementName = stream.getName();
+        itemDef = itemDef != null ? itemDef : parentDef.child(rawElementName);
+
+        PrismNamespaceContext localNsCtx = parentContext.childContext(readNamespaceDeclarations());
+        ElementAttributes attributes = readAttributes(localNsCtx);
+        if (attributes.xsiType != null) {
+            itemDef = itemDef.withType(attributes.xsiType);
+        }
+
+        boolean hasChildElements = false;
+        List<ChildEntry> children = new ArrayList<>();
+        List<XNodeImpl> metadataNodes = null;
+        XNodeImpl valueNode = null;
+        StringBuilder text = null;
+        ChildEntry previous = null;
+
+        for (;;) {
+            int event = stream.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                break;
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                hasChildElements = true;
+                QName childName = stream.getName();
+                if (QNameUtil.match(childName, metadataElementName)) {
+                    if (metadataNodes == null) {
+                        metadataNodes = new ArrayList<>();
+                    }
+                    metadataNodes.add(readElementContent(schema.metadataDef(), schema, localNsCtx));
+                    continue;
+                }
+                if (valueNode == null && QNameUtil.match(childName, valueElementName)) {
+                    valueNode = readElementContent(itemDef.valueDef(), parentDef, localNsCtx);
+                    continue;
+                }
+                // Consecutive elements with the same name share the definition, just like DomReader groups them.
+                XNodeDefinition childDef = previous != null && QNameUtil.match(childName, previous.name)
+                        ? previous.definition
+                        : itemDef.child(childName);
+                ChildEntry entry;
+                if (childDef.getName().equals(SCHEMA_ELEMENT_QNAME)) {
+                    entry = new ChildEntry(childName, childDef, parseSchemaElement(localNsCtx));
+                } else {
+                    entry = new ChildEntry(childName, childDef, readElementContent(childDef, itemDef, localNsCtx));
+                }
+                children.add(entry);
+                previous = entry;
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE || event == XMLStreamConstants.ENTITY_REFERENCE) {
+                if (!hasChildElements) {
+                    if (text == null) {
+                        text = new StringBuilder();
+                    }
+                    text.append(stream.getText());
+                }
+            }
+            // comments and processing instructions are ignored
+        }
+
+        XNodeImpl node;
+        if (valueNode != null) {
+            node = valueNode;
+        } else if (hasChildElements || !attributes.applicationAttributes.isEmpty()) {
+            if (isList(attributes, itemDef, children)) {
+                node = createList(attributes, children, localNsCtx);
+            } else {
+                node = createMap(attributes, children, localNsCtx);
+            }
+        } else if (attributes.incomplete) {
+            node = new IncompleteMarkerXNodeImpl();
+        } else {
+            node = createPrimitive(text != null ? text.toString() : "", localNsCtx);
+        }
+
+        if (metadataNodes != null) {
+            for (XNodeImpl metadata : metadataNodes) {
+                addMetadata(node, metadata);
+            }
+        }
+        if (!StringUtils.isBlank(attributes.maxOccurs)) {
+            node.setMaxOccurs(parseMultiplicity(attributes.maxOccurs, rawElementName));
+        }
+        if (attributes.xsiType != null) {
+            node.setTypeQName(attributes.xsiType);
+            node.setExplicitTypeDeclaration(true);
+        }
+        return node;
+    }
+
+    private ElementAttributes readAttributes(PrismNamespaceContext localNsCtx) {
+        ElementAttributes rv = new ElementAttributes();
+        String xsiTypeString = null;
+        String hackedXsiTypeString = null;
+        int count = stream.getAttributeCount();
+        for (int i = 0; i < count; i++) {
+            QName name = stream.getAttributeName(i);
+            String namespace = name.getNamespaceURI();
+            String value = stream.getAttributeValue(i);
+            if (StringUtils.isEmpty(namespace)) {
+                String localName = name.getLocalPart();
+                if (DOMUtil.HACKED_XSI_TYPE.equals(localName)) {
+                    hackedXsiTypeString = value;
+                } else if (DOMUtil.IS_LIST_ATTRIBUTE_NAME.equals(localName)) {
+                    rv.list = value;
+                } else if (DOMUtil.IS_INCOMPLETE_ATTRIBUTE_NAME.equals(localName)) {
+                    rv.incomplete = Boolean.parseBoolean(value);
+                } else {
+                    rv.addApplicationAttribute(name, value);
+                }
+            } else if (XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI.equals(namespace)) {
+                if (DOMUtil.XSI_TYPE.getLocalPart().equals(name.getLocalPart())) {
+                    xsiTypeString = value;
+                }
+            } else if (!XMLConstants.XML_NS_URI.equals(namespace) && !XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(namespace)) {
+                if (PrismConstants.A_MAX_OCCURS.getNamespaceURI().equals(namespace)
+                        && PrismConstants.A_MAX_OCCURS.getLocalPart().equals(name.getLocalPart())) {
+                    rv.maxOccurs = value;
+                }
+                rv.addApplicationAttribute(name, value);
+            }
+        }
+        String typeString = StringUtils.isNotEmpty(xsiTypeString) ? xsiTypeString : hackedXsiTypeString;
+        if (StringUtils.isNotEmpty(typeString)) {
+            rv.xsiType = DOMUtil.resolveQName(prefix -> localNsCtx.namespaceFor(prefix).orElse(null), typeString);
+        }
+        return rv;
+    }
+
+    private boolean isList(ElementAttributes attributes, @NotNull XNodeDefinition itemDef, List<ChildEntry> children) {
+        if (StringUtils.isNotEmpty(attributes.list)) {
+            return Boolean.parseBoolean(attributes.list);
+        }
+        SchemaRegistry.IsList fromSchema = schemaRegistry.isList(attributes.xsiType, itemDef.getName());
+        if (fromSchema != SchemaRegistry.IsList.MAYBE) {
+            return fromSchema == SchemaRegistry.IsList.YES;
+        }
+        if (!attributes.applicationAttributes.isEmpty()) {
+            return false;
+        }
+        List<QName> names = new ArrayList<>(children.size());
+        for (ChildEntry child : children) {
+            names.add(child.name);
+        }
+        return DomReader.namesAreCompatible(names, schemaRegistry);
+    }
+
+    private ListXNodeImpl createList(ElementAttributes attributes, List<ChildEntry> children,
+            PrismNamespaceContext localNsCtx) throws SchemaException {
+        if (!attributes.applicationAttributes.isEmpty()) {
+            throw new SchemaException("List should have no application attributes: " + stream.getName());
+        }
+        ListXNodeImpl xlist = new ListXNodeImpl(localNsCtx);
+        for (ChildEntry child : children) {
+            child.node.setElementName(child.definition.getName());
+            xlist.add(child.node);
+        }
+        return xlist;
+    }
+
+    private MapXNodeImpl createMap(ElementAttributes attributes, List<ChildEntry> children,
+            PrismNamespaceContext localNsCtx) throws SchemaException {
+        MapXNodeImpl xmap = new MapXNodeImpl(localNsCtx);
+        for (int i = 0; i < attributes.applicationAttributes.size(); i++) {
+            PrimitiveXNodeImpl<?> xattr = createPrimitive(attributes.applicationAttributeValues.get(i), localNsCtx.inherited());
+            xattr.setAttribute(true);
+            xmap.put(attributes.applicationAttributes.get(i), xattr);
+        }
+        int groupStart = 0;
+        for (int i = 1; i <= children.size(); i++) {
+            if (i == children.size() || !QNameUtil.match(children.get(i).name, children.get(groupStart).name)) {
+                addGroupAsMapEntry(xmap, children.subList(groupStart, i), localNsCtx);
+                groupStart = i;
+            }
+        }
+        return xmap;
+    }
+
+    // All children share the same name (and definition)
+    private void addGroupAsMapEntry(MapXNodeImpl xmap, List<ChildEntry> group, PrismNamespaceContext localNsCtx)
+            throws SchemaException {
+        if (group.isEmpty()) {
+            return;
+        }
+        XNodeDefinition itemDef = group.get(0).definition;
+        XNodeImpl xsub;
+        if (group.size() == 1) {
+            xsub = group.get(0).node;
+        } else if (itemDef.getName().equals(SCHEMA_ELEMENT_QNAME)) {
+            throw new SchemaException("Too many schema elements");
+        } else {
+            ListXNodeImpl xlist = new ListXNodeImpl(localNsCtx);
+            for (ChildEntry child : group) {
+                xlist.add(child.node);
+            }
+            xsub = xlist;
+        }
+        xmap.merge(itemDef.getName(), xsub);
+    }
+
+    private <T> PrimitiveXNodeImpl<T> createPrimitive(String textContent, PrismNamespaceContext nsContext) {
+        PrimitiveXNodeImpl<T> xnode = new PrimitiveXNodeImpl<>(nsContext);
+        xnode.setValueParser(new NamespaceAwareValueParser<>(textContent, nsContext));
+        return xnode;
+    }
+
+    private void addMetadata(XNodeImpl node, XNodeImpl metadata) throws SchemaException {
+        if (metadata instanceof MapXNode) {
+            if (node instanceof MetadataAware) {
+                ((MetadataAware) node).addMetadataNode((MapXNode) metadata);
+            } else {
+                throw new SchemaException("Attempt to add metadata to non-metadata-aware XNode: " + node);
+            }
+        } else {
+            throw new SchemaException("Metadata is not of Map type: " + metadata);
+        }
+    }
+
+    private int parseMultiplicity(String maxOccursString, QName elementName) throws SchemaException {
+        if (PrismConstants.MULTIPLICITY_UNBOUNDED.equals(maxOccursString)) {
+            return -1;
+        }
+        if (maxOccursString.startsWith("-")) {
+            return -1;
+        }
+        if (StringUtils.isNumeric(maxOccursString)) {
+            return Integer.parseInt(maxOccursString);
+        } else {
+            throw new SchemaException("Expected numeric value for " + PrismConstants.A_MAX_OCCURS.getLocalPart()
+                    + " attribute on " + elementName + " but got " + maxOccursString);
+        }
+    }
+
+    /**
+     * Embedded schemas are kept as DOM. This is the only place where DOM is built.
+     * All namespace declarations visible at this point are copied to the schema element, as they could be needed
+     * to resolve QNames in the schema.
+     */
+    @NotNull
+    private SchemaXNodeImpl parseSchemaElement(PrismNamespaceContext parentNsCtx) throws XMLStreamException {
+        Document schemaDoc = DOMUtil.DOCUMENT_BUILDERS.use(
+                documentBuilder -> new DOMConverter(documentBuilder).buildDocument(stream));
+        Element schemaElement = DOMUtil.getFirstChildElement(schemaDoc);
+        DOMUtil.setNamespaceDeclarations(schemaElement, parentNsCtx.allPrefixes());
+        SchemaXNodeImpl xschema = new SchemaXNodeImpl(parentNsCtx);
+        xschema.setSchemaElement(schemaElement);
+        return xschema;
+    }
+
+    /**
+     * Moves to the next child START_ELEMENT of the current element.
+     *
+     * @return false if the END_ELEMENT of the current element was reached instead
+     */
+    boolean nextChildElement() throws XMLStreamException {
+        while (stream.hasNext()) {
+            int event = stream.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static class ChildEntry {
+        private final QName name;
+        private final XNodeDefinition definition;
+        private final XNodeImpl node;
+
+        private ChildEntry(QName name, XNodeDefinition definition, XNodeImpl node) {
+            this.name = name;
+            this.definition = definition;
+            this.node = node;
+        }
+    }
+
+    private static class ElementAttributes {
+        private QName xsiType;
+        private String list;
+        private boolean incomplete;
+        private String maxOccurs;
+        private final List<QName> applicationAttributes = new ArrayList<>();
+        private final List<String> applicationAttributeValues = new ArrayList<>();
+
+        private void addApplicationAttribute(QName name, String value) {
+            applicationAttributes.add(name);
+            applicationAttributeValues.add(value);
+        }
+    }
+}
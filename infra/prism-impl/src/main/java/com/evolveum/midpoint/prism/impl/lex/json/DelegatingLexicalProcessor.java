@@ -11,11 +11,13 @@ import javax.xml.namespace.QName;
 
 import com.evolveum.midpoint.prism.ParserSource;
 import com.evolveum.midpoint.prism.ParsingContext;
+import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.SerializationContext;
 import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
 
 import com.evolveum.midpoint.prism.impl.lex.json.reader.AbstractReader;
 import com.evolveum.midpoint.prism.impl.lex.json.writer.AbstractWriter;
+import com.evolveum.midpoint.prism.impl.marshaller.PrismUnmarshaller;
 import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
 import com.evolveum.midpoint.prism.xnode.RootXNode;
 import com.evolveum.midpoint.prism.xnode.XNode;
@@ -26,6 +28,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 
 public class DelegatingLexicalProcessor implements LexicalProcessor<String> {
@@ -50,6 +53,13 @@ public class DelegatingLexicalProcessor implements LexicalProcessor<String> {
         return reader.readObjects(source, parsingContext);
     }
 
+    @Override
+    public PrismObject<?> readObjectDirectly(@NotNull ParserSource source, @NotNull ParsingContext parsingContext,
+            @NotNull PrismUnmarshaller unmarshaller, @NotNull ObjectInfoResolver objectInfoResolver)
+            throws SchemaException, IOException {
+        return reader.readObjectDirectly(source, parsingContext, unmarshaller, objectInfoResolver);
+    }
+
     @Override
     public void readObjectsIteratively(@NotNull ParserSource source, @NotNull ParsingContext parsingContext,
             RootXNodeHandler handler) throws SchemaException, IOException {
@@ -84,4 +94,17 @@ public class DelegatingLexicalProcessor implements LexicalProcessor<String> {
     public String write(@NotNull List<RootXNodeImpl> roots, @Nullable SerializationContext context) throws SchemaException {
         return writer.write(roots, context);
     }
+
+    @Override
+    public void write(@NotNull RootXNode xnode, @Nullable SerializationContext serializationContext, @NotNull Writer out)
+            throws SchemaException {
+        writer.write(xnode, serializationContext, out);
+    }
+
+    @NotNull
+    @Override
+    public RootXNodeWriter openObjectsWriter(@NotNull Writer out, @Nullable SerializationContext serializationContext)
+            throws SchemaException {
+        return writer.openObjectsWriter(out, serializationContext);
+    }
 }
@@ -22,6 +22,7 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.xml.namespace.QName;
 import java.io.File;
+import java.io.Writer;
 import java.util.List;
 
 /**
@@ -79,4 +80,15 @@ public class NullLexicalProcessor implements LexicalProcessor<XNodeImpl> {
             @Nullable SerializationContext context) throws SchemaException {
         throw new UnsupportedOperationException("NullLexicalProcessor.write is not supported for a collection of objects");
     }
+
+    @Override
+    public void write(@NotNull RootXNode xnode, @Nullable SerializationContext serializationContext, @NotNull Writer out) {
+        throw new UnsupportedOperationException("NullLexicalProcessor.write is not supported for a writer");
+    }
+
+    @NotNull
+    @Override
+    public RootXNodeWriter openObjectsWriter(@NotNull Writer out, @Nullable SerializationContext serializationContext) {
+        throw new UnsupportedOperationException("NullLexicalProcessor.openObjectsWriter is not supported");
+    }
 }
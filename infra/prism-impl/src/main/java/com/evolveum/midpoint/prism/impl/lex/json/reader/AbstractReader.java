@@ -10,8 +10,10 @@ package com.evolveum.midpoint.prism.impl.lex.json.reader;
 import com.evolveum.midpoint.prism.ParserSource;
 import com.evolveum.midpoint.prism.ParsingContext;
 import com.evolveum.midpoint.prism.PrismNamespaceContext;
+import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.impl.ParsingContextImpl;
 import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
+import com.evolveum.midpoint.prism.impl.marshaller.PrismUnmarshaller;
 import com.evolveum.midpoint.prism.impl.xnode.*;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.schema.SchemaRegistry;
@@ -131,23 +133,56 @@ public abstract class AbstractReader {
         QName tagToTypeName(Object tid, JsonReadingContext ctx) throws IOException, SchemaException;
     }
 
+    /**
+     * Reads a single object directly into prism structures, without creating the whole XNode tree.
+     * See {@link DirectObjectReader}.
+     */
+    @NotNull
+    public PrismObject<?> readObjectDirectly(@NotNull ParserSource source, @NotNull ParsingContext parsingContext,
+            @NotNull PrismUnmarshaller unmarshaller, @NotNull LexicalProcessor.ObjectInfoResolver objectInfoResolver)
+            throws SchemaException, IOException {
+        InputStream is = source.getInputStream();
+        try {
+            JsonParser configuredParser = configureParser(createJacksonParser(is));
+            JsonReadingContext ctx = new JsonReadingContext(configuredParser, (ParsingContextImpl) parsingContext,
+                    root -> true, this::tagToTypeName, schemaRegistry);
+            return readTreatingExceptions(ctx, () -> {
+                readFirstTokenAndCheckEmptyInput(configuredParser);
+                return new DirectObjectReader(ctx, globalNamespaceContext(), unmarshaller, objectInfoResolver)
+                        .read(supportsMultipleDocuments());
+            });
+        } finally {
+            if (source.closeStreamAfterParsing()) {
+                closeQuietly(is);
+            }
+        }
+    }
+
     private void readFromStart(JsonParser unconfiguredParser, ParsingContext parsingContext,
             LexicalProcessor.RootXNodeHandler handler, boolean expectingMultipleObjects) throws SchemaException, IOException {
         JsonParser configuredParser = configureParser(unconfiguredParser);
         JsonReadingContext ctx = new JsonReadingContext(configuredParser, (ParsingContextImpl) parsingContext,
                 handler, this::tagToTypeName, schemaRegistry);
-        readTreatingExceptions(expectingMultipleObjects, configuredParser, ctx);
-    }
-
-    private void readTreatingExceptions(boolean expectingMultipleObjects, JsonParser configuredParser, JsonReadingContext ctx)
-            throws SchemaException, IOException {
-        try {
+        readTreatingExceptions(ctx, () -> {
             readFirstTokenAndCheckEmptyInput(configuredParser);
             if (supportsMultipleDocuments()) {
                 new MultiDocumentReader(ctx, globalNamespaceContext()).read(expectingMultipleObjects);
             } else {
                 new DocumentReader(ctx, globalNamespaceContext()).read(expectingMultipleObjects);
             }
+            return null;
+        });
+    }
+
+    @FunctionalInterface
+    private interface ReadingAction<T> {
+        T read() throws SchemaException, IOException;
+    }
+
+    private <T> T readTreatingExceptions(JsonReadingContext ctx, ReadingAction<T> action)
+            throws SchemaException, IOException {
+        try {
+            return action.read();
         } catch (SchemaException e) {
             throw e;
         } catch (JsonParseException e) {
@@ -0,0 +1,582 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.lex.json.reader;
+
+import static com.evolveum.midpoint.prism.impl.lex.json.JsonInfraItems.*;
+import static com.evolveum.midpoint.util.Checks.checkSchema;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import org.apache.commons.collections4.CollectionUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.impl.ParsingContextImpl;
+import com.evolveum.midpoint.prism.impl.PrismContainerValueImpl;
+import com.evolveum.midpoint.prism.impl.PrismPropertyImpl;
+import com.evolveum.midpoint.prism.impl.PrismPropertyValueImpl;
+import com.evolveum.midpoint.prism.impl.marshaller.PrismUnmarshaller;
+import com.evolveum.midpoint.prism.impl.xnode.ListXNodeImpl;
+import com.evolveum.midpoint.prism.impl.xnode.PrimitiveXNodeImpl;
+import com.evolveum.midpoint.prism.impl.xnode.XNodeDefinition;
+import com.evolveum.midpoint.prism.impl.xnode.XNodeImpl;
+import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.prism.schema.SchemaRegistry;
+import com.evolveum.midpoint.prism.util.PrismUtil;
+import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
+import com.evolveum.midpoint.prism.xml.XsdTypeMapper;
+import com.evolveum.midpoint.prism.xnode.MapXNode;
+import com.evolveum.midpoint.prism.xnode.XNode;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.QNameUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Reads JSON/YAML map directly into a {@link PrismContainerValue}, driven by the container definition.
+ *
+ * Containers and simple properties (strings, numbers, booleans, dates, polystrings) are created right from the parser
+ * tokens. Everything else (references, raw and dynamically typed items, metadata, lists of mixed content, and so on)
+ * is read into XNodes first, and then handed over to {@link PrismUnmarshaller}, so the result is the same as when
+ * parsing via the XNode tree.
+ *
+ * Limitations: `@type` must precede the content of the value; `@value`, `@element` and `@item` are not supported.
+ */
+class DirectContainerValueReader {
+
+    private static final Trace LOGGER = TraceManager.getTrace(DirectContainerValueReader.class);
+
+    /**
+     * Jackson readers for the property types that can be read directly from the parser. These are the same
+     * readers as {@link com.evolveum.midpoint.prism.impl.lex.json.JsonValueParser} uses for the respective types.
+     */
+    private static final Map<Class<?>, ObjectReader> SCALAR_READERS;
+
+    static {
+        ImmutableMap.Builder<Class<?>, ObjectReader> builder = ImmutableMap.builder();
+        for (Class<?> clazz : List.of(String.class, Integer.class, int.class, Long.class, long.class, Short.class, short.class,
+                Byte.class, byte.class, Boolean.class, boolean.class, Double.class, double.class, Float.class, float.class,
+                BigInteger.class)) {
+            builder.put(clazz, AbstractReader.OBJECT_MAPPER.readerFor(clazz));
+        }
+        SCALAR_READERS = builder.build();
+    }
+
+    private static final Map<QName, FieldProcessor> INFRA_PROCESSORS = ImmutableMap.<QName, FieldProcessor>builder()
+            .put(PROP_NAMESPACE_QNAME, DirectContainerValueReader::processNamespaceDeclaration)
+            .put(PROP_CONTEXT_QNAME, DirectContainerValueReader::processContextDeclaration)
+            .put(PROP_INCOMPLETE_QNAME, DirectContainerValueReader::processIncompleteDeclaration)
+            .put(PROP_TYPE_QNAME, DirectContainerValueReader::processTypeDeclaration)
+            .put(PROP_METADATA_QNAME, DirectContainerValueReader::processMetadataValue)
+            .put(PROP_ID_QNAME, DirectContainerValueReader::processId)
+            .put(PROP_VALUE_QNAME, DirectContainerValueReader::processUnsupported)
+            .put(PROP_ELEMENT_QNAME, DirectContainerValueReader::processUnsupported)
+            .put(PROP_ITEM_QNAME, DirectContainerValueReader::processUnsupported)
+            .build();
+
+    @NotNull private final JsonReadingContext ctx;
+    @NotNull private final JsonParser parser;
+    @NotNull private final ParsingContextImpl pc;
+    @NotNull private final PrismUnmarshaller unmarshaller;
+    @NotNull private final SchemaRegistry schemaRegistry;
+    @NotNull private final PrismContext prismContext;
+
+    private final PrismNamespaceContext parentContext;
+
+    /** Explicitly declared namespace context (@ns, @context), if any. */
+    private PrismNamespaceContext namespaceContext;
+
+    /** Used to resolve names of the fields. */
+    @NotNull private XNodeDefinition definition;
+
+    @NotNull private final DefinitionProvider definitionProvider;
+
+    /** Explicit type of the value (YAML tag or @type). */
+    private QName explicitTypeName;
+
+    private Long containerId;
+    private Boolean incomplete;
+    private final List<MapXNode> metadata = new ArrayList<>();
+    private String oid;
+    private String version;
+
+    private boolean namespaceSensitiveStarted;
+    private boolean regularContentPresent;
+
+    private PrismContainerDefinition<?> containerDefinition;
+    private ComplexTypeDefinition complexTypeDefinition;
+
+    /** The value being read. Created lazily, because it depends on the explicit type. */
+    private PrismContainerValue<?> value;
+
+    DirectContainerValueReader(@NotNull JsonReadingContext ctx, @NotNull PrismUnmarshaller unmarshaller,
+            PrismNamespaceContext parentContext, @NotNull XNodeDefinition definition,
+            @NotNull DefinitionProvider definitionProvider) {
+        this.ctx = ctx;
+        this.parser = ctx.parser;
+        this.pc = ctx.prismParsingContext;
+        this.unmarshaller = unmarshaller;
+        this.schemaRegistry = ctx.schemaRegistry;
+        this.prismContext = schemaRegistry.getPrismContext();
+        this.parentContext = parentContext;
+        this.definition = definition;
+        this.definitionProvider = definitionProvider;
+    }
+
+    /** Reads the value; the current token must be the start of the respective JSON object. */
+    void read() throws IOException, SchemaException {
+        processYamlTag();
+        processFields();
+        postProcess();
+    }
+
+    /**
+     * Adds the value to the container, the same way as {@link PrismUnmarshaller} does.
+     * Incomplete marker (if present instead of the value) sets the container as incomplete.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    void addTo(@NotNull PrismContainer container) throws SchemaException {
+        if (value == null) {
+            container.setIncomplete(true);
+            return;
+        }
+        if (pc.isFastAddOperations()) {
+            container.addIgnoringEquivalents(value);
+        } else {
+            container.add(value);
+        }
+        if (container instanceof PrismObject) {
+            ((PrismObject<?>) container).setOid(oid);
+            ((PrismObject<?>) container).setVersion(version);
+        }
+    }
+
+    private void processYamlTag() throws IOException, SchemaException {
+        Object typeId = parser.getTypeId();
+        if (typeId != null) {
+            explicitTypeName = ctx.yamlTagResolver.tagToTypeName(typeId, ctx);
+            definition = definition.withType(explicitTypeName);
+        }
+    }
+
+    private void processFields() throws IOException, SchemaException {
+        for (;;) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new SchemaException("Unexpected end of data while parsing a map structure." + ctx.getPositionSuffixIfPresent());
+            } else if (token == JsonToken.END_OBJECT) {
+                break;
+            }
+            XNodeDefinition field = definition.resolve(parser.getCurrentName(), namespaceContext());
+            parser.nextToken();
+            FieldProcessor processor = INFRA_PROCESSORS.get(field.getName());
+            if (processor != null) {
+                processor.apply(this, field);
+            } else {
+                namespaceSensitiveStarted = true;
+                processItem(field);
+            }
+        }
+    }
+
+    private void processNamespaceDeclaration(XNodeDefinition field) throws IOException, SchemaException {
+        if (namespaceSensitiveStarted) {
+            warnOrThrow("Namespace declared after other fields");
+        }
+        if (namespaceContext != null) {
+            warnOrThrow("Namespace defined more than once");
+        }
+        String ns = getStringValue(field, readXNode(field));
+        namespaceContext = parentContext.childContext(ImmutableMap.of("", ns));
+    }
+
+    private void processContextDeclaration(XNodeDefinition field) throws IOException, SchemaException {
+        XNodeImpl node = readXNode(field);
+        if (node instanceof MapXNode) {
+            ImmutableMap.Builder<String, String> nsCtx = ImmutableMap.builder();
+            for (Entry<QName, ? extends XNode> entry : ((MapXNode) node).toMap().entrySet()) {
+                nsCtx.put(entry.getKey().getLocalPart(), getStringValue(field, entry.getValue()));
+            }
+            namespaceContext = parentContext.childContext(nsCtx.build());
+            return;
+        }
+        throw new UnsupportedOperationException("Not implemented");
+    }
+
+    private void processIncompleteDeclaration(XNodeDefinition field) throws IOException, SchemaException {
+        XNodeImpl node = readXNode(field);
+        if (incomplete != null) {
+            warnOrThrow("Duplicate @incomplete marker found with the value: " + node);
+        } else if (node instanceof PrimitiveXNodeImpl) {
+            //noinspection unchecked
+            Boolean realValue = ((PrimitiveXNodeImpl<Boolean>) node)
+                    .getParsedValue(DOMUtil.XSD_BOOLEAN, Boolean.class, pc.getEvaluationMode());
+            incomplete = Boolean.TRUE.equals(realValue);
+        } else {
+            warnOrThrow("@incomplete marker found with incompatible value: " + node);
+        }
+    }
+
+    private void processTypeDeclaration(XNodeDefinition field) throws IOException, SchemaException {
+        if (explicitTypeName != null) {
+            warnOrThrow("Value type defined more than once");
+        }
+        if (containerDefinition != null) {
+            warnOrThrow("Value type must be declared before the content of the value in definition-driven parsing mode");
+        }
+        String stringValue = getStringValue(field, readXNode(field));
+        explicitTypeName = XNodeDefinition.resolveQName(stringValue, namespaceContext());
+        definition = definition.withType(explicitTypeName);
+    }
+
+    private void processMetadataValue(XNodeDefinition field) throws IOException, SchemaException {
+        namespaceSensitiveStarted = true;
+        XNodeImpl node = readXNode(field);
+        if (node instanceof MapXNode) {
+            metadata.add((MapXNode) node);
+        } else if (node instanceof ListXNodeImpl) {
+            for (XNode metadataValue : (ListXNodeImpl) node) {
+                if (metadataValue instanceof MapXNode) {
+                    metadata.add((MapXNode) metadataValue);
+                } else {
+                    warnOrThrow("Metadata is not a map XNode: " + metadataValue.debugDump());
+                }
+            }
+        } else {
+            warnOrThrow("Metadata is not a map or list XNode: " + node.debugDump());
+        }
+    }
+
+    private void processId(XNodeDefinition field) throws IOException, SchemaException {
+        XNodeImpl node = readXNode(field);
+        if (node instanceof PrimitiveXNodeImpl<?>) {
+            ((PrimitiveXNodeImpl<?>) node).setAttribute(true);
+            setContainerId((PrimitiveXNodeImpl<?>) node);
+        } else {
+            warnOrThrow("Container ID is not a primitive value: " + node);
+        }
+    }
+
+    private void processUnsupported(XNodeDefinition field) throws SchemaException {
+        throw new SchemaException("'" + field.getName().getLocalPart() + "' is not supported for container values"
+                + " in definition-driven parsing mode." + ctx.getPositionSuffixIfPresent());
+    }
+
+    private void processItem(XNodeDefinition field) throws IOException, SchemaException {
+        regularContentPresent = true;
+        createValueIfNeeded();
+
+        QName itemName = field.getName();
+        if (containerDefinition instanceof PrismObjectDefinition
+                && (QNameUtil.match(itemName, XNodeImpl.KEY_OID) || QNameUtil.match(itemName, XNodeImpl.KEY_VERSION))) {
+            String stringValue = getPrimitiveValue(itemName, readXNode(field));
+            if (QNameUtil.match(itemName, XNodeImpl.KEY_OID)) {
+                oid = stringValue;
+            } else {
+                version = stringValue;
+            }
+            return;
+        }
+        if (QNameUtil.match(itemName, XNodeImpl.KEY_CONTAINER_ID)) {
+            XNodeImpl node = readXNode(field);
+            if (!unmarshaller.isContainerId(itemName, node, containerDefinition)) {
+                parseChildFromXNode(itemName, node);
+            } else if (!(containerDefinition instanceof PrismObjectDefinition)) {
+                setContainerId((PrimitiveXNodeImpl<?>) node);
+            }
+            return;
+        }
+
+        if (parser.getTypeId() == null) {
+            ItemDefinition<?> itemDefinition =
+                    schemaRegistry.locateItemDefinition(itemName, complexTypeDefinition, name -> null);
+            JsonToken token = parser.currentToken();
+            if (itemDefinition instanceof PrismContainerDefinition<?>
+                    && !(itemDefinition instanceof PrismObjectDefinition<?>)
+                    && (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY)) {
+                readContainer(field, (PrismContainerDefinition<?>) itemDefinition);
+                return;
+            }
+            if (itemDefinition instanceof PrismPropertyDefinition<?>) {
+                Class<?> javaType = getDirectlyReadableType((PrismPropertyDefinition<?>) itemDefinition);
+                if (javaType != null && (token == JsonToken.START_ARRAY || isDirectlyReadable(token, javaType))) {
+                    readProperty(field, (PrismPropertyDefinition<?>) itemDefinition, javaType);
+                    return;
+                }
+            }
+        }
+        parseChildFromXNode(itemName, readXNode(field));
+    }
+
+    private void readContainer(XNodeDefinition field, PrismContainerDefinition<?> itemDefinition)
+            throws IOException, SchemaException {
+        PrismContainer<?> container = itemDefinition.instantiate(field.getName());
+        ListXNodeImpl otherValues = null;
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            readChildContainerValue(field, itemDefinition, container);
+        } else {
+            for (;;) {
+                JsonToken token = parser.nextToken();
+                if (token == null) {
+                    throw new SchemaException("Unexpected end of data while parsing a list structure." + ctx.getPositionSuffixIfPresent());
+                } else if (token == JsonToken.END_ARRAY) {
+                    break;
+                } else if (token == JsonToken.START_OBJECT && parser.getTypeId() == null) {
+                    readChildContainerValue(field, itemDefinition, container);
+                } else {
+                    if (otherValues == null) {
+                        otherValues = new ListXNodeImpl();
+                    }
+                    otherValues.add(readXNode(field));
+                }
+            }
+        }
+        value.merge(container);
+        if (otherValues != null) {
+            parseChildFromXNode(field.getName(), otherValues);
+        }
+    }
+
+    private void readChildContainerValue(XNodeDefinition field, PrismContainerDefinition<?> itemDefinition,
+            PrismContainer<?> container) throws IOException, SchemaException {
+        DirectContainerValueReader childReader = new DirectContainerValueReader(ctx, unmarshaller,
+                namespaceContext().inherited(), field, explicitTypeName -> itemDefinition);
+        childReader.read();
+        childReader.addTo(container);
+    }
+
+    private void readProperty(XNodeDefinition field, PrismPropertyDefinition<?> propertyDefinition, Class<?> javaType)
+            throws IOException, SchemaException {
+        QName itemName = field.getName();
+        //noinspection unchecked
+        PrismProperty<Object> property = (PrismProperty<Object>) propertyDefinition.instantiate();
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            PrismPropertyValue<Object> propertyValue = readPropertyValue(javaType);
+            if (propertyValue != null) {
+                try {
+                    addPropertyValue(property, propertyValue);
+                } catch (SchemaException e) {
+                    if (pc.isCompat()) {
+                        ((PrismPropertyImpl<Object>) property).addForced(propertyValue);
+                    } else {
+                        throw e;
+                    }
+                }
+            }
+            value.merge(property);
+            return;
+        }
+
+        ListXNodeImpl otherValues = null;
+        int count = 0;
+        for (;;) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new SchemaException("Unexpected end of data while parsing a list structure." + ctx.getPositionSuffixIfPresent());
+            } else if (token == JsonToken.END_ARRAY) {
+                break;
+            }
+            count++;
+            if (parser.getTypeId() == null && isDirectlyReadable(token, javaType)) {
+                PrismPropertyValue<Object> propertyValue = readPropertyValue(javaType);
+                if (propertyValue != null) {
+                    try {
+                        addPropertyValue(property, propertyValue);
+                    } catch (SchemaException e) {
+                        pc.warnOrThrow(LOGGER, "Couldn't add a value of " + propertyValue + " to the containing item: "
+                                + e.getMessage(), e);
+                    }
+                }
+            } else {
+                if (otherValues == null) {
+                    otherValues = new ListXNodeImpl();
+                }
+                otherValues.add(readXNode(field));
+            }
+        }
+        checkSchema(propertyDefinition.isMultiValue() || count <= 1,
+                "Attempt to store multiple values in single-valued property %s", itemName);
+        value.merge(property);
+        if (otherValues != null) {
+            parseChildFromXNode(itemName, otherValues);
+        }
+    }
+
+    private void addPropertyValue(PrismProperty<Object> property, PrismPropertyValue<Object> propertyValue)
+            throws SchemaException {
+        if (pc.isFastAddOperations()) {
+            property.addIgnoringEquivalents(propertyValue);
+        } else {
+            property.add(propertyValue);
+        }
+    }
+
+    private @Nullable PrismPropertyValue<Object> readPropertyValue(Class<?> javaType) throws IOException, SchemaException {
+        Object realValue;
+        if (javaType == PolyString.class) {
+            realValue = new PolyString(parser.getText());
+        } else if (javaType == XMLGregorianCalendar.class) {
+            realValue = XmlTypeConverter.createXMLGregorianCalendar(parser.getText());
+        } else {
+            try {
+                realValue = SCALAR_READERS.get(javaType).readValue(parser);
+            } catch (IOException e) {
+                throw new SchemaException("Cannot parse value: " + e.getMessage() + "." + ctx.getPositionSuffixIfPresent(), e);
+            }
+        }
+        if (realValue == null) {
+            return null;
+        }
+        PrismUtil.recomputeRealValue(realValue, prismContext);
+        PrismPropertyValueImpl<Object> propertyValue = new PrismPropertyValueImpl<>(realValue);
+        propertyValue.setPrismContext(prismContext);
+        return propertyValue;
+    }
+
+    /**
+     * Returns Java type for the property values that can be read directly from the parser (without XNodes),
+     * or null if the values must go through {@link PrismUnmarshaller}.
+     */
+    private static @Nullable Class<?> getDirectlyReadableType(PrismPropertyDefinition<?> propertyDefinition) {
+        if (propertyDefinition.isAnyType() || !CollectionUtils.isEmpty(propertyDefinition.getAllowedValues())) {
+            return null;
+        }
+        QName typeName = propertyDefinition.getTypeName();
+        if (PrismConstants.POLYSTRING_TYPE_QNAME.equals(typeName)) {
+            return PolyString.class;
+        }
+        Class<?> javaType = XsdTypeMapper.toJavaTypeIfKnown(typeName);
+        if (javaType == XMLGregorianCalendar.class || SCALAR_READERS.containsKey(javaType)) {
+            return javaType;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Textual types are read only from string tokens, as YAML numbers and booleans converted
+     * to strings via XNodes may differ from their original text (e.g. leading zeros).
+     */
+    private static boolean isDirectlyReadable(JsonToken token, Class<?> javaType) {
+        switch (token) {
+            case VALUE_STRING:
+                return true;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return javaType != String.class && javaType != PolyString.class && javaType != XMLGregorianCalendar.class;
+            default:
+                return false;
+        }
+    }
+
+    private void parseChildFromXNode(QName itemName, XNodeImpl node) throws SchemaException, IOException {
+        if (DOMUtil.XSD_SCHEMA_ELEMENT.equals(itemName)) {
+            node = RootObjectReader.toSchemaNode(node);
+        }
+        unmarshaller.parseContainerChild(value, itemName, node, containerDefinition, complexTypeDefinition, pc, node);
+    }
+
+    private void postProcess() throws SchemaException {
+        if (Boolean.TRUE.equals(incomplete)) {
+            if (!regularContentPresent) {
+                determineDefinitionIfNeeded();
+                return;
+            }
+            warnOrThrow("More than one of '" + PROP_INCOMPLETE + "' and regular content present");
+        }
+        createValueIfNeeded();
+        unmarshaller.parseMetadataNodes(value, metadata, pc);
+    }
+
+    private void determineDefinitionIfNeeded() throws SchemaException {
+        if (containerDefinition == null) {
+            containerDefinition = definitionProvider.getDefinition(explicitTypeName);
+        }
+    }
+
+    private void createValueIfNeeded() throws SchemaException {
+        if (value != null) {
+            return;
+        }
+        determineDefinitionIfNeeded();
+        if (containerDefinition instanceof PrismObjectDefinition<?>) {
+            value = ((PrismObjectDefinition<?>) containerDefinition).createValue();
+            complexTypeDefinition = containerDefinition.getComplexTypeDefinition();
+        } else {
+            complexTypeDefinition = unmarshaller.refineContainerTypeDefinition(
+                    containerDefinition.getComplexTypeDefinition(), explicitTypeName,
+                    "value of " + containerDefinition.getItemName(), pc);
+            value = new PrismContainerValueImpl<>(null, null, null, containerId, complexTypeDefinition, prismContext);
+        }
+    }
+
+    private void setContainerId(PrimitiveXNodeImpl<?> node) throws SchemaException {
+        containerId = node.getParsedValue(DOMUtil.XSD_LONG, Long.class);
+        if (value != null && !(containerDefinition instanceof PrismObjectDefinition<?>)) {
+            value.setId(containerId);
+        }
+    }
+
+    private XNodeImpl readXNode(XNodeDefinition field) throws IOException, SchemaException {
+        XNodeImpl node = new JsonOtherTokenReader(ctx, namespaceContext().inherited(), field, definition).readValue();
+        RootObjectReader.processSchemaNodes(node);
+        return node;
+    }
+
+    private String getStringValue(XNodeDefinition field, XNode node) throws SchemaException {
+        if (node instanceof PrimitiveXNodeImpl) {
+            return ((PrimitiveXNodeImpl<?>) node).getStringValue();
+        } else {
+            warnOrThrow("Value of '" + field.getName() + "' attribute must be a primitive one. It is " + node + " instead");
+            return "";
+        }
+    }
+
+    private String getPrimitiveValue(QName itemName, XNodeImpl node) throws SchemaException {
+        if (!(node instanceof PrimitiveXNodeImpl<?>)) {
+            throw new SchemaException("Expected that field " + itemName + " will be primitive, but it is " + node.getDesc());
+        }
+        return ((PrimitiveXNodeImpl<?>) node).getParsedValue(DOMUtil.XSD_STRING, String.class);
+    }
+
+    private PrismNamespaceContext namespaceContext() {
+        return namespaceContext != null ? namespaceContext : parentContext;
+    }
+
+    private void warnOrThrow(String format, Object... args) throws SchemaException {
+        String message = Strings.lenientFormat(format, args);
+        pc.warnOrThrow(LOGGER, message + ". At " + ctx.getPositionSuffix());
+    }
+
+    /** Provides the definition of the container, given the explicit type of the value (if known). */
+    @FunctionalInterface
+    interface DefinitionProvider {
+        @NotNull PrismContainerDefinition<?> getDefinition(@Nullable QName explicitTypeName) throws SchemaException;
+    }
+
+    @FunctionalInterface
+    private interface FieldProcessor {
+        void apply(DirectContainerValueReader reader, XNodeDefinition field) throws IOException, SchemaException;
+    }
+}
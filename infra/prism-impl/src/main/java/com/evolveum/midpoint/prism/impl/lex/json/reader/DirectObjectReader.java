@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.lex.json.reader;
+
+import static com.evolveum.midpoint.prism.impl.lex.json.JsonInfraItems.PROP_NAMESPACE_QNAME;
+import static com.evolveum.midpoint.prism.impl.lex.json.JsonInfraItems.PROP_TYPE_QNAME;
+
+import java.io.IOException;
+import javax.xml.namespace.QName;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.collect.ImmutableMap;
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.PrismNamespaceContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.PrismObjectDefinition;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
+import com.evolveum.midpoint.prism.impl.marshaller.ItemInfo;
+import com.evolveum.midpoint.prism.impl.marshaller.PrismUnmarshaller;
+import com.evolveum.midpoint.prism.impl.xnode.XNodeDefinition;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Reads a single JSON/YAML object directly into a {@link PrismObject}, without creating the XNode tree for it.
+ *
+ * The expected structure is the same as for {@link RootObjectReader}: a map with a single regular entry,
+ * whose key is the root element name and whose value is the object content. The content itself is read
+ * by {@link DirectContainerValueReader}.
+ */
+class DirectObjectReader {
+
+    private static final Trace LOGGER = TraceManager.getTrace(DirectObjectReader.class);
+
+    @NotNull private final JsonReadingContext ctx;
+    @NotNull private final JsonParser parser;
+    @NotNull private final PrismUnmarshaller unmarshaller;
+    @NotNull private final LexicalProcessor.ObjectInfoResolver objectInfoResolver;
+
+    private final PrismNamespaceContext parentContext;
+
+    /** Namespace context declared at the root level (if any). */
+    private PrismNamespaceContext namespaceContext;
+
+    /** Name and definition of the object. Determined when the object content starts to be read. */
+    private ItemInfo<?> objectInfo;
+
+    DirectObjectReader(@NotNull JsonReadingContext ctx, PrismNamespaceContext parentContext,
+            @NotNull PrismUnmarshaller unmarshaller, @NotNull LexicalProcessor.ObjectInfoResolver objectInfoResolver) {
+        this.ctx = ctx;
+        this.parser = ctx.parser;
+        this.parentContext = parentContext;
+        this.unmarshaller = unmarshaller;
+        this.objectInfoResolver = objectInfoResolver;
+    }
+
+    @NotNull PrismObject<?> read(boolean multipleDocumentsSupported) throws IOException, SchemaException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new SchemaException("Expected MapXNode with a single key; got " + parser.currentToken()
+                    + " instead." + ctx.getPositionSuffixIfPresent());
+        }
+        XNodeDefinition rootDefinition = ctx.rootDefinition();
+        PrismObject<?> object = null;
+        for (;;) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new SchemaException("Unexpected end of data while parsing a map structure." + ctx.getPositionSuffixIfPresent());
+            } else if (token == JsonToken.END_OBJECT) {
+                break;
+            }
+            XNodeDefinition fieldDefinition = rootDefinition.resolve(parser.getCurrentName(), namespaceContext());
+            QName fieldName = fieldDefinition.getName();
+            parser.nextToken();
+            if (PROP_NAMESPACE_QNAME.equals(fieldName)) {
+                processNamespaceDeclaration();
+            } else if (PROP_TYPE_QNAME.equals(fieldName)) {
+                // The type of the root map is ignored also when reading via XNodes.
+                parser.skipChildren();
+            } else if (isInfraItem(fieldName)) {
+                throw new SchemaException("'" + fieldName.getLocalPart() + "' is not supported at the root level"
+                        + " in definition-driven parsing mode." + ctx.getPositionSuffixIfPresent());
+            } else if (object != null) {
+                throw new SchemaException("Expected MapXNode with a single key; got more than one." + ctx.getPositionSuffixIfPresent());
+            } else {
+                object = readObject(fieldDefinition);
+            }
+        }
+        if (object == null) {
+            throw new SchemaException("Expected MapXNode with a single key; got none." + ctx.getPositionSuffixIfPresent());
+        }
+        if (multipleDocumentsSupported && parser.nextToken() != null) {
+            throw new SchemaException("More than one object found." + ctx.getPositionSuffixIfPresent());
+        }
+        return object;
+    }
+
+    private void processNamespaceDeclaration() throws IOException, SchemaException {
+        if (namespaceContext != null) {
+            ctx.prismParsingContext.warnOrThrow(LOGGER,
+                    "Namespace defined more than once." + ctx.getPositionSuffixIfPresent());
+        }
+        if (!parser.currentToken().isScalarValue()) {
+            throw new SchemaException("Value of '" + PROP_NAMESPACE_QNAME + "' attribute must be a primitive one."
+                    + ctx.getPositionSuffixIfPresent());
+        }
+        namespaceContext = parentContext.childContext(ImmutableMap.of("", parser.getText()));
+    }
+
+    private @NotNull PrismObject<?> readObject(XNodeDefinition fieldDefinition) throws IOException, SchemaException {
+        QName rootElementName = fieldDefinition.getName();
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new SchemaException("Cannot parse object from element " + rootElementName + ", we need Map."
+                    + ctx.getPositionSuffixIfPresent());
+        }
+        DirectContainerValueReader valueReader = new DirectContainerValueReader(ctx, unmarshaller,
+                namespaceContext().inherited(), fieldDefinition,
+                explicitTypeName -> {
+                    objectInfo = objectInfoResolver.resolve(rootElementName, explicitTypeName);
+                    return (PrismObjectDefinition<?>) objectInfo.getItemDefinition();
+                });
+        valueReader.read();
+        PrismObject<?> object = ((PrismObjectDefinition<?>) objectInfo.getItemDefinition())
+                .instantiate(objectInfo.getItemName());
+        valueReader.addTo(object);
+        return object;
+    }
+
+    private static boolean isInfraItem(QName name) {
+        return name.getNamespaceURI().isEmpty() && name.getLocalPart().startsWith("@");
+    }
+
+    private PrismNamespaceContext namespaceContext() {
+        return namespaceContext != null ? namespaceContext : parentContext;
+    }
+}
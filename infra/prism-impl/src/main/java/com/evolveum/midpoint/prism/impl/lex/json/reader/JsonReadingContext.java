@@ -24,6 +24,7 @@ class JsonReadingContext {
     @NotNull final ParsingContextImpl prismParsingContext;
     @NotNull final LexicalProcessor.RootXNodeHandler objectHandler;
     @NotNull final AbstractReader.YamlTagResolver yamlTagResolver;
+    @NotNull final SchemaRegistry schemaRegistry;
 
     private boolean aborted;
     private final XNodeDefinition.Root rootContext;
@@ -35,6 +36,7 @@ class JsonReadingContext {
         this.prismParsingContext = prismParsingContext;
         this.objectHandler = objectHandler;
         this.yamlTagResolver = yamlTagResolver;
+        this.schemaRegistry = schemaRegistry;
         this.rootContext = XNodeDefinition.root(schemaRegistry);
     }
 
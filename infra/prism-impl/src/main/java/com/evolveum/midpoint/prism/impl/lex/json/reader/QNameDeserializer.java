@@ -11,6 +11,7 @@ import java.io.Serializable;
 
 import javax.xml.namespace.QName;
 
+import com.evolveum.midpoint.prism.impl.schema.ItemNameInterner;
 import com.evolveum.midpoint.util.QNameUtil;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -65,12 +66,12 @@ public class QNameDeserializer extends JsonDeserializer<QName> implements Serial
         if (qnameNode != null){
             localPart = qnameNode.asText();
         }
-        return new QName(namespace, localPart);
+        return ItemNameInterner.internQName(new QName(namespace, localPart));
     }
 
     private QName deserializeFromString(JsonNode node){
         String qnameUri = node.asText();
-        return QNameUtil.uriToQName(qnameUri, true);
+        return ItemNameInterner.internQName(QNameUtil.uriToQName(qnameUri, true));
 //        return new QName(node.asText());
     }
 
@@ -62,7 +62,7 @@ class RootObjectReader {
 
     // Schema nodes can be detected only after namespaces are resolved.
     // We simply convert primitive nodes to schema ones.
-    private void processSchemaNodes(XNodeImpl xnode) throws SchemaException, IOException {
+    static void processSchemaNodes(XNodeImpl xnode) throws SchemaException, IOException {
         if (xnode instanceof MapXNodeImpl) {
             MapXNodeImpl map = (MapXNodeImpl) xnode;
             XNodeImpl schemaNode = null;
@@ -76,17 +76,7 @@ class RootObjectReader {
                 }
             }
             if (schemaNode != null) {
-                if (schemaNode instanceof PrimitiveXNodeImpl) {
-                    PrimitiveXNodeImpl<?> primitiveXNode = (PrimitiveXNodeImpl<?>) schemaNode ;
-                    if (primitiveXNode.isParsed()) {
-                        throw new SchemaException("Cannot convert from PrimitiveXNode to SchemaXNode: node is already parsed: " + primitiveXNode);
-                    }
-                    SchemaXNodeImpl schemaXNode = new SchemaXNodeImpl();
-                    map.replace(DOMUtil.XSD_SCHEMA_ELEMENT, schemaXNode);
-                    schemaXNode.setSchemaElement(((JsonValueParser) primitiveXNode.getValueParser()).asDomElement());
-                } else {
-                    throw new SchemaException("Cannot convert 'schema' field to SchemaXNode: not a PrimitiveNode but " + schemaNode);
-                }
+                map.replace(DOMUtil.XSD_SCHEMA_ELEMENT, toSchemaNode(schemaNode));
             }
         } else if (xnode instanceof ListXNodeImpl) {
             for (XNodeImpl item : (ListXNodeImpl) xnode) {
@@ -94,4 +84,18 @@ class RootObjectReader {
             }
         }
     }
+
+    static SchemaXNodeImpl toSchemaNode(XNodeImpl schemaNode) throws SchemaException, IOException {
+        if (schemaNode instanceof PrimitiveXNodeImpl) {
+            PrimitiveXNodeImpl<?> primitiveXNode = (PrimitiveXNodeImpl<?>) schemaNode ;
+            if (primitiveXNode.isParsed()) {
+                throw new SchemaException("Cannot convert from PrimitiveXNode to SchemaXNode: node is already parsed: " + primitiveXNode);
+            }
+            SchemaXNodeImpl schemaXNode = new SchemaXNodeImpl();
+            schemaXNode.setSchemaElement(((JsonValueParser) primitiveXNode.getValueParser()).asDomElement());
+            return schemaXNode;
+        } else {
+            throw new SchemaException("Cannot convert 'schema' field to SchemaXNode: not a PrimitiveNode but " + schemaNode);
+        }
+    }
 }
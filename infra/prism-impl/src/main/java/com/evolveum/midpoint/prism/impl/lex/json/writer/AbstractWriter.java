@@ -8,6 +8,7 @@
 package com.evolveum.midpoint.prism.impl.lex.json.writer;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 import javax.xml.namespace.QName;
 
@@ -16,6 +17,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.prism.SerializationContext;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
 import com.evolveum.midpoint.prism.impl.lex.LexicalUtils;
 import com.evolveum.midpoint.prism.impl.xnode.ListXNodeImpl;
 import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
@@ -82,5 +84,81 @@ abstract public class AbstractWriter {
         }
     }
 
+    /**
+     * Writes the root directly into provided writer, without creating intermediate string.
+     * The writer is flushed but not closed.
+     */
+    public void write(@NotNull RootXNode root, @Nullable SerializationContext prismSerializationContext, @NotNull Writer out)
+            throws SchemaException {
+        try (WritingContext<?> ctx = createWritingContext(prismSerializationContext, out)) {
+            new DocumentWriter(ctx, schema).write((RootXNodeImpl) root);
+        } catch (JsonProcessingException ex) {
+            throw new SchemaException("Error during writing to JSON/YAML: " + ex.getMessage(), ex);
+        } catch (IOException ioe) {
+            throw new SystemException("Error during writing to JSON/YAML: " + ioe.getMessage(), ioe);
+        }
+    }
+
+    /**
+     * Opens a writer that writes objects one by one into provided writer. The output is the same as
+     * for {@link #write(List, SerializationContext)}: JSON array or (for YAML) multiple documents.
+     */
+    @NotNull
+    public LexicalProcessor.RootXNodeWriter openObjectsWriter(@NotNull Writer out,
+            @Nullable SerializationContext prismSerializationContext) {
+        return new ObjectsWriter(createWritingContext(prismSerializationContext, out));
+    }
+
     abstract WritingContext<?> createWritingContext(SerializationContext prismSerializationContext);
+
+    abstract WritingContext<?> createWritingContext(SerializationContext prismSerializationContext, @NotNull Writer out);
+
+    private class ObjectsWriter implements LexicalProcessor.RootXNodeWriter {
+
+        @NotNull private final WritingContext<?> ctx;
+        @NotNull private final DocumentWriter documentWriter;
+        private final boolean separateDocuments;
+        private int written;
+
+        private ObjectsWriter(@NotNull WritingContext<?> ctx) {
+            this.ctx = ctx;
+            this.documentWriter = new DocumentWriter(ctx, schema);
+            this.separateDocuments = ctx.supportsMultipleDocuments();
+        }
+
+        @Override
+        public void write(@NotNull RootXNodeImpl root) throws SchemaException {
+            try {
+                if (separateDocuments) {
+                    if (written > 0) {
+                        ctx.newDocument();
+                    }
+                } else if (written == 0) {
+                    documentWriter.writeStartOfList();
+                }
+                documentWriter.write(root.toMapXNode());
+                written++;
+            } catch (JsonProcessingException ex) {
+                throw new SchemaException("Error during writing to JSON/YAML: " + ex.getMessage(), ex);
+            } catch (IOException ioe) {
+                throw new SystemException("Error during writing to JSON/YAML: " + ioe.getMessage(), ioe);
+            }
+        }
+
+        @Override
+        public void close() throws SchemaException {
+            try (ctx) {
+                if (written == 0) {
+                    // Empty list cannot be represented as multiple documents, see writeInternal.
+                    documentWriter.write(new ListXNodeImpl());
+                } else if (!separateDocuments) {
+                    documentWriter.writeEndOfList();
+                }
+            } catch (JsonProcessingException ex) {
+                throw new SchemaException("Error during writing to JSON/YAML: " + ex.getMessage(), ex);
+            } catch (IOException ioe) {
+                throw new SystemException("Error during writing to JSON/YAML: " + ioe.getMessage(), ioe);
+            }
+        }
+    }
 }
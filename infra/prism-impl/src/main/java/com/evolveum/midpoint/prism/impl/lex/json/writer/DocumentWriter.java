@@ -68,6 +68,16 @@ class DocumentWriter {
         }
     }
 
+    /** Starts top-level list whose items are then written one by one using {@link #write(XNodeImpl)}. */
+    void writeStartOfList() throws IOException {
+        generator.writeStartArray();
+        ctx.resetInlineTypeIfPossible();
+    }
+
+    void writeEndOfList() throws IOException {
+        generator.writeEndArray();
+    }
+
     public void write(XNodeImpl xnode) throws IOException {
         if (xnode instanceof RootXNodeImpl) {
             write(((RootXNodeImpl) xnode).toMapXNode(), staticNamespaces, false, schema);
@@ -7,6 +7,8 @@
 
 package com.evolveum.midpoint.prism.impl.lex.json.writer;
 
+import java.io.Writer;
+
 import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.prism.SerializationContext;
@@ -22,4 +24,9 @@ public class JsonWriter extends AbstractWriter {
     WritingContext createWritingContext(SerializationContext prismSerializationContext) {
         return new JsonWritingContext(prismSerializationContext);
     }
+
+    @Override
+    WritingContext createWritingContext(SerializationContext prismSerializationContext, @NotNull Writer out) {
+        return new JsonWritingContext(prismSerializationContext, out);
+    }
 }
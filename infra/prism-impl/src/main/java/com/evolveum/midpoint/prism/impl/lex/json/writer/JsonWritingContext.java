@@ -19,11 +19,12 @@ import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.jetbrains.annotations.NotNull;
 
 import javax.xml.datatype.XMLGregorianCalendar;
 import javax.xml.namespace.QName;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.Writer;
 
 /**
  * TODO
@@ -34,8 +35,12 @@ class JsonWritingContext extends WritingContext<JsonGenerator> {
         super(prismSerializationContext);
     }
 
+    JsonWritingContext(SerializationContext prismSerializationContext, @NotNull Writer out) {
+        super(prismSerializationContext, out);
+    }
+
     @Override
-    JsonGenerator createJacksonGenerator(StringWriter out) {
+    JsonGenerator createJacksonGenerator(Writer out) {
         try {
             JsonFactory factory = new JsonFactory();
             JsonGenerator generator = factory.createGenerator(out);
@@ -18,25 +18,36 @@ import org.jetbrains.annotations.Nullable;
 import javax.xml.namespace.QName;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.io.Writer;
 
 /**
  * TODO
  */
 abstract class WritingContext<G extends JsonGenerator> implements AutoCloseable {
 
-    @NotNull private final StringWriter out = new StringWriter();
+    @NotNull private final Writer out;
     @NotNull final G generator;
     @NotNull final SerializationContext prismSerializationContext;
 
     WritingContext(@Nullable SerializationContext prismSerializationContext) {
+        this(prismSerializationContext, new StringWriter());
+    }
+
+    /**
+     * Context writing directly into provided writer. The writer is not closed when the context is closed.
+     */
+    WritingContext(@Nullable SerializationContext prismSerializationContext, @NotNull Writer out) {
         this.prismSerializationContext = prismSerializationContext != null ?
                 prismSerializationContext :
                 new SerializationContext(null);
+        this.out = out;
         this.generator = createJacksonGenerator(out);
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
 
-    abstract G createJacksonGenerator(StringWriter out);
+    abstract G createJacksonGenerator(Writer out);
 
+    /** Only for contexts writing into a string, i.e. created without explicit writer. */
     String getOutput() {
         return out.toString();
     }
@@ -7,6 +7,8 @@
 
 package com.evolveum.midpoint.prism.impl.lex.json.writer;
 
+import java.io.Writer;
+
 import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.prism.SerializationContext;
@@ -28,4 +30,9 @@ public class YamlWriter extends AbstractWriter {
     YamlWritingContext createWritingContext(SerializationContext prismSerializationContext) {
         return new YamlWritingContext(prismSerializationContext);
     }
+
+    @Override
+    YamlWritingContext createWritingContext(SerializationContext prismSerializationContext, @NotNull Writer out) {
+        return new YamlWritingContext(prismSerializationContext, out);
+    }
 }
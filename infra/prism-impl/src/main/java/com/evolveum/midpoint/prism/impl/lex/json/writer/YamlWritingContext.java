@@ -8,7 +8,7 @@
 package com.evolveum.midpoint.prism.impl.lex.json.writer;
 
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.Writer;
 import javax.xml.datatype.XMLGregorianCalendar;
 import javax.xml.namespace.QName;
 
@@ -18,6 +18,7 @@ import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.w3c.dom.Element;
 
@@ -34,8 +35,12 @@ public class YamlWritingContext extends WritingContext<MidpointYAMLGenerator> {
         super(prismSerializationContext);
     }
 
+    YamlWritingContext(@Nullable SerializationContext prismSerializationContext, @NotNull Writer out) {
+        super(prismSerializationContext, out);
+    }
+
     @Override
-    MidpointYAMLGenerator createJacksonGenerator(StringWriter out) {
+    MidpointYAMLGenerator createJacksonGenerator(Writer out) {
         try {
             MidpointYAMLFactory factory = new MidpointYAMLFactory();
             MidpointYAMLGenerator generator = (MidpointYAMLGenerator) factory.createGenerator(out);
@@ -0,0 +1,439 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.marshaller;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.xml.namespace.QName;
+
+import jakarta.xml.bind.annotation.XmlAttribute;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlEnumValue;
+import jakarta.xml.bind.annotation.XmlSchema;
+import jakarta.xml.bind.annotation.XmlType;
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Node;
+
+import com.evolveum.midpoint.util.exception.SystemException;
+
+/**
+ * Information about a JAXB bean class needed by {@link BeanMarshaller} and {@link BeanUnmarshaller}: namespace,
+ * type name, property order, accessors of the properties, and enum value mappings.
+ *
+ * It depends only on the class (not on the prism context), so it is computed once per class and kept in a {@link ClassValue}.
+ * The table is immutable, except for the properties that are not in the property order: these are looked up on demand
+ * and remembered in a concurrent map. Hence, no locking is needed when reading the information.
+ *
+ * Getters and setters are invoked via method handles, falling back to reflection if the handle cannot be created.
+ */
+class BeanClassInfo {
+
+    private static final ClassValue<BeanClassInfo> INFOS = new ClassValue<>() {
+        @Override
+        protected BeanClassInfo computeValue(Class<?> type) {
+            return new BeanClassInfo(type);
+        }
+    };
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    @NotNull private final Class<?> beanClass;
+    @Nullable private final String namespace;
+    @Nullable private final QName typeName;
+
+    /** Null if the class has no {@link XmlType} annotation. */
+    @Nullable private final List<String> propOrder;
+
+    /** Properties from {@link #propOrder}, in that order. */
+    @NotNull private final List<Property> orderedProperties;
+
+    @NotNull private final Map<String, Property> properties = new ConcurrentHashMap<>();
+
+    /** Enum constant name -> XML value and vice versa. */
+    @NotNull private final Map<String, String> enumValues;
+    @NotNull private final Map<String, String> enumNames;
+
+    private BeanClassInfo(@NotNull Class<?> beanClass) {
+        this.beanClass = beanClass;
+        this.namespace = determineNamespace(beanClass);
+        this.typeName = determineTypeName(beanClass);
+        this.propOrder = computePropOrder(beanClass);
+        if (propOrder != null) {
+            List<Property> ordered = new ArrayList<>(propOrder.size());
+            for (String name : propOrder) {
+                ordered.add(getProperty(name));
+            }
+            this.orderedProperties = Collections.unmodifiableList(ordered);
+        } else {
+            this.orderedProperties = List.of();
+        }
+        Map<String, String> values = new HashMap<>();
+        Map<String, String> names = new HashMap<>();
+        for (Field field : beanClass.getDeclaredFields()) {
+            XmlEnumValue xmlEnumValue = field.getAnnotation(XmlEnumValue.class);
+            if (xmlEnumValue != null) {
+                values.putIfAbsent(field.getName(), xmlEnumValue.value());
+                names.putIfAbsent(xmlEnumValue.value(), field.getName());
+            }
+        }
+        this.enumValues = Map.copyOf(values);
+        this.enumNames = Map.copyOf(names);
+    }
+
+    static @NotNull BeanClassInfo of(@NotNull Class<?> beanClass) {
+        return INFOS.get(beanClass);
+    }
+
+    @Nullable String getNamespace() {
+        return namespace;
+    }
+
+    @Nullable QName getTypeName() {
+        return typeName;
+    }
+
+    @NotNull List<String> getPropOrder() {
+        if (propOrder == null) {
+            throw new IllegalArgumentException("Cannot marshall " + beanClass + " it does not have @XmlType annotation");
+        }
+        return propOrder;
+    }
+
+    @NotNull List<Property> getOrderedProperties() {
+        getPropOrder();
+        return orderedProperties;
+    }
+
+    @NotNull Property getProperty(@NotNull String name) {
+        Property property = properties.get(name);
+        if (property != null) {
+            return property;
+        }
+        return properties.computeIfAbsent(name, Property::new);
+    }
+
+    /** Name of the enum constant having given XML value. */
+    @Nullable String getEnumName(String value) {
+        return value != null ? enumNames.get(value) : null;
+    }
+
+    /** XML value of given enum constant. */
+    @Nullable String getEnumValue(String name) {
+        return name != null ? enumValues.get(name) : null;
+    }
+
+    /**
+     * Accessors of a bean property. The field, getter and setter are looked up independently (using the same rules
+     * as before), so any of them may be null.
+     */
+    class Property {
+
+        @NotNull private final String name;
+        @Nullable private final Field field;
+        @Nullable private final Method getter;
+        @Nullable private final Method setter;
+        @Nullable private final MethodHandle getterHandle;
+        @Nullable private final MethodHandle setterHandle;
+        private final boolean attribute;
+
+        /** Element name for the namespace of the bean class. */
+        @NotNull private final QName elementName;
+
+        private Property(@NotNull String name) {
+            this.name = name;
+            this.field = findField(name);
+            this.getter = findGetter(name);
+            this.setter = findSetter(name);
+            this.getterHandle = unreflect(getter, GETTER_TYPE);
+            this.setterHandle = unreflect(setter, SETTER_TYPE);
+            this.attribute = field != null && field.isAnnotationPresent(XmlAttribute.class)
+                    || getter != null && getter.isAnnotationPresent(XmlAttribute.class);
+            this.elementName = computeElementName(namespace);
+        }
+
+        @NotNull String getName() {
+            return name;
+        }
+
+        @Nullable Field getField() {
+            return field;
+        }
+
+        @Nullable Method getGetter() {
+            return getter;
+        }
+
+        @Nullable Method getSetter() {
+            return setter;
+        }
+
+        boolean isAttribute() {
+            return attribute;
+        }
+
+        @NotNull QName getElementName(String defaultNamespace) {
+            return Objects.equals(defaultNamespace, namespace) ? elementName : computeElementName(defaultNamespace);
+        }
+
+        Object getValue(@NotNull Object bean) {
+            if (getter == null) {
+                throw new IllegalStateException("No getter for field " + name + " in " + beanClass);
+            }
+            try {
+                if (getterHandle != null) {
+                    return (Object) getterHandle.invokeExact(bean);
+                } else {
+                    return getter.invoke(bean);
+                }
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new SystemException("Cannot invoke getter " + getter + " on bean of type " + beanClass + ": " + t.getMessage(), t);
+            }
+        }
+
+        void setValue(@NotNull Object bean, Object value) {
+            if (setter == null) {
+                throw new IllegalStateException("No setter for field " + name + " in " + beanClass);
+            }
+            try {
+                if (setterHandle != null) {
+                    setterHandle.invokeExact(bean, value);
+                } else {
+                    setter.invoke(bean, value);
+                }
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new SystemException("Cannot invoke setter " + setter + " on bean of type " + beanClass + ": " + t.getMessage(), t);
+            }
+        }
+
+        private QName computeElementName(String defaultNamespace) {
+            Field declaredField;
+            try {
+                declaredField = beanClass.getDeclaredField(name);
+            } catch (NoSuchFieldException e) {
+                return new QName(defaultNamespace, name);               // TODO implement this if needed (lookup the getter method instead of the field)
+            }
+            String realLocalName = name;
+            String realNamespace = defaultNamespace;
+            XmlElement xmlElement = declaredField.getAnnotation(XmlElement.class);
+            if (xmlElement != null) {
+                String elementName = xmlElement.name();
+                if (!BeanMarshaller.DEFAULT_PLACEHOLDER.equals(elementName)) {
+                    realLocalName = elementName;
+                }
+                String elementNamespace = xmlElement.namespace();
+                if (!BeanMarshaller.DEFAULT_PLACEHOLDER.equals(elementNamespace)) {
+                    realNamespace = elementNamespace;
+                }
+            }
+            return new QName(realNamespace, realLocalName);
+        }
+
+        @Override
+        public String toString() {
+            return beanClass.getSimpleName() + "." + name;
+        }
+    }
+
+    private static MethodHandle unreflect(Method method, MethodType type) {
+        if (method == null) {
+            return null;
+        }
+        try {
+            return MethodHandles.publicLookup().unreflect(method).asType(type);
+        } catch (IllegalAccessException e) {
+            return null; // we will use reflection
+        }
+    }
+
+    //region Lookups
+    private Field findField(String propName) {
+        Field field = findFieldExact(propName);
+        if (field != null) {
+            return field;
+        }
+        // Fields for some reserved words are prefixed by underscore, so try also this.
+        return findFieldExact("_" + propName);
+    }
+
+    private Field findFieldExact(String propName) {
+        for (Field field : beanClass.getDeclaredFields()) {
+            XmlElement xmlElement = field.getAnnotation(XmlElement.class);
+            if (xmlElement != null && xmlElement.name().equals(propName)) {
+                return field;
+            }
+            XmlAttribute xmlAttribute = field.getAnnotation(XmlAttribute.class);
+            if (xmlAttribute != null && xmlAttribute.name().equals(propName)) {
+                return field;
+            }
+        }
+        try {
+            return beanClass.getDeclaredField(propName);
+        } catch (NoSuchFieldException e) {
+            // nothing found
+        }
+        Class<?> superclass = beanClass.getSuperclass();
+        if (superclass == null || Object.class.equals(superclass)) {
+            return null;
+        }
+        return of(superclass).getProperty(propName).field;
+    }
+
+    private Method findGetter(String propName) {
+        if (propName.startsWith("_")) {
+            propName = propName.substring(1);
+        }
+        for (Method method : beanClass.getDeclaredMethods()) {
+            XmlElement xmlElement = method.getAnnotation(XmlElement.class);
+            if (xmlElement != null && xmlElement.name().equals(propName)) {
+                return method;
+            }
+            XmlAttribute xmlAttribute = method.getAnnotation(XmlAttribute.class);
+            if (xmlAttribute != null && xmlAttribute.name().equals(propName)) {
+                return method;
+            }
+        }
+        String getterName = "get" + StringUtils.capitalize(propName);
+        try {
+            return beanClass.getDeclaredMethod(getterName);
+        } catch (NoSuchMethodException e) {
+            // nothing found
+        }
+        getterName = "is" + StringUtils.capitalize(propName);
+        try {
+            return beanClass.getDeclaredMethod(getterName);
+        } catch (NoSuchMethodException e) {
+            // nothing found
+        }
+        Class<?> superclass = beanClass.getSuperclass();
+        if (superclass == null || superclass.equals(Object.class)) {
+            return null;
+        }
+        return of(superclass).getProperty(propName).getter;
+    }
+
+    private Method findSetter(String fieldName) {
+        if (fieldName.startsWith("_")) {
+            fieldName = fieldName.substring(1);
+        }
+        String setterName = "set" + StringUtils.capitalize(fieldName);
+        for (Method method : beanClass.getMethods()) {
+            if (!method.getName().equals(setterName)) {
+                continue;
+            }
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            if (parameterTypes.length != 1) {
+                continue;
+            }
+            Class<?> setterType = parameterTypes[0];
+            if (setterType.equals(Object.class) || Node.class.isAssignableFrom(setterType)) {
+                // Leave for second pass, let's try find a better setter
+                continue;
+            }
+            return method;
+        }
+        // Second pass
+        for (Method method : beanClass.getMethods()) {
+            if (!method.getName().equals(setterName)) {
+                continue;
+            }
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            if (parameterTypes.length != 1) {
+                continue;
+            }
+            return method;
+        }
+        return null;
+    }
+
+    private static String determineNamespace(Class<?> beanClass) {
+        XmlType xmlType = beanClass.getAnnotation(XmlType.class);
+        if (xmlType == null) {
+            return null;
+        }
+
+        String namespace = xmlType.namespace();
+        if (BeanMarshaller.DEFAULT_PLACEHOLDER.equals(namespace)) {
+            XmlSchema xmlSchema = beanClass.getPackage().getAnnotation(XmlSchema.class);
+            namespace = xmlSchema.namespace();
+        }
+        if (StringUtils.isBlank(namespace) || BeanMarshaller.DEFAULT_PLACEHOLDER.equals(namespace)) {
+            return null;
+        }
+
+        return namespace;
+    }
+
+    static QName determineTypeName(Class<?> beanClass) {
+        String namespace = determineNamespace(beanClass);
+        return namespace != null ? new QName(namespace, beanClass.getAnnotation(XmlType.class).name()) : null;
+    }
+
+    private static List<String> computePropOrder(Class<?> beanClass) {
+        XmlType xmlType = beanClass.getAnnotation(XmlType.class);
+        if (xmlType == null) {
+            return null;
+        }
+
+        List<String> propOrder;
+
+        // Superclass first!
+        Class<?> superclass = beanClass.getSuperclass();
+        if (superclass == null || superclass.equals(Object.class) || superclass.getAnnotation(XmlType.class) == null) {
+            propOrder = new ArrayList<>();
+        } else {
+            propOrder = new ArrayList<>(of(superclass).getPropOrder());
+        }
+
+        String[] myPropOrder = xmlType.propOrder();
+        for (String myProp : myPropOrder) {
+            if (StringUtils.isNotBlank(myProp)) {
+                // some properties starts with underscore..we don't want to serialize them with underscore, so remove it..
+                if (myProp.startsWith("_")) {
+                    myProp = myProp.replace("_", "");
+                }
+                propOrder.add(myProp);
+            }
+        }
+
+        for (Field field : beanClass.getDeclaredFields()) {
+            if (field.isAnnotationPresent(XmlAttribute.class)) {
+                propOrder.add(field.getName());
+            }
+        }
+
+        for (Method method : beanClass.getDeclaredMethods()) {
+            if (method.isAnnotationPresent(XmlAttribute.class)) {
+                propOrder.add(getPropertyNameFromGetter(method.getName()));
+            }
+        }
+
+        return Collections.unmodifiableList(propOrder);
+    }
+
+    private static String getPropertyNameFromGetter(String getterName) {
+        if ((getterName.length() > 3) && getterName.startsWith("get") &&
+                Character.isUpperCase(getterName.charAt(3))) {
+            String propPart = getterName.substring(3);
+            return StringUtils.uncapitalize(propPart);
+        }
+        return getterName;
+    }
+    //endregion
+}
@@ -29,7 +29,6 @@ import com.evolveum.midpoint.util.DOMUtil;
 import com.evolveum.midpoint.util.Handler;
 import com.evolveum.midpoint.util.MiscUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
-import com.evolveum.midpoint.util.exception.SystemException;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 import com.evolveum.prism.xml.ns._public.query_3.SearchFilterType;
@@ -222,8 +221,7 @@ public class BeanMarshaller implements SchemaRegistry.InvalidationListener {
         // structurally similar to a specific path through marshalXmlTypeToMap
         Class<?> beanClass = bean.getClass();
         QName propertyName = getHeterogeneousListPropertyName(beanClass);
-        Method getter = inspector.findPropertyGetter(beanClass, propertyName.getLocalPart());
-        Object getterResult = getValue(bean, getter, propertyName.getLocalPart());
+        Object getterResult = BeanClassInfo.of(beanClass).getProperty(propertyName.getLocalPart()).getValue(bean);
         if (!(getterResult instanceof Collection)) {
             throw new IllegalStateException("Heterogeneous list property " + propertyName
                     + " does not contain a collection but " + MiscUtil.getObjectName(getterResult));
@@ -266,21 +264,14 @@ public class BeanMarshaller implements SchemaRegistry.InvalidationListener {
             throw new IllegalArgumentException("Cannot determine namespace of " + beanClass);
         }
 
-        List<String> propOrder = inspector.getPropOrder(beanClass);
-
-        for (String fieldName : propOrder) {
-            Method getter = inspector.findPropertyGetter(beanClass, fieldName);
-            if (getter == null) {
-                throw new IllegalStateException("No getter for field " + fieldName + " in " + beanClass);
-            }
-            Object getterResult = getValue(bean, getter, fieldName);
+        for (BeanClassInfo.Property property : BeanClassInfo.of(beanClass).getOrderedProperties()) {
+            Object getterResult = property.getValue(bean);
 
             if (getterResult == null) {
                 continue;
             }
 
-            Field field = inspector.findPropertyField(beanClass, fieldName);
-            Map.Entry<QName, XNodeImpl> marshalled = marshallField(getterResult, field, fieldName, getter, namespace, ctd, beanClass, ctx);
+            Map.Entry<QName, XNodeImpl> marshalled = marshallField(getterResult, property, namespace, ctd, ctx);
             if (marshalled != null) {
                 xmap.put(marshalled.getKey(), marshalled.getValue());
             }
@@ -288,10 +279,13 @@ public class BeanMarshaller implements SchemaRegistry.InvalidationListener {
         return xmap;
     }
 
-    private Map.Entry<QName, XNodeImpl> marshallField(Object getterResult, Field field, String fieldName, Method getter, String namespace, @Nullable ComplexTypeDefinition ctd, Class<?> beanClass, SerializationContext ctx) throws SchemaException {
+    private Map.Entry<QName, XNodeImpl> marshallField(Object getterResult, BeanClassInfo.Property property, String namespace, @Nullable ComplexTypeDefinition ctd, SerializationContext ctx) throws SchemaException {
 
-        boolean isAttribute = inspector.isAttribute(field, getter);
-        QName elementName = inspector.findFieldElementQName(fieldName, beanClass, namespace);
+        Field field = property.getField();
+        String fieldName = property.getName();
+        Method getter = property.getGetter();
+        boolean isAttribute = property.isAttribute();
+        QName elementName = property.getElementName(namespace);
         ItemDefinition<?> propDef = ctd != null ? ctd.findLocalItemDefinition(elementName) : null;
 
         if (getterResult instanceof Collection<?>) {
@@ -347,16 +341,6 @@ public class BeanMarshaller implements SchemaRegistry.InvalidationListener {
         return marshaled;
     }
 
-    private Object getValue(Object bean, Method getter, String fieldOrPropertyName) {
-        Object getterResult;
-        try {
-            getterResult = getter.invoke(bean);
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-            throw new SystemException("Cannot invoke method for field/property " + fieldOrPropertyName + " in " + bean.getClass() + ": " + e.getMessage(), e);
-        }
-        return getterResult;
-    }
-
     private XNodeImpl marshalEnum(Enum<?> enumValue, SerializationContext ctx) {
         var enumClass = enumValue.getClass();
         String enumStringValue = inspector.findEnumFieldValue(enumClass, enumValue.toString());
@@ -406,13 +390,8 @@ public class BeanMarshaller implements SchemaRegistry.InvalidationListener {
             return;
         }
 
-        List<String> propOrder = inspector.getPropOrder(beanClass);
-        for (String fieldName : propOrder) {
-            Method getter = inspector.findPropertyGetter(beanClass, fieldName);
-            if (getter == null) {
-                throw new IllegalStateException("No getter for field " + fieldName + " in " + beanClass);
-            }
-            Object getterResult = getValue(bean, getter, fieldName);
+        for (BeanClassInfo.Property property : BeanClassInfo.of(beanClass).getOrderedProperties()) {
+            Object getterResult = property.getValue(bean);
 
             if (getterResult == null) {
                 continue;
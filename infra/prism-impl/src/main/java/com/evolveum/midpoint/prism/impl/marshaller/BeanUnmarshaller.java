@@ -570,19 +570,11 @@ public class BeanUnmarshaller {
         }
 
         if (setter != null) {
-            try {
-                setter.invoke(bean, propValue);
-            } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-                throw new SystemException("Cannot invoke setter "+setter+" on bean of type "+beanClass+": "+e.getMessage(), e);
-            }
+            mechanism.property.setValue(bean, propValue);
         } else if (getter != null) {
             Object getterReturn;
             Collection<Object> col;
-            try {
-                getterReturn = getter.invoke(bean);
-            } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-                throw new SystemException("Cannot invoke getter "+getter+" on bean of type "+beanClass+": "+e.getMessage(), e);
-            }
+            getterReturn = mechanism.property.getValue(bean);
             try {
                 col = (Collection<Object>)getterReturn;
             } catch (ClassCastException e) {
@@ -644,6 +636,7 @@ public class BeanUnmarshaller {
 
         // phase2
         Method getter, setter;            // Getter or setter that will be used to put a value (getter in case of collections)
+        BeanClassInfo.Property property;  // Accessors of the actual property, used to invoke the getter or setter
         Class<?> paramType;                // Actual parameter type; unwrapped: Collection<X> -> X, JAXBElement<X> -> X
         boolean wrapInJaxbElement;        // If the paramType contained JAXBElement, i.e. if the value should be wrapped into it before using
 
@@ -730,13 +723,14 @@ public class BeanUnmarshaller {
         }
 
         private boolean computeGetterAndSetter(String propName, ParsingContext pc) throws SchemaException {
-            setter = inspector.findSetter(beanClass, actualPropertyName);
+            property = BeanClassInfo.of(beanClass).getProperty(actualPropertyName);
+            setter = property.getSetter();
             wrapInJaxbElement = false;
             paramType = null;
             if (setter == null) {
                 // No setter. But if the property is multi-value we need to look
                 // for a getter that returns a collection (Collection<Whatever>)
-                getter = inspector.findPropertyGetter(beanClass, actualPropertyName);
+                getter = property.getGetter();
                 if (getter == null) {
                     pc.warnOrThrow(LOGGER, "Cannot find setter or getter for field " + actualPropertyName + " in " + beanClass);
                     return false;
@@ -18,24 +18,20 @@ import com.evolveum.midpoint.util.Handler;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.prism.xml.ns._public.types_3.RawType;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.jetbrains.annotations.NotNull;
-import org.w3c.dom.Node;
 
 import jakarta.xml.bind.annotation.XmlAnyElement;
 import jakarta.xml.bind.annotation.XmlAttribute;
-import jakarta.xml.bind.annotation.XmlElement;
 import jakarta.xml.bind.annotation.XmlElementDecl;
 import jakarta.xml.bind.annotation.XmlElementRef;
-import jakarta.xml.bind.annotation.XmlEnumValue;
-import jakarta.xml.bind.annotation.XmlSchema;
 import jakarta.xml.bind.annotation.XmlSchemaType;
 import jakarta.xml.bind.annotation.XmlType;
 import javax.xml.namespace.QName;
 
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.util.Comparator.naturalOrder;
 import static java.util.Comparator.nullsLast;
@@ -49,207 +45,163 @@ public class PrismBeanInspector {
         this.prismContext = prismContext;
     }
 
-    //region Caching mechanism (multiple dimensions)
+    //region Caching mechanism
+
+    /**
+     * Marks "no value" in caches. Concurrent maps do not support null values; but many lookups legitimately
+     * return null and we want to remember that.
+     */
+    private static final Object NULL = new Object();
 
     @FunctionalInterface
     interface Getter1<V, P1> {
         V get(P1 param1);
     }
 
-    private <V, P1> V find1(Map<P1,V> cache, P1 param1, Getter1<V, P1> getter) {
-        if (cache.containsKey(param1)) {
-            return cache.get(param1);
-        } else {
+    /**
+     * Reads are lock-free. The value is computed outside of the map (not via `computeIfAbsent`), as the computation
+     * may use the same cache recursively. Concurrent computations of the same value are harmless.
+     */
+    private <V, P1> V find1(Map<P1, Object> cache, P1 param1, Getter1<V, P1> getter) {
+        Object cached = cache.get(param1);
+        if (cached == null) {
             V value = getter.get(param1);
-            cache.put(param1, value);
+            cache.putIfAbsent(param1, value != null ? value : NULL);
             return value;
         }
-    }
-
-    @FunctionalInterface
-    interface Getter2<V, P1, P2> {
-        V get(P1 param1, P2 param2);
-    }
-
-    private <V, P1, P2> V find2(final Map<P1,Map<P2,V>> cache, final P1 param1, final P2 param2, final Getter2<V, P1, P2> getter) {
-        Map<P2, V> cache2 = cache.computeIfAbsent(param1, k -> Collections.synchronizedMap(new HashMap<>()));
-        return find1(cache2, param2, p -> getter.get(param1, p));
-    }
-
-    @FunctionalInterface
-    interface Getter3<V, P1, P2, P3> {
-        V get(P1 param1, P2 param2, P3 param3);
-    }
-
-    private <V, P1, P2, P3> V find3(final Map<P1,Map<P2,Map<P3,V>>> cache, final P1 param1, final P2 param2, final P3 param3, final Getter3<V, P1, P2, P3> getter) {
-        Map<P2, Map<P3, V>> cache2 = cache.computeIfAbsent(param1, k -> Collections.synchronizedMap(new HashMap<>()));
-        return find2(cache2, param2, param3, (p, q) -> getter.get(param1, p, q));
+        //noinspection unchecked
+        return cached != NULL ? (V) cached : null;
     }
     //endregion
 
     //region Individual inspection methods - cached versions
 
-    private Map<Class<?>, String> determineNamespace = Collections.synchronizedMap(new HashMap<>());
+    // Information that depends only on the bean class is kept in BeanClassInfo.
 
     String determineNamespace(Class<?> paramType) {
-        return find1(determineNamespace, paramType, this::determineNamespaceUncached);
+        return BeanClassInfo.of(paramType).getNamespace();
     }
 
-    private Map<Class<?>, QName> determineTypeForClass = Collections.synchronizedMap(new HashMap<>());
-
     QName determineTypeForClass(Class<?> paramType) {
-        return find1(determineTypeForClass, paramType, PrismBeanInspector::determineTypeForClassUncached);
+        return BeanClassInfo.of(paramType).getTypeName();
     }
 
-    private Map<Field,Map<Method,Boolean>> isAttribute = Collections.synchronizedMap(new HashMap<>());
-
     boolean isAttribute(Field field, Method getter) {
-        return find2(isAttribute, field, getter, this::isAttributeUncached);
+        return isAttributeUncached(field, getter);
     }
 
-    private Map<Class,Map<String,Method>> findSetter = Collections.synchronizedMap(new HashMap<>());
-
     <T> Method findSetter(Class<T> beanClass, String fieldName) {
-        //noinspection unchecked
-        return find2(findSetter, beanClass, fieldName, (c, f) -> findSetterUncached(c, f));
+        return BeanClassInfo.of(beanClass).getProperty(fieldName).getSetter();
     }
 
-    private Map<Package,Class> getObjectFactoryClassPackage = Collections.synchronizedMap(new HashMap<>());
+    private final Map<Package, Object> getObjectFactoryClassPackage = new ConcurrentHashMap<>();
     Class getObjectFactoryClass(Package aPackage) {
         return find1(getObjectFactoryClassPackage, aPackage, p -> getObjectFactoryClassUncached(p));
     }
 
-    private Map<String,Class> getObjectFactoryClassNamespace = Collections.synchronizedMap(new HashMap<>());
+    private final Map<String, Object> getObjectFactoryClassNamespace = new ConcurrentHashMap<>();
     Class getObjectFactoryClass(String namespaceUri) {
         return find1(getObjectFactoryClassNamespace, namespaceUri, s -> getObjectFactoryClassUncached(s));
     }
 
-    private Map<Class<?>, List<String>> getPropOrder = Collections.synchronizedMap(new HashMap<>());
-
     List<String> getPropOrder(Class<?> beanClass) {
-        return find1(getPropOrder, beanClass, this::getPropOrderUncached);
-    }
-
-    private Map<Class,Map<String,Method>> findElementMethodInObjectFactory = Collections.synchronizedMap(new HashMap<>());
+        return BeanClassInfo.of(beanClass).getPropOrder();
+    }
+
+    /** Methods of object factory classes annotated with {@link XmlElementDecl}, by element name. */
+    private static final ClassValue<Map<String, Method>> ELEMENT_METHODS_IN_OBJECT_FACTORY = new ClassValue<>() {
+        @Override
+        protected Map<String, Method> computeValue(Class<?> objectFactoryClass) {
+            Map<String, Method> methods = new HashMap<>();
+            for (Method method : objectFactoryClass.getDeclaredMethods()) {
+                XmlElementDecl xmlElementDecl = method.getAnnotation(XmlElementDecl.class);
+                if (xmlElementDecl != null) {
+                    methods.putIfAbsent(xmlElementDecl.name(), method);
+                }
+            }
+            return Map.copyOf(methods);
+        }
+    };
 
     Method findElementMethodInObjectFactory(Class objectFactoryClass, String propName) {
-        return find2(findElementMethodInObjectFactory, objectFactoryClass, propName,
-                (c, p) -> findElementMethodInObjectFactoryUncached(c, p));
+        //noinspection unchecked
+        return ELEMENT_METHODS_IN_OBJECT_FACTORY.get(objectFactoryClass).get(propName);
     }
 
-    private Map<Class,Map<Method,Field>> lookupSubstitution = Collections.synchronizedMap(new HashMap<>());
-
     <T> Field lookupSubstitution(Class<T> beanClass, Method elementMethod) {
-        return find2(lookupSubstitution, beanClass, elementMethod, this::lookupSubstitutionUncached);
+        // The map is used for a single bean class, as the substitution head is looked up in the bean class
+        // (and the element method belongs to the object factory for the bean class package).
+        return find1(lookupSubstitutionMap(beanClass), elementMethod, m -> lookupSubstitutionUncached(beanClass, m));
     }
 
-    private Map<Class,Map<String,String>> findEnumFieldName = Collections.synchronizedMap(new HashMap<>());
+    private final Map<Class<?>, Map<Method, Object>> lookupSubstitutionByClass = new ConcurrentHashMap<>();
 
-    <T> String findEnumFieldName(Class<T> classType, String primValue) {
-        return find2(findEnumFieldName, classType, primValue, (c, v) -> findEnumFieldNameUncached(c, v));
+    private Map<Method, Object> lookupSubstitutionMap(Class<?> beanClass) {
+        Map<Method, Object> map = lookupSubstitutionByClass.get(beanClass);
+        return map != null ? map : lookupSubstitutionByClass.computeIfAbsent(beanClass, c -> new ConcurrentHashMap<>());
     }
 
-    private Map<Class,Map<String,String>> findEnumFieldValue = Collections.synchronizedMap(new HashMap<>());
+    <T> String findEnumFieldName(Class<T> classType, String primValue) {
+        return BeanClassInfo.of(classType).getEnumName(primValue);
+    }
 
     <T> String findEnumFieldValue(Class<T> classType, String toStringValue) {
-        return find2(findEnumFieldValue, classType, toStringValue, (c, v) -> findEnumFieldValueUncached(c, v));
+        return BeanClassInfo.of(classType).getEnumValue(toStringValue);
     }
 
-    private Map<Field,Map<Class<?>,Map<String,QName>>> findTypeName = Collections.synchronizedMap(new HashMap<>());
+    private final Map<TypeNameKey, Object> findTypeName = new ConcurrentHashMap<>();
 
     // Determines type for field/content combination. Field information is used only for simple XSD types.
     QName findTypeName(Field field, Class<?> contentClass, String defaultNamespacePlaceholder) {
-        return find3(findTypeName, field, contentClass, defaultNamespacePlaceholder,
-                this::findTypeNameUncached);
+        return find1(findTypeName, new TypeNameKey(field, contentClass, defaultNamespacePlaceholder),
+                key -> findTypeNameUncached(key.field, key.contentClass, key.namespace));
     }
 
-    private Map<String,Map<Class<?>,Map<String,QName>>> findFieldElementQName = Collections.synchronizedMap(new HashMap<>());
-
     QName findFieldElementQName(String fieldName, Class<?> beanClass, String defaultNamespace) {
-        return find3(findFieldElementQName, fieldName, beanClass, defaultNamespace,
-                (fieldName1, beanClass1, defaultNamespace1) -> findFieldElementQNameUncached(fieldName1, beanClass1,
-                        defaultNamespace1));
+        return BeanClassInfo.of(beanClass).getProperty(fieldName).getElementName(defaultNamespace);
     }
 
-    private Map<Class,Map<String,Method>> findPropertyGetter = Collections.synchronizedMap(new HashMap<>());
-
     public <T> Method findPropertyGetter(Class<T> beanClass, String propName) {
-        return find2(findPropertyGetter, beanClass, propName, this::findPropertyGetterUncached);
+        return BeanClassInfo.of(beanClass).getProperty(propName).getGetter();
     }
 
-    private Map<Class,Map<String,Field>> findPropertyField = Collections.synchronizedMap(new HashMap<>());
-
     public <T> Field findPropertyField(Class<T> beanClass, String propName) {
-        return find2(findPropertyField, beanClass, propName, this::findPropertyFieldUncached);
+        return BeanClassInfo.of(beanClass).getProperty(propName).getField();
     }
-    //endregion
 
-    //region Uncached versions of the inspection methods
+    private static class TypeNameKey {
+        private final Field field;
+        private final Class<?> contentClass;
+        private final String namespace;
 
-    private <T> Field findPropertyFieldUncached(Class<T> classType, String propName) {
-        Field field = findPropertyFieldExactUncached(classType, propName);
-        if (field != null) {
-            return field;
+        private TypeNameKey(Field field, Class<?> contentClass, String namespace) {
+            this.field = field;
+            this.contentClass = contentClass;
+            this.namespace = namespace;
         }
-        // Fields for some reserved words are prefixed by underscore, so try also this.
-        return findPropertyFieldExactUncached(classType, "_"+propName);
-    }
 
-    private <T> Field findPropertyFieldExactUncached(Class<T> classType, String propName) {
-        for (Field field: classType.getDeclaredFields()) {
-            XmlElement xmlElement = field.getAnnotation(XmlElement.class);
-            if (xmlElement != null && xmlElement.name().equals(propName)) {
-                return field;
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
             }
-            XmlAttribute xmlAttribute = field.getAnnotation(XmlAttribute.class);
-            if (xmlAttribute != null && xmlAttribute.name().equals(propName)) {
-                return field;
+            if (!(o instanceof TypeNameKey)) {
+                return false;
             }
+            TypeNameKey that = (TypeNameKey) o;
+            return Objects.equals(field, that.field)
+                    && Objects.equals(contentClass, that.contentClass)
+                    && Objects.equals(namespace, that.namespace);
         }
-        try {
-            return classType.getDeclaredField(propName);
-        } catch (NoSuchFieldException e) {
-            // nothing found
-        }
-        Class<? super T> superclass = classType.getSuperclass();
-        if (superclass == null || Object.class.equals(superclass)) {
-            return null;
-        }
-        return findPropertyField(superclass, propName);
-    }
 
-    private <T> Method findPropertyGetterUncached(Class<T> classType, String propName) {
-        if (propName.startsWith("_")) {
-            propName = propName.substring(1);
-        }
-        for (Method method: classType.getDeclaredMethods()) {
-            XmlElement xmlElement = method.getAnnotation(XmlElement.class);
-            if (xmlElement != null && xmlElement.name().equals(propName)) {
-                return method;
-            }
-            XmlAttribute xmlAttribute = method.getAnnotation(XmlAttribute.class);
-            if (xmlAttribute != null && xmlAttribute.name().equals(propName)) {
-                return method;
-            }
-        }
-        String getterName = "get"+ StringUtils.capitalize(propName);
-        try {
-            return classType.getDeclaredMethod(getterName);
-        } catch (NoSuchMethodException e) {
-            // nothing found
-        }
-        getterName = "is"+StringUtils.capitalize(propName);
-        try {
-            return classType.getDeclaredMethod(getterName);
-        } catch (NoSuchMethodException e) {
-            // nothing found
-        }
-        Class<? super T> superclass = classType.getSuperclass();
-        if (superclass == null || superclass.equals(Object.class)) {
-            return null;
+        @Override
+        public int hashCode() {
+            return Objects.hash(field, contentClass, namespace);
         }
-        return findPropertyGetter(superclass, propName);
     }
+    //endregion
+
+    //region Uncached versions of the inspection methods
 
     private boolean isAttributeUncached(Field field, Method getter) {
         if (field == null && getter == null) {
@@ -260,78 +212,8 @@ public class PrismBeanInspector {
         }
     }
 
-    private String determineNamespaceUncached(Class<?> beanClass) {
-        XmlType xmlType = beanClass.getAnnotation(XmlType.class);
-        if (xmlType == null) {
-            return null;
-        }
-
-        String namespace = xmlType.namespace();
-        if (BeanMarshaller.DEFAULT_PLACEHOLDER.equals(namespace)) {
-            XmlSchema xmlSchema = beanClass.getPackage().getAnnotation(XmlSchema.class);
-            namespace = xmlSchema.namespace();
-        }
-        if (StringUtils.isBlank(namespace) || BeanMarshaller.DEFAULT_PLACEHOLDER.equals(namespace)) {
-            return null;
-        }
-
-        return namespace;
-    }
-
     public static QName determineTypeForClassUncached(Class<?> beanClass) {
-        XmlType xmlType = beanClass.getAnnotation(XmlType.class);
-        if (xmlType == null) {
-            return null;
-        }
-
-        String namespace = xmlType.namespace();
-        if (BeanMarshaller.DEFAULT_PLACEHOLDER.equals(namespace)) {
-            XmlSchema xmlSchema = beanClass.getPackage().getAnnotation(XmlSchema.class);
-            namespace = xmlSchema.namespace();
-        }
-        if (StringUtils.isBlank(namespace) || BeanMarshaller.DEFAULT_PLACEHOLDER.equals(namespace)) {
-            return null;
-        }
-
-        return new QName(namespace, xmlType.name());
-    }
-
-    private <T> Method findSetterUncached(Class<T> classType, String fieldName) {
-        String setterName = getSetterName(fieldName);
-        for(Method method: classType.getMethods()) {
-            if (!method.getName().equals(setterName)) {
-                continue;
-            }
-            Class<?>[] parameterTypes = method.getParameterTypes();
-            if (parameterTypes.length != 1) {
-                continue;
-            }
-            Class<?> setterType = parameterTypes[0];
-            if (setterType.equals(Object.class) || Node.class.isAssignableFrom(setterType)) {
-                // Leave for second pass, let's try find a better setter
-                continue;
-            }
-            return method;
-        }
-        // Second pass
-        for(Method method: classType.getMethods()) {
-            if (!method.getName().equals(setterName)) {
-                continue;
-            }
-            Class<?>[] parameterTypes = method.getParameterTypes();
-            if (parameterTypes.length != 1) {
-                continue;
-            }
-            return method;
-        }
-        return null;
-    }
-
-    private String getSetterName(String fieldName) {
-        if (fieldName.startsWith("_")) {
-            fieldName = fieldName.substring(1);
-        }
-        return "set"+StringUtils.capitalize(fieldName);
+        return BeanClassInfo.determineTypeName(beanClass);
     }
 
     private Class getObjectFactoryClassUncached(Package pkg) {
@@ -354,19 +236,6 @@ public class PrismBeanInspector {
         return getObjectFactoryClassUncached(compileTimeClassesPackage);
     }
 
-    private Method findElementMethodInObjectFactoryUncached(Class objectFactoryClass, String propName) {
-        for (Method method: objectFactoryClass.getDeclaredMethods()) {
-            XmlElementDecl xmlElementDecl = method.getAnnotation(XmlElementDecl.class);
-            if (xmlElementDecl == null) {
-                continue;
-            }
-            if (propName.equals(xmlElementDecl.name())) {
-                return method;
-            }
-        }
-        return null;
-    }
-
     private Field lookupSubstitutionUncached(Class beanClass, Method elementMethodInObjectFactory) {
         XmlElementDecl xmlElementDecl = elementMethodInObjectFactory.getAnnotation(XmlElementDecl.class);
         if (xmlElementDecl == null) {
@@ -405,79 +274,6 @@ public class PrismBeanInspector {
         return findMethod(superclass, selector);
     }
 
-    private List<String> getPropOrderUncached(Class<?> beanClass) {
-        List<String> propOrder;
-
-        // Superclass first!
-        Class superclass = beanClass.getSuperclass();
-        if (superclass == null || superclass.equals(Object.class) || superclass.getAnnotation(XmlType.class) == null) {
-            propOrder = new ArrayList<>();
-        } else {
-            propOrder = new ArrayList<>(getPropOrder(superclass));
-        }
-
-        XmlType xmlType = beanClass.getAnnotation(XmlType.class);
-        if (xmlType == null) {
-            throw new IllegalArgumentException("Cannot marshall "+beanClass+" it does not have @XmlType annotation");
-        }
-
-        String[] myPropOrder = xmlType.propOrder();
-        for (String myProp: myPropOrder) {
-            if (StringUtils.isNotBlank(myProp)) {
-                // some properties starts with underscore..we don't want to serialize them with underscore, so remove it..
-                if (myProp.startsWith("_")){
-                    myProp = myProp.replace("_", "");
-                }
-                propOrder.add(myProp);
-            }
-        }
-
-        Field[] fields = beanClass.getDeclaredFields();
-        for (Field field : fields) {
-            if (field.isAnnotationPresent(XmlAttribute.class)) {
-                propOrder.add(field.getName());
-            }
-        }
-
-        Method[] methods = beanClass.getDeclaredMethods();
-        for (Method method : methods) {
-            if (method.isAnnotationPresent(XmlAttribute.class)) {
-                propOrder.add(getPropertyNameFromGetter(method.getName()));
-            }
-        }
-
-        return propOrder;
-    }
-
-    private <T> String findEnumFieldNameUncached(Class classType, T primValue){
-        for (Field field: classType.getDeclaredFields()) {
-            XmlEnumValue xmlEnumValue = field.getAnnotation(XmlEnumValue.class);
-            if (xmlEnumValue != null && xmlEnumValue.value().equals(primValue)) {
-                return field.getName();
-            }
-        }
-        return null;
-    }
-
-    private static String findEnumFieldValueUncached(Class classType, String toStringValue){
-        for (Field field: classType.getDeclaredFields()) {
-            XmlEnumValue xmlEnumValue = field.getAnnotation(XmlEnumValue.class);
-            if (xmlEnumValue != null && field.getName().equals(toStringValue)) {
-                return xmlEnumValue.value();
-            }
-        }
-        return null;
-    }
-
-    private String getPropertyNameFromGetter(String getterName) {
-        if ((getterName.length() > 3) && getterName.startsWith("get") &&
-                Character.isUpperCase(getterName.charAt(3))) {
-            String propPart = getterName.substring(3);
-            return StringUtils.uncapitalize(propPart);
-        }
-        return getterName;
-    }
-
     private QName findTypeNameUncached(Field field, Class contentClass, String schemaNamespace) {
         if (RawType.class.equals(contentClass)) {
             // RawType is a meta-type. We do not really want to use field types of RawType class.
@@ -513,28 +309,6 @@ public class PrismBeanInspector {
         return null;
     }
 
-    private QName findFieldElementQNameUncached(String fieldName, Class beanClass, String defaultNamespace) {
-        Field field;
-        try {
-            field = beanClass.getDeclaredField(fieldName);
-        } catch (NoSuchFieldException e) {
-            return new QName(defaultNamespace, fieldName);               // TODO implement this if needed (lookup the getter method instead of the field)
-        }
-        String realLocalName = fieldName;
-        String realNamespace = defaultNamespace;
-        XmlElement xmlElement = field.getAnnotation(XmlElement.class);
-        if (xmlElement != null) {
-            String name = xmlElement.name();
-            if (!BeanMarshaller.DEFAULT_PLACEHOLDER.equals(name)) {
-                realLocalName = name;
-            }
-            String namespace = xmlElement.namespace();
-            if (!BeanMarshaller.DEFAULT_PLACEHOLDER.equals(namespace)) {
-                realNamespace = namespace;
-            }
-        }
-        return new QName(realNamespace, realLocalName);
-    }
     //endregion
 
     //region Other
@@ -408,15 +408,12 @@ public class PrismMarshaller {
             return null;
         }
         PathSet restSet = new PathSet();
-        for (ItemPath itemPath : toSkip) {
-            if (itemPath.isSuperPath(currentName)) {
-                ItemPath remainder = itemPath.remainder(currentName);
-                if (remainder.startsWithId()) {
-                    remainder = remainder.rest();
-                }
-                if (!remainder.isEmpty()) {
-                    restSet.add(remainder);
-                }
+        for (ItemPath remainder : toSkip.remainder(currentName)) {
+            if (remainder.startsWithId()) {
+                remainder = remainder.rest();
+            }
+            if (!remainder.isEmpty()) {
+                restSet.add(remainder);
             }
         }
         return restSet;
@@ -444,8 +441,6 @@ public class PrismMarshaller {
 
     private boolean shouldSkipItem(
             PathSet itemsToSkip, ItemName elementName, ItemDefinition<?> itemDef, SerializationContext ctx) {
-        // TODO maybe we should create something like "FastPathSet" that would execute these operations in O(1)
-        //  But, currently these path sets should be quite small
         if (itemsToSkip != null && itemsToSkip.contains(elementName)) {
             return true;
         } else {
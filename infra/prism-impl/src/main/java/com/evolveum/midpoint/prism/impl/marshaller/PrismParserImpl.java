@@ -114,6 +114,11 @@ abstract class PrismParserImpl implements PrismParser {
         return create(source, language, context.clone().convertUnknownTypes(true), prismContext, itemDefinition, itemName, typeName, typeClass);
     }
 
+    @Override
+    public @NotNull PrismParser definitionDriven() {
+        return create(source, language, context.clone().definitionDriven(), prismContext, itemDefinition, itemName, typeName, typeClass);
+    }
+
     @NotNull
     @Override
     public PrismParser definition(ItemDefinition<?> itemDefinition) {
@@ -151,7 +156,14 @@ abstract class PrismParserImpl implements PrismParser {
         }
         PrismObject<O> object = null;
         try {
-            RootXNodeImpl xnode = getLexicalProcessor().read(source, context);
+            LexicalProcessor<?> lexicalProcessor = getLexicalProcessor();
+            if (context.isDefinitionDriven()) {
+                object = doParseDirectly(lexicalProcessor);
+                if (object != null) {
+                    return object;
+                }
+            }
+            RootXNodeImpl xnode = lexicalProcessor.read(source, context);
             object = prismContext.getPrismUnmarshaller().parseObject(
                     xnode, itemDefinition, itemName, typeName, typeClass, context);
             return object;
@@ -162,6 +174,17 @@ abstract class PrismParserImpl implements PrismParser {
         }
     }
 
+    /** Returns null if the lexical processor does not support direct (definition-driven) reading. */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private <O extends Objectable> PrismObject<O> doParseDirectly(LexicalProcessor<?> lexicalProcessor)
+            throws SchemaException, IOException {
+        PrismUnmarshaller unmarshaller = prismContext.getPrismUnmarshaller();
+        return (PrismObject<O>) lexicalProcessor.readObjectDirectly(source, context, unmarshaller,
+                (rootElementName, explicitTypeName) -> unmarshaller.determineObjectInfo(
+                        rootElementName, explicitTypeName, itemDefinition, itemName, typeName, typeClass, context));
+    }
+
     <IV extends PrismValue, ID extends ItemDefinition<?>> Item<IV, ID> doParseItem() throws IOException, SchemaException {
         RootXNodeImpl xnode = getLexicalProcessor().read(source, context);
         return doParseItem(xnode, typeClass);
@@ -11,6 +11,7 @@ import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.impl.PrismContextImpl;
 import com.evolveum.midpoint.prism.impl.PrismPropertyValueImpl;
 import com.evolveum.midpoint.prism.impl.SerializerTarget;
+import com.evolveum.midpoint.prism.impl.lex.LexicalProcessor;
 import com.evolveum.midpoint.prism.path.PathSet;
 import com.evolveum.midpoint.prism.util.PrismMonitor;
 import com.evolveum.midpoint.prism.xnode.RootXNode;
@@ -161,6 +162,25 @@ public class PrismSerializerImpl<T> implements PrismSerializer<T> {
         return target.write(roots, context);
     }
 
+    @NotNull
+    @Override
+    public PrismObjectsWriter objectsWriter() throws SchemaException {
+        LexicalProcessor.RootXNodeWriter rootWriter = target.openObjectsWriter(context);
+        return new PrismObjectsWriter() {
+            @Override
+            public void write(@NotNull PrismObject<?> object) throws SchemaException {
+                RootXNodeImpl xroot = getMarshaller().marshalItemAsRoot(object, itemName, itemDefinition, context, itemsToSkip);
+                checkPostconditions(xroot);
+                rootWriter.write(xroot);
+            }
+
+            @Override
+            public void close() throws SchemaException {
+                rootWriter.close();
+            }
+        };
+    }
+
     @Override
     public T serializeRealValue(Object realValue) throws SchemaException {
         PrismValue prismValue;
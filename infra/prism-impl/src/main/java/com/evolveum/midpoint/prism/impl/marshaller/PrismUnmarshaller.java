@@ -85,21 +85,33 @@ public class PrismUnmarshaller {
     @SuppressWarnings("unchecked")
     <O extends Objectable> PrismObject<O> parseObject(@NotNull RootXNodeImpl root, ItemDefinition<?> itemDefinition, QName itemName,
             QName typeName, Class<?> typeClass, @NotNull ParsingContext pc) throws SchemaException {
-        checkSchema(itemDefinition == null || itemDefinition instanceof PrismObjectDefinition,
-                "Cannot parse object from element %s, the element does not define an object, it is defined as %s", itemName, itemDefinition);
-        ItemInfo<?> itemInfo = ItemInfo.determine(itemDefinition,
-                root.getRootElementName(), itemName, ARTIFICIAL_OBJECT_NAME,
-                root.getTypeQName(), typeName,
-                typeClass, PrismObjectDefinition.class, pc, schemaRegistry);
+        ItemInfo<?> itemInfo = determineObjectInfo(root.getRootElementName(), root.getTypeQName(),
+                itemDefinition, itemName, typeName, typeClass, pc);
 
         XNodeImpl child = root.getSubnode();
         checkArgument(child instanceof MapXNodeImpl,
                 "Cannot parse object from element %s, we need Map", child.getClass());
+        return (PrismObject<O>) parseItemInternal(child, itemInfo.getItemName(), itemInfo.getItemDefinition(), pc);
+    }
+
+    /**
+     * Determines the name and definition of an object being parsed. The returned definition is always
+     * a {@link PrismObjectDefinition}.
+     */
+    @NotNull
+    public ItemInfo<?> determineObjectInfo(QName rootElementName, QName typeNameFromSource, ItemDefinition<?> itemDefinition,
+            QName itemName, QName typeName, Class<?> typeClass, @NotNull ParsingContext pc) throws SchemaException {
+        checkSchema(itemDefinition == null || itemDefinition instanceof PrismObjectDefinition,
+                "Cannot parse object from element %s, the element does not define an object, it is defined as %s", itemName, itemDefinition);
+        ItemInfo<?> itemInfo = ItemInfo.determine(itemDefinition,
+                rootElementName, itemName, ARTIFICIAL_OBJECT_NAME,
+                typeNameFromSource, typeName,
+                typeClass, PrismObjectDefinition.class, pc, schemaRegistry);
         ItemDefinition<?> itemDef = checkSchemaNotNull(itemInfo.getItemDefinition(),
                 "Cannot parse object from element %s, there is no definition for that element", itemInfo.getItemName());
         checkSchema(itemDef instanceof PrismObjectDefinition,
                 "Cannot parse object from element %s the element does not define an object, it is defined as %s", itemInfo.getItemName(), itemInfo.getItemDefinition());
-        return (PrismObject<O>) parseItemInternal(child, itemInfo.getItemName(), itemDef, pc);
+        return itemInfo;
     }
 
     // TODO migrate to parseItem eventually
@@ -255,7 +267,10 @@ public class PrismUnmarshaller {
         return null;
     }
 
-    private boolean isContainerId(QName itemName, XNodeImpl node, PrismContainerDefinition<?> parentDef) {
+    /**
+     * Is the node a container ID (and not a regular item named "id")?
+     */
+    public boolean isContainerId(QName itemName, XNodeImpl node, PrismContainerDefinition<?> parentDef) {
         if (node instanceof PrimitiveXNodeImpl<?> && QNameUtil.match(itemName, XNodeImpl.KEY_CONTAINER_ID)) {
             if (((PrimitiveXNodeImpl<?>) node).isAttribute()) {
                 return true;
@@ -328,17 +343,22 @@ public class PrismUnmarshaller {
         } else {
             Long id = xnode instanceof MapXNodeImpl ? getContainerId(((MapXNodeImpl) xnode), containerDef) : null;
             // override container definition, if explicit type is specified
-            containerTypeDef = refineContainerTypeDefinitionFromXsiType(containerTypeDef, xnode, pc);
+            containerTypeDef = refineContainerTypeDefinition(containerTypeDef, xnode.getTypeQName(), xnode, pc);
             return new ValueWithDefinition<>(
                     new PrismContainerValueImpl<>(null, null, null, id, containerTypeDef, prismContext),
                     containerTypeDef);
         }
     }
 
-    private ComplexTypeDefinition refineContainerTypeDefinitionFromXsiType(
-            ComplexTypeDefinition containerTypeDef, @NotNull XNodeImpl xnode, @NotNull ParsingContext pc) throws SchemaException {
-        if (xnode.getTypeQName() != null) {
-            ComplexTypeDefinition explicitTypeDef = schemaRegistry.findComplexTypeDefinitionByType(xnode.getTypeQName());
+    /**
+     * Overrides container type definition by explicitly specified type (xsi:type, @type), if applicable.
+     *
+     * @param source Source of the data, used for diagnostic messages.
+     */
+    public ComplexTypeDefinition refineContainerTypeDefinition(ComplexTypeDefinition containerTypeDef,
+            @Nullable QName explicitTypeName, Object source, @NotNull ParsingContext pc) throws SchemaException {
+        if (explicitTypeName != null) {
+            ComplexTypeDefinition explicitTypeDef = schemaRegistry.findComplexTypeDefinitionByType(explicitTypeName);
             if (explicitTypeDef != null) {
                 if (containerTypeDef == null
                         || !explicitTypeDef.isAssignableFrom(containerTypeDef, schemaRegistry)) {
@@ -353,7 +373,7 @@ public class PrismUnmarshaller {
                             explicitTypeDef, containerTypeDef);
                 }
             } else {
-                pc.warnOrThrow(LOGGER, "Unknown type " + xnode.getTypeQName() + " in " + xnode);
+                pc.warnOrThrow(LOGGER, "Unknown type " + explicitTypeName + " in " + source);
             }
         }
         return containerTypeDef;
@@ -372,30 +392,43 @@ public class PrismUnmarshaller {
                 continue;
             }
 
-            ItemDefinition<?> itemDef = locateItemDefinition(itemName, complexTypeDefinition, entry.getValue());
-
-            if (itemDef == null) {
-                boolean shouldContinue = handleMissingDefinition(itemName, containerDef, complexTypeDefinition, pc, map);
-                if (shouldContinue) {
-                    continue;
-                }
+            parseContainerChild(cval, itemName, entry.getValue(), containerDef, complexTypeDefinition, pc, map);
+        }
+    }
 
+    /**
+     * Parses an item from given node and merges it into the container value. Intended for readers that create
+     * container values directly (without the whole XNode tree), for the items they do not process themselves.
+     *
+     * Container ID (and OID/version for objects) are expected to be treated by the caller.
+     *
+     * @param source Source of the data, used for diagnostic messages.
+     */
+    public void parseContainerChild(PrismContainerValue<?> cval, @NotNull QName itemName, XNodeImpl node,
+            PrismContainerDefinition<?> containerDef, ComplexTypeDefinition complexTypeDefinition, ParsingContext pc,
+            DebugDumpable source) throws SchemaException {
+        ItemDefinition<?> itemDef = locateItemDefinition(itemName, complexTypeDefinition, node);
+
+        if (itemDef == null) {
+            boolean shouldContinue = handleMissingDefinition(itemName, containerDef, complexTypeDefinition, pc, source);
+            if (shouldContinue) {
+                return;
             }
-            final Item<?, ?> item;
-            if (entry.getValue() == null) {
-                if (itemDef != null) {
-                    item = itemDef.instantiate();       // TODO or skip the creation altogether?
-                } else {
-                    item = null;
-                }
+        }
+        final Item<?, ?> item;
+        if (node == null) {
+            if (itemDef != null) {
+                item = itemDef.instantiate();       // TODO or skip the creation altogether?
             } else {
-                item = parseItemInternal(entry.getValue(), itemName, itemDef, pc);
-            }
-            // Merge must be here, not just add. Some items (e.g. references) have alternative
-            // names and representations and these cannot be processed as one map or list
-            if (item != null) {
-                cval.merge(item);
+                item = null;
             }
+        } else {
+            item = parseItemInternal(node, itemName, itemDef, pc);
+        }
+        // Merge must be here, not just add. Some items (e.g. references) have alternative
+        // names and representations and these cannot be processed as one map or list
+        if (item != null) {
+            cval.merge(item);
         }
     }
 
@@ -566,7 +599,7 @@ public class PrismUnmarshaller {
         }
     }
 
-    private void parseMetadataNodes(PrismValue prismValue, List<MapXNode> metadataNodes, ParsingContext pc) throws SchemaException {
+    public void parseMetadataNodes(PrismValue prismValue, List<MapXNode> metadataNodes, ParsingContext pc) throws SchemaException {
         if (metadataNodes.isEmpty()) {
             return;
         }
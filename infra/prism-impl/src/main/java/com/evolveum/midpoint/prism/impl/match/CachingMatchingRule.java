@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.match;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.Freezable;
+import com.evolveum.midpoint.prism.PrismStaticConfiguration;
+import com.evolveum.midpoint.prism.match.MatchingRule;
+import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Remembers normalized values (and match keys, for {@link KeyedMatchingRule}s) computed by the wrapped matching rule.
+ * Correlation and filter evaluation compare the same values again and again, and for some rules (e.g. DN or XML)
+ * the normalization means parsing the value.
+ *
+ * Frozen {@link Freezable} values are cached by identity, mutable ones are not cached at all (as they could change
+ * while in the cache), and other values (e.g. strings) are cached by value.
+ *
+ * The size of each of the caches is limited by {@link PrismStaticConfiguration#matchingRuleCacheSize()}; the least
+ * recently used entries are evicted. If the cache is disabled (the default), the rule is simply called.
+ * The statistics are kept under the name of the wrapped rule class.
+ */
+public class CachingMatchingRule<T> implements MatchingRule<T> {
+
+    @NotNull private final MatchingRule<T> rule;
+
+    private final Map<Object, T> normalizedValues = createLruMap();
+    private final Map<Object, Object> matchKeys = createLruMap();
+
+    public CachingMatchingRule(@NotNull MatchingRule<T> rule) {
+        this.rule = rule;
+    }
+
+    private static <K, V> Map<K, V> createLruMap() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > PrismStaticConfiguration.matchingRuleCacheSize();
+            }
+        };
+    }
+
+    public @NotNull MatchingRule<T> getRule() {
+        return rule;
+    }
+
+    @Override
+    public QName getName() {
+        return rule.getName();
+    }
+
+    @Override
+    public boolean supports(QName xsdType) {
+        return rule.supports(xsdType);
+    }
+
+    @Override
+    public boolean match(T a, T b) throws SchemaException {
+        if (!(rule instanceof KeyedMatchingRule) || !isCacheEnabled()) {
+            return rule.match(a, b);
+        }
+        KeyedMatchingRule<T> keyedRule = (KeyedMatchingRule<T>) rule;
+        Object keyA, keyB;
+        try {
+            keyA = getCached(matchKeys, a, keyedRule::getMatchKey);
+            keyB = getCached(matchKeys, b, keyedRule::getMatchKey);
+        } catch (SchemaException e) {
+            // Let the rule decide whether the value is really wrong, as it may not need to look at it at all
+            return rule.match(a, b);
+        }
+        return keyA.equals(keyB);
+    }
+
+    @Override
+    public boolean matchRegex(T a, String regex) throws SchemaException {
+        return rule.matchRegex(a, regex);
+    }
+
+    @Override
+    public T normalize(T original) throws SchemaException {
+        if (!isCacheEnabled()) {
+            return rule.normalize(original);
+        }
+        return getCached(normalizedValues, original, rule::normalize);
+    }
+
+    private boolean isCacheEnabled() {
+        return PrismStaticConfiguration.matchingRuleCacheSize() > 0;
+    }
+
+    private <V> V getCached(Map<Object, V> cache, T value, Computation<T, V> computation) throws SchemaException {
+        Object key = createCacheKey(value);
+        if (key == null) {
+            CachePerformanceCollector.INSTANCE.registerPass(rule.getClass(), null, null);
+            return computation.compute(value);
+        }
+        V cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        if (cached != null) {
+            CachePerformanceCollector.INSTANCE.registerHit(rule.getClass(), null, null);
+            return cached;
+        }
+        CachePerformanceCollector.INSTANCE.registerMiss(rule.getClass(), null, null);
+        V computed = computation.compute(value);
+        if (computed != null) {
+            synchronized (cache) {
+                cache.put(key, computed);
+            }
+        }
+        return computed;
+    }
+
+    /** Returns null if the value should not be cached. */
+    private static Object createCacheKey(Object value) {
+        if (value == null) {
+            return null;
+        } else if (value instanceof Freezable) {
+            return ((Freezable) value).isImmutable() ? new IdentityKey(value) : null;
+        } else {
+            return value;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Caching" + rule;
+    }
+
+    @FunctionalInterface
+    private interface Computation<T, V> {
+        V compute(T value) throws SchemaException;
+    }
+
+    private static class IdentityKey {
+        @NotNull private final Object value;
+
+        private IdentityKey(@NotNull Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdentityKey && ((IdentityKey) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(value);
+        }
+    }
+}
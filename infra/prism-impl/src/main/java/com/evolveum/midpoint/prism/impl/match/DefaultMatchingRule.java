@@ -8,7 +8,6 @@ package com.evolveum.midpoint.prism.impl.match;
 
 import java.lang.reflect.Array;
 import java.util.Arrays;
-import java.util.regex.Pattern;
 
 import javax.xml.namespace.QName;
 
@@ -71,7 +70,7 @@ public class DefaultMatchingRule<T> implements MatchingRule<T> {
             valueToMatch = String.valueOf(a);
         }
 
-        return Pattern.matches(regex, valueToMatch);
+        return RegexCache.matches(regex, valueToMatch);
     }
 
     @Override
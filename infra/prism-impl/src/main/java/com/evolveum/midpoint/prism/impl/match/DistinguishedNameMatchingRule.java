@@ -6,15 +6,14 @@
  */
 package com.evolveum.midpoint.prism.impl.match;
 
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.naming.InvalidNameException;
 import javax.naming.ldap.LdapName;
 import javax.xml.namespace.QName;
 
-import com.evolveum.midpoint.prism.match.MatchingRule;
 import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.prism.PrismConstants;
 import com.evolveum.midpoint.util.DOMUtil;
@@ -26,7 +25,10 @@ import com.evolveum.midpoint.util.exception.SchemaException;
  * @author Radovan Semancik
  *
  */
-public class DistinguishedNameMatchingRule implements MatchingRule<String> {
+public class DistinguishedNameMatchingRule implements KeyedMatchingRule<String> {
+
+    /** Match key of blank values. */
+    private static final Object BLANK = new Object();
 
     @Override
     public QName getName() {
@@ -49,19 +51,24 @@ public class DistinguishedNameMatchingRule implements MatchingRule<String> {
         if (StringUtils.isBlank(a) || StringUtils.isBlank(b)) {
             return false;
         }
-        LdapName dnA;
-        try {
-            dnA = new LdapName(a);
-        } catch (InvalidNameException e) {
-            throw new SchemaException("String '"+a+"' is not a DN: "+e.getMessage(), e);
+        return parseDn(a).equals(parseDn(b));
+    }
+
+    /** The parsed DN; all blank values match each other. */
+    @Override
+    public @NotNull Object getMatchKey(String value) throws SchemaException {
+        if (StringUtils.isBlank(value)) {
+            return BLANK;
         }
-        LdapName dnB;
+        return parseDn(value);
+    }
+
+    private LdapName parseDn(String value) throws SchemaException {
         try {
-            dnB = new LdapName(b);
+            return new LdapName(value);
         } catch (InvalidNameException e) {
-            throw new SchemaException("String '"+b+"' is not a DN: "+e.getMessage(), e);
+            throw new SchemaException("String '" + value + "' is not a DN: " + e.getMessage(), e);
         }
-        return dnA.equals(dnB);
     }
 
     /* (non-Javadoc)
@@ -72,13 +79,7 @@ public class DistinguishedNameMatchingRule implements MatchingRule<String> {
         if (StringUtils.isBlank(original)) {
             return null;
         }
-        LdapName dn;
-        try {
-            dn = new LdapName(original);
-        } catch (InvalidNameException e) {
-            throw new SchemaException("String '"+original+"' is not a DN: "+e.getMessage(), e);
-        }
-        return StringUtils.lowerCase(dn.toString());
+        return StringUtils.lowerCase(parseDn(original).toString());
     }
 
     @Override
@@ -91,9 +92,7 @@ public class DistinguishedNameMatchingRule implements MatchingRule<String> {
         }
 
         // Simple case-insensitive match
-        Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(a);
-        return matcher.matches();
+        return RegexCache.matches(regex, Pattern.CASE_INSENSITIVE, a);
     }
 
     @Override
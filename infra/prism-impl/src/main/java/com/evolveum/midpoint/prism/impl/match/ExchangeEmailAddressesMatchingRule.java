@@ -12,7 +12,6 @@ import com.evolveum.midpoint.util.DOMUtil;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.xml.namespace.QName;
-import java.util.regex.Pattern;
 
 /**
  * A specific matching rule for Microsoft Exchange EmailAddresses attribute consisting of SMTP:/smtp: prefix and email address.
@@ -90,7 +89,7 @@ public class ExchangeEmailAddressesMatchingRule implements MatchingRule<String>
         if (a == null) {
             return false;
         }
-        return Pattern.matches(regex, a);            // we ignore case-insensitiveness of the email address
+        return RegexCache.matches(regex, a);            // we ignore case-insensitiveness of the email address
     }
 
     @Override
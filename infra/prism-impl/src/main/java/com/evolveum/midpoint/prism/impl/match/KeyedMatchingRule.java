@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.match;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.match.MatchingRule;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Matching rule whose {@link #match(Object, Object)} is equivalent to comparing "match keys" of the values by
+ * {@link Object#equals(Object)}. Unlike the normalized values, the keys need not be of the same type as the values,
+ * so they can be used also by the rules whose {@link #normalize(Object)} does not fulfill its contract.
+ *
+ * Used by {@link CachingMatchingRule} to avoid re-computing the keys when the same values are compared repeatedly.
+ */
+public interface KeyedMatchingRule<T> extends MatchingRule<T> {
+
+    /** Returns the key of the value (that may be null); the keys must be immutable. */
+    @NotNull Object getMatchKey(T value) throws SchemaException;
+}
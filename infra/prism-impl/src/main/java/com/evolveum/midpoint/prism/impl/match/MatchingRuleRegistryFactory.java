@@ -23,10 +23,10 @@ public class MatchingRuleRegistryFactory {
         registry.registerMatchingRule(new PolyStringStrictMatchingRule());
         registry.registerMatchingRule(new PolyStringOrigMatchingRule());
         registry.registerMatchingRule(new PolyStringNormMatchingRule());
-        registry.registerMatchingRule(new ExchangeEmailAddressesMatchingRule());
-        registry.registerMatchingRule(new DistinguishedNameMatchingRule());
-        registry.registerMatchingRule(new XmlMatchingRule());
-        registry.registerMatchingRule(new UuidMatchingRule());
+        registry.registerCachingMatchingRule(new ExchangeEmailAddressesMatchingRule());
+        registry.registerCachingMatchingRule(new DistinguishedNameMatchingRule());
+        registry.registerCachingMatchingRule(new XmlMatchingRule());
+        registry.registerCachingMatchingRule(new UuidMatchingRule());
         registry.registerMatchingRule(new DefaultMatchingRule<>());
 
         return registry;
@@ -69,4 +69,13 @@ public class MatchingRuleRegistryImpl implements MatchingRuleRegistry {
     void registerMatchingRule(MatchingRule<?> rule) {
         matchingRules.put(rule.getName(), rule);
     }
+
+    /**
+     * Registers the rule wrapped by {@link CachingMatchingRule}; the cache is used only if enabled
+     * (see {@link com.evolveum.midpoint.prism.PrismStaticConfiguration#matchingRuleCacheSize()}).
+     * Meant for rules whose normalization is expensive, e.g. because the values have to be parsed.
+     */
+    <T> void registerCachingMatchingRule(MatchingRule<T> rule) {
+        registerMatchingRule(new CachingMatchingRule<>(rule));
+    }
 }
@@ -6,7 +6,6 @@
  */
 package com.evolveum.midpoint.prism.impl.match;
 
-import java.util.regex.Pattern;
 
 import javax.xml.namespace.QName;
 
@@ -54,7 +53,7 @@ public class PolyStringNormMatchingRule implements MatchingRule<PolyString> {
             return false;
         }
 
-        return Pattern.matches(regex, a.getNorm());
+        return RegexCache.matches(regex, a.getNorm());
     }
 
     @Override
@@ -6,7 +6,6 @@
  */
 package com.evolveum.midpoint.prism.impl.match;
 
-import java.util.regex.Pattern;
 
 import javax.xml.namespace.QName;
 
@@ -54,7 +53,7 @@ public class PolyStringOrigMatchingRule implements MatchingRule<PolyString> {
             return false;
         }
 
-        return Pattern.matches(regex, a.getOrig());
+        return RegexCache.matches(regex, a.getOrig());
     }
 
     @Override
@@ -6,7 +6,6 @@
  */
 package com.evolveum.midpoint.prism.impl.match;
 
-import java.util.regex.Pattern;
 
 import javax.xml.namespace.QName;
 
@@ -55,7 +54,7 @@ public class PolyStringStrictMatchingRule implements MatchingRule<PolyString> {
             return false;
         }
 
-        return Pattern.matches(regex, a.getOrig());
+        return RegexCache.matches(regex, a.getOrig());
     }
 
     @Override
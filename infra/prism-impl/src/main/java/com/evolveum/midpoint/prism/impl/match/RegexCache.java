@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.match;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.PrismStaticConfiguration;
+import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
+
+/**
+ * Compiled regular expressions used by {@link com.evolveum.midpoint.prism.match.MatchingRule#matchRegex(Object, String)}.
+ * When filters are evaluated, the same expression is matched against many values, so it is compiled only once.
+ *
+ * The size is limited by {@link PrismStaticConfiguration#regexCacheSize()}; the least recently used patterns are evicted.
+ */
+class RegexCache {
+
+    private static final Map<Key, Pattern> PATTERNS = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Pattern> eldest) {
+            return size() > PrismStaticConfiguration.regexCacheSize();
+        }
+    };
+
+    /** The same as {@link Pattern#matches(String, CharSequence)}, but with the pattern taken from the cache. */
+    static boolean matches(@NotNull String regex, @NotNull CharSequence input) {
+        return getPattern(regex, 0).matcher(input).matches();
+    }
+
+    /** The same as {@link #matches(String, CharSequence)}, but with the pattern compiled with given flags. */
+    static boolean matches(@NotNull String regex, int flags, @NotNull CharSequence input) {
+        return getPattern(regex, flags).matcher(input).matches();
+    }
+
+    static @NotNull Pattern getPattern(@NotNull String regex, int flags) {
+        if (PrismStaticConfiguration.regexCacheSize() <= 0) {
+            CachePerformanceCollector.INSTANCE.registerPass(RegexCache.class, Pattern.class, null);
+            return Pattern.compile(regex, flags);
+        }
+        Key key = new Key(regex, flags);
+        Pattern pattern;
+        synchronized (PATTERNS) {
+            pattern = PATTERNS.get(key);
+        }
+        if (pattern != null) {
+            CachePerformanceCollector.INSTANCE.registerHit(RegexCache.class, Pattern.class, null);
+            return pattern;
+        }
+        CachePerformanceCollector.INSTANCE.registerMiss(RegexCache.class, Pattern.class, null);
+        pattern = Pattern.compile(regex, flags); // outside the lock; may throw an exception for invalid regex
+        synchronized (PATTERNS) {
+            PATTERNS.put(key, pattern);
+        }
+        return pattern;
+    }
+
+    private static class Key {
+        @NotNull private final String regex;
+        private final int flags;
+
+        private Key(@NotNull String regex, int flags) {
+            this.regex = regex;
+            this.flags = flags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return flags == key.flags && regex.equals(key.regex);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(regex, flags);
+        }
+    }
+}
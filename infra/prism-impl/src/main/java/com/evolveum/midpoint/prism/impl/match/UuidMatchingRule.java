@@ -6,7 +6,6 @@
  */
 package com.evolveum.midpoint.prism.impl.match;
 
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.xml.namespace.QName;
@@ -62,9 +61,7 @@ public class UuidMatchingRule implements MatchingRule<String> {
             return false;
         }
 
-        Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(a);
-        return matcher.matches();
+        return RegexCache.matches(regex, Pattern.CASE_INSENSITIVE, a);
     }
 
     @Override
@@ -7,6 +7,7 @@
 package com.evolveum.midpoint.prism.impl.polystring;
 
 import java.text.Normalizer;
+import java.util.Locale;
 import java.util.regex.Pattern;
 
 import com.evolveum.midpoint.prism.polystring.PolyStringNormalizer;
@@ -81,6 +82,9 @@ public abstract class AbstractPolyStringNormalizer implements PolyStringNormaliz
         if (orig == null) {
             return null;
         }
+        if (isAsciiFastPathApplicable() && isAscii(orig) && isAsciiLowerCaseSafe()) {
+            return normalizeAscii(orig);
+        }
         String s = preprocess(orig);
 
         s = normalizeCore(s);
@@ -90,6 +94,117 @@ public abstract class AbstractPolyStringNormalizer implements PolyStringNormaliz
 
     protected abstract String normalizeCore(String s);
 
+    /**
+     * Whether pure ASCII strings can be normalized in a single pass by {@link #normalizeAscii(String)}, with
+     * {@link #keepsAsciiChar(char)} used instead of {@link #normalizeCore(String)}.
+     *
+     * This is correct only if {@link #normalizeCore(String)} does nothing else than removing characters,
+     * and if the other processing steps are not overridden. Hence, it is disabled by default, and the built-in normalizers
+     * enable it only for themselves, not for their subclasses.
+     */
+    protected boolean isAsciiFastPathApplicable() {
+        return false;
+    }
+
+    /** Whether the ASCII character is kept by {@link #normalizeCore(String)}; used by the single-pass normalization. */
+    protected boolean keepsAsciiChar(char c) {
+        return true;
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** For these languages, {@link String#toLowerCase()} treats (some) ASCII letters specially. */
+    private static boolean isAsciiLowerCaseSafe() {
+        String language = Locale.getDefault().getLanguage();
+        return !"tr".equals(language) && !"az".equals(language);
+    }
+
+    /**
+     * Does the same as {@link #preprocess(String)}, {@link #normalizeCore(String)} and {@link #postprocess(String)},
+     * but for ASCII strings (where NFKD is no-op) in a single pass. The output buffer is created only if the result
+     * differs from the (trimmed) input; otherwise, the input (or its substring) is returned.
+     */
+    private String normalizeAscii(String s) {
+        boolean trim = configuration == null || !Boolean.FALSE.equals(configuration.isTrim());
+        boolean trimWhitespace = configuration == null || !Boolean.FALSE.equals(configuration.isTrimWhitespace());
+        boolean lowercase = configuration == null || !Boolean.FALSE.equals(configuration.isLowercase());
+
+        int start = 0;
+        int end = s.length();
+        if (trim) {
+            // The same as StringUtils.trim
+            while (start < end && s.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && s.charAt(end - 1) <= ' ') {
+                end--;
+            }
+        }
+
+        char[] buffer = null;
+        int length = 0;
+        boolean previousWhitespace = false;
+        boolean blank = true;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            char out;
+            if (!keepsAsciiChar(c)) {
+                buffer = ensureBuffer(buffer, s, start, end, length);
+                continue;
+            } else if (trimWhitespace && isRegexWhitespace(c)) {
+                if (previousWhitespace) {
+                    buffer = ensureBuffer(buffer, s, start, end, length);
+                    continue;
+                }
+                previousWhitespace = true;
+                out = ' ';
+            } else {
+                previousWhitespace = false;
+                out = lowercase && c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+            }
+            if (blank && !Character.isWhitespace(out)) {
+                blank = false;
+            }
+            if (buffer == null && out != c) {
+                buffer = ensureBuffer(null, s, start, end, length);
+            }
+            if (buffer != null) {
+                buffer[length] = out;
+            }
+            length++;
+        }
+
+        if (trimWhitespace && blank) {
+            return "";
+        } else if (buffer == null) {
+            return s.substring(start, end);
+        } else {
+            return new String(buffer, 0, length);
+        }
+    }
+
+    /** Until the buffer is needed, the output is the same as the input, so the buffer gets the input processed so far. */
+    private static char[] ensureBuffer(char[] buffer, String s, int start, int end, int length) {
+        if (buffer != null) {
+            return buffer;
+        }
+        char[] created = new char[end - start];
+        s.getChars(start, start + length, created, 0);
+        return created;
+    }
+
+    /** Characters matched by {@code \s} in {@link #WHITESPACE_REGEX}. */
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c >= '\t' && c <= '\r';
+    }
+
     protected String preprocess(String s) {
         if (configuration == null || !Boolean.FALSE.equals(configuration.isTrim())) {
             s = trim(s);
@@ -26,6 +26,18 @@ public class AlphanumericPolyStringNormalizer extends AbstractPolyStringNormaliz
         return s;
     }
 
+    @Override
+    protected boolean isAsciiFastPathApplicable() {
+        return getClass() == AlphanumericPolyStringNormalizer.class;
+    }
+
+    @Override
+    protected boolean keepsAsciiChar(char c) {
+        // The complement of MALFORMED_REGEX for ASCII characters
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_'
+                || c == ' ' || c >= '\t' && c <= '\r';
+    }
+
     @Override
     public QName getName() {
         return PrismConstants.ALPHANUMERIC_POLY_STRING_NORMALIZER;
@@ -22,6 +22,16 @@ public class Ascii7PolyStringNormalizer extends AbstractPolyStringNormalizer {
         return s;
     }
 
+    @Override
+    protected boolean isAsciiFastPathApplicable() {
+        return getClass() == Ascii7PolyStringNormalizer.class;
+    }
+
+    @Override
+    protected boolean keepsAsciiChar(char c) {
+        return c >= 0x20 && c <= 0x7f;
+    }
+
     @Override
     public QName getName() {
         return PrismConstants.ASCII7_POLY_STRING_NORMALIZER;
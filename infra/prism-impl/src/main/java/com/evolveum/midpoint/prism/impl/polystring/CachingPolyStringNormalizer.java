@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.polystring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.PrismStaticConfiguration;
+import com.evolveum.midpoint.prism.polystring.PolyStringNormalizer;
+import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
+
+/**
+ * Remembers the results of the wrapped normalizer, as the same strings (e.g. names of roles, organizations
+ * or resources) are normalized again and again when objects are parsed or deltas are applied.
+ *
+ * The size is limited by {@link PrismStaticConfiguration#polyStringNormalizationCacheSize()}; the least recently used
+ * entries are evicted. If the cache is disabled, the normalizer is simply called. Long strings are never cached.
+ */
+public class CachingPolyStringNormalizer implements PolyStringNormalizer {
+
+    /** Strings longer than this are not cached; they are unlikely to repeat, and they would take too much memory. */
+    private static final int MAX_CACHED_LENGTH = 256;
+
+    @NotNull private final PolyStringNormalizer normalizer;
+
+    private final Map<String, String> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > PrismStaticConfiguration.polyStringNormalizationCacheSize();
+        }
+    };
+
+    public CachingPolyStringNormalizer(@NotNull PolyStringNormalizer normalizer) {
+        this.normalizer = normalizer;
+    }
+
+    public @NotNull PolyStringNormalizer getNormalizer() {
+        return normalizer;
+    }
+
+    @Override
+    public String normalize(String orig) {
+        if (orig == null || PrismStaticConfiguration.polyStringNormalizationCacheSize() <= 0) {
+            return normalizer.normalize(orig); // not counted, to keep the overhead minimal if the cache is not used
+        }
+        if (orig.length() > MAX_CACHED_LENGTH) {
+            CachePerformanceCollector.INSTANCE.registerPass(CachingPolyStringNormalizer.class, String.class, null);
+            return normalizer.normalize(orig);
+        }
+        String normalized;
+        synchronized (cache) {
+            normalized = cache.get(orig);
+        }
+        if (normalized != null) {
+            CachePerformanceCollector.INSTANCE.registerHit(CachingPolyStringNormalizer.class, String.class, null);
+            return normalized;
+        }
+        CachePerformanceCollector.INSTANCE.registerMiss(CachingPolyStringNormalizer.class, String.class, null);
+        normalized = normalizer.normalize(orig);
+        synchronized (cache) {
+            cache.put(orig, normalized);
+        }
+        return normalized;
+    }
+
+    @Override
+    public QName getName() {
+        return normalizer.getName();
+    }
+
+    @Override
+    public String toString() {
+        return "Caching" + normalizer;
+    }
+}
@@ -48,12 +48,16 @@ public class PolyStringNormalizerRegistryImpl implements PolyStringNormalizerReg
         throw new IllegalArgumentException("Unknown polystring normalizer: " + name);   // todo or SchemaException?
     }
 
+    /**
+     * The normalizer is wrapped by {@link CachingPolyStringNormalizer}; the cache is used only if enabled
+     * (see {@link com.evolveum.midpoint.prism.PrismStaticConfiguration#polyStringNormalizationCacheSize()}).
+     */
     void registerNormalizer(PolyStringNormalizer normalizer) {
-        normalizers.put(normalizer.getName(), normalizer);
+        normalizers.put(normalizer.getName(), new CachingPolyStringNormalizer(normalizer));
     }
 
     void registerDefaultNormalizer(PolyStringNormalizer normalizer) {
         registerNormalizer(normalizer);
-        defaultNormalizer = normalizer;
+        defaultNormalizer = normalizers.get(normalizer.getName());
     }
 }
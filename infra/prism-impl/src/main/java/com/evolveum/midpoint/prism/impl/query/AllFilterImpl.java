@@ -7,8 +7,11 @@
 
 package com.evolveum.midpoint.prism.impl.query;
 
+import org.jetbrains.annotations.NotNull;
+
 import com.evolveum.midpoint.prism.PrismContainerValue;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
+import com.evolveum.midpoint.prism.query.CompiledObjectFilter;
 import com.evolveum.midpoint.prism.query.AllFilter;
 import com.evolveum.midpoint.util.DebugUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
@@ -63,6 +66,11 @@ public class AllFilterImpl extends ObjectFilterImpl implements AllFilter {
         return true;
     }
 
+    @Override
+    public @NotNull CompiledObjectFilter compile(MatchingRuleRegistry matchingRuleRegistry) {
+        return CompiledFilters.constant(true);
+    }
+
     @Override
     public boolean equals(Object obj, boolean exact) {
         return obj instanceof AllFilter;
@@ -10,9 +10,12 @@ package com.evolveum.midpoint.prism.impl.query;
 import com.evolveum.midpoint.prism.PrismContainerValue;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
 import com.evolveum.midpoint.prism.query.AndFilter;
+import com.evolveum.midpoint.prism.query.CompiledObjectFilter;
 import com.evolveum.midpoint.prism.query.ObjectFilter;
 import com.evolveum.midpoint.util.exception.SchemaException;
 
+import org.jetbrains.annotations.NotNull;
+
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -59,6 +62,11 @@ public class AndFilterImpl extends NaryLogicalFilterImpl implements AndFilter {
         return true;
     }
 
+    @Override
+    public @NotNull CompiledObjectFilter compile(MatchingRuleRegistry matchingRuleRegistry) {
+        return CompiledFilters.and(getConditions(), matchingRuleRegistry);
+    }
+
     @Override
     public boolean equals(Object obj, boolean exact) {
         return super.equals(obj, exact) && obj instanceof AndFilter;
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.query;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.PrismContainerValue;
+import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.query.CompiledObjectFilter;
+import com.evolveum.midpoint.prism.query.ObjectFilter;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Building blocks for {@link ObjectFilter#compile(MatchingRuleRegistry)} implementations.
+ *
+ * The costs are only rough relative estimates: constant filters are free, filters looking at the value itself (OID, ID)
+ * are cheap, and property filters become more expensive with the path length and with the kind of comparison.
+ */
+final class CompiledFilters {
+
+    static final int COST_CONSTANT = 0;
+    static final int COST_ID = 1;
+    static final int COST_PATH_SEGMENT = 2;
+    static final int COST_REGEX = 5;
+
+    private static final CompiledObjectFilter TRUE = of(COST_CONSTANT, value -> true);
+    private static final CompiledObjectFilter FALSE = of(COST_CONSTANT, value -> false);
+
+    private CompiledFilters() {
+    }
+
+    static @NotNull CompiledObjectFilter of(int cost, @NotNull CompiledObjectFilter predicate) {
+        return new CompiledObjectFilter() {
+            @Override
+            public boolean match(PrismContainerValue<?> value) throws SchemaException {
+                return predicate.match(value);
+            }
+
+            @Override
+            public int getEstimatedCost() {
+                return cost;
+            }
+        };
+    }
+
+    static @NotNull CompiledObjectFilter constant(boolean result) {
+        return result ? TRUE : FALSE;
+    }
+
+    /** The cost of getting the values of given item. */
+    static int pathCost(@NotNull ItemPath path) {
+        return COST_PATH_SEGMENT * Math.max(1, path.size());
+    }
+
+    static @NotNull CompiledObjectFilter and(@NotNull List<ObjectFilter> conditions, MatchingRuleRegistry registry) {
+        CompiledObjectFilter[] compiled = compileOrdered(conditions, registry);
+        return of(totalCost(compiled), value -> {
+            for (CompiledObjectFilter condition : compiled) {
+                if (!condition.match(value)) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    static @NotNull CompiledObjectFilter or(@NotNull List<ObjectFilter> conditions, MatchingRuleRegistry registry) {
+        CompiledObjectFilter[] compiled = compileOrdered(conditions, registry);
+        return of(totalCost(compiled), value -> {
+            for (CompiledObjectFilter condition : compiled) {
+                if (condition.match(value)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /** Compiles the conditions and sorts them from the cheapest to the most expensive one. The sort is stable. */
+    private static CompiledObjectFilter[] compileOrdered(List<ObjectFilter> conditions, MatchingRuleRegistry registry) {
+        List<CompiledObjectFilter> compiled = new ArrayList<>(conditions.size());
+        for (ObjectFilter condition : conditions) {
+            compiled.add(condition.compile(registry));
+        }
+        compiled.sort(Comparator.comparingInt(CompiledObjectFilter::getEstimatedCost));
+        return compiled.toArray(new CompiledObjectFilter[0]);
+    }
+
+    private static int totalCost(CompiledObjectFilter[] compiled) {
+        int cost = 0;
+        for (CompiledObjectFilter filter : compiled) {
+            cost += filter.getEstimatedCost();
+        }
+        return cost;
+    }
+}
@@ -7,9 +7,13 @@
 package com.evolveum.midpoint.prism.impl.query;
 
 import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.impl.match.CachingMatchingRule;
+import com.evolveum.midpoint.prism.impl.match.DefaultMatchingRule;
+import com.evolveum.midpoint.prism.impl.match.KeyedMatchingRule;
 import com.evolveum.midpoint.prism.match.MatchingRule;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
 import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.query.CompiledObjectFilter;
 import com.evolveum.midpoint.prism.query.EqualFilter;
 import com.evolveum.midpoint.prism.query.ValueFilter;
 import com.evolveum.midpoint.util.exception.SchemaException;
@@ -20,8 +24,11 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.xml.namespace.QName;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static com.evolveum.midpoint.util.MiscUtil.emptyIfNull;
 
@@ -129,6 +136,139 @@ public class EqualFilterImpl<T> extends PropertyValueFilterImpl<T> implements Eq
         return false;
     }
 
+    /**
+     * Unlike {@link #match(PrismContainerValue, MatchingRuleRegistry)}, the compiled filter parses each raw object value
+     * only once (not once for each filter value). If the values are compared using plain {@link Object#equals(Object)},
+     * they are looked up in a hash set. For {@link KeyedMatchingRule}s, the match keys of the filter values are computed
+     * here, so only the keys of object values are computed when matching, and they are looked up in a hash set as well.
+     *
+     * A filter without values matches only objects without the item, so the object values are neither parsed nor compared.
+     */
+    @Override
+    public @NotNull CompiledObjectFilter compile(MatchingRuleRegistry matchingRuleRegistry) {
+        PrismPropertyDefinition<T> definition = getDefinition();
+        if (definition == null) {
+            return super.compile(matchingRuleRegistry);
+        }
+        ItemPath path = getFullPath();
+        List<PrismPropertyValue<T>> filterValues = getValues();
+        if (filterValues == null || filterValues.isEmpty()) {
+            return CompiledFilters.of(CompiledFilters.pathCost(path), value -> value.getAllValues(path).isEmpty());
+        }
+        MatchingRule<Object> matchingRule = getMatchingRuleFromRegistry(matchingRuleRegistry);
+        List<Object> filterRealValues = new ArrayList<>();
+        for (PrismPropertyValue<T> filterValue : filterValues) {
+            filterRealValues.add(filterValue.getRealValue());
+        }
+        Set<Object> filterRealValuesSet =
+                filterRealValues.size() > 1 && isEqualsBased(matchingRule, filterRealValues) ?
+                        new HashSet<>(filterRealValues) : null;
+        KeyedMatchingRule<Object> keyedRule = filterRealValuesSet == null ? getKeyedRule(matchingRule) : null;
+        Set<Object> filterMatchKeys = keyedRule != null ? getMatchKeys(keyedRule, filterRealValues) : null;
+        int cost = CompiledFilters.pathCost(path)
+                + (filterRealValuesSet != null || filterMatchKeys != null ? 1 : filterRealValues.size());
+        return CompiledFilters.of(cost, value -> {
+            Collection<PrismValue> objectItemValues = value.getAllValues(path);
+            if (objectItemValues.isEmpty()) {
+                return false;
+            }
+            for (PrismValue objectItemValue : objectItemValues) {
+                checkPrismPropertyValue(objectItemValue);
+                Object objectRealValue = parseIfRaw(objectItemValue.getRealValue(), definition);
+                if (filterRealValuesSet != null) {
+                    if (filterRealValuesSet.contains(objectRealValue)) {
+                        return true;
+                    }
+                } else if (filterMatchKeys != null) {
+                    Object objectMatchKey = getMatchKey(keyedRule, objectRealValue);
+                    if (objectMatchKey != null
+                            ? filterMatchKeys.contains(objectMatchKey)
+                            : matchesAny(filterRealValues, objectRealValue, matchingRule)) {
+                        return true;
+                    }
+                } else if (matchesAny(filterRealValues, objectRealValue, matchingRule)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Can the matching rule be replaced by a hash lookup? This is so if it uses {@link Object#equals(Object)} for values
+     * of given types, i.e. for the default rule and values other than {@link Matchable} or arrays.
+     */
+    private static boolean isEqualsBased(MatchingRule<?> matchingRule, Collection<Object> values) {
+        if (!(matchingRule instanceof DefaultMatchingRule)) {
+            return false;
+        }
+        for (Object value : values) {
+            if (!(value instanceof String || value instanceof Number || value instanceof Boolean
+                    || value instanceof QName || value instanceof Enum)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static KeyedMatchingRule<Object> getKeyedRule(MatchingRule<Object> matchingRule) {
+        MatchingRule<Object> rule =
+                matchingRule instanceof CachingMatchingRule ? ((CachingMatchingRule<Object>) matchingRule).getRule() : matchingRule;
+        return rule instanceof KeyedMatchingRule ? (KeyedMatchingRule<Object>) rule : null;
+    }
+
+    /** Returns null if any of the keys cannot be computed; the values are then compared by the rule itself. */
+    private static Set<Object> getMatchKeys(KeyedMatchingRule<Object> keyedRule, Collection<Object> realValues) {
+        Set<Object> keys = new HashSet<>();
+        for (Object realValue : realValues) {
+            Object key = getMatchKey(keyedRule, realValue);
+            if (key == null) {
+                return null;
+            }
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    /** Returns null if the key cannot be computed (the rule may still be able to match the value). */
+    private static Object getMatchKey(KeyedMatchingRule<Object> keyedRule, Object realValue) {
+        try {
+            return keyedRule.getMatchKey(realValue);
+        } catch (SchemaException e) {
+            return null;
+        }
+    }
+
+    private static Object parseIfRaw(Object realValue, PrismPropertyDefinition<?> definition) {
+        if (!(realValue instanceof RawType)) {
+            return realValue;
+        }
+        try {
+            // We clone here to avoid modifying original data structure.
+            return ((RawType) realValue).clone().getParsedRealValue(definition, definition.getItemName());
+        } catch (SchemaException e) {
+            throw new SystemException("Schema exception while comparing objects: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean matchesAny(
+            Collection<Object> filterRealValues, Object objectRealValue, MatchingRule<Object> matchingRule) {
+        for (Object filterRealValue : filterRealValues) {
+            if (matches(filterRealValue, objectRealValue, matchingRule)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(Object filterRealValue, Object objectRealValue, MatchingRule<Object> matchingRule) {
+        try {
+            return matchingRule.match(filterRealValue, objectRealValue);
+        } catch (SchemaException e) {
+            throw new SystemException("Schema exception while comparing objects: " + e.getMessage(), e);
+        }
+    }
+
     private <T1> boolean matches(PrismPropertyValue<?> filterValue, PrismPropertyValue<?> objectValue, MatchingRule<T1> matchingRule) {
         Object filterRealValue = filterValue.getRealValue();
         Object objectRealValue = objectValue.getRealValue();
@@ -13,6 +13,7 @@ import org.jetbrains.annotations.NotNull;
 import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
 import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.query.CompiledObjectFilter;
 import com.evolveum.midpoint.prism.query.ExistsFilter;
 import com.evolveum.midpoint.prism.query.ObjectFilter;
 import com.evolveum.midpoint.prism.query.Visitor;
@@ -111,6 +112,31 @@ public final class ExistsFilterImpl extends ObjectFilterImpl implements ExistsFi
         return false;
     }
 
+    @Override
+    public @NotNull CompiledObjectFilter compile(MatchingRuleRegistry matchingRuleRegistry) {
+        CompiledObjectFilter compiledFilter = filter != null ? filter.compile(matchingRuleRegistry) : null;
+        int cost = CompiledFilters.pathCost(fullPath) + (compiledFilter != null ? compiledFilter.getEstimatedCost() : 0);
+        return CompiledFilters.of(cost, value -> {
+            Item<?, ?> itemToFind = value.findItem(fullPath);
+            if (itemToFind == null || itemToFind.getValues().isEmpty()) {
+                return false;
+            }
+            if (!(itemToFind instanceof PrismContainer)) {
+                throw new UnsupportedOperationException(
+                        "Using exists query to search for items other than containers is not supported in-memory: " + itemToFind);
+            }
+            if (compiledFilter == null) {
+                return true;
+            }
+            for (PrismContainerValue<?> pcv : ((PrismContainer<?>) itemToFind).getValues()) {
+                if (compiledFilter.match(pcv)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
     @Override
     public void checkConsistence(boolean requireDefinitions) {
         if (fullPath.isEmpty()) {
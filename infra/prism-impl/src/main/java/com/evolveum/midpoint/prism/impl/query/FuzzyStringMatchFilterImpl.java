@@ -8,6 +8,7 @@ package com.evolveum.midpoint.prism.impl.query;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import javax.xml.namespace.QName;
 
@@ -21,7 +22,9 @@ import org.jetbrains.annotations.Nullable;
 import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
 import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.query.CompiledObjectFilter;
 import com.evolveum.midpoint.prism.query.FuzzyStringMatchFilter;
+import com.evolveum.midpoint.prism.query.fuzzy.TriGramSignature;
 import com.evolveum.midpoint.prism.query.ValueFilter;
 import com.evolveum.midpoint.util.DebugUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
@@ -65,48 +68,63 @@ public class FuzzyStringMatchFilterImpl<T> extends PropertyValueFilterImpl<T> im
 
     @Override
     public boolean match(PrismContainerValue<?> cValue, MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
+        return match(cValue, createStringMatcher());
+    }
+
+    /** The filter value (and its trigram signature, if needed) is prepared only once. */
+    @Override
+    public @NotNull CompiledObjectFilter compile(MatchingRuleRegistry matchingRuleRegistry) {
+        Predicate<String> stringMatcher = createStringMatcher();
+        return CompiledFilters.of(
+                CompiledFilters.pathCost(getFullPath()) + CompiledFilters.COST_REGEX,
+                value -> match(value, stringMatcher));
+    }
+
+    private boolean match(PrismContainerValue<?> cValue, Predicate<String> stringMatcher) {
         Collection<PrismValue> objectItemValues = getObjectItemValues(cValue);
-        PrismPropertyValue<T> filterPropValue = getSingleValue();
         for (PrismValue objectItemValue : objectItemValues) {
             checkPrismPropertyValue(objectItemValue);
-            if (matches(filterPropValue, (PrismPropertyValue<?>) objectItemValue)) {
+            if (stringMatcher.test(getObjectStringValue((PrismPropertyValue<?>) objectItemValue))) {
                 return true;
             }
         }
         return false;
     }
 
+    /** Returns a predicate telling whether an object value (as a string) matches the filter value. */
+    private @NotNull Predicate<String> createStringMatcher() {
+        Object filterRealValue = getSingleValue().getRealValue();
+        // The situation with null real value is not OK, anyway. So it's quite safe to throw an exception here.
+        argCheck(filterRealValue != null, "Filter real value must not be null in %s", this);
+        String filterStringValue = String.valueOf(filterRealValue);
+        if (matchingMethod instanceof Similarity) {
+            Similarity similarity = (Similarity) matchingMethod;
+            TriGramSignature filterSignature = TriGramSignature.of(filterStringValue);
+            return objectStringValue -> similarity.matches(filterSignature, TriGramSignature.of(objectStringValue));
+        } else {
+            return objectStringValue -> matchingMethod.matches(filterStringValue, objectStringValue);
+        }
+    }
+
     // TODO deduplicate with other similar methods
-    private boolean matches(PrismPropertyValue<T> filterValue, PrismPropertyValue<?> objectValue) {
-        Object filterRealValue = filterValue.getRealValue();
+    private @NotNull String getObjectStringValue(PrismPropertyValue<?> objectValue) {
         Object objectRealValue = objectValue.getRealValue();
-        try {
-            if (!(objectRealValue instanceof RawType)) {
-                return matches(filterRealValue, objectRealValue);
-            } else {
-                PrismPropertyDefinition<?> definition = getDefinition();
-                if (definition != null) {
-                    // We clone here to avoid modifying original data structure.
-                    Object parsedObjectRealValue = ((RawType) objectRealValue).clone()
-                            .getParsedRealValue(definition, definition.getItemName());
-                    return matches(filterRealValue, parsedObjectRealValue);
-                } else {
-                    throw new IllegalStateException(
-                            "Couldn't compare raw value with definition-less filter value: " + filterRealValue);
-                }
+        if (objectRealValue instanceof RawType) {
+            PrismPropertyDefinition<?> definition = getDefinition();
+            if (definition == null) {
+                throw new IllegalStateException(
+                        "Couldn't compare raw value with definition-less filter value: " + getSingleValue().getRealValue());
+            }
+            try {
+                // We clone here to avoid modifying original data structure.
+                objectRealValue = ((RawType) objectRealValue).clone()
+                        .getParsedRealValue(definition, definition.getItemName());
+            } catch (SchemaException e) {
+                throw new SystemException("Schema exception while comparing objects: " + e.getMessage(), e);
             }
-        } catch (SchemaException e) {
-            throw new SystemException("Schema exception while comparing objects: " + e.getMessage(), e);
         }
-    }
-
-    private boolean matches(Object filterValue, Object objectValue) {
-        // The situation with null real value is not OK, anyway. So it's quite safe to throw an exception here.
-        argCheck(filterValue != null, "Filter real value must not be null in %s", this);
-        argCheck(objectValue != null, "Object real value must not be null in %s", this);
-        String filterStringValue = String.valueOf(filterValue);
-        String objectStringValue = String.valueOf(objectValue);
-        return matchingMethod.matches(filterStringValue, objectStringValue);
+        argCheck(objectRealValue != null, "Object real value must not be null in %s", this);
+        return String.valueOf(objectRealValue);
     }
 
     @Override
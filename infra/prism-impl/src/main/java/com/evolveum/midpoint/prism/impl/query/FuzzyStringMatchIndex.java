@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.prism.impl.query;
+
+import static com.evolveum.midpoint.util.MiscUtil.argCheck;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.PrismContainerValue;
+import com.evolveum.midpoint.prism.PrismPropertyValue;
+import com.evolveum.midpoint.prism.PrismValue;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.query.FuzzyStringMatchFilter;
+import com.evolveum.midpoint.prism.query.FuzzyStringMatchFilter.Levenshtein;
+import com.evolveum.midpoint.prism.query.FuzzyStringMatchFilter.Similarity;
+import com.evolveum.midpoint.prism.query.fuzzy.LevenshteinComputer;
+import com.evolveum.midpoint.prism.query.fuzzy.TriGramSignature;
+import com.evolveum.prism.xml.ns._public.types_3.RawType;
+
+/**
+ * In-memory index of string values of given item in a collection of container values, answering
+ * {@link FuzzyStringMatchFilter} queries without evaluating the filter against each value:
+ *
+ * - for trigram similarity, there is an inverted index from trigrams to values; only values sharing at least one
+ * trigram with the filter value are considered (unless the threshold accepts zero similarity), and their similarity
+ * is computed from the number of shared trigrams;
+ * - for Levenshtein distance, the values are ordered by their length, and only values whose length differs
+ * by no more than the maximal accepted distance are compared, using the threshold-bounded computation.
+ *
+ * The results are the same as of {@link FuzzyStringMatchFilter#match(PrismContainerValue,
+ * com.evolveum.midpoint.prism.match.MatchingRuleRegistry)} applied to each container value. The index is immutable,
+ * so it can be used by multiple threads.
+ *
+ * @param <V> type of indexed container values
+ */
+public class FuzzyStringMatchIndex<V extends PrismContainerValue<?>> {
+
+    @NotNull private final ItemPath path;
+    @NotNull private final List<V> containerValues;
+
+    /** For each indexed string: the index of the container value it belongs to. */
+    @NotNull private final int[] owners;
+    @NotNull private final String[] strings;
+    @NotNull private final TriGramSignature[] signatures;
+
+    /** For each trigram code: indexed strings containing it (null if there are none). */
+    @NotNull private final int[][] postings = new int[TriGramSignature.CODES][];
+
+    /** Indexed strings ordered by length; {@link #lengthStarts}[L] is the position of the first string of length >= L. */
+    @NotNull private final int[] byLength;
+    @NotNull private final int[] lengthStarts;
+
+    public FuzzyStringMatchIndex(@NotNull ItemPath path, @NotNull Collection<V> containerValues) {
+        this.path = path;
+        this.containerValues = List.copyOf(containerValues);
+
+        List<String> stringList = new ArrayList<>();
+        List<Integer> ownerList = new ArrayList<>();
+        for (int i = 0; i < this.containerValues.size(); i++) {
+            for (PrismValue value : this.containerValues.get(i).getAllValues(path)) {
+                argCheck(value instanceof PrismPropertyValue, "Not a property value: %s", value);
+                Object realValue = value.getRealValue();
+                argCheck(realValue != null, "Object real value must not be null in %s", value);
+                argCheck(!(realValue instanceof RawType), "Raw values are not supported: %s", value);
+                stringList.add(String.valueOf(realValue));
+                ownerList.add(i);
+            }
+        }
+        int count = stringList.size();
+        strings = stringList.toArray(new String[0]);
+        owners = ownerList.stream().mapToInt(Integer::intValue).toArray();
+        signatures = new TriGramSignature[count];
+
+        int[] postingSizes = new int[TriGramSignature.CODES];
+        for (int i = 0; i < count; i++) {
+            signatures[i] = TriGramSignature.of(strings[i]);
+            for (int code : signatures[i].getCodes()) {
+                postingSizes[code]++;
+            }
+        }
+        for (int code = 0; code < postingSizes.length; code++) {
+            if (postingSizes[code] > 0) {
+                postings[code] = new int[postingSizes[code]];
+                postingSizes[code] = 0;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            for (int code : signatures[i].getCodes()) {
+                postings[code][postingSizes[code]++] = i;
+            }
+        }
+
+        byLength = new int[count];
+        int maxLength = 0;
+        for (String string : strings) {
+            maxLength = Math.max(maxLength, string.length());
+        }
+        lengthStarts = new int[maxLength + 2];
+        for (String string : strings) {
+            lengthStarts[string.length() + 1]++;
+        }
+        for (int length = 1; length < lengthStarts.length; length++) {
+            lengthStarts[length] += lengthStarts[length - 1];
+        }
+        int[] next = Arrays.copyOf(lengthStarts, lengthStarts.length);
+        for (int i = 0; i < count; i++) {
+            byLength[next[strings[i].length()]++] = i;
+        }
+    }
+
+    public @NotNull ItemPath getPath() {
+        return path;
+    }
+
+    public int getIndexedStringsCount() {
+        return strings.length;
+    }
+
+    /** Returns container values matching the filter, in the original order. */
+    public @NotNull List<V> search(@NotNull FuzzyStringMatchFilter<?> filter) {
+        argCheck(filter.getFullPath().equivalent(path),
+                "Filter path %s does not correspond to the index path %s", filter.getFullPath(), path);
+        boolean[] matching = new boolean[containerValues.size()];
+        var method = filter.getMatchingMethod();
+        String filterString = getFilterString(filter);
+        if (method instanceof Similarity) {
+            searchSimilar((Similarity) method, filterString, matching);
+        } else if (method instanceof Levenshtein) {
+            searchWithinDistance((Levenshtein) method, filterString, matching);
+        } else {
+            for (int i = 0; i < strings.length; i++) {
+                if (!matching[owners[i]] && method.matches(filterString, strings[i])) {
+                    matching[owners[i]] = true;
+                }
+            }
+        }
+        List<V> result = new ArrayList<>();
+        for (int i = 0; i < matching.length; i++) {
+            if (matching[i]) {
+                result.add(containerValues.get(i));
+            }
+        }
+        return result;
+    }
+
+    private void searchSimilar(Similarity similarity, String filterString, boolean[] matching) {
+        TriGramSignature filterSignature = TriGramSignature.of(filterString);
+        if (similarity.accepts(0f)) {
+            // Values without common trigrams match as well, so we have to go through all of them.
+            for (int i = 0; i < strings.length; i++) {
+                if (!matching[owners[i]] && similarity.matches(filterSignature, signatures[i])) {
+                    matching[owners[i]] = true;
+                }
+            }
+            return;
+        }
+        int[] common = new int[strings.length];
+        int[] candidates = new int[Math.min(strings.length, 16)];
+        int candidatesCount = 0;
+        for (int code : filterSignature.getCodes()) {
+            int[] posting = postings[code];
+            if (posting == null) {
+                continue;
+            }
+            for (int i : posting) {
+                if (common[i]++ == 0) {
+                    if (candidatesCount == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, Math.min(strings.length, candidatesCount * 2));
+                    }
+                    candidates[candidatesCount++] = i;
+                }
+            }
+        }
+        for (int c = 0; c < candidatesCount; c++) {
+            int i = candidates[c];
+            double value = TriGramSignature.getSimilarity(common[i], filterSignature.size(), signatures[i].size());
+            if (similarity.accepts((float) value)) {
+                matching[owners[i]] = true;
+            }
+        }
+    }
+
+    private void searchWithinDistance(Levenshtein levenshtein, String filterString, boolean[] matching) {
+        int maxDistance = levenshtein.getMaxDistance();
+        if (maxDistance < 0) {
+            return;
+        }
+        int length = filterString.length();
+        int from = lengthStarts[Math.max(0, Math.min(length - maxDistance, lengthStarts.length - 1))];
+        int to = lengthStarts[(int) Math.min((long) length + maxDistance + 1, lengthStarts.length - 1)];
+        for (int p = from; p < to; p++) {
+            int i = byLength[p];
+            if (!matching[owners[i]]
+                    && LevenshteinComputer.computeLevenshteinDistance(filterString, strings[i], maxDistance) >= 0) {
+                matching[owners[i]] = true;
+            }
+        }
+    }
+
+    private static String getFilterString(FuzzyStringMatchFilter<?> filter) {
+        Object filterRealValue = filter.getSingleValue().getRealValue();
+        argCheck(filterRealValue != null, "Filter real value must not be null in %s", filter);
+        return String.valueOf(filterRealValue);
+    }
+}
@@ -9,12 +9,14 @@ package com.evolveum.midpoint.prism.impl.query;
 import java.util.*;
 
 import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.prism.ExpressionWrapper;
 import com.evolveum.midpoint.prism.PrismContainer;
 import com.evolveum.midpoint.prism.PrismContainerValue;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
+import com.evolveum.midpoint.prism.query.CompiledObjectFilter;
 import com.evolveum.midpoint.prism.query.InOidFilter;
 import com.evolveum.midpoint.util.DebugUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
@@ -161,6 +163,17 @@ public final class InOidFilterImpl extends ObjectFilterImpl implements InOidFilt
 
     @Override
     public boolean match(PrismContainerValue value, MatchingRuleRegistry matchingRuleRegistry) throws SchemaException {
+        return matches(value, oids);
+    }
+
+    /** The OIDs are put into a hash set, as the filter may contain a lot of them. */
+    @Override
+    public @NotNull CompiledObjectFilter compile(MatchingRuleRegistry matchingRuleRegistry) {
+        Set<String> oidSet = oids != null ? new HashSet<>(oids) : null;
+        return CompiledFilters.of(CompiledFilters.COST_ID, value -> matches(value, oidSet));
+    }
+
+    private boolean matches(PrismContainerValue<?> value, Collection<String> oids) {
         if (value == null) {
             return false; // just for sure
         }
@@ -185,6 +198,7 @@ public final class InOidFilterImpl extends ObjectFilterImpl implements InOidFilt
         }
         return pcvToConsider != null
                 && pcvToConsider.getId() != null
+                && oids != null
                 && oids.contains(pcvToConsider.getId().toString());
     }
 
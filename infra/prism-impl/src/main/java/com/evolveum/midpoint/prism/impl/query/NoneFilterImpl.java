@@ -6,8 +6,11 @@
  */
 package com.evolveum.midpoint.prism.impl.query;
 
+import org.jetbrains.annotations.NotNull;
+
 import com.evolveum.midpoint.prism.PrismContainerValue;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
+import com.evolveum.midpoint.prism.query.CompiledObjectFilter;
 import com.evolveum.midpoint.prism.query.NoneFilter;
 import com.evolveum.midpoint.util.DebugUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
@@ -63,6 +66,11 @@ public class NoneFilterImpl extends ObjectFilterImpl implements NoneFilter {
         return false;
     }
 
+    @Override
+    public @NotNull CompiledObjectFilter compile(MatchingRuleRegistry matchingRuleRegistry) {
+        return CompiledFilters.constant(false);
+    }
+
     @Override
     public boolean equals(Object obj, boolean exact) {
         return obj instanceof NoneFilter;
@@ -7,8 +7,11 @@
 
 package com.evolveum.midpoint.prism.impl.query;
 
+import org.jetbrains.annotations.NotNull;
+
 import com.evolveum.midpoint.prism.PrismContainerValue;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
+import com.evolveum.midpoint.prism.query.CompiledObjectFilter;
 import com.evolveum.midpoint.prism.query.NotFilter;
 import com.evolveum.midpoint.prism.query.ObjectFilter;
 import com.evolveum.midpoint.util.exception.SchemaException;
@@ -43,6 +46,12 @@ public class NotFilterImpl extends UnaryLogicalFilterImpl implements NotFilter {
         return !getFilter().match(value, matchingRuleRegistry);
     }
 
+    @Override
+    public @NotNull CompiledObjectFilter compile(MatchingRuleRegistry matchingRuleRegistry) {
+        CompiledObjectFilter compiled = getFilter().compile(matchingRuleRegistry);
+        return CompiledFilters.of(compiled.getEstimatedCost(), value -> !compiled.match(value));
+    }
+
     @Override
     public boolean equals(Object obj, boolean exact) {
         return super.equals(obj, exact) && obj instanceof NotFilter;
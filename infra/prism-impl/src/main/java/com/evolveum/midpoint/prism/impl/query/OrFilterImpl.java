@@ -11,8 +11,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.jetbrains.annotations.NotNull;
+
 import com.evolveum.midpoint.prism.PrismContainerValue;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
+import com.evolveum.midpoint.prism.query.CompiledObjectFilter;
 import com.evolveum.midpoint.prism.query.ObjectFilter;
 import com.evolveum.midpoint.prism.query.OrFilter;
 import com.evolveum.midpoint.util.exception.SchemaException;
@@ -59,6 +62,11 @@ public class OrFilterImpl extends NaryLogicalFilterImpl implements OrFilter {
         return false;
     }
 
+    @Override
+    public @NotNull CompiledObjectFilter compile(MatchingRuleRegistry matchingRuleRegistry) {
+        return CompiledFilters.or(getConditions(), matchingRuleRegistry);
+    }
+
     @Override
     public boolean equals(Object obj, boolean exact) {
         return super.equals(obj, exact) && obj instanceof OrFilter;
@@ -6,6 +6,7 @@
  */
 package com.evolveum.midpoint.prism.impl.query;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
@@ -17,9 +18,12 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.prism.*;
+import com.evolveum.midpoint.prism.impl.match.DefaultMatchingRule;
+import com.evolveum.midpoint.prism.impl.match.StringIgnoreCaseMatchingRule;
 import com.evolveum.midpoint.prism.match.MatchingRule;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
 import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.query.CompiledObjectFilter;
 import com.evolveum.midpoint.prism.query.SubstringFilter;
 import com.evolveum.midpoint.prism.query.ValueFilter;
 import com.evolveum.midpoint.util.exception.SchemaException;
@@ -98,15 +102,7 @@ public final class SubstringFilterImpl<T> extends PropertyValueFilterImpl<T>
                     if (o == null) {
                         continue;            // shouldn't occur
                     }
-                    StringBuilder sb = new StringBuilder();
-                    if (!anchorStart) {
-                        sb.append(".*");
-                    }
-                    sb.append(Pattern.quote(o.toString()));
-                    if (!anchorEnd) {
-                        sb.append(".*");
-                    }
-                    if (matching.matchRegex(value, sb.toString())) {
+                    if (matching.matchRegex(value, toRegex(o))) {
                         return true;
                     }
                 }
@@ -120,6 +116,80 @@ public final class SubstringFilterImpl<T> extends PropertyValueFilterImpl<T>
         return false;
     }
 
+    /**
+     * The regular expressions are created only once. For string values compared by the default or case-ignoring
+     * matching rule, they are also precompiled; other values are left to {@link MatchingRule#matchRegex(Object, String)}.
+     */
+    @Override
+    public @NotNull CompiledObjectFilter compile(MatchingRuleRegistry matchingRuleRegistry) {
+        if (getDefinition() == null) {
+            return super.compile(matchingRuleRegistry);
+        }
+        MatchingRule<Object> matching = getMatchingRuleFromRegistry(matchingRuleRegistry);
+        List<String> regexes = new ArrayList<>();
+        for (Object o : toRealValues()) {
+            if (o != null) {
+                regexes.add(toRegex(o));
+            }
+        }
+        Pattern[] patterns = compilePatterns(regexes, matching);
+        ItemPath path = getFullPath();
+        return CompiledFilters.of(CompiledFilters.pathCost(path) + CompiledFilters.COST_REGEX * regexes.size(), containerValue -> {
+            for (PrismValue val : containerValue.getAllValues(path)) {
+                if (val instanceof PrismPropertyValue) {
+                    Object value = ((PrismPropertyValue<?>) val).getValue();
+                    if (patterns != null && value instanceof String) {
+                        for (Pattern pattern : patterns) {
+                            if (pattern.matcher((String) value).matches()) {
+                                return true;
+                            }
+                        }
+                    } else {
+                        for (String regex : regexes) {
+                            if (matching.matchRegex(value, regex)) {
+                                return true;
+                            }
+                        }
+                    }
+                }
+                if (val instanceof PrismReferenceValue) {
+                    throw new UnsupportedOperationException(
+                            "matching substring on the prism reference value not supported yet");
+                }
+            }
+            return false;
+        });
+    }
+
+    /** Returns patterns equivalent to {@link MatchingRule#matchRegex(Object, String)} for string values, if known. */
+    private static Pattern[] compilePatterns(List<String> regexes, MatchingRule<?> matching) {
+        int flags;
+        if (matching instanceof DefaultMatchingRule) {
+            flags = 0;
+        } else if (matching instanceof StringIgnoreCaseMatchingRule) {
+            flags = Pattern.CASE_INSENSITIVE;
+        } else {
+            return null;
+        }
+        Pattern[] patterns = new Pattern[regexes.size()];
+        for (int i = 0; i < patterns.length; i++) {
+            patterns[i] = Pattern.compile(regexes.get(i), flags);
+        }
+        return patterns;
+    }
+
+    private String toRegex(Object value) {
+        StringBuilder sb = new StringBuilder();
+        if (!anchorStart) {
+            sb.append(".*");
+        }
+        sb.append(Pattern.quote(value.toString()));
+        if (!anchorEnd) {
+            sb.append(".*");
+        }
+        return sb.toString();
+    }
+
     private Set<T> toRealValues() {
         return PrismValueCollectionsUtil.getRealValuesOfCollection(getValues());
     }
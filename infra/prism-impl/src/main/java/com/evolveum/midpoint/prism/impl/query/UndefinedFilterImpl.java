@@ -6,8 +6,11 @@
  */
 package com.evolveum.midpoint.prism.impl.query;
 
+import org.jetbrains.annotations.NotNull;
+
 import com.evolveum.midpoint.prism.PrismContainerValue;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
+import com.evolveum.midpoint.prism.query.CompiledObjectFilter;
 import com.evolveum.midpoint.prism.query.UndefinedFilter;
 import com.evolveum.midpoint.util.DebugUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
@@ -57,6 +60,11 @@ public class UndefinedFilterImpl extends ObjectFilterImpl implements UndefinedFi
         return true;
     }
 
+    @Override
+    public @NotNull CompiledObjectFilter compile(MatchingRuleRegistry matchingRuleRegistry) {
+        return CompiledFilters.constant(true);
+    }
+
     @Override
     public boolean equals(Object obj, boolean exact) {
         return obj instanceof UndefinedFilter;
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.query.lang;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.axiom.lang.antlr.AxiomQuerySource;
+import com.evolveum.midpoint.prism.ItemDefinition;
+import com.evolveum.midpoint.prism.PrismConstants;
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismReferenceDefinition;
+import com.evolveum.midpoint.prism.Referencable;
+import com.evolveum.midpoint.prism.PrismStaticConfiguration;
+import com.evolveum.midpoint.prism.query.ObjectFilter;
+import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
+
+/**
+ * Cache of parsed Axiom queries, shared by all {@link PrismQueryLanguageParserImpl} instances of a prism context.
+ *
+ * There are two levels:
+ *
+ * . Parse trees ({@link AxiomQuerySource}), keyed by the query text. They do not depend on anything else,
+ * and they are read-only, so they can be shared.
+ * . Filters, keyed by the query text, the context definition (by identity) and the namespace context.
+ * Filters are mutable, so only a private copy is cached and clones of it are returned. Filters with expressions
+ * and filters created from queries with parameters are not cached at this level.
+ *
+ * The size of each level is limited by {@link PrismStaticConfiguration#queryCacheSize()}; the least recently used
+ * entries are evicted. Definitions of a changed schema are new objects, so the filters created for the old ones are
+ * simply not used anymore.
+ */
+public class AxiomQueryCache {
+
+    private final Map<String, AxiomQuerySource> sources = createLruMap();
+    private final Map<FilterKey, ObjectFilter> filters = createLruMap();
+
+    /**
+     * Definition used for filters on references as such (see {@link #getSelfReferenceDefinition()}).
+     * Created lazily, as the definition factory is not available when the cache is created.
+     */
+    private volatile PrismReferenceDefinition selfReferenceDefinition;
+
+    private static <K, V> Map<K, V> createLruMap() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > PrismStaticConfiguration.queryCacheSize();
+            }
+        };
+    }
+
+    /** Returns the parse tree of the query, parsing it if needed. */
+    @NotNull AxiomQuerySource getSource(@NotNull String query) {
+        if (PrismStaticConfiguration.queryCacheSize() <= 0) {
+            CachePerformanceCollector.INSTANCE.registerPass(AxiomQueryCache.class, AxiomQuerySource.class, null);
+            return AxiomQuerySource.from(query);
+        }
+        AxiomQuerySource source;
+        synchronized (sources) {
+            source = sources.get(query);
+        }
+        if (source != null) {
+            CachePerformanceCollector.INSTANCE.registerHit(AxiomQueryCache.class, AxiomQuerySource.class, null);
+            return source;
+        }
+        CachePerformanceCollector.INSTANCE.registerMiss(AxiomQueryCache.class, AxiomQuerySource.class, null);
+        source = AxiomQuerySource.from(query); // outside the lock, as parsing may take a while
+        synchronized (sources) {
+            sources.put(query, source);
+        }
+        return source;
+    }
+
+    /** Returns a (private) copy of the cached filter, or null if there is none. */
+    @Nullable ObjectFilter getFilter(@NotNull FilterKey key) {
+        if (PrismStaticConfiguration.queryCacheSize() <= 0) {
+            CachePerformanceCollector.INSTANCE.registerPass(AxiomQueryCache.class, ObjectFilter.class, null);
+            return null;
+        }
+        ObjectFilter filter;
+        synchronized (filters) {
+            filter = filters.get(key);
+        }
+        if (filter != null) {
+            CachePerformanceCollector.INSTANCE.registerHit(AxiomQueryCache.class, ObjectFilter.class, null);
+            return filter.clone();
+        } else {
+            CachePerformanceCollector.INSTANCE.registerMiss(AxiomQueryCache.class, ObjectFilter.class, null);
+            return null;
+        }
+    }
+
+    /** Stores a copy of the filter. It must not contain expressions, as they are not cloned with the filter. */
+    void putFilter(@NotNull FilterKey key, @NotNull ObjectFilter filter) {
+        if (PrismStaticConfiguration.queryCacheSize() <= 0) {
+            return;
+        }
+        ObjectFilter copy = filter.clone();
+        synchronized (filters) {
+            filters.put(key, copy);
+        }
+    }
+
+    /**
+     * Returns the definition for parsing filters on references (e.g. for {@link Referencable} type).
+     * It must be the same object each time, because the filters are keyed by the definition identity.
+     */
+    @NotNull PrismReferenceDefinition getSelfReferenceDefinition() {
+        PrismReferenceDefinition definition = selfReferenceDefinition;
+        if (definition == null) {
+            definition = PrismContext.get().definitionFactory()
+                    .createReferenceDefinition(PrismConstants.T_SELF, PrismConstants.T_OBJECT_REFERENCE);
+            definition.freeze();
+            selfReferenceDefinition = definition;
+        }
+        return definition;
+    }
+
+    public void clear() {
+        synchronized (sources) {
+            sources.clear();
+        }
+        synchronized (filters) {
+            filters.clear();
+        }
+    }
+
+    public int getSourcesCount() {
+        synchronized (sources) {
+            return sources.size();
+        }
+    }
+
+    public int getFiltersCount() {
+        synchronized (filters) {
+            return filters.size();
+        }
+    }
+
+    static class FilterKey {
+
+        @NotNull private final String query;
+        @NotNull private final ItemDefinition<?> definition;
+        @NotNull private final Map<String, String> namespaceContext;
+
+        FilterKey(@NotNull String query, @NotNull ItemDefinition<?> definition, @NotNull Map<String, String> namespaceContext) {
+            this.query = query;
+            this.definition = definition;
+            this.namespaceContext = new HashMap<>(namespaceContext); // the original map may change
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FilterKey)) {
+                return false;
+            }
+            FilterKey that = (FilterKey) o;
+            return definition == that.definition
+                    && query.equals(that.query)
+                    && namespaceContext.equals(that.namespaceContext);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, System.identityHashCode(definition), namespaceContext);
+        }
+
+        @Override
+        public String toString() {
+            return query + " for " + definition;
+        }
+    }
+}
@@ -16,6 +16,7 @@ import javax.xml.namespace.QName;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
 import com.google.common.collect.ImmutableMap;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.axiom.lang.antlr.AxiomAntlrLiterals;
@@ -139,6 +140,10 @@ public class PrismQueryLanguageParserImpl implements PrismQueryLanguageParser {
             SingleValueContext valueSpec = subfilterOrValue.singleValue();
             schemaCheck(valueSpec != null, "Single value is required.");
             if (valueSpec.path() != null) {
+                String parameterName = getParameterName(valueSpec.path());
+                if (parameterName != null) {
+                    return parameterFilter(propDef, path, matchingRule, parameters.get(parameterName));
+                }
                 ItemPath rightPath = path(parentDef, valueSpec.path());
                 if (isVariablePath(valueSpec.path())) {
                     return expressionFilter(propDef, path, matchingRule, parseExpression(rightPath));
@@ -154,6 +159,20 @@ public class PrismQueryLanguageParserImpl implements PrismQueryLanguageParser {
             throw new IllegalStateException();
         }
 
+        /** String parameter values are treated like string literals, other ones are used as they are. */
+        private ObjectFilter parameterFilter(PrismPropertyDefinition<?> propDef, ItemPath path,
+                QName matchingRule, Object parameter) throws SchemaException {
+            if (parameter instanceof Collection<?>) {
+                ArrayList<Object> values = new ArrayList<>();
+                for (Object value : (Collection<?>) parameter) {
+                    values.add(value instanceof String ? parseLiteral(propDef, (String) value) : value);
+                }
+                return valuesFilter(propDef, path, matchingRule, values);
+            }
+            return valueFilter(propDef, path, matchingRule,
+                    parameter instanceof String ? parseLiteral(propDef, (String) parameter) : parameter);
+        }
+
         protected ObjectFilter valuesFilter(PrismPropertyDefinition<?> propDef, ItemPath path,
                 QName matchingRule, ArrayList<Object> values) throws SchemaException {
             schemaCheck(false, "Multiple values are not supported");
@@ -268,6 +287,10 @@ public class PrismQueryLanguageParserImpl implements PrismQueryLanguageParser {
                 var refDef = (PrismReferenceDefinition) definition;
                 if (subfilterOrValue.expression() != null) {
                     return RefFilterImpl.createReferenceEqual(path, refDef, parseExpression(subfilterOrValue.expression()));
+                } else if (subfilterOrValue.singleValue() != null
+                        && getParameterName(subfilterOrValue.singleValue().path()) != null) {
+                    Object parameter = parameters.get(getParameterName(subfilterOrValue.singleValue().path()));
+                    return RefFilterImpl.createReferenceEqual(path, refDef, toReferenceValues(parameter));
                 } else if (isVariablePath(subfilterOrValue.singleValue())) {
                     var rightPath = path(parentDef, subfilterOrValue.singleValue().path());
                     return RefFilterImpl.createReferenceEqual(path, refDef, parseExpression(rightPath));
@@ -571,6 +594,16 @@ public class PrismQueryLanguageParserImpl implements PrismQueryLanguageParser {
     private final PrismContext context;
     private final Map<String, String> namespaceContext;
     private final PrismQueryExpressionFactory expressionParser;
+    @Nullable private final AxiomQueryCache queryCache;
+
+    /** Values of `$name` variables that are to be replaced by values (instead of being treated as expressions). */
+    @NotNull private final Map<String, ?> parameters;
+
+    /**
+     * Set when an expression is created. Used to exclude such filters from caching. Parsers that use this flag
+     * are created for a single parsing operation (see {@link #parseFilter(ItemDefinition, String)}), so it is safe.
+     */
+    private boolean expressionCreated;
 
     public PrismQueryLanguageParserImpl(PrismContext context) {
         this(context, ImmutableMap.of(), null);
@@ -628,20 +661,63 @@ public class PrismQueryLanguageParserImpl implements PrismQueryLanguageParser {
         return path.getText().contains("$");
     }
 
+    /** Returns the name of the parameter the path (`$name`) refers to, or null if it is not a bound parameter. */
+    private @Nullable String getParameterName(@Nullable PathContext path) {
+        if (parameters.isEmpty() || path == null) {
+            return null;
+        }
+        String text = path.getText();
+        if (!text.startsWith("$") || text.contains("/")) {
+            return null;
+        }
+        String name = text.substring(1);
+        return parameters.containsKey(name) ? name : null;
+    }
+
+    private List<PrismReferenceValue> toReferenceValues(Object parameter) throws SchemaException {
+        List<PrismReferenceValue> values = new ArrayList<>();
+        for (Object value : parameter instanceof Collection<?> ? (Collection<?>) parameter : Collections.singleton(parameter)) {
+            if (value instanceof String) {
+                values.add(new PrismReferenceValueImpl((String) value));
+            } else if (value instanceof PrismReferenceValue) {
+                values.add(((PrismReferenceValue) value).clone());
+            } else if (value instanceof Referencable) {
+                values.add(((Referencable) value).asReferenceValue().clone());
+            } else {
+                throw new SchemaException("Unsupported reference parameter value: " + value);
+            }
+        }
+        return values;
+    }
+
     public PrismQueryLanguageParserImpl(PrismContext context, Map<String, String> namespaceContext) {
         this(context, namespaceContext, null);
     }
 
     public PrismQueryLanguageParserImpl(PrismContext context, Map<String, String> namespaceContext, PrismQueryExpressionFactory expressionParser) {
+        this(context, namespaceContext, expressionParser, null);
+    }
+
+    public PrismQueryLanguageParserImpl(PrismContext context, Map<String, String> namespaceContext,
+            PrismQueryExpressionFactory expressionParser, @Nullable AxiomQueryCache queryCache) {
+        this(context, namespaceContext, expressionParser, queryCache, Map.of());
+    }
+
+    private PrismQueryLanguageParserImpl(PrismContext context, Map<String, String> namespaceContext,
+            PrismQueryExpressionFactory expressionParser, @Nullable AxiomQueryCache queryCache,
+            @NotNull Map<String, ?> parameters) {
         this.context = context;
         this.namespaceContext = namespaceContext;
         this.expressionParser = expressionParser;
+        this.queryCache = queryCache;
+        this.parameters = parameters;
     }
 
     ExpressionWrapper parseExpression(ItemPath rightPath) throws SchemaException {
         if (expressionParser == null) {
             throw new SchemaException("Expressions are not supported");
         }
+        expressionCreated = true;
         return expressionParser.parsePath(rightPath);
     }
 
@@ -649,6 +725,7 @@ public class PrismQueryLanguageParserImpl implements PrismQueryLanguageParser {
         if (expressionParser == null) {
             throw new SchemaException("Expressions are not supported");
         }
+        expressionCreated = true;
         if (expression.constant() != null) {
             return parseConstant(expression.constant());
         }
@@ -677,13 +754,17 @@ public class PrismQueryLanguageParserImpl implements PrismQueryLanguageParser {
     }
 
     public Object parseLiteral(PrismPropertyDefinition<?> propDef, LiteralValueContext literalValue) {
+        return parseLiteral(propDef, extractTextForm(literalValue));
+    }
+
+    private Object parseLiteral(PrismPropertyDefinition<?> propDef, String text) {
         if (propDef.getTypeClass() != null) {
             // shortcut
-            return parseLiteral(propDef.getTypeClass(), literalValue);
+            return XmlTypeConverter.toJavaValue(text, namespaceContext, propDef.getTypeClass());
         }
         PrismNamespaceContext nsCtx = PrismNamespaceContext.from(namespaceContext);
         RootXNodeImpl xnode = new RootXNodeImpl(propDef.getItemName(), nsCtx);
-        xnode.setSubnode(new PrimitiveXNodeImpl<>(extractTextForm(literalValue), nsCtx));
+        xnode.setSubnode(new PrimitiveXNodeImpl<>(text, nsCtx));
         try {
             PrismPropertyValue<?> itemValue = context.parserFor(xnode).definition(propDef).parseItemValue();
             return itemValue.getRealValue();
@@ -715,20 +796,62 @@ public class PrismQueryLanguageParserImpl implements PrismQueryLanguageParser {
 
     @Override
     public <T> ObjectFilter parseFilter(Class<T> typeClass, String query) throws SchemaException {
+        return parseFilter(getDefinition(typeClass), query);
+    }
+
+    @Override
+    public <T> ObjectFilter parseFilter(Class<T> typeClass, String query, Map<String, ?> parameters)
+            throws SchemaException {
+        return parseFilter(getDefinition(typeClass), query, parameters);
+    }
+
+    private ItemDefinition<?> getDefinition(Class<?> typeClass) {
         SchemaRegistry schemaRegistry = context.getSchemaRegistry();
         ItemDefinition<?> definition = Referencable.class.isAssignableFrom(typeClass)
-                ? PrismContext.get().definitionFactory().createReferenceDefinition(
-                PrismConstants.T_SELF, PrismConstants.T_OBJECT_REFERENCE)
+                ? getSelfReferenceDefinition()
                 : schemaRegistry.findItemDefinitionByCompileTimeClass(typeClass, ItemDefinition.class);
         if (definition == null) {
             throw new IllegalArgumentException("Couldn't find definition for type " + typeClass);
         }
-        return parseFilter(definition, query);
+        return definition;
+    }
+
+    /** The cached filters are keyed by the definition identity, so the shared definition is used if there is a cache. */
+    private ItemDefinition<?> getSelfReferenceDefinition() {
+        if (queryCache != null) {
+            return queryCache.getSelfReferenceDefinition();
+        }
+        return PrismContext.get().definitionFactory().createReferenceDefinition(
+                PrismConstants.T_SELF, PrismConstants.T_OBJECT_REFERENCE);
     }
 
     @Override
     public ObjectFilter parseFilter(ItemDefinition<?> definition, String query) throws SchemaException {
-        return parseQuery(definition, AxiomQuerySource.from(query));
+        if (queryCache == null) {
+            return parseQuery(definition, AxiomQuerySource.from(query));
+        }
+        var key = new AxiomQueryCache.FilterKey(query, definition, namespaceContext);
+        ObjectFilter cached = queryCache.getFilter(key);
+        if (cached != null) {
+            return cached;
+        }
+        var parser = new PrismQueryLanguageParserImpl(context, namespaceContext, expressionParser, queryCache, parameters);
+        ObjectFilter filter = parser.parseQuery(definition, queryCache.getSource(query));
+        if (filter != null && !parser.expressionCreated && parameters.isEmpty()) {
+            queryCache.putFilter(key, filter);
+        }
+        return filter;
+    }
+
+    @Override
+    public ObjectFilter parseFilter(ItemDefinition<?> definition, String query, Map<String, ?> parameters)
+            throws SchemaException {
+        if (parameters.isEmpty()) {
+            return parseFilter(definition, query);
+        }
+        AxiomQuerySource source = queryCache != null ? queryCache.getSource(query) : AxiomQuerySource.from(query);
+        return new PrismQueryLanguageParserImpl(context, namespaceContext, expressionParser, queryCache, parameters)
+                .parseQuery(definition, source);
     }
 
     private ObjectFilter parseQuery(ItemDefinition<?> contextDef, AxiomQuerySource source)
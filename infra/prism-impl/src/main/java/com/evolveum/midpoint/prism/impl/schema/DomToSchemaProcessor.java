@@ -18,23 +18,18 @@ import com.sun.xml.xsom.XSSchemaSet;
 import com.sun.xml.xsom.parser.XSOMParser;
 import com.sun.xml.xsom.util.DomAnnotationParserFactory;
 
-import ch.qos.logback.core.joran.spi.XMLUtil;
-
 import org.jetbrains.annotations.NotNull;
 import org.w3c.dom.Element;
 import org.xml.sax.EntityResolver;
-import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
+import org.xml.sax.helpers.LocatorImpl;
+import org.xml.sax.helpers.XMLFilterImpl;
 
 import javax.xml.parsers.SAXParserFactory;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import javax.xml.transform.sax.SAXResult;
 import java.util.List;
 
 /**
@@ -51,8 +46,6 @@ class DomToSchemaProcessor {
 
     private static final Trace LOGGER = TraceManager.getTrace(DomToSchemaProcessor.class);
 
-    private static final Object SCHEMA_PARSING = new Object();
-
     private EntityResolver entityResolver;
     private final PrismContext prismContext;
     private String shortDescription;
@@ -96,59 +89,62 @@ class DomToSchemaProcessor {
         }
     }
 
+    /**
+     * Parses the schema using a new XSOM parser, so that more schemas can be parsed concurrently.
+     *
+     * The parser is fed directly from (a copy of) the DOM, without serializing it to bytes and parsing them again.
+     */
     private XSSchemaSet parseSchema(Element schema) throws SchemaException {
-        // Synchronization here is a brutal workaround for MID-5648. We need to synchronize on parsing schemas globally, because
-        // it looks like there are many fragments (referenced schemas) that get resolved during parsing.
-        //
-        // Unfortunately, this is not sufficient by itself -- there is a pre-processing that must be synchronized as well.
-        synchronized (SCHEMA_PARSING) {
+        Element schemaCopy = copyForParsing(schema);
+        SAXParserFactory saxParserFactory = DOMUtil.SAX_PARSER_FACTORIES.borrow();
+        try {
+            XSOMParser parser = createSchemaParser(saxParserFactory);
+            XMLFilterImpl handler = new LocatorProvidingHandler();
+            handler.setContentHandler(parser.getParserHandler());
+            DOMUtil.transform(new DOMSource(schemaCopy), new SAXResult(handler));
+            return parser.getResult();
+
+        } catch (SAXException e) {
+            throw new SchemaException("XML error during XSD schema parsing: " + e.getMessage()
+                    + "(embedded exception " + e.getException() + ") in " + shortDescription, e);
+        } catch (TransformerException e) {
+            if (e.getException() instanceof SAXException) {
+                SAXException saxException = (SAXException) e.getException();
+                throw new SchemaException("XML error during XSD schema parsing: " + saxException.getMessage()
+                        + "(embedded exception " + saxException.getException() + ") in " + shortDescription, saxException);
+            }
+            throw new SchemaException("XML transformer error during XSD schema parsing: " + e.getMessage()
+                    + "(locator: " + e.getLocator() + ", embedded exception:" + e.getException() + ") in "
+                    + shortDescription, e);
+        } catch (RuntimeException e) {
+            // This sometimes happens, e.g. NPEs in Saxon
+            if (LOGGER.isErrorEnabled()) {
+                LOGGER.error("Unexpected error {} during parsing of schema:\n{}", e.getMessage(),
+                        DOMUtil.serializeDOMToString(schemaCopy));
+            }
+            throw new SchemaException(
+                    "XML error during XSD schema parsing: " + e.getMessage() + " in " + shortDescription, e);
+        } finally {
+            DOMUtil.SAX_PARSER_FACTORIES.release(saxParserFactory);
+        }
+    }
+
+    /**
+     * DOM structures are not thread-safe, even for reading (see MID-5648, MID-8860). So we touch the original element
+     * only while holding its lock, and parse a private copy of it. The lock is never held while calling out,
+     * so it cannot cause a deadlock.
+     */
+    private Element copyForParsing(Element schema) {
+        //noinspection SynchronizationOnLocalVariableOrMethodParameter
+        synchronized (schema) {
             // Make sure that the schema parser sees all the namespace declarations
             DOMUtil.fixNamespaceDeclarations(schema);
-            try {
-                TransformerFactory transfac = DOMUtil.setupTransformerFactory();
-                Transformer trans = transfac.newTransformer();
-                trans.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
-                trans.setOutputProperty(OutputKeys.INDENT, "yes");
-
-                DOMSource source = new DOMSource(schema);
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                StreamResult result = new StreamResult(out);
-
-                trans.transform(source, result);
-
-                XSOMParser parser = createSchemaParser();
-                InputSource inSource = new InputSource(new ByteArrayInputStream(out.toByteArray()));
-                // XXX: hack: it's here to make entity resolver work...
-                inSource.setSystemId("SystemId");
-                // XXX: end hack
-                inSource.setEncoding("utf-8");
-
-                parser.parse(inSource);
-                return parser.getResult();
-
-            } catch (SAXException e) {
-                throw new SchemaException("XML error during XSD schema parsing: " + e.getMessage()
-                        + "(embedded exception " + e.getException() + ") in " + shortDescription, e);
-            } catch (TransformerException e) {
-                throw new SchemaException("XML transformer error during XSD schema parsing: " + e.getMessage()
-                        + "(locator: " + e.getLocator() + ", embedded exception:" + e.getException() + ") in "
-                        + shortDescription, e);
-            } catch (RuntimeException e) {
-                // This sometimes happens, e.g. NPEs in Saxon
-                if (LOGGER.isErrorEnabled()) {
-                    LOGGER.error("Unexpected error {} during parsing of schema:\n{}", e.getMessage(),
-                            DOMUtil.serializeDOMToString(schema));
-                }
-                throw new SchemaException(
-                        "XML error during XSD schema parsing: " + e.getMessage() + " in " + shortDescription, e);
-            }
+            return (Element) schema.cloneNode(true);
         }
     }
 
-    private XSOMParser createSchemaParser() {
-        var saxParser = SAXParserFactory.newInstance();
-        saxParser.setNamespaceAware(true);
-        XSOMParser parser = new XSOMParser(saxParser);
+    private XSOMParser createSchemaParser(SAXParserFactory saxParserFactory) {
+        XSOMParser parser = new XSOMParser(saxParserFactory);
         if (entityResolver == null) {
             entityResolver = ((PrismContextImpl) prismContext).getEntityResolver();
             if (entityResolver == null) {
@@ -164,4 +160,25 @@ class DomToSchemaProcessor {
 
         return parser;
     }
+
+    /**
+     * XSOM requires a document locator, which is not provided when the events are generated from DOM.
+     */
+    private static class LocatorProvidingHandler extends XMLFilterImpl {
+
+        @Override
+        public void setDocumentLocator(Locator locator) {
+            // ignored, we provide our own one
+        }
+
+        @Override
+        public void startDocument() throws SAXException {
+            LocatorImpl locator = new LocatorImpl();
+            // XXX: hack: it's here to make entity resolver work...
+            locator.setSystemId("SystemId");
+            // XXX: end hack
+            super.setDocumentLocator(locator);
+            super.startDocument();
+        }
+    }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.schema;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.namespace.QName;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.ComplexTypeDefinition;
+import com.evolveum.midpoint.prism.Definition;
+import com.evolveum.midpoint.prism.ItemDefinition;
+import com.evolveum.midpoint.prism.schema.PrismSchema;
+import com.evolveum.midpoint.prism.path.ItemName;
+
+/**
+ * Pool of canonical item names used by the parsers.
+ *
+ * Without it, each parsed item gets its own copies of {@link QName}/{@link ItemName} instances (including their
+ * namespace strings), which are then kept as keys in container values and map XNodes, and as element names of items.
+ * Here, names of items defined in the schema are resolved to the very instances from their definitions (so they
+ * are shared and can be compared by identity), and other names are interned weakly, i.e. only while they are in use.
+ *
+ * The canonical names carry no prefixes. This is the same as for items resolved via their definitions, whose names
+ * are taken from the definitions as well.
+ */
+public class ItemNameInterner {
+
+    /** Names not present in the schema (e.g. from dynamic schemas or raw data). Shared by all registries. */
+    private static final Interner<ItemName> OTHER_NAMES = Interners.newWeakInterner();
+
+    /** Plain {@link QName} values (e.g. type names or QName-typed property values). */
+    private static final Interner<QName> QNAMES = Interners.newWeakInterner();
+
+    private static final Interner<String> NAMESPACES = Interners.newWeakInterner();
+
+    /** Names from the item definitions. Replaced as a whole when the schemas change. */
+    private volatile Map<QName, ItemName> definedNames = Map.of();
+
+    /** Rebuilds the pool of defined names from the (already parsed) schemas. */
+    void seed(@NotNull Iterable<? extends PrismSchema> schemas) {
+        Map<QName, ItemName> names = new HashMap<>();
+        for (PrismSchema schema : schemas) {
+            for (Definition definition : schema.getDefinitions()) {
+                if (definition instanceof ItemDefinition<?>) {
+                    addDefinedName(names, ((ItemDefinition<?>) definition).getItemName());
+                } else if (definition instanceof ComplexTypeDefinition) {
+                    for (ItemDefinition<?> itemDefinition : ((ComplexTypeDefinition) definition).getDefinitions()) {
+                        addDefinedName(names, itemDefinition.getItemName());
+                    }
+                }
+            }
+        }
+        definedNames = names;
+    }
+
+    private static void addDefinedName(Map<QName, ItemName> names, ItemName name) {
+        if (StringUtils.isEmpty(name.getPrefix())) {
+            names.putIfAbsent(name, name);
+        }
+    }
+
+    /** Returns the canonical instance of given item name. */
+    public @NotNull ItemName intern(@NotNull QName name) {
+        ItemName defined = definedNames.get(name);
+        if (defined != null) {
+            return defined;
+        }
+        return OTHER_NAMES.intern(name instanceof ItemName && StringUtils.isEmpty(name.getPrefix()) ?
+                (ItemName) name :
+                new ItemName(internNamespace(name.getNamespaceURI()), name.getLocalPart()));
+    }
+
+    /**
+     * Returns the canonical instance of given (plain) {@link QName}. Unlike {@link #intern(QName)}, this does not
+     * convert the name to {@link ItemName}, so it can be used for values, where the class matters.
+     */
+    public static @NotNull QName internQName(@NotNull QName name) {
+        if (StringUtils.isNotEmpty(name.getPrefix()) || name.getClass() != QName.class) {
+            return name;
+        }
+        return QNAMES.intern(new QName(internNamespace(name.getNamespaceURI()), name.getLocalPart()));
+    }
+
+    private static String internNamespace(String namespace) {
+        return namespace.isEmpty() ? namespace : NAMESPACES.intern(namespace);
+    }
+}
@@ -203,6 +203,10 @@ public class PrismSchemaImpl extends AbstractFreezable implements MutablePrismSc
         }
     }
 
+    @NotNull Map<Class<?>, TypeDefinition> getTypeDefinitionsByCompileTimeClass() {
+        return Collections.unmodifiableMap(typeDefinitionByCompileTimeClassMap);
+    }
+
     @Override
     public void addSubstitution(QName substitutionHead, ItemDefinition<?> definition) {
         this.substitutions.put(substitutionHead, definition);
@@ -243,6 +247,31 @@ public class PrismSchemaImpl extends AbstractFreezable implements MutablePrismSc
         }
     }
 
+    /**
+     * Like {@link #parse(Element, boolean, String, PrismContext)}, but the result is frozen, and is shared among
+     * the callers providing the same schema document. Intended for runtime schemas that are parsed repeatedly
+     * (e.g. resource schemas).
+     *
+     * See {@link RuntimeSchemaCache}.
+     */
+    public static PrismSchema parseCached(Element element, boolean isRuntime, String shortDescription, PrismContext prismContext)
+            throws SchemaException {
+        RuntimeSchemaCache cache = ((SchemaRegistryImpl) prismContext.getSchemaRegistry()).getRuntimeSchemaCache();
+        RuntimeSchemaCache.Key key = cache.createKey(element, isRuntime);
+        if (key != null) {
+            PrismSchema cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        PrismSchema schema = parse(element, isRuntime, shortDescription, prismContext);
+        schema.freeze();
+        if (key != null) {
+            cache.put(key, schema);
+        }
+        return schema;
+    }
+
     // used for parsing prism schemas; only in exceptional cases
     public static PrismSchema parse(Element element, EntityResolver resolver, boolean isRuntime, String shortDescription,
             boolean allowDelayedItemDefinitions, PrismContext prismContext) throws SchemaException {
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.schema;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Element;
+
+import com.evolveum.midpoint.prism.PrismStaticConfiguration;
+import com.evolveum.midpoint.prism.schema.PrismSchema;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Cache of parsed runtime schemas (e.g. connector or resource schemas), owned by {@link SchemaRegistryImpl}.
+ *
+ * The schemas are keyed by a digest of the serialized XSD element, so the same schema document is parsed only once,
+ * even if it comes in different DOM objects. The cached schemas are frozen, so they can be shared freely.
+ *
+ * The key contains also the {@link #version} of the cache, which is increased whenever the schema registry
+ * invalidates its caches. So a schema parsed against the previous state of the registry is never returned
+ * (nor stored) after the invalidation.
+ *
+ * The number of entries is limited by {@link PrismStaticConfiguration#runtimeSchemaCacheSize()}; the least
+ * recently used ones are evicted.
+ */
+class RuntimeSchemaCache {
+
+    private static final Trace LOGGER = TraceManager.getTrace(RuntimeSchemaCache.class);
+
+    private final Map<Key, PrismSchema> schemas = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, PrismSchema> eldest) {
+            return size() > PrismStaticConfiguration.runtimeSchemaCacheSize();
+        }
+    };
+
+    private long version;
+
+    /** Creates the key for given schema element. Returns null if the cache is disabled. */
+    @Nullable Key createKey(@NotNull Element schemaElement, boolean isRuntime) {
+        if (PrismStaticConfiguration.runtimeSchemaCacheSize() <= 0) {
+            CachePerformanceCollector.INSTANCE.registerPass(RuntimeSchemaCache.class, PrismSchema.class, null);
+            return null;
+        }
+        String serialized;
+        //noinspection SynchronizationOnLocalVariableOrMethodParameter
+        synchronized (schemaElement) {
+            // The DOM is not thread-safe, even for reading (see PrismSchemaImpl.parse).
+            serialized = DOMUtil.serializeDOMToString(schemaElement);
+        }
+        return new Key(digest(serialized), isRuntime, getVersion());
+    }
+
+    synchronized @Nullable PrismSchema get(@NotNull Key key) {
+        PrismSchema schema = schemas.get(key);
+        if (schema != null) {
+            CachePerformanceCollector.INSTANCE.registerHit(RuntimeSchemaCache.class, PrismSchema.class, null);
+            LOGGER.trace("Cache hit for runtime schema {}", key);
+        } else {
+            CachePerformanceCollector.INSTANCE.registerMiss(RuntimeSchemaCache.class, PrismSchema.class, null);
+            LOGGER.trace("Cache miss for runtime schema {}", key);
+        }
+        return schema;
+    }
+
+    /** Stores the (frozen) schema, unless the cache was invalidated since the key was created. */
+    synchronized void put(@NotNull Key key, @NotNull PrismSchema schema) {
+        assert schema.isImmutable();
+        if (key.version == version) {
+            schemas.put(key, schema);
+        }
+    }
+
+    synchronized void invalidate() {
+        version++;
+        schemas.clear();
+    }
+
+    synchronized int size() {
+        return schemas.size();
+    }
+
+    private synchronized long getVersion() {
+        return version;
+    }
+
+    private static @NotNull String digest(@NotNull String serializedSchema) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(
+                    digest.digest(serializedSchema.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new SystemException(e);
+        }
+    }
+
+    static class Key {
+
+        @NotNull private final String digest;
+        private final boolean isRuntime;
+        private final long version;
+
+        private Key(@NotNull String digest, boolean isRuntime, long version) {
+            this.digest = digest;
+            this.isRuntime = isRuntime;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return isRuntime == key.isRuntime
+                    && version == key.version
+                    && digest.equals(key.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(digest, isRuntime, version);
+        }
+
+        @Override
+        public String toString() {
+            return digest + (isRuntime ? " (runtime)" : "") + " v" + version;
+        }
+    }
+}
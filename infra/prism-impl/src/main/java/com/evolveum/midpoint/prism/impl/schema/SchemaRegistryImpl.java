@@ -9,9 +9,12 @@ package com.evolveum.midpoint.prism.impl.schema;
 import static java.util.Collections.emptyList;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.*;
 import java.util.Map.Entry;
@@ -50,6 +53,8 @@ import com.evolveum.midpoint.prism.xml.XsdTypeMapper;
 import com.evolveum.midpoint.util.*;
 import com.evolveum.midpoint.util.annotation.Experimental;
 import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.util.exception.TunnelException;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 import com.evolveum.prism.xml.ns._public.types_3.ObjectType;
@@ -80,11 +85,31 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
      */
     private String catalogResourceName = DEFAULT_RUNTIME_CATALOG_RESOURCE;
 
+    /**
+     * Snapshot of parsed prism schemas (see {@link SchemaRegistrySnapshot}) to be used instead of parsing the schemas,
+     * if it matches the registered schema descriptions. This has precedence over {@link #schemaSnapshotResourceName}.
+     */
+    private File schemaSnapshotFile;
+
+    /** Classpath resource containing the snapshot of parsed prism schemas. Overridden by {@link #schemaSnapshotFile}. */
+    private String schemaSnapshotResourceName;
+
+    /** File to write the snapshot of parsed prism schemas to, during initialization. Used at build time. */
+    private File schemaSnapshotOutputFile;
+
+    /** True if the prism schemas were restored from the snapshot (instead of being parsed). */
+    private boolean restoredFromSnapshot;
+
     /**
      * Schema that is used for "native" validation of XML files.
      * It is set up during initialization. So any schemas added after that will not be reflected here.
+     *
+     * When the schemas are restored from a snapshot, this schema is created lazily (on first use).
      */
-    private javax.xml.validation.Schema javaxSchema;
+    private volatile javax.xml.validation.Schema javaxSchema;
+
+    /** True if {@link #javaxSchema} is to be created on first use. */
+    private volatile boolean javaxSchemaDeferred;
 
     /**
      * Resolver for schema files based on catalog files or catalog resource.
@@ -198,6 +223,12 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
      */
     private final Collection<InvalidationListener> invalidationListeners = new ArrayList<>();
 
+    /**
+     * Parsed runtime schemas, see {@link PrismSchemaImpl#parseCached(Element, boolean, String, PrismContext)}.
+     * Invalidated together with other caches, see {@link #invalidateCaches()}.
+     */
+    private final RuntimeSchemaCache runtimeSchemaCache = new RuntimeSchemaCache();
+
     /**
      * Type name for value metadata container. It is set by the application. For example,
      * for midPoint it is c:ValueMetadataType.
@@ -222,6 +253,9 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
 
     private PrismNamespaceContext.Builder staticPrefixes = PrismNamespaceContext.builder();
 
+    /** Canonical item names used by parsers; see {@link ItemNameInterner}. */
+    private final ItemNameInterner itemNameInterner = new ItemNameInterner();
+
     @Override
     public DynamicNamespacePrefixMapper getNamespacePrefixMapper() {
         return namespacePrefixMapper;
@@ -245,6 +279,10 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
         this.prismContext = prismContext;
     }
 
+    @NotNull RuntimeSchemaCache getRuntimeSchemaCache() {
+        return runtimeSchemaCache;
+    }
+
     public XmlEntityResolver getEntityResolver() {
         return entityResolver;
     }
@@ -275,6 +313,34 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
         this.catalogResourceName = catalogResourceName;
     }
 
+    public File getSchemaSnapshotFile() {
+        return schemaSnapshotFile;
+    }
+
+    public void setSchemaSnapshotFile(File schemaSnapshotFile) {
+        this.schemaSnapshotFile = schemaSnapshotFile;
+    }
+
+    public String getSchemaSnapshotResourceName() {
+        return schemaSnapshotResourceName;
+    }
+
+    public void setSchemaSnapshotResourceName(String schemaSnapshotResourceName) {
+        this.schemaSnapshotResourceName = schemaSnapshotResourceName;
+    }
+
+    public File getSchemaSnapshotOutputFile() {
+        return schemaSnapshotOutputFile;
+    }
+
+    public void setSchemaSnapshotOutputFile(File schemaSnapshotOutputFile) {
+        this.schemaSnapshotOutputFile = schemaSnapshotOutputFile;
+    }
+
+    public boolean isRestoredFromSnapshot() {
+        return restoredFromSnapshot;
+    }
+
     @Override
     public String getDefaultNamespace() {
         return defaultNamespace;
@@ -383,17 +449,32 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
         loadPrismSchemaFileDescription(file);
     }
 
+    /**
+     * Registers the schema file, with the package of compile-time classes determined by the schema namespace.
+     * (Schemas with namespaces not in the map have no compile-time classes.)
+     */
+    public void registerPrismSchemaFile(File file, @NotNull Map<String, Package> compileTimeClassesPackages)
+            throws IOException, SchemaException {
+        loadPrismSchemaFileDescription(file, compileTimeClassesPackages);
+    }
+
     public void registerPrismSchema(InputStream input, String sourceDescription) throws SchemaException {
         loadPrismSchemaDescription(input, sourceDescription);
     }
 
     protected void loadPrismSchemaFileDescription(File file) throws SchemaException, IOException {
+        loadPrismSchemaFileDescription(file, Map.of());
+    }
+
+    protected void loadPrismSchemaFileDescription(File file, @NotNull Map<String, Package> compileTimeClassesPackages)
+            throws SchemaException, IOException {
         if (!(file.getName().matches(".*\\.xsd$"))) {
             LOGGER.trace("Skipping registering {}, because it is not schema definition.", file.getAbsolutePath());
         } else {
             LOGGER.info("Loading schema from file {}", file);
             SchemaDescriptionImpl desc = SchemaDescriptionParser.parseFile(file);
             desc.setPrismSchema(true);
+            desc.setCompileTimeClassesPackage(compileTimeClassesPackages.get(desc.getNamespace()));
             registerSchemaDescription(desc);
         }
     }
@@ -490,16 +571,31 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
             long resolverDone = System.currentTimeMillis();
             LOGGER.trace("initResolver() done in {} ms", resolverDone - start);
 
-            parsePrismSchemas();
-            long prismSchemasDone = System.currentTimeMillis();
-            LOGGER.trace("parsePrismSchemas() done in {} ms", prismSchemasDone - resolverDone);
+            if (!initialized && restoreSchemaSnapshot()) {
+                restoredFromSnapshot = true;
+                long snapshotDone = System.currentTimeMillis();
+                LOGGER.trace("restoreSchemaSnapshot() done in {} ms", snapshotDone - resolverDone);
+                // The schemas were validated when the snapshot was created.
+                javaxSchema = null;
+                javaxSchemaDeferred = true;
+            } else {
+                parsePrismSchemas();
+                long prismSchemasDone = System.currentTimeMillis();
+                LOGGER.trace("parsePrismSchemas() done in {} ms", prismSchemasDone - resolverDone);
 
-            parseJavaxSchema();
-            long javaxSchemasDone = System.currentTimeMillis();
-            LOGGER.trace("parseJavaxSchema() done in {} ms", javaxSchemasDone - prismSchemasDone);
+                parseJavaxSchema();
+                long javaxSchemasDone = System.currentTimeMillis();
+                LOGGER.trace("parseJavaxSchema() done in {} ms", javaxSchemasDone - prismSchemasDone);
+
+                // Only schemas that passed the validation (by creating the javax schema) are written.
+                if (schemaSnapshotOutputFile != null) {
+                    writeSchemaSnapshot(schemaSnapshotOutputFile);
+                }
+            }
 
             parseAdditionalSchemas();
             schemaDescriptions.forEach(Freezable::freeze);
+            itemNameInterner.seed(getSchemas());
 
             invalidateCaches();
             staticNamespaceContext = staticPrefixes.build();
@@ -521,9 +617,79 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
         isListByElementName.clear();
         classForTypeIncludingXsd.clear();
         classForTypeExcludingXsd.clear();
+        runtimeSchemaCache.invalidate();
         invalidationListeners.forEach(InvalidationListener::invalidate);
     }
 
+    /**
+     * Restores parsed prism schemas from the snapshot (if configured). Returns false if the snapshot is not available
+     * or does not match the registered schema descriptions; the schemas have to be parsed then.
+     */
+    private boolean restoreSchemaSnapshot() {
+        SchemaRegistrySnapshot snapshot = readSchemaSnapshot();
+        if (snapshot == null) {
+            return false;
+        }
+        if (!snapshot.matches(schemaDescriptions)) {
+            LOGGER.info("Schema snapshot does not match the registered schemas, the schemas will be parsed");
+            return false;
+        }
+        snapshot.restoreSchemas(schemaDescriptions);
+        extensionSchemas.putAll(snapshot.getExtensionSchemas());
+        substitutions.putAll(snapshot.getSubstitutions());
+        return true;
+    }
+
+    private SchemaRegistrySnapshot readSchemaSnapshot() {
+        try (InputStream inputStream = openSchemaSnapshot()) {
+            if (inputStream == null) {
+                return null;
+            }
+            SchemaRegistrySnapshot snapshot = SchemaRegistrySnapshot.read(inputStream);
+            if (snapshot == null) {
+                LOGGER.info("Schema snapshot is in an unsupported format, the schemas will be parsed");
+            }
+            return snapshot;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            LOGGER.warn("Couldn't read schema snapshot, the schemas will be parsed: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private InputStream openSchemaSnapshot() throws FileNotFoundException {
+        if (schemaSnapshotFile != null) {
+            if (!schemaSnapshotFile.exists()) {
+                LOGGER.debug("Schema snapshot file {} does not exist", schemaSnapshotFile);
+                return null;
+            }
+            return new FileInputStream(schemaSnapshotFile);
+        } else if (schemaSnapshotResourceName != null) {
+            InputStream inputStream = SchemaRegistryImpl.class.getClassLoader().getResourceAsStream(schemaSnapshotResourceName);
+            if (inputStream == null) {
+                LOGGER.debug("Schema snapshot resource {} does not exist", schemaSnapshotResourceName);
+            }
+            return inputStream;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the snapshot of parsed prism schemas, to be used by {@link #setSchemaSnapshotFile(File)}
+     * or {@link #setSchemaSnapshotResourceName(String)} later.
+     */
+    private void writeSchemaSnapshot(File file) throws IOException {
+        LOGGER.debug("Writing schema snapshot to {}", file);
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Couldn't create directory " + parent);
+        }
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            SchemaRegistrySnapshot.create(schemaDescriptions, extensionSchemas, substitutions)
+                    .write(outputStream);
+        }
+    }
+
     private void parseJavaxSchema() throws SAXException {
         SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
         Source[] sources = new Source[schemaDescriptions.size()];
@@ -535,6 +701,7 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
         }
         schemaFactory.setResourceResolver(entityResolver);
         javaxSchema = schemaFactory.newSchema(sources);
+        javaxSchemaDeferred = false;
     }
 
     protected void parsePrismSchemas() throws SchemaException {
@@ -625,6 +792,16 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
     // only in exceptional situations
     // may not work for schemas with circular references
     private void parsePrismSchema(SchemaDescriptionImpl schemaDescription, boolean allowDelayedItemDefinitions) throws SchemaException {
+        PrismSchema schema = parseSchemaDescription(schemaDescription, allowDelayedItemDefinitions);
+        schemaDescription.setSchema(schema);
+        detectAugmentations(schema);
+    }
+
+    /**
+     * Parses the schema without touching the registry state, so it can be called for more schemas concurrently.
+     */
+    private PrismSchema parseSchemaDescription(SchemaDescriptionImpl schemaDescription, boolean allowDelayedItemDefinitions)
+            throws SchemaException {
         String namespace = schemaDescription.getNamespace();
 
         Element domElement = schemaDescription.getDomElement();
@@ -639,8 +816,35 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
         }
         LOGGER.trace("Parsed schema {}, namespace: {}, isRuntime: {} in {} ms",
                 schemaDescription.getSourceDescription(), namespace, isRuntime, System.currentTimeMillis() - started);
-        schemaDescription.setSchema(schema);
-        detectAugmentations(schema);
+        return schema;
+    }
+
+    /**
+     * Parses the fragments in parallel (using the common fork-join pool), as they do not depend on each other.
+     * The registry is updated afterwards, sequentially and in the original order, so the result is the same
+     * as if the fragments were parsed one by one.
+     */
+    private void parseFragments(List<SchemaDescriptionImpl> fragments, boolean allowDelayedItemDefinitions)
+            throws SchemaException {
+        List<PrismSchema> schemas;
+        try {
+            schemas = fragments.parallelStream()
+                    .map(fragment -> {
+                        try {
+                            return parseSchemaDescription(fragment, allowDelayedItemDefinitions);
+                        } catch (SchemaException e) {
+                            throw new TunnelException(e);
+                        }
+                    })
+                    .collect(Collectors.toList());
+        } catch (TunnelException e) {
+            throw (SchemaException) e.getCause();
+        }
+        for (int i = 0; i < fragments.size(); i++) {
+            PrismSchema schema = schemas.get(i);
+            fragments.get(i).setSchema(schema);
+            detectAugmentations(schema);
+        }
     }
 
     // see https://stackoverflow.com/questions/14837293/xsd-circular-import
@@ -686,13 +890,15 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
             detectAugmentations(description.getSchema());
         }
 
+        List<SchemaDescriptionImpl> fragments = new ArrayList<>();
         for (String namespace : fragmentedNamespaces) {
-            Collection<SchemaDescriptionImpl> fragments = schemasByNamespace.get(namespace);
-            LOGGER.trace("Parsing {} schemas for fragmented namespace {}", fragments.size(), namespace);
-            for (SchemaDescriptionImpl schemaDescription : fragments) {
-                parsePrismSchema(schemaDescription, allowDelayedItemDefinitions);
-            }
+            Collection<SchemaDescriptionImpl> namespaceFragments = schemasByNamespace.get(namespace);
+            LOGGER.trace("Parsing {} schemas for fragmented namespace {}", namespaceFragments.size(), namespace);
+            fragments.addAll(namespaceFragments);
         }
+        started = System.currentTimeMillis();
+        parseFragments(fragments, allowDelayedItemDefinitions);
+        LOGGER.trace("Parsed {} schema fragments in {} ms", fragments.size(), System.currentTimeMillis() - started);
     }
 
     private void detectAugmentations(PrismSchema schema) {
@@ -772,12 +978,24 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
     //region Schemas and type maps (TODO)
     @Override
     public javax.xml.validation.Schema getJavaxSchema() {
+        javax.xml.validation.Schema schema = javaxSchema;
+        return schema != null ? schema : parseDeferredJavaxSchema();
+    }
+
+    private synchronized javax.xml.validation.Schema parseDeferredJavaxSchema() {
+        if (javaxSchemaDeferred) {
+            try {
+                parseJavaxSchema();
+            } catch (SAXException e) {
+                throw new SystemException("Couldn't parse schemas for validation: " + e.getMessage(), e);
+            }
+        }
         return javaxSchema;
     }
 
     @Override
     public Validator getJavaxSchemaValidator() {
-        Validator validator = javaxSchema.newValidator();
+        Validator validator = getJavaxSchema().newValidator();
         validator.setResourceResolver(entityResolver);
         return validator;
     }
@@ -1306,6 +1524,10 @@ public class SchemaRegistryImpl implements DebugDumpable, SchemaRegistry {
         }
     }
 
+    public @NotNull ItemNameInterner getItemNameInterner() {
+        return itemNameInterner;
+    }
+
     @Override
     public Collection<PrismSchema> getSchemas() {
         return parsedSchemas.values().stream()
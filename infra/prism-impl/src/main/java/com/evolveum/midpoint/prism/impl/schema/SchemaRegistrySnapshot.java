@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.impl.schema;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.xml.namespace.QName;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.ComplexTypeDefinition;
+import com.evolveum.midpoint.prism.Definition;
+import com.evolveum.midpoint.prism.ItemDefinition;
+import com.evolveum.midpoint.prism.TypeDefinition;
+import com.evolveum.midpoint.prism.impl.SerializationProxy;
+import com.evolveum.midpoint.prism.schema.PrismSchema;
+import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.exception.SystemException;
+
+/**
+ * Precompiled state of prism schemas in {@link SchemaRegistryImpl}: definitions parsed from the schema descriptions,
+ * extension schemas and substitutions, as they are after {@link SchemaRegistryImpl#parsePrismSchemas()}.
+ *
+ * The snapshot is stored using Java serialization (with serialization proxies replaced by the definitions they stand for,
+ * see {@link ProxyFreeObjectOutputStream}), so that the whole definition graph, including shared references between
+ * the schemas, is restored as it was.
+ *
+ * The snapshot is bound to the schema descriptions it was created from by a {@link #checksum}. If the descriptions
+ * (or the snapshot format) change, the snapshot is not used, and the schemas are parsed from the XSDs.
+ */
+class SchemaRegistrySnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** To be increased when the content of the snapshot changes in an incompatible way. */
+    private static final int FORMAT_VERSION = 1;
+
+    @NotNull private final String checksum;
+
+    /** Schemas for individual schema descriptions (in the order of the descriptions). */
+    @NotNull private final List<SchemaContent> schemas;
+
+    @NotNull private final Map<QName, ComplexTypeDefinition> extensionSchemas;
+
+    @NotNull private final HashMultimap<QName, ItemDefinition<?>> substitutions;
+
+    private SchemaRegistrySnapshot(
+            @NotNull String checksum,
+            @NotNull List<SchemaContent> schemas,
+            @NotNull Map<QName, ComplexTypeDefinition> extensionSchemas,
+            @NotNull HashMultimap<QName, ItemDefinition<?>> substitutions) {
+        this.checksum = checksum;
+        this.schemas = schemas;
+        this.extensionSchemas = extensionSchemas;
+        this.substitutions = substitutions;
+    }
+
+    static @NotNull SchemaRegistrySnapshot create(
+            @NotNull List<SchemaDescriptionImpl> descriptions,
+            @NotNull Map<QName, ComplexTypeDefinition> extensionSchemas,
+            @NotNull Multimap<QName, ItemDefinition<?>> substitutions) {
+        List<SchemaContent> schemas = new ArrayList<>(descriptions.size());
+        for (SchemaDescriptionImpl description : descriptions) {
+            PrismSchema schema = description.getSchema();
+            schemas.add(schema != null ? new SchemaContent((PrismSchemaImpl) schema) : null);
+        }
+        return new SchemaRegistrySnapshot(
+                computeChecksum(descriptions),
+                schemas,
+                new HashMap<>(extensionSchemas),
+                HashMultimap.create(substitutions));
+    }
+
+    /** Returns true if the snapshot was created from (the same version of) given schema descriptions. */
+    boolean matches(@NotNull List<SchemaDescriptionImpl> descriptions) {
+        return schemas.size() == descriptions.size()
+                && checksum.equals(computeChecksum(descriptions));
+    }
+
+    /** Sets the schemas to the descriptions. They must be {@link #matches(List) matching} the snapshot. */
+    void restoreSchemas(@NotNull List<SchemaDescriptionImpl> descriptions) {
+        for (int i = 0; i < descriptions.size(); i++) {
+            SchemaContent content = schemas.get(i);
+            if (content != null) {
+                descriptions.get(i).setSchema(content.toSchema());
+            }
+        }
+    }
+
+    @NotNull Map<QName, ComplexTypeDefinition> getExtensionSchemas() {
+        return extensionSchemas;
+    }
+
+    @NotNull Multimap<QName, ItemDefinition<?>> getSubstitutions() {
+        return substitutions;
+    }
+
+    void write(@NotNull OutputStream outputStream) throws IOException {
+        try (ObjectOutputStream objectStream = new ProxyFreeObjectOutputStream(
+                new BufferedOutputStream(new GZIPOutputStream(outputStream)))) {
+            objectStream.writeInt(FORMAT_VERSION);
+            objectStream.writeObject(this);
+        }
+    }
+
+    /** Returns null if the snapshot is in an unsupported format. */
+    static @Nullable SchemaRegistrySnapshot read(@NotNull InputStream inputStream)
+            throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objectStream = new ObjectInputStream(
+                new BufferedInputStream(new GZIPInputStream(inputStream)))) {
+            if (objectStream.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            return (SchemaRegistrySnapshot) objectStream.readObject();
+        }
+    }
+
+    private static @NotNull String computeChecksum(@NotNull List<SchemaDescriptionImpl> descriptions) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new SystemException(e);
+        }
+        update(digest, String.valueOf(FORMAT_VERSION));
+        for (SchemaDescriptionImpl description : descriptions) {
+            Package compileTimeClassesPackage = description.getCompileTimeClassesPackage();
+            update(digest, description.getNamespace());
+            update(digest, String.valueOf(description.isPrismSchema()));
+            update(digest, compileTimeClassesPackage != null ? compileTimeClassesPackage.getName() : null);
+            update(digest, DOMUtil.serializeDOMToString(description.getDomElement()));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+
+    /** Content of a {@link PrismSchemaImpl}; the schema itself is not serializable. */
+    private static class SchemaContent implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @NotNull private final String namespace;
+        @NotNull private final List<Definition> definitions;
+        @NotNull private final Map<Class<?>, TypeDefinition> typeDefinitionsByCompileTimeClass;
+        @NotNull private final HashMultimap<QName, ItemDefinition<?>> substitutions;
+
+        private SchemaContent(@NotNull PrismSchemaImpl schema) {
+            this.namespace = schema.getNamespace();
+            this.definitions = new ArrayList<>(schema.getDefinitions());
+            this.typeDefinitionsByCompileTimeClass = new HashMap<>(schema.getTypeDefinitionsByCompileTimeClass());
+            this.substitutions = HashMultimap.create(schema.getSubstitutions());
+        }
+
+        private @NotNull PrismSchemaImpl toSchema() {
+            PrismSchemaImpl schema = new PrismSchemaImpl(namespace);
+            definitions.forEach(schema::add);
+            typeDefinitionsByCompileTimeClass.forEach(schema::registerCompileTimeClass);
+            substitutions.forEach(schema::addSubstitution);
+            return schema;
+        }
+    }
+
+    /**
+     * Writes definitions instead of their {@link SerializationProxy serialization proxies}. The proxies would refer
+     * to the definitions in the schema registry, which is what the snapshot is going to create.
+     *
+     * This affects only this stream; other serializations running at the same time use the proxies as usual.
+     */
+    private static class ProxyFreeObjectOutputStream extends ObjectOutputStream {
+
+        ProxyFreeObjectOutputStream(@NotNull OutputStream out) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) {
+            if (obj instanceof SerializationProxy) {
+                Object original = ((SerializationProxy) obj).getOriginal();
+                if (original == null) {
+                    throw new IllegalStateException("Serialization proxy without the original object: " + obj);
+                }
+                return original;
+            }
+            return obj;
+        }
+    }
+}
@@ -15,8 +15,6 @@ import java.util.HashSet;
 import java.util.Set;
 
 import javax.xml.namespace.QName;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import com.evolveum.midpoint.prism.*;
@@ -573,7 +571,7 @@ public class SchemaToDomProcessor {
     /**
      * Create schema XSD DOM document.
      */
-    private void init() throws ParserConfigurationException {
+    private void init() {
 
         if (namespacePrefixMapper == null) {
             // TODO: clone?
@@ -588,19 +586,7 @@ public class SchemaToDomProcessor {
             LOGGER.trace("Using namespace prefix mapper to serialize schema:\n{}",DebugUtil.dump(namespacePrefixMapper));
         }
 
-        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-        documentBuilderFactory.setNamespaceAware(true);
-        documentBuilderFactory.setValidating(false);
-        // XXE
-        documentBuilderFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-        documentBuilderFactory.setFeature("http://xml.org/sax/features/external-general-entities", false);
-        documentBuilderFactory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
-        documentBuilderFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-        documentBuilderFactory.setXIncludeAware(false);
-        documentBuilderFactory.setExpandEntityReferences(false);
-        DocumentBuilder db = documentBuilderFactory.newDocumentBuilder();
-
-        document = db.newDocument();
+        document = DOMUtil.getDocument();
         Element root = createElement(new QName(W3C_XML_SCHEMA_NS_URI, "schema"));
         document.appendChild(root);
 
@@ -12,7 +12,9 @@ import com.evolveum.midpoint.prism.schema.SchemaDescription;
 import com.evolveum.midpoint.util.DOMUtil;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
+import org.w3c.dom.Element;
 import org.w3c.dom.ls.LSInput;
+import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
@@ -111,8 +113,14 @@ public class XmlEntityResolverImpl implements XmlEntityResolver {
                 if (schemaDescription.canInputStream()) {
                     inputStream = schemaDescription.openInputStream();
                 } else {
-                    DOMUtil.fixNamespaceDeclarations(schemaDescription.getDomElement());
-                    String xml = DOMUtil.serializeDOMToString(schemaDescription.getDomElement());
+                    // The element may be read by other schema parsing threads at the same time (DOM is not thread-safe).
+                    Element domElement = schemaDescription.getDomElement();
+                    String xml;
+                    //noinspection SynchronizationOnLocalVariableOrMethodParameter
+                    synchronized (domElement) {
+                        DOMUtil.fixNamespaceDeclarations(domElement);
+                        xml = DOMUtil.serializeDOMToString(domElement);
+                    }
                     inputStream = new ByteArrayInputStream(xml.getBytes());
                 }
                 InputSource source = new InputSource();
@@ -133,17 +141,22 @@ public class XmlEntityResolverImpl implements XmlEntityResolver {
     public InputSource resolveResourceUsingBuiltinResolver(String type, String namespaceURI, String publicId, String systemId,
             String baseURI) {
         InputSource inputSource;
+        // The catalog resolver is not guaranteed to be thread-safe, and schemas may be parsed concurrently.
+        EntityResolver builtinResolver = schemaRegistry.getBuiltinSchemaResolver();
         try {
-            // we first try to use traditional pair of publicId + systemId
-            // the use of namespaceUri can be misleading in case of schema fragments:
-            // e.g. when xsd:including common-model-context-3 the publicId=null, systemId=.../common-model-context-3 but nsUri=.../common-3
-            inputSource = schemaRegistry.getBuiltinSchemaResolver().resolveEntity(publicId, systemId);
-            LOGGER.trace("...... Result of using builtin resolver by publicId + systemId: {}", inputSource);
-            // in some weird cases (e.g. when publicId=null, systemId=xml.xsd) we go with namespaceUri (e.g. http://www.w3.org/XML/1998/namespace)
-            // it's a kind of unfortunate magic here
-            if (inputSource == null && namespaceURI != null) {
-                inputSource = schemaRegistry.getBuiltinSchemaResolver().resolveEntity(namespaceURI, systemId);
-                LOGGER.trace("...... Result of using builtin resolver by namespaceURI + systemId: {}", inputSource);
+            //noinspection SynchronizationOnLocalVariableOrMethodParameter
+            synchronized (builtinResolver) {
+                // we first try to use traditional pair of publicId + systemId
+                // the use of namespaceUri can be misleading in case of schema fragments:
+                // e.g. when xsd:including common-model-context-3 the publicId=null, systemId=.../common-model-context-3 but nsUri=.../common-3
+                inputSource = builtinResolver.resolveEntity(publicId, systemId);
+                LOGGER.trace("...... Result of using builtin resolver by publicId + systemId: {}", inputSource);
+                // in some weird cases (e.g. when publicId=null, systemId=xml.xsd) we go with namespaceUri (e.g. http://www.w3.org/XML/1998/namespace)
+                // it's a kind of unfortunate magic here
+                if (inputSource == null && namespaceURI != null) {
+                    inputSource = builtinResolver.resolveEntity(namespaceURI, systemId);
+                    LOGGER.trace("...... Result of using builtin resolver by namespaceURI + systemId: {}", inputSource);
+                }
             }
         } catch (SAXException e) {
             LOGGER.error("XML parser error resolving reference of type {}, namespaceURI: {}, publicID: {}, systemID: {}, baseURI: {}: {}", type, namespaceURI, publicId, systemId, baseURI, e.getMessage(), e);
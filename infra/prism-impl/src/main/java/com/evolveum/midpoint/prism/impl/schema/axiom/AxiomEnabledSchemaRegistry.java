@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.function.Consumer;
 import java.util.Optional;
@@ -270,11 +271,12 @@ public class AxiomEnabledSchemaRegistry extends SchemaRegistryImpl {
 
 
     @Override
-    protected void loadPrismSchemaFileDescription(File file) throws SchemaException, IOException {
+    protected void loadPrismSchemaFileDescription(File file, @NotNull Map<String, Package> compileTimeClassesPackages)
+            throws SchemaException, IOException {
         if(file.getName().endsWith(AXIOM_SUFFIX)) {
             addAxiomSource(AxiomModelStatementSource.from(file));
         } else {
-            super.loadPrismSchemaFileDescription(file);
+            super.loadPrismSchemaFileDescription(file, compileTimeClassesPackages);
         }
     }
 
@@ -19,6 +19,7 @@ import org.w3c.dom.Element;
 
 import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.impl.*;
+import com.evolveum.midpoint.prism.impl.binding.ItemSlot;
 import com.evolveum.midpoint.prism.path.ItemName;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.xnode.MapXNode;
@@ -347,6 +348,80 @@ public final class PrismForJAXBUtil {
         }
     }
 
+    // Slot-based variants of the above methods (used by beans generated with slot access).
+    // Items not present in the container value (and values with unusual definitions) are handled by name.
+
+    public static <T> T getPropertyValue(PrismContainerValue<?> container, ItemSlot slot, Class<T> clazz) {
+        Validate.notNull(container, "Container must not be null.");
+        Validate.notNull(clazz, "Class type must not be null.");
+
+        return getPropertyValue(slot.findItem(container, PrismProperty.class), clazz);
+    }
+
+    public static <T> List<T> getPropertyValues(PrismContainerValue<?> container, ItemSlot slot, Class<T> clazz)
+            throws PrismContainerValue.RemovedItemDefinitionException {
+        Validate.notNull(container, "Container must not be null.");
+
+        PrismProperty<?> property = slot.findItem(container, PrismProperty.class);
+        if (property != null) {
+            return new PropertyArrayList<>(property, container);
+        } else {
+            return getPropertyValues(container, slot.getName(), clazz);
+        }
+    }
+
+    public static <T> void setPropertyValue(PrismContainerValue<?> container, ItemSlot slot, T value) {
+        Validate.notNull(container, "Container must not be null.");
+
+        PrismProperty<?> property = value != null ? slot.findItem(container, PrismProperty.class) : null;
+        if (property != null) {
+            Object propertyRealValue = JaxbTypeConverter.mapJaxbToPropertyRealValue(value);
+            if (propertyRealValue == null) {
+                container.removeProperty(slot.getName());
+            } else {
+                property.setValue(new PrismPropertyValueImpl(propertyRealValue));
+            }
+        } else {
+            setPropertyValue(container, slot.getName(), value);
+        }
+    }
+
+    public static <T extends Containerable> T getFieldSingleContainerable(
+            PrismContainerValue<?> parent, ItemSlot slot, Class<T> fieldClass) {
+        Validate.notNull(parent, "Container value must not be null.");
+
+        PrismContainer<T> container = slot.findItem(parent, PrismContainer.class);
+        PrismContainerValue<T> fieldContainerValue = container != null ? container.getValue() : null;
+        return fieldContainerValue != null ? fieldContainerValue.asContainerable(fieldClass) : null;
+    }
+
+    public static <T extends PrismContainer<?>> T getContainer(PrismContainerValue<?> parentValue, ItemSlot slot)
+            throws PrismContainerValue.RemovedItemDefinitionException {
+        Validate.notNull(parentValue, "Parent container value must not be null.");
+
+        if (!JAXB_CLASS_MANGLED.equals(slot.getName().getLocalPart())) {
+            PrismContainer<?> container = slot.findItem(parentValue, PrismContainer.class);
+            if (container != null) {
+                //noinspection unchecked
+                return (T) container;
+            }
+        }
+        return getContainer(parentValue, slot.getName());
+    }
+
+    public static PrismReferenceValue getReferenceValue(PrismContainerValue<?> parent, ItemSlot slot) {
+        Validate.notNull(parent, "Prism container value must not be null.");
+
+        PrismReference reference = slot.findItem(parent, PrismReference.class);
+        return reference != null ? reference.getValue() : null;
+    }
+
+    public static PrismReference getReference(PrismContainerValue<?> parent, ItemSlot slot)
+            throws PrismContainerValue.RemovedItemDefinitionException {
+        PrismReference reference = slot.findItem(parent, PrismReference.class);
+        return reference != null ? reference : getReference(parent, slot.getName());
+    }
+
     public static Objectable getReferenceObjectable(PrismReferenceValue rval) {
         PrismObject object = rval.getObject();
         if (object == null) {
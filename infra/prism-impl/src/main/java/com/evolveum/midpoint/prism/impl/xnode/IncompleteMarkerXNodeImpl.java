@@ -49,4 +49,15 @@ public class IncompleteMarkerXNodeImpl extends XNodeImpl implements IncompleteMa
     public XNode copy() {
         return this;
     }
+
+    /** Markers carry no content, so all of them are equal. */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof IncompleteMarkerXNodeImpl;
+    }
+
+    @Override
+    public int hashCode() {
+        return 0x1AC0;
+    }
 }
@@ -16,6 +16,8 @@ import com.evolveum.midpoint.prism.PrismReferenceDefinition;
 import com.evolveum.midpoint.prism.SchemaMigration;
 import com.evolveum.midpoint.prism.SchemaMigrationOperation;
 import com.evolveum.midpoint.prism.impl.lex.json.JsonInfraItems;
+import com.evolveum.midpoint.prism.impl.schema.ItemNameInterner;
+import com.evolveum.midpoint.prism.impl.schema.SchemaRegistryImpl;
 import com.evolveum.midpoint.prism.schema.SchemaRegistry;
 import com.evolveum.midpoint.util.DOMUtil;
 import com.evolveum.midpoint.util.QNameUtil;
@@ -208,9 +210,13 @@ public abstract class XNodeDefinition {
 
         private SchemaRegistry registry;
 
+        /** Canonical names for items that are not resolved via definitions (may be null e.g. for mocked registries). */
+        private final ItemNameInterner interner;
+
         public SchemaRoot(SchemaRegistry reg) {
             super(new QName(""));
             registry = reg;
+            interner = reg instanceof SchemaRegistryImpl ? ((SchemaRegistryImpl) reg).getItemNameInterner() : null;
         }
 
         @Override
@@ -295,7 +301,7 @@ public abstract class XNodeDefinition {
 
         @Override
         protected XNodeDefinition unawareFrom(QName name) {
-            return new SimpleType(name, null, false, this);
+            return new SimpleType(interner != null ? interner.intern(name) : name, null, false, this);
         }
 
         @Override
@@ -24,6 +24,7 @@ import com.evolveum.midpoint.prism.delta.ItemDelta;
 import com.evolveum.midpoint.prism.delta.ObjectDelta;
 import com.evolveum.midpoint.prism.foo.AssignmentType;
 import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.prism.impl.PrismContainerValueImpl;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.query.PrismQueryLanguageParser;
 import com.evolveum.midpoint.prism.util.PrismTestUtil;
@@ -158,6 +159,21 @@ public abstract class AbstractPrismTest extends AbstractUnitTest {
         populateAssignmentValue(assignmentValue, id, description);
     }
 
+    /**
+     * Adds an assignment that can be frozen. Freezing creates the bean of a container value (if there is none),
+     * and the test {@link AssignmentType} does not support {@link Containerable#setupContainerValue(PrismContainerValue)}.
+     * So the value is created with a bean right away; the bean is not connected to the value.
+     */
+    protected PrismContainerValue<AssignmentType> addFreezableAssignment(
+            PrismObject<UserType> user, Long id, String description) throws SchemaException {
+        PrismContainer<AssignmentType> assignment = user.findOrCreateContainer(UserType.F_ASSIGNMENT);
+        PrismContainerValue<AssignmentType> assignmentValue =
+                new PrismContainerValueImpl<>(new AssignmentType(), getPrismContext());
+        assignment.add(assignmentValue);
+        populateAssignmentValue(assignmentValue, id, description);
+        return assignmentValue;
+    }
+
     protected void populateAssignmentValue(PrismContainerValue<AssignmentType> assignmentValue, Long id, String description) throws SchemaException {
         if (id != null) {
             assignmentValue.setId(id);
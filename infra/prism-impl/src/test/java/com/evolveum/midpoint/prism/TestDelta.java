@@ -14,7 +14,10 @@ import static com.evolveum.midpoint.prism.PrismInternalTestUtil.*;
 
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
 import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
 
 import org.jetbrains.annotations.NotNull;
 import org.testng.AssertJUnit;
@@ -33,6 +36,7 @@ import com.evolveum.midpoint.prism.impl.delta.PropertyDeltaImpl;
 import com.evolveum.midpoint.prism.impl.delta.ReferenceDeltaImpl;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.polystring.PolyString;
+import com.evolveum.midpoint.prism.util.ObjectDeltaObject;
 import com.evolveum.midpoint.prism.util.PrismAsserts;
 import com.evolveum.midpoint.prism.util.PrismTestUtil;
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
@@ -1194,6 +1198,74 @@ public class TestDelta extends AbstractPrismTest {
         return userDelta;
     }
 
+    /**
+     * Checks that finding item deltas in a delta with many modifications (indexed by their paths)
+     * gives the same results as without the index, also after modifications are added and removed.
+     */
+    @Test
+    public void testObjectDeltaFindItemDeltaIndexed() throws Exception {
+        given("a delta with many modifications");
+        ObjectDelta<UserType> userDelta = createDeltaForFindItem(false);
+        for (long id = 1; id <= 20; id++) {
+            userDelta.addModificationReplaceProperty(
+                    ItemPath.create(UserType.F_ASSIGNMENT, id, AssignmentType.F_DESCRIPTION), "description " + id);
+        }
+        List<ItemPath> paths = List.of(
+                UserType.F_GIVEN_NAME,
+                ItemPath.create(new QName(UserType.F_GIVEN_NAME.getLocalPart())), // without namespace
+                ItemPath.create(UserType.F_ACTIVATION, ActivationType.F_ENABLED), // in container delta
+                UserType.F_ACTIVATION,
+                UserType.F_ASSIGNMENT,
+                ItemPath.create(UserType.F_ASSIGNMENT, 5L),
+                ItemPath.create(UserType.F_ASSIGNMENT, 5L, AssignmentType.F_DESCRIPTION),
+                ItemPath.create(UserType.F_ASSIGNMENT, AssignmentType.F_DESCRIPTION), // null ID
+                ItemPath.create(UserType.F_ASSIGNMENT, 50L, AssignmentType.F_DESCRIPTION),
+                UserType.F_FULL_NAME);
+        PrismStaticConfiguration.setModificationIndexThreshold(5);
+        try {
+            when("lookups are done with and without the index");
+            for (ItemPath path : paths) {
+                assertEquals("Different lookup results for " + path,
+                        describeLookups(userDelta, path, false), describeLookups(userDelta, path, true));
+            }
+
+            and("modifications are added and removed");
+            userDelta.removeModification(
+                    userDelta.findItemDelta(ItemPath.create(UserType.F_ASSIGNMENT, 5L, AssignmentType.F_DESCRIPTION)));
+            userDelta.addModificationReplaceProperty(UserType.F_FULL_NAME, "Guybrush Threepwood");
+            userDelta.addModificationReplaceProperty(UserType.F_GIVEN_NAME, "Guy");
+
+            then("lookups are still the same");
+            for (ItemPath path : paths) {
+                assertEquals("Different lookup results for " + path,
+                        describeLookups(userDelta, path, false), describeLookups(userDelta, path, true));
+            }
+            assertNull("Removed delta found",
+                    userDelta.findItemDelta(ItemPath.create(UserType.F_ASSIGNMENT, 5L, AssignmentType.F_DESCRIPTION)));
+            assertNotNull("Added delta not found", userDelta.findPropertyDelta(UserType.F_FULL_NAME));
+            PrismAsserts.assertPropertyReplace(userDelta, UserType.F_GIVEN_NAME, "Guy");
+            assertEquals("Wrong # of assignment deltas", 19,
+                    userDelta.findItemDeltasSubPath(UserType.F_ASSIGNMENT).size());
+        } finally {
+            PrismStaticConfiguration.setModificationIndexThreshold(16);
+        }
+    }
+
+    private String describeLookups(ObjectDelta<UserType> delta, ItemPath path, boolean indexed) {
+        PrismStaticConfiguration.setModificationIndexEnabled(indexed);
+        try {
+            return "found: " + delta.findItemDelta(path)
+                    + "\nhas: " + delta.hasItemDelta(path)
+                    + "\nhas item or subitem: " + delta.hasItemOrSubitemDelta(path)
+                    + "\nsubpath: " + delta.findItemDeltasSubPath(path)
+                    + "\npartial: " + delta.findPartial(path).stream()
+                    .map(d -> d.getDelta().getPath() + " / " + d.getResidualPath())
+                    .collect(Collectors.toList());
+        } finally {
+            PrismStaticConfiguration.setModificationIndexEnabled(true);
+        }
+    }
+
     /**
      * MODIFY/add + MODIFY/add
      */
@@ -1787,4 +1859,48 @@ public class TestDelta extends AbstractPrismTest {
         assertAssignmentReplace(narrowedDelta, 0);
     }
 
+    /**
+     * Computes the changed object from an immutable one; this uses copy-on-write cloning.
+     * The result must be the same as with the literal clone, and it must be independent of the original.
+     */
+    @Test
+    public void testComputeChangedObjectCopyOnWrite() throws Exception {
+        given();
+        PrismObject<UserType> user = createUserFoo();
+        addFreezableAssignment(user, ASSIGNMENT_PATLAMA_ID, ASSIGNMENT_PATLAMA_DESCRIPTION);
+        addFreezableAssignment(user, ASSIGNMENT_ABRAKADABRA_ID, ASSIGNMENT_ABRAKADABRA_DESCRIPTION);
+        user.freeze();
+
+        ObjectDelta<UserType> userDelta = getPrismContext().deltaFactory().object()
+                .createModificationReplaceProperty(UserType.class, USER_FOO_OID,
+                        ItemPath.create(UserType.F_ASSIGNMENT, ASSIGNMENT_PATLAMA_ID, AssignmentType.F_DESCRIPTION),
+                        "changed");
+        PrismObject<UserType> expected = user.clone();
+        userDelta.applyTo(expected);
+
+        when();
+        PrismObject<UserType> changed = userDelta.computeChangedObject(user);
+        ObjectDeltaObject<UserType> odo = ObjectDeltaObject.create(user, userDelta);
+
+        then();
+        displayValue("changed user", changed);
+        changed.checkConsistence();
+        assertFalse("Changed object is immutable", changed.isImmutable());
+        assertEquals("Wrong changed object", expected, changed);
+        assertEquals("Wrong new object in ODO", expected, odo.getNewObject());
+        assertAssignmentDescription(user, ASSIGNMENT_PATLAMA_ID, ASSIGNMENT_PATLAMA_DESCRIPTION);
+
+        and("untouched parts of the changed object can be modified independently");
+        changed.findContainer(UserType.F_ASSIGNMENT).findValue(ASSIGNMENT_ABRAKADABRA_ID)
+                .setPropertyRealValue(AssignmentType.F_DESCRIPTION, "changed too", getPrismContext());
+        assertAssignmentDescription(changed, ASSIGNMENT_ABRAKADABRA_ID, "changed too");
+        assertAssignmentDescription(user, ASSIGNMENT_ABRAKADABRA_ID, ASSIGNMENT_ABRAKADABRA_DESCRIPTION);
+        assertAssignmentDescription(odo.getNewObject(), ASSIGNMENT_ABRAKADABRA_ID, ASSIGNMENT_ABRAKADABRA_DESCRIPTION);
+    }
+
+    private void assertAssignmentDescription(PrismObject<UserType> user, long id, String expected) {
+        PrismContainerValue<?> assignment = user.findContainer(UserType.F_ASSIGNMENT).findValue(id);
+        assertEquals("Wrong description of assignment " + id,
+                expected, assignment.getPropertyRealValue(AssignmentType.F_DESCRIPTION, String.class));
+    }
 }
@@ -459,4 +459,129 @@ public class TestDiff extends AbstractPrismTest {
                 "chamalalia patlama paprtala");
         ItemDeltaCollectionsUtil.checkConsistence(modifications);
     }
+
+    /**
+     * Diff of items with many values groups the values into buckets (by IDs and hash codes).
+     * The result must be the same as when comparing the values one by one.
+     */
+    @Test
+    public void testUserLargeDiffBucketed() throws Exception {
+        given("two versions of a user with many values");
+        PrismObject<UserType> user1 = createUserWithManyValues();
+        PrismObject<UserType> user2 = createUserWithManyValues();
+
+        PrismContainer<AssignmentType> assignments2 = user2.findContainer(UserType.F_ASSIGNMENT);
+        assignments2.findValue(10L)
+                .setPropertyRealValue(AssignmentType.F_DESCRIPTION, "changed", PrismTestUtil.getPrismContext());
+        assignments2.remove(assignments2.findValue(20L), EquivalenceStrategy.DATA);
+        PrismContainerValue<AssignmentType> assignment101 = assignments2.createNewValue();
+        assignment101.setId(101L);
+        assignment101.setPropertyRealValue(AssignmentType.F_DESCRIPTION, "assignment 101", PrismTestUtil.getPrismContext());
+        assignments2.createNewValue()
+                .setPropertyRealValue(AssignmentType.F_DESCRIPTION, "assignment without ID", PrismTestUtil.getPrismContext());
+        user2.findProperty(UserType.F_ADDITIONAL_NAMES).deleteValue(
+                PrismTestUtil.getPrismContext().itemFactory().createPropertyValue("name 30"));
+        user2.findProperty(UserType.F_ADDITIONAL_NAMES).addRealValue("name 100");
+        PrismReference accountRef2 = user2.findReference(UserType.F_ACCOUNT_REF);
+        accountRef2.remove(accountRef2.findValueByOid("oid-40"), EquivalenceStrategy.DATA);
+        accountRef2.add(createReferenceValue("oid-100"));
+
+        when("users are compared with and without bucketing");
+        ObjectDelta<UserType> bucketed = user1.diff(user2);
+        ObjectDelta<UserType> linear;
+        PrismStaticConfiguration.setDiffBucketingEnabled(false);
+        try {
+            linear = user1.diff(user2);
+        } finally {
+            PrismStaticConfiguration.setDiffBucketingEnabled(true);
+        }
+
+        then("the deltas are the same and correct");
+        System.out.println(bucketed.debugDump());
+        assertTrue("Deltas differ:\n" + bucketed.debugDump() + "\n" + linear.debugDump(), bucketed.equivalent(linear));
+        assertEquals("Unexpected number of modifications", 4, bucketed.getModifications().size());
+        PrismAsserts.assertPropertyReplace(bucketed,
+                ItemPath.create(UserType.F_ASSIGNMENT, 10L, AssignmentType.F_DESCRIPTION), "changed");
+        ItemDelta<?, ?> assignmentDelta = bucketed.findContainerDelta(UserType.F_ASSIGNMENT);
+        assertEquals("Wrong # of assignments to add", 2, assignmentDelta.getValuesToAdd().size());
+        assertEquals("Wrong # of assignments to delete", 1, assignmentDelta.getValuesToDelete().size());
+        PrismAsserts.assertPropertyAdd(bucketed, UserType.F_ADDITIONAL_NAMES, "name 100");
+        PrismAsserts.assertPropertyDelete(bucketed, UserType.F_ADDITIONAL_NAMES, "name 30");
+        bucketed.checkConsistence();
+    }
+
+    /**
+     * A value can match one value of the other item by representation (the same ID) and another one only by content.
+     * The first of them in the order of the values is taken, with and without bucketing.
+     */
+    @Test
+    public void testUserLargeDiffBucketedFirstMatch() throws Exception {
+        given("a user with assignments matching the original ones both by ID and by content, in both orders");
+        PrismObject<UserType> user1 = createUserWithManyValues();
+        PrismObject<UserType> user2 = getUserTypeDefinition().instantiate();
+        user2.setOid(USER_JACK_OID);
+        PrismContainer<AssignmentType> assignments2 = user2.findOrCreateContainer(UserType.F_ASSIGNMENT);
+        for (int i = 0; i < 100; i++) {
+            if (i == 10) {
+                addAssignmentValue(assignments2, null, "assignment 10"); // the same content first
+                addAssignmentValue(assignments2, 10L, "changed 10");
+            } else if (i == 20) {
+                addAssignmentValue(assignments2, 20L, "changed 20"); // the same ID first
+                addAssignmentValue(assignments2, null, "assignment 20");
+            } else {
+                addAssignmentValue(assignments2, (long) i, "assignment " + i);
+            }
+        }
+
+        when("the assignments are compared by real values with and without bucketing");
+        ObjectDelta<UserType> bucketed = user1.diff(user2, EquivalenceStrategy.REAL_VALUE);
+        ObjectDelta<UserType> linear;
+        PrismStaticConfiguration.setDiffBucketingEnabled(false);
+        try {
+            linear = user1.diff(user2, EquivalenceStrategy.REAL_VALUE);
+        } finally {
+            PrismStaticConfiguration.setDiffBucketingEnabled(true);
+        }
+
+        then("the deltas are the same: the first matching value is taken");
+        System.out.println(bucketed.debugDump());
+        assertTrue("Deltas differ:\n" + bucketed.debugDump() + "\n" + linear.debugDump(), bucketed.equivalent(linear));
+        PrismAsserts.assertPropertyReplace(bucketed,
+                ItemPath.create(UserType.F_ASSIGNMENT, 20L, AssignmentType.F_DESCRIPTION), "changed 20");
+        ItemDelta<?, ?> assignmentDelta = bucketed.findContainerDelta(UserType.F_ASSIGNMENT);
+        assertEquals("Wrong # of assignments to add", 2, assignmentDelta.getValuesToAdd().size());
+        assertTrue("Assignment 10 with changed content is not added", assignmentDelta.getValuesToAdd().stream()
+                .anyMatch(v -> Long.valueOf(10L).equals(((PrismContainerValue<?>) v).getId())));
+        assertTrue("Unexpected assignments to delete", assignmentDelta.getValuesToDelete() == null
+                || assignmentDelta.getValuesToDelete().isEmpty());
+    }
+
+    private void addAssignmentValue(PrismContainer<AssignmentType> assignments, Long id, String description)
+            throws Exception {
+        PrismContainerValue<AssignmentType> assignment = assignments.createNewValue();
+        assignment.setId(id);
+        assignment.setPropertyRealValue(AssignmentType.F_DESCRIPTION, description, PrismTestUtil.getPrismContext());
+    }
+
+    private PrismObject<UserType> createUserWithManyValues() throws Exception {
+        PrismObject<UserType> user = getUserTypeDefinition().instantiate();
+        user.setOid(USER_JACK_OID);
+        PrismContainer<AssignmentType> assignments = user.findOrCreateContainer(UserType.F_ASSIGNMENT);
+        PrismProperty<String> additionalNames = user.findOrCreateProperty(UserType.F_ADDITIONAL_NAMES);
+        PrismReference accountRef = user.findOrCreateReference(UserType.F_ACCOUNT_REF);
+        for (int i = 0; i < 100; i++) {
+            PrismContainerValue<AssignmentType> assignment = assignments.createNewValue();
+            assignment.setId((long) i);
+            assignment.setPropertyRealValue(AssignmentType.F_DESCRIPTION, "assignment " + i, PrismTestUtil.getPrismContext());
+            additionalNames.addRealValue("name " + i);
+            accountRef.add(createReferenceValue("oid-" + i));
+        }
+        return user;
+    }
+
+    private PrismReferenceValue createReferenceValue(String oid) {
+        PrismReferenceValue value = PrismTestUtil.getPrismContext().itemFactory().createReferenceValue();
+        value.setOid(oid);
+        return value;
+    }
 }
@@ -13,13 +13,18 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.testng.AssertJUnit.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
 
 import org.testng.annotations.Test;
 
+import com.evolveum.midpoint.prism.equivalence.EquivalenceStrategy;
 import com.evolveum.midpoint.prism.foo.AccountConstructionType;
 import com.evolveum.midpoint.prism.foo.AssignmentType;
 import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.prism.impl.PrismReferenceImpl;
+import com.evolveum.midpoint.prism.impl.PrismReferenceValueImpl;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.util.PrismTestUtil;
@@ -222,6 +227,146 @@ public class TestFind extends AbstractPrismTest {
         return findProperty(user, path);
     }
 
+    /**
+     * Checks that lookups by container value ID are correct when the values are indexed,
+     * also after the values are added, removed, re-identified, and frozen.
+     */
+    @Test
+    public void testFindAssignmentByIdIndexed() throws SchemaException, IOException {
+        given("a user with many assignments, and low index threshold");
+        PrismObject<UserType> user = PrismTestUtil.getPrismContext().getSchemaRegistry()
+                .findObjectDefinitionByCompileTimeClass(UserType.class).instantiate();
+        PrismContainer<AssignmentType> assignments = user.findOrCreateContainer(UserType.F_ASSIGNMENT);
+        for (long id = 100; id < 110; id++) {
+            addFreezableAssignment(user, id, "Assignment " + id);
+        }
+        PrismStaticConfiguration.setContainerIdIndexThreshold(5);
+        try {
+            when("values are looked up, modified, and looked up again");
+            assertThat(assignments.findValue(105L)).as("value 105").isNotNull();
+            assertThat(assignments.findValue(109L)).as("value 109").isSameAs(assignments.getValue(109L));
+
+            PrismContainerValue<AssignmentType> value106 = assignments.findValue(106L);
+            assignments.remove(value106, EquivalenceStrategy.REAL_VALUE);
+            PrismContainerValue<AssignmentType> value107 = assignments.findValue(107L);
+            value107.setId(1007L);
+            PrismContainerValue<AssignmentType> value200 = addFreezableAssignment(user, 200L, null);
+
+            then("the lookups are correct");
+            assertThat(assignments.findValue(106L)).as("removed value").isNull();
+            assertThat(assignments.findValue(107L)).as("value with the old ID").isNull();
+            assertThat(assignments.findValue(1007L)).as("value with the new ID").isSameAs(value107);
+            assertThat(assignments.findValue(200L)).as("added value").isSameAs(value200);
+            assertThat((Object) user.find(ItemPath.create(UserType.F_ASSIGNMENT, 200L))).as("found by path").isSameAs(value200);
+
+            and("adding a value with existing ID is refused");
+            PrismContainerValue<AssignmentType> duplicate = assignments.getDefinition().instantiate().createNewValue();
+            duplicate.setId(200L);
+            try {
+                assignments.add(duplicate);
+                fail("unexpected success");
+            } catch (IllegalStateException e) {
+                displayExpectedException(e);
+            }
+
+            and("the lookups are correct after the values list is changed directly");
+            assertThat(assignments.getValues().removeIf(v -> Long.valueOf(108L).equals(v.getId()))).isTrue();
+            PrismContainerValue<AssignmentType> value300 = addFreezableAssignment(user, 300L, null);
+            assertThat(assignments.findValue(108L)).as("value removed directly").isNull();
+            assertThat(assignments.findValue(300L)).as("value added afterwards").isSameAs(value300);
+
+            and("the lookups are correct after freezing");
+            user.freeze();
+            assertThat(assignments.findValue(1007L)).as("value 1007 in frozen user").isSameAs(value107);
+            assertThat(assignments.findValue(107L)).as("value 107 in frozen user").isNull();
+        } finally {
+            PrismStaticConfiguration.setContainerIdIndexThreshold(50);
+        }
+    }
+
+    /**
+     * Checks that lookups by reference OID are correct when the values are indexed,
+     * also after the values are added, removed, and changed.
+     */
+    @Test
+    public void testFindReferenceByOidIndexed() throws SchemaException, IOException {
+        given("a user with many references, and low index threshold");
+        PrismObject<UserType> user = parseJack();
+        PrismReference accountRef = user.findOrCreateReference(UserType.F_ACCOUNT_REF);
+        for (int i = 0; i < 10; i++) {
+            accountRef.add(new PrismReferenceValueImpl("oid-" + i));
+        }
+        PrismStaticConfiguration.setReferenceOidIndexThreshold(5);
+        try {
+            when("values are looked up, modified, and looked up again");
+            PrismReferenceValue value3 = accountRef.findValueByOid("oid-3");
+            assertThat(value3).as("value oid-3").isNotNull();
+            accountRef.remove(accountRef.findValueByOid("oid-4"), EquivalenceStrategy.REAL_VALUE);
+            value3.setOid("oid-33");
+            accountRef.add(new PrismReferenceValueImpl("oid-20"));
+
+            then("the lookups are correct");
+            assertThat(accountRef.findValueByOid("oid-4")).as("removed value").isNull();
+            assertThat(accountRef.findValueByOid("oid-3")).as("value with the old OID").isNull();
+            assertThat(accountRef.findValueByOid("oid-33")).as("value with the new OID").isSameAs(value3);
+            assertThat(accountRef.findValueByOid("oid-20")).as("added value").isNotNull();
+        } finally {
+            PrismStaticConfiguration.setReferenceOidIndexThreshold(50);
+        }
+    }
+
+    /**
+     * A value with the OID taken from the embedded object prevents the lookups by OID from using the index,
+     * but only while the value is present.
+     */
+    @Test
+    public void testFindReferenceByOidWithEmbeddedObject() throws SchemaException, IOException {
+        given("a new user with many references, and low index threshold");
+        PrismObject<UserType> user = PrismTestUtil.getPrismContext().getSchemaRegistry()
+                .findObjectDefinitionByCompileTimeClass(UserType.class).instantiate();
+        PrismReferenceImpl accountRef = (PrismReferenceImpl) user.findOrCreateReference(UserType.F_ACCOUNT_REF);
+        for (int i = 0; i < 10; i++) {
+            accountRef.add(new PrismReferenceValueImpl("oid-" + i));
+        }
+        PrismStaticConfiguration.setReferenceOidIndexThreshold(5);
+        try {
+            assertThat(accountRef.isOidIndexed()).as("indexed at start").isTrue();
+
+            when("a value with embedded object (and no OID of its own) is added");
+            PrismReferenceValue embedded = new PrismReferenceValueImpl();
+            embedded.setObject(parseJack());
+            accountRef.add(embedded);
+
+            then("the index is not used, and the lookups are correct");
+            assertThat(accountRef.isOidIndexed()).as("indexed with embedded object").isFalse();
+            assertThat(accountRef.findValueByOid(USER_JACK_OID)).as("value with embedded object").isSameAs(embedded);
+            assertThat(accountRef.findValueByOid("oid-3")).as("value oid-3").isNotNull();
+
+            when("the value with embedded object is removed");
+            accountRef.remove(embedded, EquivalenceStrategy.REAL_VALUE);
+
+            then("the index is used again");
+            assertThat(accountRef.isOidIndexed()).as("indexed after removal").isTrue();
+            assertThat(accountRef.findValueByOid(USER_JACK_OID)).as("removed value").isNull();
+            assertThat(accountRef.findValueByOid("oid-3")).as("value oid-3").isNotNull();
+
+            when("the value with embedded object is added again, and then all values are replaced");
+            accountRef.add(embedded);
+            assertThat(accountRef.isOidIndexed()).as("indexed with embedded object").isFalse();
+            List<PrismReferenceValue> newValues = new ArrayList<>();
+            for (int i = 100; i < 110; i++) {
+                newValues.add(new PrismReferenceValueImpl("oid-" + i));
+            }
+            accountRef.replaceAll(newValues, EquivalenceStrategy.REAL_VALUE);
+
+            then("the index is used again");
+            assertThat(accountRef.isOidIndexed()).as("indexed after replace").isTrue();
+            assertThat(accountRef.findValueByOid("oid-105")).as("value oid-105").isSameAs(newValues.get(5));
+        } finally {
+            PrismStaticConfiguration.setReferenceOidIndexThreshold(50);
+        }
+    }
+
     private <T> PrismProperty<T> findProperty(PrismObject<UserType> user, ItemPath path) {
         System.out.println("Path:");
         System.out.println(path);
@@ -10,14 +10,31 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import static com.evolveum.midpoint.prism.PrismInternalTestUtil.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.xml.namespace.QName;
 
 import org.testng.annotations.BeforeSuite;
 import org.testng.annotations.Test;
 
+import com.evolveum.midpoint.prism.delta.ObjectDelta;
+import com.evolveum.midpoint.prism.equivalence.EquivalenceStrategy;
 import com.evolveum.midpoint.prism.foo.AssignmentType;
+import com.evolveum.midpoint.prism.foo.EventOperationFilterType;
+import com.evolveum.midpoint.prism.impl.PrismContainerValueImpl;
+import com.evolveum.midpoint.prism.impl.PrismContextImpl;
+import com.evolveum.midpoint.prism.impl.binding.ItemSlot;
+import com.evolveum.midpoint.prism.impl.marshaller.BeanMarshaller;
+import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
+import com.evolveum.midpoint.prism.impl.xnode.XNodeImpl;
 import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.prism.path.ItemName;
+import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.util.PrettyPrinter;
+import com.evolveum.midpoint.util.exception.SchemaException;
 
 /**
  * @author semancik
@@ -28,6 +45,22 @@ public class TestPerformance extends AbstractPrismTest {
 
     private static final double NANOS_TO_MILLIS_DOUBLE = 1_000_000d;
 
+    private static final int CHANGED_OBJECT_ASSIGNMENTS = 5_000;
+    private static final int CHANGED_OBJECT_ITERATIONS = 200;
+
+    private static final int LOOKUP_ASSIGNMENTS = 10_000;
+
+    private static final int DIFF_VALUES = 5_000;
+
+    private static final int ADDED_VALUES = 3_000;
+
+    private static final int MERGED_MODIFICATIONS = 2_000;
+
+    private static final int MARSHALLING_THREADS = 8;
+    private static final int MARSHALLING_ITERATIONS = 5_000;
+
+    private static final int SLOT_LOOKUP_ITERATIONS = 200_000;
+
     @BeforeSuite
     public void initPrismContext() {
         PrettyPrinter.setDefaultNamespacePrefix(DEFAULT_NAMESPACE_PREFIX);
@@ -85,4 +118,356 @@ public class TestPerformance extends AbstractPrismTest {
         assertThat(assignmentContainer.size()).isEqualTo(ITERATIONS);
         // we skip the 20k-line dump, it's heavy on some (*cough*Windows) consoles and crashes JVM
     }
+
+    /**
+     * Compares computing the changed object by literal cloning and by copy-on-write cloning
+     * (used by {@link com.evolveum.midpoint.prism.delta.ObjectDelta#computeChangedObject(PrismObject)}).
+     */
+    @Test
+    public void testPerfComputeChangedObject() throws Exception {
+        given("immutable user with many assignments");
+        PrismContext ctx = constructInitializedPrismContext();
+        PrismObjectDefinition<UserType> userDefinition = getFooSchema(ctx).findObjectDefinitionByElementName(new QName(NS_FOO, "user"));
+        PrismObject<UserType> user = userDefinition.instantiate();
+        user.setOid(USER_FOO_OID);
+        for (int i = 0; i < CHANGED_OBJECT_ASSIGNMENTS; i++) {
+            addFreezableAssignment(user, (long) i + 1, "ass " + i);
+        }
+        user.freeze();
+        ObjectDelta<UserType> delta = ctx.deltaFactory().object()
+                .createModificationReplaceProperty(UserType.class, USER_FOO_OID,
+                        ItemPath.create(UserType.F_ASSIGNMENT, 1L, AssignmentType.F_DESCRIPTION), "changed");
+
+        PerfRecorder literalRecorder = new PerfRecorder("Literal clone");
+        PerfRecorder copyOnWriteRecorder = new PerfRecorder("Copy-on-write clone");
+
+        when();
+        PrismObject<UserType> literal = null;
+        PrismObject<UserType> copyOnWrite = null;
+        for (int i = 0; i < CHANGED_OBJECT_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            literal = user.clone();
+            delta.applyTo(literal);
+            long middle = System.nanoTime();
+            copyOnWrite = delta.computeChangedObject(user);
+            long end = System.nanoTime();
+
+            literalRecorder.record(i, (middle - start) / NANOS_TO_MILLIS_DOUBLE);
+            copyOnWriteRecorder.record(i, (end - middle) / NANOS_TO_MILLIS_DOUBLE);
+        }
+
+        then();
+        displayValue("Literal", literalRecorder.dump());
+        displayValue("Copy-on-write", copyOnWriteRecorder.dump());
+        assertThat(copyOnWrite).isEqualTo(literal);
+
+        // The times are only displayed, as single runs on shared machines vary too much to be compared reliably.
+        // Instead, we check that only the modified part was copied, and that reading (and comparing) the rest
+        // does not copy it.
+        and("only the modified assignment is copied");
+        PrismContainer<AssignmentType> changedAssignments = copyOnWrite.findContainer(UserType.F_ASSIGNMENT);
+        assertThat(changedAssignments.getValues())
+                .as("copied assignment values")
+                .filteredOn(value -> !((PrismContainerValueImpl<?>) value).isCopyOnWritePending())
+                .extracting(value -> value.getId())
+                .containsExactly(1L);
+        PrismContainerValueImpl<?> untouched = (PrismContainerValueImpl<?>) changedAssignments.findValue(2L);
+        assertThat(untouched.size()).isEqualTo(1);
+        assertThat(untouched.getItemNames()).containsExactly(AssignmentType.F_DESCRIPTION);
+        assertThat(untouched.isEmpty()).isFalse();
+        assertThat(untouched.isCopyOnWritePending()).as("copy pending after reading").isTrue();
+    }
+
+    /**
+     * Compares looking up container values by ID with and without the ID index
+     * (see {@link PrismStaticConfiguration#containerIdIndexEnableThreshold()}).
+     */
+    @Test
+    public void testPerfFindContainerValueById() throws Exception {
+        given("user with many assignments");
+        PrismContext ctx = constructInitializedPrismContext();
+        PrismObjectDefinition<UserType> userDefinition = getFooSchema(ctx).findObjectDefinitionByElementName(new QName(NS_FOO, "user"));
+        PrismObject<UserType> user = userDefinition.instantiate();
+        PrismContainer<AssignmentType> assignmentContainer = user.findOrCreateContainer(UserType.F_ASSIGNMENT);
+        for (int i = 0; i < LOOKUP_ASSIGNMENTS; i++) {
+            assignmentContainer.createNewValue().setId((long) i + 1);
+        }
+
+        when("values are looked up without and with the index");
+        long linear;
+        PrismStaticConfiguration.setContainerIdIndexEnabled(false);
+        try {
+            linear = findAllAssignmentsById(assignmentContainer);
+        } finally {
+            PrismStaticConfiguration.setContainerIdIndexEnabled(true);
+        }
+        long indexed = findAllAssignmentsById(assignmentContainer);
+
+        then();
+        displayValue("Linear lookups (ms)", linear / NANOS_TO_MILLIS_DOUBLE);
+        displayValue("Indexed lookups (ms)", indexed / NANOS_TO_MILLIS_DOUBLE);
+        assertThat(indexed).as("indexed lookups time").isLessThan(linear / 10);
+    }
+
+    private long findAllAssignmentsById(PrismContainer<AssignmentType> assignmentContainer) {
+        long start = System.nanoTime();
+        for (long id = 1; id <= LOOKUP_ASSIGNMENTS; id++) {
+            assertThat(assignmentContainer.findValue(id)).isNotNull();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Compares diff of large multivalued items with and without bucketing
+     * (see {@link PrismStaticConfiguration#diffBucketingThreshold()}).
+     * The values are in a different order, which is the worst case for comparing the values one by one.
+     */
+    @Test
+    public void testPerfDiffManyValues() throws Exception {
+        given("two users with many values in different order");
+        PrismContext ctx = constructInitializedPrismContext();
+        PrismObjectDefinition<UserType> userDefinition = getFooSchema(ctx).findObjectDefinitionByElementName(new QName(NS_FOO, "user"));
+        PrismObject<UserType> user1 = userDefinition.instantiate();
+        PrismObject<UserType> user2 = userDefinition.instantiate();
+        PrismProperty<String> names1 = user1.findOrCreateProperty(UserType.F_ADDITIONAL_NAMES);
+        PrismProperty<String> names2 = user2.findOrCreateProperty(UserType.F_ADDITIONAL_NAMES);
+        for (int i = 0; i < DIFF_VALUES; i++) {
+            names1.addRealValueSkipUniquenessCheck("name " + i);
+            names2.addRealValueSkipUniquenessCheck("name " + (DIFF_VALUES - i));
+        }
+
+        when("users are compared without and with bucketing");
+        ObjectDelta<UserType> linearDelta;
+        long start = System.nanoTime();
+        PrismStaticConfiguration.setDiffBucketingEnabled(false);
+        try {
+            linearDelta = user1.diff(user2);
+        } finally {
+            PrismStaticConfiguration.setDiffBucketingEnabled(true);
+        }
+        long middle = System.nanoTime();
+        ObjectDelta<UserType> bucketedDelta = user1.diff(user2);
+        long end = System.nanoTime();
+
+        then();
+        displayValue("Linear diff (ms)", (middle - start) / NANOS_TO_MILLIS_DOUBLE);
+        displayValue("Bucketed diff (ms)", (end - middle) / NANOS_TO_MILLIS_DOUBLE);
+        assertThat(bucketedDelta.equivalent(linearDelta)).as("deltas are equivalent").isTrue();
+        assertThat(bucketedDelta.getModifications()).as("modifications").hasSize(1);
+        assertThat(end - middle).as("bucketed diff time").isLessThan((middle - start) / 5);
+    }
+
+    /**
+     * Compares adding many values (with the check for equivalent values) with and without hash buckets
+     * (see {@link PrismStaticConfiguration#valueHashBucketsEnableThreshold()}).
+     */
+    @Test
+    public void testPerfAddManyValues() throws Exception {
+        given();
+        PrismContext ctx = constructInitializedPrismContext();
+        PrismObjectDefinition<UserType> userDefinition = getFooSchema(ctx).findObjectDefinitionByElementName(new QName(NS_FOO, "user"));
+
+        when("values are added without and with hash buckets");
+        PrismProperty<String> linearNames;
+        long start = System.nanoTime();
+        PrismStaticConfiguration.setValueHashBucketsEnabled(false);
+        try {
+            linearNames = addManyNames(ctx, userDefinition.instantiate());
+        } finally {
+            PrismStaticConfiguration.setValueHashBucketsEnabled(true);
+        }
+        long middle = System.nanoTime();
+        PrismProperty<String> bucketedNames = addManyNames(ctx, userDefinition.instantiate());
+        long end = System.nanoTime();
+
+        then();
+        displayValue("Linear adding (ms)", (middle - start) / NANOS_TO_MILLIS_DOUBLE);
+        displayValue("Bucketed adding (ms)", (end - middle) / NANOS_TO_MILLIS_DOUBLE);
+        assertThat(bucketedNames.getRealValues()).as("values").hasSize(ADDED_VALUES);
+        assertThat(bucketedNames.equals(linearNames)).as("items are equal").isTrue();
+        assertThat(end - middle).as("bucketed adding time").isLessThan((middle - start) / 5);
+    }
+
+    /** Adds each value twice, so that the equivalence check has something to find. */
+    private PrismProperty<String> addManyNames(PrismContext ctx, PrismObject<UserType> user) throws SchemaException {
+        PrismProperty<String> names = user.findOrCreateProperty(UserType.F_ADDITIONAL_NAMES);
+        for (int i = 0; i < ADDED_VALUES; i++) {
+            names.add(ctx.itemFactory().createPropertyValue("name " + i), EquivalenceStrategy.REAL_VALUE);
+            names.add(ctx.itemFactory().createPropertyValue("name " + i / 2), EquivalenceStrategy.REAL_VALUE);
+        }
+        return names;
+    }
+
+    /**
+     * Compares creating and merging deltas with many modifications with and without the index of modifications
+     * (see {@link PrismStaticConfiguration#modificationIndexEnableThreshold()}).
+     */
+    @Test
+    public void testPerfMergeManyModifications() throws Exception {
+        given();
+        PrismContext ctx = constructInitializedPrismContext();
+
+        when("deltas are created and merged without and with the index");
+        ObjectDelta<UserType> linearDelta;
+        long start = System.nanoTime();
+        PrismStaticConfiguration.setModificationIndexEnabled(false);
+        try {
+            linearDelta = createAndMergeDeltas(ctx);
+        } finally {
+            PrismStaticConfiguration.setModificationIndexEnabled(true);
+        }
+        long middle = System.nanoTime();
+        ObjectDelta<UserType> indexedDelta = createAndMergeDeltas(ctx);
+        long end = System.nanoTime();
+
+        then();
+        displayValue("Linear merging (ms)", (middle - start) / NANOS_TO_MILLIS_DOUBLE);
+        displayValue("Indexed merging (ms)", (end - middle) / NANOS_TO_MILLIS_DOUBLE);
+        assertThat(indexedDelta.getModifications()).as("modifications").hasSize(MERGED_MODIFICATIONS * 3 / 2);
+        assertThat(indexedDelta.equivalent(linearDelta)).as("deltas are equivalent").isTrue();
+        assertThat(end - middle).as("indexed merging time").isLessThan((middle - start) / 5);
+    }
+
+    /** The second delta overlaps with the first one in half of the paths. */
+    private ObjectDelta<UserType> createAndMergeDeltas(PrismContext ctx) throws SchemaException {
+        ObjectDelta<UserType> delta1 = ctx.deltaFactory().object().createEmptyModifyDelta(UserType.class, USER_FOO_OID);
+        ObjectDelta<UserType> delta2 = ctx.deltaFactory().object().createEmptyModifyDelta(UserType.class, USER_FOO_OID);
+        for (int i = 0; i < MERGED_MODIFICATIONS; i++) {
+            delta1.addModificationReplaceProperty(assignmentDescriptionPath(i), "first " + i);
+            delta2.addModificationReplaceProperty(assignmentDescriptionPath(i + MERGED_MODIFICATIONS / 2), "second " + i);
+        }
+        delta1.merge(delta2);
+        return delta1;
+    }
+
+    private ItemPath assignmentDescriptionPath(long id) {
+        return ItemPath.create(UserType.F_ASSIGNMENT, id + 1, AssignmentType.F_DESCRIPTION);
+    }
+
+    /**
+     * Beans are serialized and parsed back in multiple threads. The bean accessors (getters, setters, property order, etc.)
+     * are precomputed per class, so the threads do not contend on shared caches.
+     */
+    @Test
+    public void testPerfMarshallBeansConcurrently() throws Exception {
+        given("a bean with an attribute and a multivalued property");
+        PrismContext ctx = constructInitializedPrismContext();
+        EventOperationFilterType bean = new EventOperationFilterType();
+        bean.setName("filter");
+        for (int i = 0; i < 10; i++) {
+            bean.getOperation().add("operation-" + i);
+        }
+        QName elementName = new QName(NS_FOO, "handler");
+        BeanMarshaller marshaller = ((PrismContextImpl) ctx).getBeanMarshaller();
+        ExecutorService executor = Executors.newFixedThreadPool(MARSHALLING_THREADS);
+
+        when("bean is serialized and parsed in multiple threads");
+        long start = System.nanoTime();
+        try {
+            List<Future<EventOperationFilterType>> futures = new ArrayList<>();
+            for (int t = 0; t < MARSHALLING_THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    EventOperationFilterType parsed = null;
+                    for (int i = 0; i < MARSHALLING_ITERATIONS; i++) {
+                        XNodeImpl xnode = marshaller.marshall(bean);
+                        parsed = ctx.parserFor(new RootXNodeImpl(elementName, xnode)).parseRealValue(EventOperationFilterType.class);
+                    }
+                    return parsed;
+                }));
+            }
+            for (Future<EventOperationFilterType> future : futures) {
+                EventOperationFilterType parsed = future.get();
+                assertThat(parsed.getName()).isEqualTo("filter");
+                assertThat(parsed.getOperation()).isEqualTo(bean.getOperation());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        long duration = System.nanoTime() - start;
+
+        then();
+        int roundTrips = MARSHALLING_THREADS * MARSHALLING_ITERATIONS;
+        displayValue("Round trips", roundTrips);
+        displayValue("Time (ms)", duration / NANOS_TO_MILLIS_DOUBLE);
+        displayValue("Round trips per second", roundTrips * 1_000_000_000L / duration);
+    }
+
+    /**
+     * Compares looking up items by name and via slots (see {@link ItemSlot}), checking that both give the same results,
+     * also after the items are modified.
+     */
+    @Test
+    public void testPerfFindItemInSlot() throws Exception {
+        given("parsed user and slots for some of its items");
+        PrismContext ctx = constructInitializedPrismContext();
+        PrismObject<UserType> user = ctx.parseObject(USER_JACK_FILE_XML);
+        PrismContainerValue<UserType> value = user.getValue();
+        List<ItemName> names = List.of(UserType.F_NAME, UserType.F_DESCRIPTION, UserType.F_FULL_NAME,
+                UserType.F_GIVEN_NAME, UserType.F_FAMILY_NAME, UserType.F_ADDITIONAL_NAMES, UserType.F_LOCALITY,
+                UserType.F_ACTIVATION, UserType.F_ASSIGNMENT, UserType.F_ACCOUNT_REF, new ItemName(NS_FOO, "nonexistent"));
+        List<ItemSlot> slots = new ArrayList<>();
+        for (ItemName name : names) {
+            slots.add(ItemSlot.of(name));
+        }
+
+        assertThat(value.getComplexTypeDefinition().getItemSlot(UserType.F_NAME))
+                .as("slot of 'name' in frozen definition")
+                .isNotNegative();
+
+        when("items are looked up by name and via slots");
+        assertSameItems(value, slots);
+        value.removeProperty(UserType.F_GIVEN_NAME);
+        value.findOrCreateProperty(UserType.F_LOCALITY).setRealValue("Caribbean");
+
+        then("the same items are found, also after modifications");
+        assertSameItems(value, slots);
+        assertThat(slots.get(3).findItem(value, Item.class)).isNull();
+
+        when("lookups are repeated (after a warm-up)");
+        lookUpByName(value, names);
+        lookUpBySlot(value, slots);
+        long byNameStart = System.nanoTime();
+        int byNameFound = lookUpByName(value, names);
+        long byName = System.nanoTime() - byNameStart;
+        long bySlotStart = System.nanoTime();
+        int bySlotFound = lookUpBySlot(value, slots);
+        long bySlot = System.nanoTime() - bySlotStart;
+
+        then();
+        displayValue("Lookups by name (ms)", byName / NANOS_TO_MILLIS_DOUBLE);
+        displayValue("Lookups via slots (ms)", bySlot / NANOS_TO_MILLIS_DOUBLE);
+        assertThat(bySlotFound).isEqualTo(byNameFound);
+    }
+
+    private int lookUpByName(PrismContainerValue<?> value, List<ItemName> names) {
+        int found = 0;
+        for (int i = 0; i < SLOT_LOOKUP_ITERATIONS; i++) {
+            for (ItemName name : names) {
+                if (value.findItem(name) != null) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    private int lookUpBySlot(PrismContainerValue<?> value, List<ItemSlot> slots) {
+        int found = 0;
+        for (int i = 0; i < SLOT_LOOKUP_ITERATIONS; i++) {
+            for (ItemSlot slot : slots) {
+                if (slot.findItem(value, Item.class) != null) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    private void assertSameItems(PrismContainerValue<?> value, List<ItemSlot> slots) {
+        for (ItemSlot slot : slots) {
+            assertThat(slot.findItem(value, Item.class))
+                    .as("item in %s", slot)
+                    .isSameAs(value.findItem(slot.getName()));
+        }
+    }
 }
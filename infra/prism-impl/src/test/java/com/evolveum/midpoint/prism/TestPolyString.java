@@ -11,6 +11,7 @@ import static com.evolveum.midpoint.prism.PrismInternalTestUtil.USER_POLYNAME_QN
 import static com.evolveum.midpoint.prism.PrismInternalTestUtil.constructInitializedPrismContext;
 import static com.evolveum.midpoint.prism.PrismInternalTestUtil.getFooSchema;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertTrue;
 
 import javax.xml.namespace.QName;
@@ -19,14 +20,22 @@ import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
 import org.testng.annotations.Test;
 
 import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.prism.impl.polystring.AbstractPolyStringNormalizer;
 import com.evolveum.midpoint.prism.impl.polystring.AlphanumericPolyStringNormalizer;
 import com.evolveum.midpoint.prism.impl.polystring.Ascii7PolyStringNormalizer;
+import com.evolveum.midpoint.prism.impl.polystring.CachingPolyStringNormalizer;
 import com.evolveum.midpoint.prism.impl.polystring.PassThroughPolyStringNormalizer;
+import com.evolveum.midpoint.prism.impl.polystring.PolyStringNormalizerRegistryFactory;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.polystring.PolyStringNormalizer;
+import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
 import com.evolveum.prism.xml.ns._public.types_3.PolyStringNormalizerConfigurationType;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
 
 /**
  * @author semancik
@@ -199,6 +208,177 @@ public class TestPolyString extends AbstractPrismTest {
                 "  Ľala  ho  papľuha!    ");
     }
 
+    /**
+     * Compares the single-pass normalization of ASCII strings with the staged one (used by subclasses of the built-in
+     * normalizers) on random strings, for all the built-in normalizers and all combinations of the configuration flags.
+     * The corpus contains also non-ASCII characters, to check that such strings are processed correctly as well.
+     */
+    @Test
+    public void testSinglePassNormalizationEqualsStaged() {
+        given("random strings");
+        Random random = new Random(42);
+        List<String> corpus = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            corpus.add(randomString(random, i % 5 != 0));
+        }
+
+        when("they are normalized in a single pass and in stages");
+        int compared = 0;
+        for (int flags = 0; flags < 16; flags++) {
+            PolyStringNormalizerConfigurationType configuration = new PolyStringNormalizerConfigurationType();
+            configuration.setTrim((flags & 1) != 0);
+            configuration.setNfkd((flags & 2) != 0);
+            configuration.setTrimWhitespace((flags & 4) != 0);
+            configuration.setLowercase((flags & 8) != 0);
+            compared += compareNormalizers(corpus, configuration,
+                    AlphanumericPolyStringNormalizer::new, () -> new AlphanumericPolyStringNormalizer() {});
+            compared += compareNormalizers(corpus, configuration,
+                    Ascii7PolyStringNormalizer::new, () -> new Ascii7PolyStringNormalizer() {});
+            compared += compareNormalizers(corpus, configuration,
+                    PassThroughPolyStringNormalizer::new, () -> new PassThroughPolyStringNormalizer() {});
+        }
+
+        then("the results are the same");
+        displayValue("Normalizations compared", compared);
+    }
+
+    private int compareNormalizers(List<String> corpus, PolyStringNormalizerConfigurationType configuration,
+            Supplier<AbstractPolyStringNormalizer> singlePassSupplier, Supplier<AbstractPolyStringNormalizer> stagedSupplier) {
+        AbstractPolyStringNormalizer singlePass = singlePassSupplier.get();
+        singlePass.configure(configuration);
+        AbstractPolyStringNormalizer staged = stagedSupplier.get();
+        staged.configure(configuration);
+        for (String s : corpus) {
+            assertEquals("Different normalization of '" + unicodeEscape(s) + "' by " + singlePass,
+                    staged.normalize(s), singlePass.normalize(s));
+        }
+        return corpus.size();
+    }
+
+    /** Mostly ASCII, with a lot of whitespace, control characters and letters of both cases. */
+    private String randomString(Random random, boolean asciiOnly) {
+        String special = " \t\n\u000B\f\r\u001C\u001F\u007F!_-.,";
+        String nonAscii = "\u00A0\u00F4\u010D\u0130\u0131\u017F\u0301\u041F\u2003\u212A\uFB01";
+        int length = random.nextInt(12);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            int kind = random.nextInt(asciiOnly ? 4 : 5);
+            if (kind == 0) {
+                sb.append(special.charAt(random.nextInt(special.length())));
+            } else if (kind == 1) {
+                sb.append((char) random.nextInt(0x80));
+            } else if (kind == 4) {
+                sb.append(nonAscii.charAt(random.nextInt(nonAscii.length())));
+            } else {
+                sb.append((char) ((random.nextBoolean() ? 'a' : 'A') + random.nextInt(26)));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Measures the normalization of typical (ASCII) names: in stages, in a single pass, and with the cache.
+     * (The cache is useful mainly for non-ASCII strings, where the single pass is not applicable.)
+     */
+    @Test
+    public void testNormalizationPerformance() {
+        given("names to be normalized");
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            names.add("  Role-" + i + " for Department " + (i % 50) + " ");
+        }
+        AbstractPolyStringNormalizer staged = new AlphanumericPolyStringNormalizer() {};
+        AbstractPolyStringNormalizer singlePass = new AlphanumericPolyStringNormalizer();
+        PolyStringNormalizer cached = new CachingPolyStringNormalizer(singlePass);
+        int cacheSizeBefore = PrismStaticConfiguration.polyStringNormalizationCacheSize();
+        PrismStaticConfiguration.setPolyStringNormalizationCacheEnabled(true);
+        try {
+            for (int warmUp = 0; warmUp < 3; warmUp++) {
+                normalizeRepeatedly(staged, names);
+                normalizeRepeatedly(singlePass, names);
+                normalizeRepeatedly(cached, names);
+            }
+
+            when("names are normalized");
+            long stagedTime = normalizeRepeatedly(staged, names);
+            long singlePassTime = normalizeRepeatedly(singlePass, names);
+            long cachedTime = normalizeRepeatedly(cached, names);
+
+            then();
+            displayValue("Staged normalization (ms)", stagedTime / 1_000_000);
+            displayValue("Single-pass normalization (ms)", singlePassTime / 1_000_000);
+            displayValue("Cached normalization (ms)", cachedTime / 1_000_000);
+            assertEquals("lala ho papluha", cached.normalize("  Ľala  ho  papľuha!    "));
+        } finally {
+            PrismStaticConfiguration.setPolyStringNormalizationCacheEnabled(cacheSizeBefore > 0);
+        }
+    }
+
+    private long normalizeRepeatedly(PolyStringNormalizer normalizer, List<String> names) {
+        long start = System.nanoTime();
+        for (int i = 0; i < 200; i++) {
+            for (String name : names) {
+                normalizer.normalize(name);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    @Test
+    public void testRegistryNormalizationCache() {
+        given("a registry with the normalization cache enabled");
+        PolyStringNormalizer normalizer = PolyStringNormalizerRegistryFactory.createRegistry().getNormalizer(null);
+        int cacheSizeBefore = PrismStaticConfiguration.polyStringNormalizationCacheSize();
+        PrismStaticConfiguration.setPolyStringNormalizationCacheEnabled(true);
+        CachePerformanceCollector.INSTANCE.clear();
+        try {
+            when("a string is normalized twice");
+            String first = normalizer.normalize("  Ľala  ho  papľuha!    ");
+            String second = normalizer.normalize("  Ľala  ho  papľuha!    ");
+
+            then("the second result is taken from the cache");
+            assertEquals("lala ho papluha", first);
+            assertEquals("lala ho papluha", second);
+            CachePerformanceCollector.CacheData cacheData = CachePerformanceCollector.INSTANCE.getGlobalPerformanceMap()
+                    .get(CachingPolyStringNormalizer.class.getName());
+            assertNotNull("No cache statistics", cacheData);
+            assertEquals("Wrong # of cache hits", 1, cacheData.hits.get());
+            assertEquals("Wrong # of cache misses", 1, cacheData.misses.get());
+        } finally {
+            PrismStaticConfiguration.setPolyStringNormalizationCacheEnabled(cacheSizeBefore > 0);
+        }
+    }
+
+    @Test
+    public void testDefaultNormalizationCache() throws Exception {
+        given("a configured default normalizer with the normalization cache enabled");
+        PrismContext prismContext = constructInitializedPrismContext();
+        PolyStringNormalizerConfigurationType configuration = new PolyStringNormalizerConfigurationType();
+        configuration.setClassName(Ascii7PolyStringNormalizer.class.getSimpleName());
+        prismContext.configurePolyStringNormalizer(configuration);
+        int cacheSizeBefore = PrismStaticConfiguration.polyStringNormalizationCacheSize();
+        PrismStaticConfiguration.setPolyStringNormalizationCacheEnabled(true);
+        CachePerformanceCollector.INSTANCE.clear();
+        try {
+            when("the same PolyString is recomputed twice");
+            PolyString first = new PolyString("Ľala ho papľuha");
+            first.recompute(prismContext.getDefaultPolyStringNormalizer());
+            PolyString second = new PolyString("Ľala ho papľuha");
+            second.recompute(prismContext.getDefaultPolyStringNormalizer());
+
+            then("the second norm is taken from the cache");
+            assertEquals("lala ho papluha", first.getNorm());
+            assertEquals("lala ho papluha", second.getNorm());
+            CachePerformanceCollector.CacheData cacheData = CachePerformanceCollector.INSTANCE.getGlobalPerformanceMap()
+                    .get(CachingPolyStringNormalizer.class.getName());
+            assertNotNull("No cache statistics", cacheData);
+            assertEquals("Wrong # of cache hits", 1, cacheData.hits.get());
+            assertEquals("Wrong # of cache misses", 1, cacheData.misses.get());
+        } finally {
+            PrismStaticConfiguration.setPolyStringNormalizationCacheEnabled(cacheSizeBefore > 0);
+        }
+    }
+
     private void testNormalization(PolyStringNormalizer normalizer, String orig, String expectedNorm) {
         PolyString polyString = new PolyString(orig);
         polyString.recompute(normalizer);
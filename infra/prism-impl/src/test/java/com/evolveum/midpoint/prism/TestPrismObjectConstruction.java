@@ -6,6 +6,7 @@
  */
 package com.evolveum.midpoint.prism;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertTrue;
 
@@ -21,6 +22,7 @@ import org.testng.annotations.Test;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
+import com.evolveum.midpoint.prism.equivalence.ParameterizedEquivalenceStrategy;
 import com.evolveum.midpoint.prism.foo.ActivationType;
 import com.evolveum.midpoint.prism.foo.AssignmentType;
 import com.evolveum.midpoint.prism.foo.UserType;
@@ -95,6 +97,113 @@ public class TestPrismObjectConstruction extends AbstractPrismTest {
         assertTrue("Clone not equivalent", clone.equivalent(user));
     }
 
+    /**
+     * Checks that adding values to large items (where equivalent values are looked up by hash codes
+     * or container value IDs) works the same as for small ones, also after the values are changed.
+     */
+    @Test
+    public void testAddEquivalentValuesToLargeItems() throws Exception {
+        given("a user with many values, and low threshold for hash buckets");
+        PrismObject<UserType> user = getFooSchema(getPrismContext())
+                .findObjectDefinitionByCompileTimeClass(UserType.class).instantiate();
+        PrismProperty<String> names = user.findOrCreateProperty(UserType.F_ADDITIONAL_NAMES);
+        PrismReference accountRef = user.findOrCreateReference(UserType.F_ACCOUNT_REF);
+        PrismContainer<AssignmentType> assignments = user.findOrCreateContainer(UserType.F_ASSIGNMENT);
+        for (int i = 0; i < 20; i++) {
+            names.addRealValue("name " + i);
+            accountRef.add(new PrismReferenceValueImpl("oid-" + i));
+            PrismContainerValue<AssignmentType> assignment = assignments.createNewValue();
+            assignment.setId((long) i + 1);
+            assignment.setPropertyRealValue(AssignmentType.F_DESCRIPTION, "Assignment " + i, null);
+        }
+        PrismStaticConfiguration.setValueHashBucketsThreshold(5);
+        try {
+            ParameterizedEquivalenceStrategy strategy = ParameterizedEquivalenceStrategy.FOR_DELTA_ADD_APPLICATION;
+
+            when("equivalent values are added");
+            boolean nameAdded = names.add(getPrismContext().itemFactory().createPropertyValue("name 3"), strategy);
+            boolean refAdded = accountRef.add(new PrismReferenceValueImpl("oid-3"), strategy);
+            PrismContainerValue<AssignmentType> sameAssignment = assignments.getValue(4L).clone();
+            boolean assignmentAdded = assignments.add(sameAssignment, strategy);
+
+            then("nothing is added");
+            assertThat(nameAdded).as("name added").isFalse();
+            assertThat(refAdded).as("reference added").isFalse();
+            assertThat(assignmentAdded).as("assignment added").isFalse();
+            assertThat(names.size()).as("names").isEqualTo(20);
+            assertThat(accountRef.size()).as("references").isEqualTo(20);
+            assertThat(assignments.size()).as("assignments").isEqualTo(20);
+
+            when("values are changed, and their original and new versions are added");
+            names.getValues().get(5).setValue("renamed");
+            accountRef.findValueByOid("oid-5").setOid("oid-55");
+            assertThat(names.add(getPrismContext().itemFactory().createPropertyValue("name 5"), strategy))
+                    .as("original name added").isTrue();
+            assertThat(names.add(getPrismContext().itemFactory().createPropertyValue("renamed"), strategy))
+                    .as("changed name added").isFalse();
+            assertThat(accountRef.add(new PrismReferenceValueImpl("oid-5"), strategy))
+                    .as("original reference added").isTrue();
+            assertThat(accountRef.add(new PrismReferenceValueImpl("oid-55"), strategy))
+                    .as("changed reference added").isFalse();
+
+            and("the same values are removed and added again");
+            names.remove(getPrismContext().itemFactory().createPropertyValue("name 7"), strategy);
+            assertThat(names.add(getPrismContext().itemFactory().createPropertyValue("name 7"), strategy))
+                    .as("removed name added").isTrue();
+
+            then("the items contain exactly the expected values");
+            assertThat(names.getRealValues()).as("names").hasSize(21).contains("renamed", "name 5", "name 7");
+            assertThat(accountRef.size()).as("references").isEqualTo(21);
+            assertThat(accountRef.findValueByOid("oid-55")).as("changed reference").isNotNull();
+        } finally {
+            PrismStaticConfiguration.setValueHashBucketsThreshold(50);
+        }
+    }
+
+    /**
+     * A value is deleted, another one is added (so the number of values is the same as before), and the deleted value
+     * is added again. The hash buckets must not consider the deleted value to be still present.
+     * The same for a value removed directly from the list of values.
+     */
+    @Test
+    public void testDeleteAndReAddValueOfLargeProperty() throws Exception {
+        given("a property with many values, and low threshold for hash buckets");
+        PrismObject<UserType> user = getFooSchema(getPrismContext())
+                .findObjectDefinitionByCompileTimeClass(UserType.class).instantiate();
+        PrismProperty<String> names = user.findOrCreateProperty(UserType.F_ADDITIONAL_NAMES);
+        for (int i = 0; i < 20; i++) {
+            names.addRealValue("name " + i);
+        }
+        PrismStaticConfiguration.setValueHashBucketsThreshold(5);
+        try {
+            ParameterizedEquivalenceStrategy strategy = ParameterizedEquivalenceStrategy.FOR_DELTA_ADD_APPLICATION;
+            assertThat(names.add(getPrismContext().itemFactory().createPropertyValue("name 1"), strategy))
+                    .as("existing name added (creating the buckets)").isFalse();
+
+            when("a value is deleted, another one added, and the deleted one is added again");
+            assertThat(names.deleteValue(getPrismContext().itemFactory().createPropertyValue("name 3")))
+                    .as("name deleted").isTrue();
+            names.addRealValue("other name");
+            boolean reAdded = names.add(getPrismContext().itemFactory().createPropertyValue("name 3"), strategy);
+
+            then("the deleted value is added again");
+            assertThat(reAdded).as("deleted name added").isTrue();
+            assertThat(names.getRealValues()).as("names").hasSize(21).contains("name 3", "other name");
+
+            when("a value is removed directly from the list of values, and added again");
+            names.getValues().removeIf(v -> "name 4".equals(v.getRealValue()));
+            names.addRealValue("yet another name");
+            boolean reAddedAfterDirectRemoval =
+                    names.add(getPrismContext().itemFactory().createPropertyValue("name 4"), strategy);
+
+            then("the removed value is added again");
+            assertThat(reAddedAfterDirectRemoval).as("removed name added").isTrue();
+            assertThat(names.getRealValues()).as("names").hasSize(22).contains("name 4", "yet another name");
+        } finally {
+            PrismStaticConfiguration.setValueHashBucketsThreshold(50);
+        }
+    }
+
     private void fillInUserDrake(PrismObject<UserType> user, boolean assertDefinitions) throws SchemaException {
         user.setOid(USER_OID);
 
@@ -11,8 +11,12 @@ import static org.testng.AssertJUnit.*;
 
 import static com.evolveum.midpoint.prism.PrismInternalTestUtil.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.math.BigInteger;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -41,6 +45,14 @@ import com.evolveum.midpoint.util.exception.SchemaException;
  */
 public abstract class TestPrismParsing extends AbstractPrismTest {
 
+    private static final String[] DEFINITION_DRIVEN_FILES = {
+            USER_JACK_FILE_BASENAME, USER_JACK_NO_NS_BASENAME, USER_JACK_OBJECT_BASENAME, USER_JACK_ADHOC_BASENAME,
+            USER_BARBOSSA_FILE_BASENAME, USER_WILL_FILE_BASENAME, USER_ELISABETH_FILE_BASENAME,
+            ACCOUNT_BARBOSSA_FILE_BASENAME, RESOURCE_RUM_FILE_BASENAME, USER_ALICE_METADATA_BASENAME
+    };
+
+    private static final int DEFINITION_DRIVEN_PERF_ITERATIONS = 200;
+
     protected abstract String getSubdirName();
 
     protected abstract String getFilenameSuffix();
@@ -119,6 +131,41 @@ public abstract class TestPrismParsing extends AbstractPrismTest {
         assertUserAdhoc(user, true, false);
     }
 
+    /** Item names of parsed objects should be shared with definitions and among parsed objects (no duplicate instances). */
+    @Test
+    public void test140ItemNamesAreShared() throws Exception {
+        given();
+        PrismContext prismContext = getPrismContext();
+
+        when("the same object is parsed twice");
+        PrismObject<UserType> user1 = prismContext.parseObject(getFile(USER_JACK_FILE_BASENAME));
+        PrismObject<UserType> user2 = prismContext.parseObject(getFile(USER_JACK_FILE_BASENAME));
+
+        then("item names are the same instances");
+        assertSameItemNames(user1.getValue(), user2.getValue());
+    }
+
+    private void assertSameItemNames(PrismContainerValue<?> value1, PrismContainerValue<?> value2) {
+        ComplexTypeDefinition ctd = value1.getComplexTypeDefinition();
+        for (Item<?, ?> item1 : value1.getItems()) {
+            ItemName name = item1.getElementName();
+            Item<?, ?> item2 = value2.findItem(name);
+            assertThat(item2).as("item %s in second value", name).isNotNull();
+            assertThat(item2.getElementName()).as("name of %s in second value", name).isSameAs(name);
+            ItemDefinition<?> localDefinition = ctd != null ? ctd.findLocalItemDefinition(name) : null;
+            if (localDefinition != null && localDefinition.getItemName().equals(name)) {
+                assertThat(name).as("name of %s vs definition", name).isSameAs(localDefinition.getItemName());
+            }
+            if (item1 instanceof PrismContainer<?> && !(item1.getDefinition() instanceof PrismObjectDefinition<?>)) {
+                List<? extends PrismContainerValue<?>> values1 = ((PrismContainer<?>) item1).getValues();
+                List<? extends PrismContainerValue<?>> values2 = ((PrismContainer<?>) item2).getValues();
+                for (int i = 0; i < values1.size(); i++) {
+                    assertSameItemNames(values1.get(i), values2.get(i));
+                }
+            }
+        }
+    }
+
     @Test
     public void test200RoundTrip() throws Exception {
         roundTrip(getFile(USER_JACK_FILE_BASENAME), true, true);
@@ -417,6 +464,304 @@ public abstract class TestPrismParsing extends AbstractPrismTest {
         assertAliceMetadata(testSerializeMetadata(alice, PrismContext.LANG_YAML));
     }
 
+    @Test
+    public void test800StreamingRoundTrip() throws Exception {
+        given();
+        PrismContext prismContext = getPrismContext();
+        PrismObject<UserType> user = prismContext.parseObject(getFile(USER_JACK_FILE_BASENAME));
+
+        when("serializing directly to a writer");
+        StringWriter writer = new StringWriter();
+        prismContext.serializerFor(getOutputFormat(), writer).serialize(user);
+
+        then("output is the same as when serializing to a string");
+        String serialized = writer.toString();
+        displayValue("Serialized user", serialized);
+        assertEquals("Streamed output differs", prismContext.serializerFor(getOutputFormat()).serialize(user), serialized);
+
+        PrismObject<UserType> reparsedUser = prismContext.parseObject(serialized);
+        assertTrue("Re-parsed user differs", user.equivalent(reparsedUser));
+    }
+
+    @Test
+    public void test810StreamingObjectsRoundTrip() throws Exception {
+        given();
+        PrismContext prismContext = getPrismContext();
+        List<PrismObject<?>> objects = List.of(
+                prismContext.parseObject(getFile(USER_JACK_FILE_BASENAME)),
+                prismContext.parseObject(getFile(USER_WILL_FILE_BASENAME)),
+                prismContext.parseObject(getFile(ACCOUNT_BARBOSSA_FILE_BASENAME)));
+
+        when("objects are written one by one to an output stream");
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try (PrismObjectsWriter objectsWriter = prismContext.serializerFor(getOutputFormat(), stream).objectsWriter()) {
+            for (PrismObject<?> object : objects) {
+                objectsWriter.write(object);
+            }
+        }
+
+        then("all objects are parsed back");
+        String serialized = stream.toString(StandardCharsets.UTF_8);
+        displayValue("Serialized objects", serialized);
+        List<PrismObject<?>> reparsed = prismContext.parserFor(serialized).parseObjects();
+        assertEquals("Wrong # of objects", objects.size(), reparsed.size());
+        for (int i = 0; i < objects.size(); i++) {
+            assertTrue("Object #" + i + " differs", objects.get(i).equivalent(reparsed.get(i)));
+        }
+    }
+
+    @Test
+    public void test820StreamingNoObjects() throws Exception {
+        given();
+        PrismContext prismContext = getPrismContext();
+
+        when("no objects are written");
+        StringWriter writer = new StringWriter();
+        prismContext.serializerFor(getOutputFormat(), writer).objectsWriter().close();
+
+        then("output is parsed as an empty list");
+        displayValue("Serialized objects", writer.toString());
+        assertEquals("Wrong # of objects", 0, prismContext.parserFor(writer.toString()).parseObjects().size());
+
+        and("objects writer is refused by serializers that produce the output in memory");
+        try {
+            prismContext.serializerFor(getOutputFormat()).objectsWriter();
+            fail("unexpected success");
+        } catch (UnsupportedOperationException e) {
+            displayExpectedException(e);
+        }
+    }
+
+    @Test
+    public void test830DefinitionDrivenParsing() throws Exception {
+        PrismContext prismContext = getPrismContext();
+        for (String baseName : DEFINITION_DRIVEN_FILES) {
+            when("parsing " + baseName + " in definition-driven mode");
+            PrismObject<?> object = prismContext.parserFor(getFile(baseName)).parse();
+            PrismObject<?> objectDirect = prismContext.parserFor(getFile(baseName)).definitionDriven().parse();
+
+            then("the object is the same as when parsed via XNodes");
+            displayValue(baseName, objectDirect);
+            objectDirect.checkConsistence();
+            assertEquals("Objects differ for " + baseName, object, objectDirect);
+            assertEquals("OIDs differ for " + baseName, object.getOid(), objectDirect.getOid());
+            assertEquals("Versions differ for " + baseName, object.getVersion(), objectDirect.getVersion());
+        }
+    }
+
+    @Test
+    public void test840DefinitionDrivenParsingFastAdd() throws Exception {
+        given();
+        PrismContext prismContext = getPrismContext();
+
+        when("parsing with fast add operations");
+        PrismObject<UserType> user = prismContext.parserFor(getFile(USER_JACK_FILE_BASENAME))
+                .fastAddOperations()
+                .parse();
+        PrismObject<UserType> userDirect = prismContext.parserFor(getFile(USER_JACK_FILE_BASENAME))
+                .fastAddOperations()
+                .definitionDriven()
+                .parse();
+
+        then("the objects are the same");
+        assertEquals("Objects differ", user, userDirect);
+        assertUserJack(userDirect, true, true);
+    }
+
+    /**
+     * Not a precise benchmark, just a rough comparison of definition-driven and XNode-based parsing.
+     */
+    @Test
+    public void test850DefinitionDrivenParsingPerformance() throws Exception {
+        PrismContext prismContext = getPrismContext();
+        PerfRecorder xnodeRecorder = new PerfRecorder("XNode-based parsing");
+        PerfRecorder directRecorder = new PerfRecorder("Definition-driven parsing");
+
+        for (int i = 0; i < DEFINITION_DRIVEN_PERF_ITERATIONS; i++) {
+            for (String baseName : DEFINITION_DRIVEN_FILES) {
+                File file = getFile(baseName);
+                long start = System.nanoTime();
+                prismContext.parserFor(file).parse();
+                long middle = System.nanoTime();
+                prismContext.parserFor(file).definitionDriven().parse();
+                long end = System.nanoTime();
+
+                xnodeRecorder.record(i, (middle - start) / 1_000_000d);
+                directRecorder.record(i, (end - middle) / 1_000_000d);
+            }
+        }
+
+        displayValue("XNode-based", xnodeRecorder.dump());
+        displayValue("Definition-driven", directRecorder.dump());
+
+        // Averages only; see TestPerformance for the reasons why not to assert the maximum.
+        directRecorder.assertAverageBelow(5d);
+    }
+
+    @Test
+    public void test860BinaryRoundTrip() throws Exception {
+        PrismContext prismContext = getPrismContext();
+        for (String baseName : DEFINITION_DRIVEN_FILES) {
+            given("parsed " + baseName);
+            PrismObject<?> object = prismContext.parserFor(getFile(baseName)).parse();
+
+            when("serialized to binary format and parsed back");
+            byte[] serialized = prismContext.binarySerializer().serialize(object);
+            PrismObject<?> reparsed = parseBinary(serialized).parse();
+
+            then("the object is the same");
+            displayValue(baseName + " (" + serialized.length + " bytes)", reparsed);
+            reparsed.checkConsistence();
+            assertEquals("Objects differ for " + baseName, object, reparsed);
+            assertEquals("OIDs differ for " + baseName, object.getOid(), reparsed.getOid());
+            assertEquals("Versions differ for " + baseName, object.getVersion(), reparsed.getVersion());
+
+            and("its serialized form is stable once read from the binary format");
+            byte[] reserialized = prismContext.binarySerializer().serialize(reparsed);
+            assertEquals("Serialized forms differ for " + baseName, reserialized,
+                    prismContext.binarySerializer().serialize(parseBinary(reserialized).parse()));
+        }
+    }
+
+    @Test
+    public void test870BinaryMultipleObjects() throws Exception {
+        given();
+        PrismContext prismContext = getPrismContext();
+        List<PrismObject<?>> objects = new ArrayList<>();
+        for (String baseName : DEFINITION_DRIVEN_FILES) {
+            objects.add(prismContext.parserFor(getFile(baseName)).parse());
+        }
+
+        when("objects are serialized together (sharing the name dictionaries)");
+        byte[] serialized = prismContext.binarySerializer().serializeObjects(objects);
+        List<PrismObject<? extends Objectable>> reparsed = parseBinary(serialized).parseObjects();
+
+        then("all of them are parsed back");
+        displayValue("Serialized size", serialized.length);
+        assertEquals("Wrong # of objects", objects.size(), reparsed.size());
+        for (int i = 0; i < objects.size(); i++) {
+            assertEquals("Object #" + i + " differs", objects.get(i), reparsed.get(i));
+        }
+
+        and("the same data are written when the objects are streamed one by one");
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try (PrismObjectsWriter objectsWriter =
+                prismContext.serializerFor(PrismContext.LANG_BINARY, stream).objectsWriter()) {
+            for (PrismObject<?> object : objects) {
+                objectsWriter.write(object);
+            }
+        }
+        assertEquals("Streamed data differ", serialized, stream.toByteArray());
+
+        and("binary data cannot be written via text serializers");
+        try {
+            prismContext.serializerFor(PrismContext.LANG_BINARY);
+            fail("unexpected success");
+        } catch (IllegalArgumentException e) {
+            displayExpectedException(e);
+        }
+        try {
+            prismContext.serializerFor(PrismContext.LANG_BINARY, new StringWriter());
+            fail("unexpected success");
+        } catch (IllegalArgumentException e) {
+            displayExpectedException(e);
+        }
+    }
+
+    /**
+     * Plain references (OID, type, relation) have their own compact encoding; other references are written as maps.
+     */
+    @Test
+    public void test875BinaryReferences() throws Exception {
+        given("a user with plain references, and a user with the same references having descriptions");
+        PrismContext prismContext = getPrismContext();
+        PrismObject<UserType> plainUser = prismContext.parserFor(getFile(USER_JACK_FILE_BASENAME)).parse();
+        PrismObject<UserType> describedUser = plainUser.clone();
+        PrismReference plainRefs = plainUser.findOrCreateReference(UserType.F_ACCOUNT_REF);
+        PrismReference describedRefs = describedUser.findOrCreateReference(UserType.F_ACCOUNT_REF);
+        int count = 100;
+        for (int i = 0; i < count; i++) {
+            String oid = UUID.randomUUID().toString();
+            QName relation = i % 2 == 0 ? new QName(NS_FOO, "manager") : null;
+            PrismReferenceValueImpl plainRef = new PrismReferenceValueImpl(oid, ACCOUNT_TYPE_QNAME);
+            plainRef.setRelation(relation);
+            plainRefs.add(plainRef);
+            PrismReferenceValueImpl describedRef = new PrismReferenceValueImpl(oid, ACCOUNT_TYPE_QNAME);
+            describedRef.setRelation(relation);
+            describedRef.setDescription("x");
+            describedRefs.add(describedRef);
+        }
+
+        when("users are serialized and parsed back");
+        byte[] plainSerialized = prismContext.binarySerializer().serialize(plainUser);
+        byte[] describedSerialized = prismContext.binarySerializer().serialize(describedUser);
+        PrismObject<UserType> plainReparsed = parseBinary(plainSerialized).parse();
+        PrismObject<UserType> describedReparsed = parseBinary(describedSerialized).parse();
+
+        then("the references are the same");
+        assertEquals("Plain references differ", plainUser, plainReparsed);
+        assertEquals("Described references differ", describedUser, describedReparsed);
+
+        and("the plain references are written in the compact form");
+        displayValue("Plain user size", plainSerialized.length);
+        displayValue("Described user size", describedSerialized.length);
+        // If both were written as maps, the difference would be just the descriptions (5-6 bytes each);
+        // the compact form saves at least 7 more bytes per reference.
+        assertThat(describedSerialized.length - plainSerialized.length).as("size difference")
+                .isGreaterThanOrEqualTo(count * 10);
+
+        and("the compact form is kept when re-serialized");
+        assertEquals("Serialized forms differ", plainSerialized, prismContext.binarySerializer().serialize(plainReparsed));
+    }
+
+    /**
+     * Not a precise benchmark, just a rough comparison of the binary format and JSON (size and speed).
+     */
+    @Test
+    public void test880BinaryFormatPerformance() throws Exception {
+        PrismContext prismContext = getPrismContext();
+        PerfRecorder jsonRecorder = new PerfRecorder("JSON round trip");
+        PerfRecorder binaryRecorder = new PerfRecorder("Binary round trip");
+
+        List<PrismObject<?>> objects = new ArrayList<>();
+        long jsonSize = 0;
+        long binarySize = 0;
+        for (String baseName : DEFINITION_DRIVEN_FILES) {
+            PrismObject<?> object = prismContext.parserFor(getFile(baseName)).parse();
+            objects.add(object);
+            jsonSize += prismContext.jsonSerializer().serialize(object).getBytes(StandardCharsets.UTF_8).length;
+            binarySize += prismContext.binarySerializer().serialize(object).length;
+        }
+
+        for (int i = 0; i < DEFINITION_DRIVEN_PERF_ITERATIONS; i++) {
+            for (PrismObject<?> object : objects) {
+                long start = System.nanoTime();
+                String json = prismContext.jsonSerializer().serialize(object);
+                prismContext.parserFor(json).language(PrismContext.LANG_JSON).parse();
+                long middle = System.nanoTime();
+                byte[] binary = prismContext.binarySerializer().serialize(object);
+                parseBinary(binary).parse();
+                long end = System.nanoTime();
+
+                jsonRecorder.record(i, (middle - start) / 1_000_000d);
+                binaryRecorder.record(i, (end - middle) / 1_000_000d);
+            }
+        }
+
+        displayValue("JSON size (bytes)", jsonSize);
+        displayValue("Binary size (bytes)", binarySize);
+        displayValue("JSON", jsonRecorder.dump());
+        displayValue("Binary", binaryRecorder.dump());
+
+        assertThat(binarySize).as("binary size").isLessThan(jsonSize);
+        // Averages only; see TestPerformance for the reasons why not to assert the maximum.
+        binaryRecorder.assertAverageBelow(5d);
+    }
+
+    private PrismParser parseBinary(byte[] data) {
+        return getPrismContext().parserFor(new ByteArrayInputStream(data)).language(PrismContext.LANG_BINARY);
+    }
+
     private void assertAliceMetadata(RootXNode alice) throws SchemaException {
         MapXNode user = (MapXNode) alice.getSubnode();
         assertSingleMetadata(user, "test", "abc");
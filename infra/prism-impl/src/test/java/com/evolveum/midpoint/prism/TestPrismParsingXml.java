@@ -7,6 +7,7 @@
 package com.evolveum.midpoint.prism;
 
 import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.prism.impl.PrismContextImpl;
 import com.evolveum.midpoint.util.DOMUtil;
 import org.testng.AssertJUnit;
 import org.testng.annotations.Test;
@@ -15,8 +16,12 @@ import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import javax.xml.namespace.QName;
 
 import static com.evolveum.midpoint.prism.PrismInternalTestUtil.*;
+import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertTrue;
 
@@ -109,4 +114,78 @@ public class TestPrismParsingXml extends TestPrismParsing {
             assertTrue("Unexpected exception message: "+e.getMessage(), e.getMessage().contains("DOCTYPE"));
         }
     }
+
+    /**
+     * The namespace of the aggregate element written by the objects writer must be escaped properly.
+     */
+    @Test
+    public void testStreamingObjectsWithSpecialCharactersInNamespace() throws Exception {
+        PrismContextImpl prismContext = (PrismContextImpl) getPrismContext();
+        QName originalObjectsElementName = prismContext.getObjectsElementName();
+        QName objectsElementName = new QName("http://example.com/ns?a=1&b=\"<2>\"", "objects");
+        prismContext.setObjectsElementName(objectsElementName);
+        try {
+            given();
+            PrismObject<UserType> user = prismContext.parseObject(getFile(USER_JACK_FILE_BASENAME));
+
+            when("objects are written with the aggregate element having a namespace with special characters");
+            StringWriter writer = new StringWriter();
+            try (PrismObjectsWriter objectsWriter = prismContext.serializerFor(getOutputFormat(), writer).objectsWriter()) {
+                objectsWriter.write(user);
+            }
+            StringWriter emptyWriter = new StringWriter();
+            prismContext.serializerFor(getOutputFormat(), emptyWriter).objectsWriter().close();
+
+            then("the output is well-formed, with the correct namespace");
+            displayValue("Serialized objects", writer.toString());
+            displayValue("Serialized empty objects", emptyWriter.toString());
+            Element objects = DOMUtil.parseDocument(writer.toString()).getDocumentElement();
+            assertEquals("Wrong aggregate element", objectsElementName, DOMUtil.getQName(objects));
+            assertEquals("Wrong # of objects", 1, DOMUtil.listChildElements(objects).size());
+            Element emptyObjects = DOMUtil.parseDocument(emptyWriter.toString()).getDocumentElement();
+            assertEquals("Wrong empty aggregate element", objectsElementName, DOMUtil.getQName(emptyObjects));
+        } finally {
+            prismContext.setObjectsElementName(originalObjectsElementName);
+        }
+    }
+
+    /**
+     * The aggregate element written by the objects writer uses the prefix from the namespace prefix mapper
+     * (here a non-default one), and the objects written into it are parsed back intact.
+     */
+    @Test
+    public void testStreamingObjectsWithPrefixedAggregateElement() throws Exception {
+        PrismContextImpl prismContext = (PrismContextImpl) getPrismContext();
+        QName originalObjectsElementName = prismContext.getObjectsElementName();
+        QName objectsElementName = new QName(PrismConstants.NS_TYPES, "objects");
+        prismContext.setObjectsElementName(objectsElementName);
+        try {
+            given();
+            PrismObject<UserType> user = prismContext.parseObject(getFile(USER_JACK_FILE_BASENAME));
+            PrismObject<UserType> otherUser = user.clone();
+            otherUser.setOid("c0c010c0-d34d-b33f-f00d-111111111999");
+
+            when("objects are written with the aggregate element in a namespace with non-default prefix");
+            StringWriter writer = new StringWriter();
+            try (PrismObjectsWriter objectsWriter = prismContext.serializerFor(getOutputFormat(), writer).objectsWriter()) {
+                objectsWriter.write(user);
+                objectsWriter.write(otherUser);
+            }
+            String nonStreamed = prismContext.serializerFor(getOutputFormat()).serializeObjects(List.of(user, otherUser));
+
+            then("the aggregate element has the same prefix as in the non-streamed output, and the objects are intact");
+            displayValue("Serialized objects", writer.toString());
+            Element objects = DOMUtil.parseDocument(writer.toString()).getDocumentElement();
+            assertEquals("Wrong aggregate element", objectsElementName, DOMUtil.getQName(objects));
+            assertEquals("Wrong prefix of aggregate element",
+                    DOMUtil.parseDocument(nonStreamed).getDocumentElement().getPrefix(), objects.getPrefix());
+            assertEquals("Wrong prefix of aggregate element", PrismConstants.PREFIX_NS_TYPES, objects.getPrefix());
+            List<PrismObject<? extends Objectable>> parsed = prismContext.parserFor(writer.toString()).parseObjects();
+            assertEquals("Wrong # of objects", 2, parsed.size());
+            assertEquals("Wrong first object", user, parsed.get(0));
+            assertEquals("Wrong second object", otherUser, parsed.get(1));
+        } finally {
+            prismContext.setObjectsElementName(originalObjectsElementName);
+        }
+    }
 }
@@ -12,8 +12,14 @@ import static com.evolveum.midpoint.prism.PrismInternalTestUtil.DEFAULT_NAMESPAC
 import static com.evolveum.midpoint.prism.PrismInternalTestUtil.constructInitializedPrismContext;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
 
 import org.testng.annotations.BeforeSuite;
@@ -23,11 +29,13 @@ import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
 
 import com.evolveum.midpoint.prism.impl.schema.PrismSchemaImpl;
+import com.evolveum.midpoint.prism.impl.schema.SchemaRegistryImpl;
 import com.evolveum.midpoint.prism.path.ItemName;
 import com.evolveum.midpoint.prism.schema.PrismSchema;
 import com.evolveum.midpoint.prism.util.PrismAsserts;
 import com.evolveum.midpoint.util.DOMUtil;
 import com.evolveum.midpoint.util.PrettyPrinter;
+import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
 import com.evolveum.midpoint.util.exception.SchemaException;
 
 /**
@@ -45,6 +53,8 @@ public class TestPrismSchemaConstruction extends AbstractPrismTest {
     private static final int SCHEMA_ROUNDTRIP_LOOP_ATTEMPTS = 10;
     private static final String WEAPON_PASSWORD_LOCAL_NAME = "password";
     private static final String WEAPON_BLADE_LOCAL_NAME = "blade";
+    private static final int CONCURRENT_PARSING_THREADS = 8;
+    private static final int CONCURRENT_PARSING_ATTEMPTS = 40;
 
     @BeforeSuite
     public void setupDebug() {
@@ -91,6 +101,68 @@ public class TestPrismSchemaConstruction extends AbstractPrismTest {
         }
     }
 
+    /**
+     * Schemas are parsed concurrently, both from the same and from different XSD elements.
+     */
+    @Test
+    public void testSchemaParsingConcurrent() throws Exception {
+        // GIVEN
+        PrismContext ctx = constructInitializedPrismContext();
+        Element xsdElement = DOMUtil.getFirstChildElement(constructSchema(ctx).serializeToXsd());
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_PARSING_THREADS);
+
+        // WHEN
+        List<Future<PrismSchema>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < CONCURRENT_PARSING_ATTEMPTS; i++) {
+                Element elementToParse = i % 2 == 0 ? xsdElement : (Element) xsdElement.cloneNode(true);
+                futures.add(executor.submit(
+                        () -> PrismSchemaImpl.parse(elementToParse, true, "concurrently parsed schema", ctx)));
+            }
+
+            // THEN
+            for (Future<PrismSchema> future : futures) {
+                assertSchema(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSchemaParsingCached() throws Exception {
+        // GIVEN
+        PrismContext ctx = constructInitializedPrismContext();
+        Element xsdElement = DOMUtil.getFirstChildElement(constructSchema(ctx).serializeToXsd());
+        CachePerformanceCollector.INSTANCE.clear();
+
+        // WHEN
+        PrismSchema first = PrismSchemaImpl.parseCached(xsdElement, true, "cached schema", ctx);
+        PrismSchema second = PrismSchemaImpl.parseCached(
+                (Element) xsdElement.cloneNode(true), true, "cached schema (copy)", ctx);
+
+        // THEN
+        assertSchema(first);
+        assertTrue("Cached schema is not frozen", first.isImmutable());
+        assertSame("Schema was not taken from the cache", first, second);
+        CachePerformanceCollector.CacheData cacheData = CachePerformanceCollector.INSTANCE.getGlobalPerformanceMap()
+                .get("com.evolveum.midpoint.prism.impl.schema.RuntimeSchemaCache");
+        assertNotNull("No cache statistics", cacheData);
+        assertEquals("Wrong # of cache hits", 1, cacheData.hits.get());
+        assertEquals("Wrong # of cache misses", 1, cacheData.misses.get());
+
+        // WHEN (registering a schema invalidates the caches)
+        ((SchemaRegistryImpl) ctx.getSchemaRegistry()).registerSchema(
+                DOMUtil.parseDocument("<xsd:schema xmlns:xsd='" + XMLConstants.W3C_XML_SCHEMA_NS_URI + "' "
+                        + "targetNamespace='http://midpoint.evolveum.com/xml/ns/test/dummy-1'/>"),
+                "dummy schema");
+        PrismSchema afterInvalidation = PrismSchemaImpl.parseCached(xsdElement, true, "cached schema", ctx);
+
+        // THEN
+        assertSchema(afterInvalidation);
+        assertNotSame("Schema was not re-parsed after cache invalidation", first, afterInvalidation);
+    }
+
     private void schemaRoundtrip(PrismContext ctx) throws SchemaException {
         PrismSchema schema = constructSchema(ctx);
         assertSchema(schema);
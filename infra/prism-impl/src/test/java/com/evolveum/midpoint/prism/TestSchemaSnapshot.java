@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.prism;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import static com.evolveum.midpoint.prism.PrismInternalTestUtil.*;
+
+import java.io.File;
+import javax.xml.namespace.QName;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.prism.impl.PrismContextImpl;
+import com.evolveum.midpoint.prism.impl.schema.SchemaRegistryImpl;
+
+/**
+ * Tests restoring the schema registry from a precompiled schema snapshot.
+ */
+public class TestSchemaSnapshot extends AbstractPrismTest {
+
+    private static final File SNAPSHOT_FILE = new File("target/test-schema-snapshot.bin");
+
+    private static final File USER_EXTENSION_SCHEMA_FILE = new File(EXTRA_SCHEMA_DIR, "extension/user.xsd");
+
+    private static final QName USER_EXTENSION_TYPE_QNAME = new QName(NS_USER_EXT, "UserExtensionType");
+
+    private static final double NANOS_TO_MILLIS_DOUBLE = 1_000_000d;
+
+    @Test
+    public void test100RestoreFromSnapshot() throws Exception {
+        given("snapshot created when parsing the schemas");
+        PrismContextImpl parsedContext = constructPrismContext();
+        SchemaRegistryImpl parsedRegistry = (SchemaRegistryImpl) parsedContext.getSchemaRegistry();
+        parsedRegistry.setSchemaSnapshotOutputFile(SNAPSHOT_FILE);
+        long parseStart = System.nanoTime();
+        parsedContext.initialize();
+        long parseEnd = System.nanoTime();
+        assertThat(SNAPSHOT_FILE).as("snapshot file").exists();
+        displayValue("Snapshot size (bytes)", SNAPSHOT_FILE.length());
+
+        when("registry is initialized from the snapshot");
+        PrismContextImpl restoredContext = constructPrismContext();
+        SchemaRegistryImpl restoredRegistry = (SchemaRegistryImpl) restoredContext.getSchemaRegistry();
+        restoredRegistry.setSchemaSnapshotFile(SNAPSHOT_FILE);
+        long restoreStart = System.nanoTime();
+        restoredContext.initialize();
+        long restoreEnd = System.nanoTime();
+
+        then("the definitions are the same");
+        displayValue("Initialization with parsing (ms)", (parseEnd - parseStart) / NANOS_TO_MILLIS_DOUBLE);
+        displayValue("Initialization from snapshot (ms)", (restoreEnd - restoreStart) / NANOS_TO_MILLIS_DOUBLE);
+        PrismObjectDefinition<UserType> parsedUserDefinition =
+                parsedRegistry.findObjectDefinitionByCompileTimeClass(UserType.class);
+        PrismObjectDefinition<UserType> restoredUserDefinition =
+                restoredRegistry.findObjectDefinitionByCompileTimeClass(UserType.class);
+        assertThat(restoredUserDefinition).as("restored user definition").isNotNull();
+        assertThat(restoredUserDefinition).as("restored user definition").isNotSameAs(parsedUserDefinition);
+        assertThat(restoredUserDefinition.debugDump()).isEqualTo(parsedUserDefinition.debugDump());
+        assertThat(restoredUserDefinition.isImmutable()).as("restored definition immutable").isTrue();
+        assertThat(restoredRegistry.findItemDefinitionByElementName(EXTENSION_STRING_TYPE_ELEMENT))
+                .as("extension item definition")
+                .isNotNull();
+        assertThat(restoredRegistry.getJavaxSchema()).as("javax schema").isNotNull();
+
+        and("objects can be parsed");
+        PrismObject<UserType> jack = restoredContext.parseObject(USER_JACK_FILE_XML);
+        assertThat(jack.getDefinition()).isSameAs(restoredUserDefinition);
+        assertThat(jack.findProperty(USER_FULLNAME_QNAME).getRealValue()).isEqualTo("cpt. Jack Sparrow");
+    }
+
+    /**
+     * The snapshot must contain the definitions themselves, even if serialization proxies are used for other
+     * serializations at the same time. The global setting must not be touched.
+     */
+    @Test
+    public void test120SnapshotWithSerializationProxiesEnabled() throws Exception {
+        given("serialization proxies are enabled");
+        PrismStaticConfiguration.setJavaSerializationProxiesEnabled(true);
+        try {
+            when("snapshot is created, and the registry is initialized from it");
+            PrismContextImpl parsedContext = constructPrismContext();
+            SchemaRegistryImpl parsedRegistry = (SchemaRegistryImpl) parsedContext.getSchemaRegistry();
+            parsedRegistry.setSchemaSnapshotOutputFile(SNAPSHOT_FILE);
+            parsedContext.initialize();
+            assertThat(PrismStaticConfiguration.javaSerializationProxiesEnabled())
+                    .as("proxies enabled after writing the snapshot")
+                    .isTrue();
+
+            PrismContextImpl restoredContext = constructPrismContext();
+            SchemaRegistryImpl restoredRegistry = (SchemaRegistryImpl) restoredContext.getSchemaRegistry();
+            restoredRegistry.setSchemaSnapshotFile(SNAPSHOT_FILE);
+            restoredContext.initialize();
+
+            then("the restored definitions are not the ones from the parsed registry");
+            PrismObjectDefinition<UserType> parsedUserDefinition =
+                    parsedRegistry.findObjectDefinitionByCompileTimeClass(UserType.class);
+            PrismObjectDefinition<UserType> restoredUserDefinition =
+                    restoredRegistry.findObjectDefinitionByCompileTimeClass(UserType.class);
+            assertThat(restoredUserDefinition.debugDump()).isEqualTo(parsedUserDefinition.debugDump());
+            assertThat(restoredUserDefinition.findPropertyDefinition(USER_FULLNAME_QNAME))
+                    .as("restored full name definition")
+                    .isNotNull()
+                    .isNotSameAs(parsedUserDefinition.findPropertyDefinition(USER_FULLNAME_QNAME));
+        } finally {
+            PrismStaticConfiguration.setJavaSerializationProxiesEnabled(false);
+        }
+    }
+
+    @Test
+    public void test110SnapshotForDifferentSchemas() throws Exception {
+        given("snapshot created for the standard schemas");
+        PrismContextImpl parsedContext = constructPrismContext();
+        ((SchemaRegistryImpl) parsedContext.getSchemaRegistry()).setSchemaSnapshotOutputFile(SNAPSHOT_FILE);
+        parsedContext.initialize();
+
+        when("registry with an additional schema is initialized with the snapshot");
+        PrismContextImpl context = constructPrismContext(USER_EXTENSION_SCHEMA_FILE);
+        SchemaRegistryImpl registry = (SchemaRegistryImpl) context.getSchemaRegistry();
+        registry.setSchemaSnapshotFile(SNAPSHOT_FILE);
+        context.initialize();
+
+        then("the snapshot is not used, and the schemas are parsed");
+        assertThat(registry.findComplexTypeDefinitionByType(USER_EXTENSION_TYPE_QNAME))
+                .as("definition from the additional schema")
+                .isNotNull();
+    }
+}
@@ -6,17 +6,32 @@
  */
 package com.evolveum.midpoint.prism.crypto;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.testng.AssertJUnit.*;
 
+import static com.evolveum.midpoint.prism.PrismInternalTestUtil.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import org.testng.AssertJUnit;
 import org.testng.annotations.Test;
 
 import com.evolveum.midpoint.prism.AbstractPrismTest;
 import com.evolveum.midpoint.prism.PrismInternalTestUtil;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.delta.ObjectDelta;
+import com.evolveum.midpoint.prism.foo.UserType;
+import com.evolveum.midpoint.prism.impl.crypto.ProtectedDataReencryptor;
+import com.evolveum.midpoint.prism.util.PrismTestUtil;
 import com.evolveum.prism.xml.ns._public.types_3.ProtectedStringType;
 
 public class TestProtector extends AbstractPrismTest {
 
+    private static final int BATCH_SIZE = 20_000;
+    private static final int USERS_TO_REENCRYPT = 2_000;
+
     @Test
     public void testProtectorEncryptionRoundTrip() throws Exception {
         String value = "someValue";
@@ -224,4 +239,134 @@ public class TestProtector extends AbstractPrismTest {
         // THEN
         assertTrue("compare4e failed", compare4e);
     }
+
+    /** Compares per-value and batch encryption and decryption, checking that the values survive the round trip. */
+    @Test
+    public void testBatchEncryptionRoundTrip() throws Exception {
+        given();
+        Protector protector = PrismInternalTestUtil.createProtector(Protector.XMLSEC_ENCRYPTION_ALGORITHM_AES256_CBC);
+
+        when("values are encrypted and decrypted one by one");
+        List<ProtectedStringType> values = createValues();
+        long perValueStart = System.nanoTime();
+        for (ProtectedStringType value : values) {
+            protector.encrypt(value);
+        }
+        for (ProtectedStringType value : values) {
+            protector.decrypt(value);
+        }
+        long perValue = System.nanoTime() - perValueStart;
+        assertClearValues(values);
+
+        and("in a batch");
+        long batchStart = System.nanoTime();
+        protector.encryptAll(values, false);
+        assertThat(values).allMatch(ProtectedStringType::isEncrypted);
+        protector.decryptAll(values, false);
+        long batch = System.nanoTime() - batchStart;
+        assertClearValues(values);
+
+        and("in a batch in parallel");
+        long parallelStart = System.nanoTime();
+        protector.encryptAll(values, true);
+        assertThat(values).allMatch(ProtectedStringType::isEncrypted);
+        protector.decryptAll(values, true);
+        long parallel = System.nanoTime() - parallelStart;
+
+        then();
+        assertClearValues(values);
+        displayValue("Per-value round trips (values/s)", BATCH_SIZE * 1_000_000_000L / perValue);
+        displayValue("Batch round trips (values/s)", BATCH_SIZE * 1_000_000_000L / batch);
+        displayValue("Parallel batch round trips (values/s)", BATCH_SIZE * 1_000_000_000L / parallel);
+    }
+
+    @Test
+    public void testBatchDecryptionFailure() throws Exception {
+        given("encrypted values, one of them corrupted");
+        Protector protector = PrismInternalTestUtil.createProtector(Protector.XMLSEC_ENCRYPTION_ALGORITHM_AES256_CBC);
+        List<ProtectedStringType> values = createValues().subList(0, 100);
+        protector.encryptAll(values, true);
+        values.get(50).getEncryptedDataType().getKeyInfo().setKeyName("nonexistent");
+
+        when("values are decrypted in parallel");
+        try {
+            protector.decryptAll(values, true);
+            fail("unexpected success");
+        } catch (EncryptionException e) {
+            then("the exception is propagated");
+            displayExpectedException(e);
+            assertThat(e.getMessage()).contains("nonexistent");
+        }
+    }
+
+    /** Re-encrypts passwords of users (encrypted with the default key) with another key, as after the key rotation. */
+    @Test
+    public void testReencryptWithNewKey() throws Exception {
+        given("users with passwords encrypted by the default key, the second half of them changed already");
+        Protector oldProtector = PrismInternalTestUtil.createProtector(Protector.XMLSEC_ENCRYPTION_ALGORITHM_AES256_CBC);
+        Protector newProtector = KeyStoreBasedProtectorBuilder.create(getPrismContext())
+                .keyStorePassword(KEYSTORE_PASSWORD)
+                .keyStorePath(KEYSTORE_PATH)
+                .encryptionKeyAlias("strong")
+                .encryptionAlgorithm(Protector.XMLSEC_ENCRYPTION_ALGORITHM_AES256_CBC)
+                .initialize();
+        PrismObject<UserType> jack = PrismTestUtil.parseObject(USER_JACK_FILE_XML);
+        List<PrismObject<UserType>> users = new ArrayList<>();
+        for (int i = 0; i < USERS_TO_REENCRYPT; i++) {
+            PrismObject<UserType> user = jack.clone();
+            user.setOid("user-" + i);
+            ProtectedStringType password = new ProtectedStringType();
+            password.setClearValue("password-" + i);
+            (i < USERS_TO_REENCRYPT / 2 ? oldProtector : newProtector).encrypt(password);
+            user.findOrCreateProperty(UserType.F_PASSWORD).setRealValue(password);
+            users.add(user);
+        }
+
+        when("the users are processed by the re-encryptor using the new key");
+        ProtectedDataReencryptor reencryptor = new ProtectedDataReencryptor(newProtector);
+        List<ObjectDelta<UserType>> deltas = new ArrayList<>();
+        reencryptor.process(users.stream(), deltas::add);
+
+        then("deltas are produced (in order) only for the users with the old key");
+        displayValue("Progress", reencryptor.getProgress());
+        assertThat(deltas.stream().map(ObjectDelta::getOid).collect(Collectors.toList()))
+                .isEqualTo(users.subList(0, USERS_TO_REENCRYPT / 2).stream()
+                        .map(PrismObject::getOid).collect(Collectors.toList()));
+        assertThat(reencryptor.getProgress().getObjects()).isEqualTo(USERS_TO_REENCRYPT);
+        assertThat(reencryptor.getProgress().getValuesReencrypted()).isEqualTo(USERS_TO_REENCRYPT / 2);
+
+        and("the deltas replace the passwords with values encrypted by the new key, keeping the clear values");
+        for (int i = 0; i < deltas.size(); i++) {
+            ObjectDelta<UserType> delta = deltas.get(i);
+            assertThat(delta.getModifications()).hasSize(1);
+            PrismObject<UserType> user = users.get(i).clone();
+            delta.applyTo(user);
+            ProtectedStringType password = getPassword(user);
+            //noinspection ConstantConditions
+            assertTrue(newProtector.isEncryptedByCurrentKey(password.getEncryptedDataType()));
+            assertEquals("password-" + i, newProtector.decryptString(password));
+            assertFalse("original object was modified",
+                    newProtector.isEncryptedByCurrentKey(getPassword(users.get(i)).getEncryptedDataType()));
+        }
+    }
+
+    private ProtectedStringType getPassword(PrismObject<UserType> user) {
+        return user.getPropertyRealValue(UserType.F_PASSWORD, ProtectedStringType.class);
+    }
+
+    private List<ProtectedStringType> createValues() {
+        List<ProtectedStringType> values = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            ProtectedStringType value = new ProtectedStringType();
+            value.setClearValue("value-" + i);
+            values.add(value);
+        }
+        return values;
+    }
+
+    private void assertClearValues(List<ProtectedStringType> values) {
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals("value-" + i, values.get(i).getClearValue());
+        }
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.prism.lex;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import static com.evolveum.midpoint.prism.PrismInternalTestUtil.*;
+import static com.evolveum.midpoint.prism.util.PrismTestUtil.createDefaultParsingContext;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.PerfRecorder;
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.impl.lex.dom.DomLexicalProcessor;
+import com.evolveum.midpoint.prism.impl.lex.dom.StaxLexicalProcessor;
+import com.evolveum.midpoint.prism.impl.xnode.RootXNodeImpl;
+import com.evolveum.midpoint.prism.util.PrismTestUtil;
+
+/**
+ * Runs all the XML lexical processor tests against {@link StaxLexicalProcessor},
+ * and checks that it produces the same results as DOM-based {@link DomLexicalProcessor}.
+ */
+public class TestStaxParser extends TestDomParser {
+
+    private static final int PERF_ITERATIONS = 2_000;
+    private static final double NANOS_TO_MILLIS_DOUBLE = 1_000_000d;
+
+    private static final String[] COMPARED_FILES = {
+            USER_JACK_FILE_BASENAME, "user-jack-adhoc", "user-jack-object", "user-alice-metadata",
+            "user-barbossa", "user-will", "account-barbossa", "resource-rum", "event-handler",
+            "ref-with-filter", "objects-1-list"
+    };
+
+    @Override
+    protected DomLexicalProcessor createLexicalProcessor() {
+        return new StaxLexicalProcessor(PrismTestUtil.getSchemaRegistry());
+    }
+
+    @Test
+    public void testStaxAndDomProduceSameXNodes() throws Exception {
+        DomLexicalProcessor domProcessor = new DomLexicalProcessor(PrismTestUtil.getSchemaRegistry());
+        DomLexicalProcessor staxProcessor = createLexicalProcessor();
+
+        for (String file : COMPARED_FILES) {
+            when("reading " + file);
+            List<RootXNodeImpl> domNodes = domProcessor.readObjects(getFileSource(file), createDefaultParsingContext());
+            List<RootXNodeImpl> staxNodes = staxProcessor.readObjects(getFileSource(file), createDefaultParsingContext());
+
+            then("XNodes for " + file + " are the same");
+            assertEquals("XNodes differ for " + file, domNodes, staxNodes);
+        }
+    }
+
+    @Test
+    public void testStaxAndDomProduceSameObjects() throws Exception {
+        PrismContext prismContext = PrismTestUtil.getPrismContext();
+        DomLexicalProcessor domProcessor = new DomLexicalProcessor(PrismTestUtil.getSchemaRegistry());
+        DomLexicalProcessor staxProcessor = createLexicalProcessor();
+
+        for (String file : new String[] { USER_JACK_FILE_BASENAME, "user-alice-metadata", "resource-rum" }) {
+            when("parsing " + file);
+            PrismObject<?> domObject = prismContext.parserFor(
+                    domProcessor.read(getFileSource(file), createDefaultParsingContext())).parse();
+            PrismObject<?> staxObject = prismContext.parserFor(
+                    staxProcessor.read(getFileSource(file), createDefaultParsingContext())).parse();
+
+            then("objects for " + file + " are the same");
+            assertEquals("Objects differ for " + file, domObject, staxObject);
+        }
+    }
+
+    /**
+     * Not a precise benchmark, just a rough comparison of StAX and DOM parsing paths.
+     */
+    @Test
+    public void testParsePerformanceComparison() throws Exception {
+        DomLexicalProcessor domProcessor = new DomLexicalProcessor(PrismTestUtil.getSchemaRegistry());
+        DomLexicalProcessor staxProcessor = createLexicalProcessor();
+        PerfRecorder domRecorder = new PerfRecorder("DOM read");
+        PerfRecorder staxRecorder = new PerfRecorder("StAX read");
+
+        for (int i = 0; i < PERF_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            domProcessor.read(getFileSource(USER_JACK_FILE_BASENAME), createDefaultParsingContext());
+            long middle = System.nanoTime();
+            staxProcessor.read(getFileSource(USER_JACK_FILE_BASENAME), createDefaultParsingContext());
+            long end = System.nanoTime();
+
+            domRecorder.record(i, (middle - start) / NANOS_TO_MILLIS_DOUBLE);
+            staxRecorder.record(i, (end - middle) / NANOS_TO_MILLIS_DOUBLE);
+        }
+
+        displayValue("DOM", domRecorder.dump());
+        displayValue("StAX", staxRecorder.dump());
+
+        // Averages only; see TestPerformance for the reasons why not to assert the maximum.
+        staxRecorder.assertAverageBelow(5d);
+    }
+}
@@ -6,6 +6,9 @@
  */
 package com.evolveum.midpoint.prism.match;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import javax.xml.namespace.QName;
 
 import com.evolveum.midpoint.prism.*;
@@ -16,12 +19,16 @@ import org.testng.annotations.Test;
 
 import com.evolveum.midpoint.prism.foo.UserType;
 import com.evolveum.midpoint.prism.impl.match.MatchingRuleRegistryFactory;
+import com.evolveum.midpoint.prism.impl.query.FuzzyStringMatchIndex;
+import com.evolveum.midpoint.prism.query.FuzzyStringMatchFilter;
 import com.evolveum.midpoint.prism.query.ObjectFilter;
 import com.evolveum.midpoint.util.DOMUtil;
 import com.evolveum.midpoint.util.exception.SchemaException;
 
 public class FuzzyStringMatchFilterImplTest extends AbstractPrismTest {
 
+    private static final int INDEXED_VALUES = 20_000;
+
     QName QNAME_GIVEN_NAME = QName.valueOf("givenName");
     QName QNAME_DATE_BIRTH = QName.valueOf("dateOfBirth");
     QName QNAME_NATIONAL_ID = QName.valueOf("nationalId");
@@ -238,6 +245,63 @@ public class FuzzyStringMatchFilterImplTest extends AbstractPrismTest {
         Assert.assertFalse(queryFilter02.match(prismContainerValue, matchingRuleRegistry));
     }
 
+    @Test
+    public void fuzzyStringMatchIndexTest() throws SchemaException {
+        PrismContext prismContext = PrismContext.get();
+        MatchingRuleRegistry matchingRuleRegistry = MatchingRuleRegistryFactory.createRegistry();
+        String[] syllables = { "ma", "ri", "jo", "an", "na", "el", "ka", "te", "li", "son", "ber", "ta" };
+        Random random = new Random(42);
+
+        given("many container values with generated names");
+        List<PrismContainerValue<?>> values = new ArrayList<>();
+        for (int i = 0; i < INDEXED_VALUES; i++) {
+            PrismContainerValue<?> value = prismContext.itemFactory().createContainerValue();
+            value.setId((long) i);
+            StringBuilder name = new StringBuilder();
+            for (int j = 0; j < 2 + random.nextInt(3); j++) {
+                name.append(syllables[random.nextInt(syllables.length)]);
+            }
+            value.setPropertyRealValue(QNAME_GIVEN_NAME, name.toString(), prismContext);
+            values.add(value);
+        }
+        FuzzyStringMatchIndex<PrismContainerValue<?>> index = new FuzzyStringMatchIndex<>(UserType.F_GIVEN_NAME, values);
+
+        List<ObjectFilter> filters = List.of(
+                prismContext.queryFor(UserType.class)
+                        .item(UserType.F_GIVEN_NAME).fuzzyString("marijo").similarityInclusive(0.5f).buildFilter(),
+                prismContext.queryFor(UserType.class)
+                        .item(UserType.F_GIVEN_NAME).fuzzyString("Kateli").similarityExclusive(0.3f).buildFilter(),
+                prismContext.queryFor(UserType.class)
+                        .item(UserType.F_GIVEN_NAME).fuzzyString("anna").similarityInclusive(0f).buildFilter(),
+                prismContext.queryFor(UserType.class)
+                        .item(UserType.F_GIVEN_NAME).fuzzyString("marijo").levenshteinInclusive(1).buildFilter(),
+                prismContext.queryFor(UserType.class)
+                        .item(UserType.F_GIVEN_NAME).fuzzyString("bertason").levenshteinExclusive(3).buildFilter(),
+                prismContext.queryFor(UserType.class)
+                        .item(UserType.F_GIVEN_NAME).fuzzyString("ta").levenshteinExclusive(0).buildFilter());
+
+        for (ObjectFilter filter : filters) {
+            when("searching for " + filter);
+            long start = System.nanoTime();
+            List<PrismContainerValue<?>> expected = new ArrayList<>();
+            for (PrismContainerValue<?> value : values) {
+                if (filter.match(value, matchingRuleRegistry)) {
+                    expected.add(value);
+                }
+            }
+            long scanTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            List<PrismContainerValue<?>> found = index.search((FuzzyStringMatchFilter<?>) filter);
+            long indexTime = System.nanoTime() - start;
+
+            then("index gives the same results as matching each value");
+            displayValue("Matching values", expected.size());
+            displayValue("Scan time (ms)", scanTime / 1_000_000);
+            displayValue("Index search time (ms)", indexTime / 1_000_000);
+            Assert.assertEquals(found, expected);
+        }
+    }
+
     private PrismContainerValue<?> generatePrismContainerValue(
             String id, String givenname, String familyName, String dateOfBirth, String nationalId, String subFamilyName)
             throws SchemaException {
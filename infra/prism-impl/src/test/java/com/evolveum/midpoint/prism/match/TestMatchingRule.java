@@ -12,9 +12,12 @@ import org.testng.annotations.Test;
 
 import com.evolveum.midpoint.prism.AbstractPrismTest;
 import com.evolveum.midpoint.prism.PrismConstants;
+import com.evolveum.midpoint.prism.PrismStaticConfiguration;
+import com.evolveum.midpoint.prism.impl.match.DistinguishedNameMatchingRule;
 import com.evolveum.midpoint.prism.impl.match.MatchingRuleRegistryFactory;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
 
@@ -132,6 +135,109 @@ public class TestMatchingRule extends AbstractPrismTest {
         assertNormalized(rule, "<foo>FOO<bar> BAR </foo>", "<foo>FOO<bar> BAR </foo>   ");
     }
 
+    @Test
+    public void testDistinguishedName() throws Exception {
+        // GIVEN
+        MatchingRule<String> rule = matchingRuleRegistry.getMatchingRule(
+                PrismConstants.DISTINGUISHED_NAME_MATCHING_RULE_NAME, DOMUtil.XSD_STRING);
+        // WHEN, THEN
+        assertDistinguishedNameRule(rule);
+    }
+
+    @Test
+    public void testDistinguishedNameCached() throws Exception {
+        // GIVEN
+        MatchingRule<String> rule = matchingRuleRegistry.getMatchingRule(
+                PrismConstants.DISTINGUISHED_NAME_MATCHING_RULE_NAME, DOMUtil.XSD_STRING);
+        PrismStaticConfiguration.setMatchingRuleCacheEnabled(true);
+        CachePerformanceCollector.INSTANCE.clear();
+        try {
+            // WHEN, THEN (twice, so the second round uses the cache)
+            assertDistinguishedNameRule(rule);
+            assertDistinguishedNameRule(rule);
+
+            CachePerformanceCollector.CacheData cacheData = CachePerformanceCollector.INSTANCE.getGlobalPerformanceMap()
+                    .get(DistinguishedNameMatchingRule.class.getName());
+            assertNotNull("No cache statistics", cacheData);
+            displayValue("Cache statistics", cacheData.shortDump());
+            assertTrue("No cache hits", cacheData.hits.get() > 0);
+        } finally {
+            PrismStaticConfiguration.setMatchingRuleCacheEnabled(false);
+        }
+    }
+
+    private void assertDistinguishedNameRule(MatchingRule<String> rule) throws SchemaException {
+        assertMatch(rule, "cn=foo,o=bar", "cn=foo,o=bar");
+        assertMatch(rule, "cn=foo,o=bar", "CN=Foo, O=Bar");
+        assertNoMatch(rule, "cn=foo,o=bar", "cn=foo,o=baz");
+        assertMatch(rule, "", " ");
+        assertNoMatch(rule, "", "cn=foo,o=bar");
+        assertNoMatch(rule, "", "not a DN"); // the invalid value is not even looked at
+        try {
+            rule.match("cn=foo,o=bar", "not a DN");
+            fail("unexpected success");
+        } catch (SchemaException e) {
+            displayExpectedException(e);
+        }
+        assertNormalized(rule, "cn=foo,o=bar", "CN=Foo,O=Bar");
+    }
+
+    /** The expression is compiled only once (if the regex cache is enabled, which it is by default). */
+    @Test
+    public void testRegexCache() throws Exception {
+        // GIVEN
+        MatchingRule<String> rule = matchingRuleRegistry.getMatchingRule(
+                PrismConstants.STRING_IGNORE_CASE_MATCHING_RULE_NAME, DOMUtil.XSD_STRING);
+        CachePerformanceCollector.INSTANCE.clear();
+        // WHEN, THEN
+        assertTrue(rule.matchRegex("FooBar", "foo.*-testRegexCache|foo.*"));
+        assertFalse(rule.matchRegex("Baz", "foo.*-testRegexCache|foo.*"));
+        CachePerformanceCollector.CacheData cacheData = CachePerformanceCollector.INSTANCE.getGlobalPerformanceMap()
+                .get("com.evolveum.midpoint.prism.impl.match.RegexCache");
+        assertNotNull("No cache statistics", cacheData);
+        assertEquals("Wrong # of cache hits", 1, cacheData.hits.get());
+        assertEquals("Wrong # of cache misses", 1, cacheData.misses.get());
+    }
+
+    /** Compares repeated matching of the same DNs with the cache and without it. */
+    @Test
+    public void testDistinguishedNamePerformance() throws Exception {
+        // GIVEN
+        MatchingRule<String> rule = matchingRuleRegistry.getMatchingRule(
+                PrismConstants.DISTINGUISHED_NAME_MATCHING_RULE_NAME, DOMUtil.XSD_STRING);
+        String[] dns = new String[100];
+        for (int i = 0; i < dns.length; i++) {
+            dns[i] = "uid=user" + i + ",ou=People,dc=example,dc=com";
+        }
+        try {
+            for (int warmUp = 0; warmUp < 2; warmUp++) {
+                matchRepeatedly(rule, dns);
+            }
+            // WHEN
+            long uncached = matchRepeatedly(rule, dns);
+            PrismStaticConfiguration.setMatchingRuleCacheEnabled(true);
+            matchRepeatedly(rule, dns); // warm-up, filling the cache
+            long cached = matchRepeatedly(rule, dns);
+            // THEN
+            displayValue("DN matching without cache (ms)", uncached / 1_000_000);
+            displayValue("DN matching with cache (ms)", cached / 1_000_000);
+        } finally {
+            PrismStaticConfiguration.setMatchingRuleCacheEnabled(false);
+        }
+    }
+
+    private long matchRepeatedly(MatchingRule<String> rule, String[] dns) throws SchemaException {
+        long start = System.nanoTime();
+        for (int round = 0; round < 20; round++) {
+            for (String a : dns) {
+                for (int j = 0; j < 10; j++) {
+                    rule.match(a, dns[j]);
+                }
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
     private <T> void assertMatch(MatchingRule<T> rule, T a, T b) throws SchemaException {
         assertTrue("Values '" + a + "' and '" + b + "' does not match; rule: " + rule, rule.match(a, b));
     }
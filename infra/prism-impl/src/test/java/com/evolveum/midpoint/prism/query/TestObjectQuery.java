@@ -30,6 +30,8 @@ import com.evolveum.midpoint.util.DOMUtil;
 import java.io.File;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.BiFunction;
 
 import static com.evolveum.midpoint.prism.PrismInternalTestUtil.EXTENSION_DATETIME_ELEMENT;
@@ -378,6 +380,129 @@ public class TestObjectQuery extends AbstractPrismTest {
         AssertJUnit.assertTrue("filter does not match object", match);
     }
 
+    @Test
+    public void testCompiledFilter() throws Exception {
+        PrismObject<UserType> user = parseUserJack();
+        List<ObjectFilter> filters = List.of(
+                getPrismContext().queryFor(UserType.class)
+                        .item(UserType.F_GIVEN_NAME).eq("Jackie", "Jack", "Will")
+                        .buildFilter(),
+                getPrismContext().queryFor(UserType.class)
+                        .item(UserType.F_GIVEN_NAME).eq("Jackie", "Will")
+                        .buildFilter(),
+                getPrismContext().queryFor(UserType.class)
+                        .item(UserType.F_GIVEN_NAME).eq("JACK").matchingCaseIgnore()
+                        .and().item(UserType.F_FULL_NAME).contains("ARR").matchingCaseIgnore()
+                        .buildFilter(),
+                getPrismContext().queryFor(UserType.class)
+                        .item(UserType.F_FULL_NAME).startsWith("Jack")
+                        .and().not().item(UserType.F_FULL_NAME).endsWith("Jack")
+                        .buildFilter(),
+                getPrismContext().queryFor(UserType.class)
+                        .item(UserType.F_LOCALITY).isNull()
+                        .and().item(UserType.F_NAME).isNull()
+                        .buildFilter(),
+                getPrismContext().queryFor(UserType.class)
+                        .id("c0c010c0-d34d-b33f-f00d-111111111111", user.getOid())
+                        .buildFilter(),
+                getPrismContext().queryFor(UserType.class)
+                        .id("c0c010c0-d34d-b33f-f00d-111111111111")
+                        .or().none()
+                        .buildFilter(),
+                getPrismContext().queryFor(UserType.class)
+                        .exists(UserType.F_ASSIGNMENT)
+                        .item(AssignmentType.F_DESCRIPTION).eq("Assignment NONE", "Assignment 2")
+                        .buildFilter());
+
+        for (ObjectFilter filter : filters) {
+            boolean expected = filter.match(user.getValue(), MATCHING_RULE_REGISTRY);
+            boolean compiled = filter.compile(MATCHING_RULE_REGISTRY).match(user.getValue());
+            AssertJUnit.assertEquals("compiled filter produces wrong result for " + filter, expected, compiled);
+        }
+    }
+
+    /**
+     * Filters with a matching rule whose match keys are computed at compile time, and filters without values
+     * (where the object values need not be looked at).
+     */
+    @Test
+    public void testCompiledFilterWithMatchKeys() throws Exception {
+        given("user with DN-like additional names");
+        PrismObject<UserType> user = parseUserJack();
+        user.findOrCreateProperty(UserType.F_ADDITIONAL_NAMES)
+                .setRealValues("CN=Jack Sparrow,O=Black Pearl", "uid=jack,ou=people");
+
+        List<ObjectFilter> filters = List.of(
+                getPrismContext().queryFor(UserType.class)
+                        .item(UserType.F_ADDITIONAL_NAMES).eq("cn=will turner,o=flying dutchman", "cn=jack sparrow, o=black pearl")
+                        .matching(PrismConstants.DISTINGUISHED_NAME_MATCHING_RULE_NAME)
+                        .buildFilter(),
+                getPrismContext().queryFor(UserType.class)
+                        .item(UserType.F_ADDITIONAL_NAMES).eq("cn=will turner,o=flying dutchman", "cn=jack sparrow")
+                        .matching(PrismConstants.DISTINGUISHED_NAME_MATCHING_RULE_NAME)
+                        .buildFilter(),
+                getPrismContext().queryFor(UserType.class)
+                        .item(UserType.F_ADDITIONAL_NAMES).eq("UID=Jack, OU=People")
+                        .matching(PrismConstants.DISTINGUISHED_NAME_MATCHING_RULE_NAME)
+                        .buildFilter(),
+                getPrismContext().queryFor(UserType.class)
+                        .item(UserType.F_ADDITIONAL_NAMES).isNull()
+                        .buildFilter(),
+                getPrismContext().queryFor(UserType.class)
+                        .item(UserType.F_LOCALITY).isNull()
+                        .buildFilter());
+        List<Boolean> expectedResults = List.of(true, false, true, false, true);
+
+        when("filters are compiled and matched");
+        List<Boolean> compiledResults = new ArrayList<>();
+        for (ObjectFilter filter : filters) {
+            compiledResults.add(filter.compile(MATCHING_RULE_REGISTRY).match(user.getValue()));
+        }
+
+        then("the results are the same as for the interpreted filters");
+        for (int i = 0; i < filters.size(); i++) {
+            ObjectFilter filter = filters.get(i);
+            AssertJUnit.assertEquals("interpreted filter produces wrong result for " + filter,
+                    expectedResults.get(i).booleanValue(), filter.match(user.getValue(), MATCHING_RULE_REGISTRY));
+            AssertJUnit.assertEquals("compiled filter produces wrong result for " + filter,
+                    expectedResults.get(i), compiledResults.get(i));
+        }
+    }
+
+    @Test
+    public void testCompiledFilterPerformance() throws Exception {
+        int iterations = 20_000;
+        PrismObject<UserType> user = parseUserJack();
+        List<String> givenNames = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            givenNames.add("name-" + i);
+        }
+        ObjectFilter filter = getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_FULL_NAME).contains("xyz")
+                .or().item(UserType.F_GIVEN_NAME).eq(givenNames.toArray())
+                .or().id("c0c010c0-d34d-b33f-f00d-111111111111", user.getOid())
+                .buildFilter();
+
+        when("filter is matched directly");
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            AssertJUnit.assertTrue(filter.match(user.getValue(), MATCHING_RULE_REGISTRY));
+        }
+        long interpretedTime = System.nanoTime() - start;
+
+        and("compiled filter is matched");
+        start = System.nanoTime();
+        CompiledObjectFilter compiled = filter.compile(MATCHING_RULE_REGISTRY);
+        for (int i = 0; i < iterations; i++) {
+            AssertJUnit.assertTrue(compiled.match(user.getValue()));
+        }
+        long compiledTime = System.nanoTime() - start;
+
+        then();
+        displayValue("Interpreted (ms)", interpretedTime / 1_000_000);
+        displayValue("Compiled (ms)", compiledTime / 1_000_000);
+    }
+
     private void assertNumGeFilter(PrismObject<UserType> user, Object value, boolean expected) throws SchemaException {
         assertGeFilter(user, EXTENSION_NUM_ELEMENT, DOMUtil.XSD_INT, value, expected);
     }
@@ -6,6 +6,7 @@
  */
 package com.evolveum.midpoint.prism.query.lang;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
@@ -14,6 +15,8 @@ import static com.evolveum.midpoint.prism.PrismInternalTestUtil.EXTENSION_NUM_EL
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.function.BiFunction;
 import javax.xml.datatype.XMLGregorianCalendar;
 import javax.xml.namespace.QName;
@@ -30,6 +33,9 @@ import com.evolveum.midpoint.prism.foo.AssignmentType;
 import com.evolveum.midpoint.prism.foo.UserType;
 import com.evolveum.midpoint.prism.impl.match.MatchingRuleRegistryFactory;
 import com.evolveum.midpoint.prism.impl.query.*;
+import com.evolveum.midpoint.prism.impl.PrismContextImpl;
+import com.evolveum.midpoint.prism.impl.query.lang.AxiomQueryCache;
+import com.evolveum.midpoint.prism.impl.query.lang.PrismQueryLanguageParserImpl;
 import com.evolveum.midpoint.prism.impl.query.lang.PrismQuerySerializerImpl;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
 import com.evolveum.midpoint.prism.path.ItemName;
@@ -40,10 +46,12 @@ import com.evolveum.midpoint.prism.query.ObjectFilter;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.prism.query.PrismQuerySerialization;
 import com.evolveum.midpoint.prism.query.PrismQuerySerialization.NotSupportedException;
+import com.evolveum.midpoint.prism.query.RefFilter;
 import com.evolveum.midpoint.prism.util.PrismTestUtil;
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
 import com.evolveum.midpoint.prism.xnode.MapXNode;
 import com.evolveum.midpoint.util.DOMUtil;
+import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
 import com.evolveum.midpoint.util.exception.SchemaException;
 
 public class TestBasicQueryConversions extends AbstractPrismTest {
@@ -599,6 +607,106 @@ public class TestBasicQueryConversions extends AbstractPrismTest {
                 + " OWNED-BY(CTD ({.../test/foo-1.xsd}UserType),accountRef,null))");
     }
 
+    @Test
+    public void testCachedQueries() throws Exception {
+        List<String> queries = List.of(
+                "givenName =[stringIgnoreCase] 'Jack' and fullName contains 'arr'",
+                "assignment matches (description = 'Assignment 2')",
+                "locality not exists",
+                ". type UserType and familyName = 'Sparrow' and fullName contains 'arr'",
+                "name matches (orig = 'jack' and norm = 'jack')",
+                "accountRef matches (oid = 'c0c010c0-d34d-b33f-f00d-aaaaaaaa1113')",
+                ". inOid ('c0c010c0-d34d-b33f-f00d-aaaaaaaa1113', 'c0c010c0-d34d-b33f-f00d-aaaaaaaa1114')",
+                "fullName != givenName");
+        var uncachedParser = new PrismQueryLanguageParserImpl(getPrismContext());
+
+        for (String query : queries) {
+            when("parsing " + query + " repeatedly");
+            ObjectFilter first = parse(query);
+            ObjectFilter second = parse(query);
+
+            then("the cached filter is equal to the freshly parsed one, but it is not shared");
+            ObjectFilter uncached = uncachedParser.parseFilter(UserType.class, query);
+            assertFilterEquals(first, uncached);
+            assertFilterEquals(second, uncached);
+            assertThat(second).isNotSameAs(first);
+        }
+    }
+
+    @Test
+    public void testCachedReferenceQueries() throws Exception {
+        String query = ". matches (oid = 'c0c010c0-d34d-b33f-f00d-aaaaaaaa1113')";
+        AxiomQueryCache cache = ((PrismContextImpl) getPrismContext()).getQueryCache();
+        cache.clear();
+        CachePerformanceCollector.INSTANCE.clear();
+
+        when("a query on references is parsed repeatedly");
+        ObjectFilter first = queryParser().parseFilter(Referencable.class, query);
+        ObjectFilter second = queryParser().parseFilter(Referencable.class, query);
+
+        then("the filter is cached only once, and the second one is taken from the cache");
+        assertFilterEquals(second, first);
+        assertThat(cache.getFiltersCount()).isEqualTo(1);
+        CachePerformanceCollector.CacheData cacheData = CachePerformanceCollector.INSTANCE.getGlobalPerformanceMap()
+                .get(AxiomQueryCache.class.getName());
+        assertThat(cacheData).isNotNull();
+        assertThat(cacheData.hits.get()).as("hits (parse trees and filters)").isEqualTo(1);
+    }
+
+    @Test
+    public void testQueryParameters() throws Exception {
+        String query = "givenName = $givenName and accountRef matches (oid = 'c0c010c0-d34d-b33f-f00d-aaaaaaaa1113')";
+        AxiomQueryCache cache = ((PrismContextImpl) getPrismContext()).getQueryCache();
+        cache.clear();
+
+        when("the same query is parsed with different parameter values");
+        ObjectFilter jack = queryParser().parseFilter(UserType.class, query, Map.of("givenName", "Jack"));
+        ObjectFilter jackie = queryParser().parseFilter(UserType.class, query, Map.of("givenName", "Jackie"));
+
+        then("the values are bound, and the query is parsed only once");
+        assertFilterEquals(jack,
+                parse("givenName = 'Jack' and accountRef matches (oid = 'c0c010c0-d34d-b33f-f00d-aaaaaaaa1113')"));
+        assertFilterEquals(jackie,
+                parse("givenName = 'Jackie' and accountRef matches (oid = 'c0c010c0-d34d-b33f-f00d-aaaaaaaa1113')"));
+        assertThat(cache.getSourcesCount()).isEqualTo(3);
+
+        and("multiple values and references can be bound as well");
+        assertFilterEquals(
+                queryParser().parseFilter(UserType.class, "givenName = $names", Map.of("names", List.of("Jack", "Jackie"))),
+                parse("givenName = ('Jack', 'Jackie')"));
+        ObjectFilter refFilter = queryParser().parseFilter(UserType.class, "accountRef = $account",
+                Map.of("account", "c0c010c0-d34d-b33f-f00d-aaaaaaaa1113"));
+        assertThat(((RefFilter) refFilter).getValues())
+                .extracting(PrismReferenceValue::getOid)
+                .containsExactly("c0c010c0-d34d-b33f-f00d-aaaaaaaa1113");
+    }
+
+    @Test
+    public void testQueryParsingPerformance() throws Exception {
+        int iterations = 5_000;
+        String query = ". type UserType and familyName = 'Sparrow' and fullName contains 'arr'"
+                + " and (givenName = 'Jack' or givenName = 'Jackie') and assignment matches (description = 'Assignment 2')";
+        var uncachedParser = new PrismQueryLanguageParserImpl(getPrismContext());
+
+        when("parsing without cache");
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            uncachedParser.parseFilter(UserType.class, query);
+        }
+        long uncachedTime = System.nanoTime() - start;
+
+        and("parsing with cache");
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            parse(query);
+        }
+        long cachedTime = System.nanoTime() - start;
+
+        then();
+        displayValue("Uncached (ms)", uncachedTime / 1_000_000);
+        displayValue("Cached (ms)", cachedTime / 1_000_000);
+    }
+
     private void assertNumGeFilter(Object value) throws SchemaException, IOException {
         assertGeFilter(EXTENSION_NUM_ELEMENT, DOMUtil.XSD_INT, value);
     }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.prism.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.xml.sax.SAXException;
+
+import com.evolveum.midpoint.prism.impl.PrismContextImpl;
+import com.evolveum.midpoint.prism.impl.schema.SchemaDefinitionFactory;
+import com.evolveum.midpoint.prism.impl.schema.SchemaRegistryImpl;
+import com.evolveum.midpoint.prism.impl.xml.GlobalDynamicNamespacePrefixMapper;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Parses the prism schemas and writes the resulting definitions into a snapshot that the schema registry can
+ * restore at startup instead of parsing the schemas again (see {@link SchemaRegistryImpl#setSchemaSnapshotFile(File)}
+ * and {@link SchemaRegistryImpl#setSchemaSnapshotResourceName(String)}).
+ *
+ * The snapshot is used by the runtime registry only if it was created for the same schemas: the schema files
+ * must be registered in the same order, with the same packages of compile-time classes ({@link #compileTimePackages}).
+ * The definition factory ({@link #definitionFactory}) should be the same as well.
+ */
+@Mojo(name = "schema-snapshot", defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+        requiresDependencyResolution = ResolutionScope.COMPILE)
+public class SchemaSnapshotMojo extends AbstractMojo {
+
+    @Parameter(required = true)
+    private File[] schemaFiles;
+
+    @Parameter
+    private File[] catalogFiles;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}/META-INF/prism-schema-snapshot.bin", required = true)
+    private File outputFile;
+
+    /**
+     * Packages of compile-time (JAXB) classes for schema namespaces: the property name is the namespace,
+     * the value is the package name. The classes (at least `ObjectFactory` in each package) must be available
+     * to the plugin, e.g. as its dependencies.
+     */
+    @Parameter
+    private Properties compileTimePackages;
+
+    /** Class name of the definition factory, a subclass of {@link SchemaDefinitionFactory}. */
+    @Parameter(defaultValue = "com.evolveum.midpoint.prism.impl.schema.SchemaDefinitionFactory")
+    private String definitionFactory;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        getLog().debug("Schema snapshot plugin started");
+
+        Map<String, Package> packages = resolveCompileTimePackages();
+        SchemaDefinitionFactory schemaDefinitionFactory = createDefinitionFactory();
+
+        SchemaRegistryImpl schemaRegistry = new SchemaRegistryImpl();
+        schemaRegistry.setNamespacePrefixMapper(new GlobalDynamicNamespacePrefixMapper());
+        schemaRegistry.setSchemaSnapshotOutputFile(outputFile);
+        try {
+            for (File schemaFile : schemaFiles) {
+                getLog().debug("Schema snapshot: registering schema file: " + schemaFile);
+                if (!schemaFile.exists()) {
+                    throw new MojoFailureException("Schema file " + schemaFile + " does not exist");
+                }
+                schemaRegistry.registerPrismSchemaFile(schemaFile, packages);
+            }
+            if (catalogFiles != null && catalogFiles.length > 0) {
+                for (File catalogFile : catalogFiles) {
+                    if (!catalogFile.exists()) {
+                        throw new MojoFailureException("Catalog file " + catalogFile + " does not exist");
+                    }
+                }
+                schemaRegistry.setCatalogFiles(catalogFiles);
+            }
+
+            PrismContextImpl context = PrismContextImpl.create(schemaRegistry);
+            context.setDefinitionFactory(schemaDefinitionFactory);
+            context.initialize();
+        } catch (SchemaException | SAXException | IOException e) {
+            throw new MojoExecutionException("Couldn't create schema snapshot: " + e.getMessage(), e);
+        }
+
+        getLog().info("Schema snapshot written to " + outputFile);
+    }
+
+    private Map<String, Package> resolveCompileTimePackages() throws MojoFailureException {
+        Map<String, Package> packages = new HashMap<>();
+        if (compileTimePackages != null) {
+            for (String namespace : compileTimePackages.stringPropertyNames()) {
+                String packageName = compileTimePackages.getProperty(namespace);
+                try {
+                    packages.put(namespace, Class.forName(packageName + ".ObjectFactory").getPackage());
+                } catch (ClassNotFoundException e) {
+                    throw new MojoFailureException("Compile-time classes for namespace " + namespace
+                            + " are not available: no ObjectFactory in package " + packageName, e);
+                }
+            }
+        }
+        return packages;
+    }
+
+    private SchemaDefinitionFactory createDefinitionFactory() throws MojoFailureException {
+        try {
+            return Class.forName(definitionFactory)
+                    .asSubclass(SchemaDefinitionFactory.class)
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new MojoFailureException("Couldn't create definition factory " + definitionFactory + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.prism.maven;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.ComplexTypeDefinition;
+import com.evolveum.midpoint.prism.PrismConstants;
+import com.evolveum.midpoint.prism.impl.PrismContextImpl;
+import com.evolveum.midpoint.prism.impl.schema.SchemaDefinitionFactory;
+import com.evolveum.midpoint.prism.impl.schema.SchemaRegistryImpl;
+import com.evolveum.midpoint.prism.impl.xml.GlobalDynamicNamespacePrefixMapper;
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
+
+/**
+ * Checks that the snapshot created by {@link SchemaSnapshotMojo} is used by a schema registry configured
+ * the same way as the mojo.
+ */
+public class TestSchemaSnapshotMojo extends AbstractUnitTest {
+
+    private static final Path TEST_DIR = Path.of("target/test-schema-snapshot");
+    private static final String SCHEMA_RESOURCE_DIR = "xml/ns/public/";
+
+    private static final File TYPES_FILE = TEST_DIR.resolve(SCHEMA_RESOURCE_DIR + "types-3.xsd").toFile();
+    private static final File QUERY_FILE = TEST_DIR.resolve(SCHEMA_RESOURCE_DIR + "query-3.xsd").toFile();
+    private static final File CATALOG_FILE = TEST_DIR.resolve("META-INF/catalog.xml").toFile();
+    private static final File SNAPSHOT_FILE = TEST_DIR.resolve("prism-schema-snapshot.bin").toFile();
+
+    private static final Map<String, Package> PACKAGES = Map.of(
+            PrismConstants.NS_TYPES, com.evolveum.prism.xml.ns._public.types_3.ObjectFactory.class.getPackage(),
+            PrismConstants.NS_QUERY, com.evolveum.prism.xml.ns._public.query_3.ObjectFactory.class.getPackage());
+
+    @BeforeClass
+    public void createSchemaFiles() throws IOException {
+        for (String schema : new String[] { "annotation-3.xsd", "types-3.xsd", "query-3.xsd" }) {
+            Path target = TEST_DIR.resolve(SCHEMA_RESOURCE_DIR + schema);
+            Files.createDirectories(target.getParent());
+            try (InputStream in = SchemaRegistryImpl.class.getClassLoader()
+                    .getResourceAsStream(SCHEMA_RESOURCE_DIR + schema)) {
+                assertThat(in).as("schema resource " + schema).isNotNull();
+                Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.createDirectories(CATALOG_FILE.toPath().getParent());
+        Files.writeString(CATALOG_FILE.toPath(), """
+                <catalog xmlns="urn:oasis:names:tc:entity:xmlns:xml:catalog" prefer="public">
+                    <public publicId="http://prism.evolveum.com/xml/ns/public/annotation-3" uri="../xml/ns/public/annotation-3.xsd" />
+                    <public publicId="http://prism.evolveum.com/xml/ns/public/types-3" uri="../xml/ns/public/types-3.xsd" />
+                    <public publicId="http://prism.evolveum.com/xml/ns/public/query-3" uri="../xml/ns/public/query-3.xsd" />
+                </catalog>
+                """);
+    }
+
+    @Test
+    public void test100SnapshotRestoredBySameConfiguration() throws Exception {
+        given("snapshot created by the mojo");
+        Properties compileTimePackages = new Properties();
+        PACKAGES.forEach((namespace, pkg) -> compileTimePackages.setProperty(namespace, pkg.getName()));
+        SchemaSnapshotMojo mojo = new SchemaSnapshotMojo();
+        setField(mojo, "schemaFiles", new File[] { TYPES_FILE, QUERY_FILE });
+        setField(mojo, "catalogFiles", new File[] { CATALOG_FILE });
+        setField(mojo, "outputFile", SNAPSHOT_FILE);
+        setField(mojo, "compileTimePackages", compileTimePackages);
+        setField(mojo, "definitionFactory", SchemaDefinitionFactory.class.getName());
+        Files.deleteIfExists(SNAPSHOT_FILE.toPath());
+        mojo.execute();
+        assertThat(SNAPSHOT_FILE).as("snapshot file").exists();
+
+        when("registry with the same schemas and packages is initialized");
+        SchemaRegistryImpl registry = createRegistry(PACKAGES);
+
+        then("the schemas are restored from the snapshot");
+        assertThat(registry.isRestoredFromSnapshot()).as("restored from snapshot").isTrue();
+        ComplexTypeDefinition polyStringDefinition =
+                registry.findComplexTypeDefinitionByType(PolyStringType.COMPLEX_TYPE);
+        assertThat(polyStringDefinition).as("PolyStringType definition").isNotNull();
+        assertThat(polyStringDefinition.getCompileTimeClass()).isEqualTo(PolyStringType.class);
+
+        when("registry without the compile-time packages is initialized");
+        SchemaRegistryImpl otherRegistry = createRegistry(Map.of());
+
+        then("the snapshot does not match and the schemas are parsed");
+        assertThat(otherRegistry.isRestoredFromSnapshot()).as("restored from snapshot").isFalse();
+    }
+
+    private SchemaRegistryImpl createRegistry(Map<String, Package> packages) throws Exception {
+        SchemaRegistryImpl registry = new SchemaRegistryImpl();
+        registry.setNamespacePrefixMapper(new GlobalDynamicNamespacePrefixMapper());
+        registry.setCatalogFiles(new File[] { CATALOG_FILE });
+        registry.registerPrismSchemaFile(TYPES_FILE, packages);
+        registry.registerPrismSchemaFile(QUERY_FILE, packages);
+        registry.setSchemaSnapshotFile(SNAPSHOT_FILE);
+        PrismContextImpl context = PrismContextImpl.create(registry);
+        context.setDefinitionFactory(new SchemaDefinitionFactory());
+        context.initialize();
+        return registry;
+    }
+
+    private static void setField(Object object, String name, Object value) throws ReflectiveOperationException {
+        Field field = object.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(object, value);
+    }
+}
@@ -13,6 +13,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.Map.Entry;
@@ -22,6 +23,9 @@ import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.*;
 import javax.xml.transform.dom.DOMSource;
@@ -136,56 +140,114 @@ public class DOMUtil {
     // To generate random namespace prefixes
     private static final Random RANDOM = new Random();
 
-    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER_THREAD_LOCAL;
-    private static final ThreadLocal<Transformer> TRANSFORMER_THREAD_LOCAL;
-
-    static {
-        DOCUMENT_BUILDER_THREAD_LOCAL = ThreadLocal.withInitial(() -> {
-            try {
-                LOGGER.debug("Initializing document builder for thread {}", Thread.currentThread().getName());
-                long ms = System.currentTimeMillis();
-
-                // Use the line below to force built-in JAXP implementation (not recommended)
-                //System.setProperty(DocumentBuilderFactory.class.getName(), "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-                DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-                //System.out.println("DBF = " + documentBuilderFactory.getClass().getName());
-                documentBuilderFactory.setNamespaceAware(true);
-                documentBuilderFactory.setFeature("http://xml.org/sax/features/namespaces", true);
-                // voodoo to turn off reading of DTDs during parsing. This is needed e.g. to pre-parse schemas
-                documentBuilderFactory.setValidating(false);
-
-                documentBuilderFactory.setFeature("http://xml.org/sax/features/validation", false);
-                documentBuilderFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-dtd-grammar", false);
-                documentBuilderFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-                // XXE
-                documentBuilderFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-                documentBuilderFactory.setFeature("http://xml.org/sax/features/external-general-entities", false);
-                documentBuilderFactory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
-                documentBuilderFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-                documentBuilderFactory.setXIncludeAware(false);
-                documentBuilderFactory.setExpandEntityReferences(false);
-                LOGGER.debug("Document builder factory for thread {} initialized in {} ms",
-                        Thread.currentThread().getName(), System.currentTimeMillis() - ms);
-                return documentBuilderFactory.newDocumentBuilder();
-            } catch (ParserConfigurationException e) {
-                throw new RuntimeException(e);
+    /** Maximal number of idle instances kept in each of the pools below. */
+    private static final int XML_POOL_MAX_IDLE = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+
+    /** Factories are not guaranteed to be thread-safe, so they are used under their own lock. */
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = createDocumentBuilderFactory();
+    private static final TransformerFactory TRANSFORMER_FACTORY = setupTransformerFactory();
+
+    /**
+     * Pooled XML infrastructure objects. They are not thread-safe, so each one is used by a single thread at a time.
+     * They are shared by all the threads (instead of being thread-local), so short-lived threads do not have to create
+     * their own instances.
+     */
+    public static final ObjectPool<DocumentBuilder> DOCUMENT_BUILDERS =
+            new ObjectPool<>(DOMUtil::newDocumentBuilder, DocumentBuilder::reset, XML_POOL_MAX_IDLE);
+    public static final ObjectPool<Transformer> TRANSFORMERS =
+            new ObjectPool<>(DOMUtil::newTransformer, DOMUtil::resetTransformer, XML_POOL_MAX_IDLE);
+    public static final ObjectPool<SAXParserFactory> SAX_PARSER_FACTORIES =
+            new ObjectPool<>(DOMUtil::newSaxParserFactory, factory -> {}, XML_POOL_MAX_IDLE);
+
+    /** StAX factories are thread-safe after they are configured, so they can be shared. */
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private static DocumentBuilderFactory createDocumentBuilderFactory() {
+        try {
+            long ms = System.currentTimeMillis();
+
+            // Use the line below to force built-in JAXP implementation (not recommended)
+            //System.setProperty(DocumentBuilderFactory.class.getName(), "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
+            DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+            //System.out.println("DBF = " + documentBuilderFactory.getClass().getName());
+            documentBuilderFactory.setNamespaceAware(true);
+            documentBuilderFactory.setFeature("http://xml.org/sax/features/namespaces", true);
+            // voodoo to turn off reading of DTDs during parsing. This is needed e.g. to pre-parse schemas
+            documentBuilderFactory.setValidating(false);
+
+            documentBuilderFactory.setFeature("http://xml.org/sax/features/validation", false);
+            documentBuilderFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-dtd-grammar", false);
+            documentBuilderFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            // XXE
+            documentBuilderFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            documentBuilderFactory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+            documentBuilderFactory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            documentBuilderFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            documentBuilderFactory.setXIncludeAware(false);
+            documentBuilderFactory.setExpandEntityReferences(false);
+            LOGGER.debug("Document builder factory initialized in {} ms", System.currentTimeMillis() - ms);
+            return documentBuilderFactory;
+        } catch (ParserConfigurationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static DocumentBuilder newDocumentBuilder() {
+        try {
+            synchronized (DOCUMENT_BUILDER_FACTORY) {
+                return DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
             }
-        });
+        } catch (ParserConfigurationException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-        TRANSFORMER_THREAD_LOCAL = ThreadLocal.withInitial(() -> {
-            try {
-                TransformerFactory transformerFactory = setupTransformerFactory();
-
-                //System.out.println("TF = " + transformerFactory.getClass().getName());
-                Transformer trans = transformerFactory.newTransformer();
-                trans.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");      // XALAN-specific
-                trans.setParameter(OutputKeys.INDENT, "yes");
-                trans.setParameter(OutputKeys.ENCODING, "utf-8");
-                return trans;
-            } catch (TransformerConfigurationException e) {
-                throw new RuntimeException(e);
+    private static Transformer newTransformer() {
+        try {
+            Transformer trans;
+            synchronized (TRANSFORMER_FACTORY) {
+                //System.out.println("TF = " + TRANSFORMER_FACTORY.getClass().getName());
+                trans = TRANSFORMER_FACTORY.newTransformer();
             }
-        });
+            configureTransformer(trans);
+            return trans;
+        } catch (TransformerConfigurationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void resetTransformer(Transformer trans) {
+        trans.reset();
+        configureTransformer(trans);
+    }
+
+    private static void configureTransformer(Transformer trans) {
+        trans.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");      // XALAN-specific
+        trans.setParameter(OutputKeys.INDENT, "yes");
+        trans.setParameter(OutputKeys.ENCODING, "utf-8");
+    }
+
+    private static SAXParserFactory newSaxParserFactory() {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory;
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty("javax.xml.stream.isSupportingExternalEntities", false);
+        return xmlInputFactory;
+    }
+
+    /** Returns shared StAX input factory (with DTDs and external entities turned off). */
+    public static XMLInputFactory getXMLInputFactory() {
+        return XML_INPUT_FACTORY;
+    }
+
+    public static XMLOutputFactory getXMLOutputFactory() {
+        return XML_OUTPUT_FACTORY;
     }
 
     public static TransformerFactory setupTransformerFactory() {
@@ -216,10 +278,15 @@ public class DOMUtil {
     }
 
     public static void serializeDOMToFile(org.w3c.dom.Node node, File file) throws TransformerFactoryConfigurationError, TransformerException {
-        Transformer transformer = TRANSFORMER_THREAD_LOCAL.get();
-        Result output = new StreamResult(file);
-        Source input = new DOMSource(node);
-        transformer.transform(input, output);
+        transform(new DOMSource(node), new StreamResult(file));
+    }
+
+    /** Copies the source to the result using a pooled identity transformer. */
+    public static void transform(Source source, Result result) throws TransformerException {
+        TRANSFORMERS.use(transformer -> {
+            transformer.transform(source, result);
+            return null;
+        });
     }
 
     public static Document getDocument(Node node) {
@@ -230,25 +297,31 @@ public class DOMUtil {
     }
 
     public static Document getDocument() {
-        return DOCUMENT_BUILDER_THREAD_LOCAL.get().newDocument();
+        return DOCUMENT_BUILDERS.use(DocumentBuilder::newDocument);
     }
 
     public static Document getDocument(QName rootElementName) {
-        Document document = DOCUMENT_BUILDER_THREAD_LOCAL.get().newDocument();
+        Document document = getDocument();
         document.appendChild(createElement(document, rootElementName));
         return document;
     }
 
+    /**
+     * Creates a new document builder, owned by the caller. For short-time use, consider borrowing one from
+     * {@link #DOCUMENT_BUILDERS} instead.
+     */
     public static DocumentBuilder createDocumentBuilder() {
-        return DOCUMENT_BUILDER_THREAD_LOCAL.get();
+        return newDocumentBuilder();
     }
 
     public static Document parseDocument(String doc) {
+        DocumentBuilder loader = DOCUMENT_BUILDERS.borrow();
         try {
-            DocumentBuilder loader = createDocumentBuilder();
             return loader.parse(IOUtils.toInputStream(doc, StandardCharsets.UTF_8));
         } catch (SAXException | IOException ex) {
             throw new IllegalStateException("Error parsing XML document " + ex.getMessage(), ex);
+        } finally {
+            DOCUMENT_BUILDERS.release(loader);
         }
     }
 
@@ -257,18 +330,24 @@ public class DOMUtil {
     }
 
     public static Document parseFile(File file) {
+        DocumentBuilder builder = DOCUMENT_BUILDERS.borrow();
         try {
-            return DOCUMENT_BUILDER_THREAD_LOCAL.get().parse(file);
+            return builder.parse(file);
         } catch (SAXException | IOException ex) {
             throw new IllegalStateException("Error parsing XML document " + ex.getMessage(), ex);
+        } finally {
+            DOCUMENT_BUILDERS.release(builder);
         }
     }
 
     public static Document parse(InputStream inputStream) throws IOException {
+        DocumentBuilder builder = DOCUMENT_BUILDERS.borrow();
         try {
-            return DOCUMENT_BUILDER_THREAD_LOCAL.get().parse(inputStream);
+            return builder.parse(inputStream);
         } catch (SAXException ex) {
             throw new IllegalStateException("Error parsing XML document " + ex.getMessage(), ex);
+        } finally {
+            DOCUMENT_BUILDERS.release(builder);
         }
     }
 
@@ -285,15 +364,35 @@ public class DOMUtil {
         return printDom(node, true, true);
     }
 
+    /**
+     * Serializes the node directly into provided writer (formatted in the same way as {@link #serializeDOMToString(Node)}).
+     * The writer is not closed.
+     */
+    public static void serializeDOMToWriter(Node node, Writer writer) {
+        DOMSource source = new DOMSource(node);
+        try {
+            TRANSFORMERS.use(trans -> {
+                trans.setOutputProperty(OutputKeys.INDENT, "yes");
+                trans.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+                trans.transform(source, new StreamResult(writer));
+                return null;
+            });
+        } catch (TransformerException e) {
+            throw new SystemException("Error in XML transformation: " + e.getMessage(), e);
+        }
+    }
+
     public static StringBuffer printDom(Node node, boolean indent, boolean omitXmlDeclaration) {
         StringWriter writer = new StringWriter();
         DOMSource source = new DOMSource(node);
         try {
-            Transformer trans = TRANSFORMER_THREAD_LOCAL.get();
-            trans.setOutputProperty(OutputKeys.INDENT, (indent ? "yes" : "no"));
-            // Note: serialized XML does not contain xml declaration
-            trans.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, (omitXmlDeclaration ? "yes" : "no"));
-            trans.transform(source, new StreamResult(writer));
+            TRANSFORMERS.use(trans -> {
+                trans.setOutputProperty(OutputKeys.INDENT, (indent ? "yes" : "no"));
+                // Note: serialized XML does not contain xml declaration
+                trans.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, (omitXmlDeclaration ? "yes" : "no"));
+                trans.transform(source, new StreamResult(writer));
+                return null;
+            });
         } catch (TransformerException e) {
             throw new SystemException("Error in XML transformation: " + e.getMessage(), e);
         }
@@ -487,7 +586,7 @@ public class DOMUtil {
     }
 
     @FunctionalInterface
-    private interface NamespaceResolver {
+    public interface NamespaceResolver {
         String resolve(String prefix);
     }
 
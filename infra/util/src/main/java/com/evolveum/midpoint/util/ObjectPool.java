@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A bounded, lock-free pool of objects that are expensive to create and not thread-safe, like XML parsers
+ * or transformers (see {@link DOMUtil}).
+ *
+ * Unlike thread-local instances, the pooled objects are shared by all threads, so the number of instances
+ * corresponds to the number of concurrent users, not to the number of threads (which may be high, e.g. when
+ * using short-lived threads).
+ *
+ * An object is {@link #borrow() borrowed}, used by a single thread, and {@link #release(Object) released}.
+ * On release, it is reset (by the provided function) and kept for later use - unless there are already
+ * {@link #maxIdle} idle objects in the pool, in which case it is simply dropped. If the pool is empty,
+ * a new object is created.
+ *
+ * @param <T> type of pooled objects
+ */
+public class ObjectPool<T> {
+
+    @NotNull private final Supplier<T> factory;
+    @NotNull private final Consumer<T> reset;
+    private final int maxIdle;
+
+    @NotNull private final Queue<T> idle = new ConcurrentLinkedQueue<>();
+
+    /** Approximate number of objects in {@link #idle}; it is used to bound the pool size. */
+    @NotNull private final AtomicInteger idleCount = new AtomicInteger();
+
+    @NotNull private final AtomicInteger created = new AtomicInteger();
+
+    public ObjectPool(@NotNull Supplier<T> factory, @NotNull Consumer<T> reset, int maxIdle) {
+        this.factory = factory;
+        this.reset = reset;
+        this.maxIdle = maxIdle;
+    }
+
+    /** Takes an idle object from the pool, or creates a new one. */
+    public @NotNull T borrow() {
+        T object = idle.poll();
+        if (object != null) {
+            idleCount.decrementAndGet();
+            return object;
+        }
+        created.incrementAndGet();
+        return factory.get();
+    }
+
+    /**
+     * Returns the object to the pool. It must not be used by the caller anymore. If the object cannot be reset
+     * (the reset function throws an exception), it is dropped.
+     */
+    public void release(@NotNull T object) {
+        if (idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            return;
+        }
+        try {
+            reset.accept(object);
+        } catch (RuntimeException e) {
+            idleCount.decrementAndGet();
+            return;
+        }
+        idle.offer(object);
+    }
+
+    /** Executes the action with a borrowed object, returning the object to the pool afterwards. */
+    public <R, E extends Exception> R use(@NotNull PooledAction<T, R, E> action) throws E {
+        T object = borrow();
+        try {
+            return action.apply(object);
+        } finally {
+            release(object);
+        }
+    }
+
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    /** Number of objects created by the pool so far. */
+    public int getCreatedCount() {
+        return created.get();
+    }
+
+    @FunctionalInterface
+    public interface PooledAction<T, R, E extends Exception> {
+        R apply(T object) throws E;
+    }
+}
@@ -210,8 +210,8 @@ public class QNameUtil {
 
     // case insensitive is related to local parts
     public static boolean match(QName a, QName b, boolean caseInsensitive) {
-        if (a == null && b == null) {
-            return true;
+        if (a == b) {
+            return true; // also for both null; quite common for interned names
         }
         if (a == null || b == null) {
             return false;
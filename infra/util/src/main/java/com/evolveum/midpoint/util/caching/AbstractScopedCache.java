@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.util.caching;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.util.caching.CacheConfiguration.CacheObjectTypeConfiguration;
+import com.evolveum.midpoint.util.caching.CacheConfiguration.StatisticsLevel;
+
+/**
+ * Common supertype for caches bound to a {@link CacheScope} (e.g. processing of a single request) instead of a thread.
+ *
+ * Unlike {@link AbstractThreadLocalCache}, the instances are not kept in a map keyed by threads, so the number
+ * of (short-lived) threads does not matter. A cache can even be shared by more threads working in the same scope;
+ * hence the content is guarded by the cache instance lock and the statistics are atomic.
+ *
+ * The content is bounded by {@link CacheConfiguration#getMaxSize()} and by the maximum sizes for individual object types
+ * ({@link CacheObjectTypeConfiguration#getMaxSize()}); least recently used entries are evicted first. The entries
+ * also expire after the time to live for their object types ({@link CacheObjectTypeConfiguration#getEffectiveTimeToLive()},
+ * in seconds). Hits, misses and passes are reported also to {@link CachePerformanceCollector}.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public abstract class AbstractScopedCache<K, V> {
+
+    private final CacheConfiguration configuration;
+
+    /** Access-ordered, so the eldest entry is the least recently used one. Guarded by "this". */
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Number of entries per object type, for the type-specific size limits. Guarded by "this". */
+    private final Map<Class<?>, Integer> typeSizes = new HashMap<>();
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicInteger passes = new AtomicInteger();
+    private final AtomicInteger evictions = new AtomicInteger();
+
+    /** Total size of all caches in the scope; maintained by this cache. Set when the cache is opened. */
+    private volatile LongAdder scopeSize;
+
+    /**
+     * Set when the scope ends. A closed cache neither serves nor stores entries, so code still holding it
+     * (e.g. work forked from the scope that outlived it) can neither get stale entries nor fill it.
+     * Written under "this".
+     */
+    private volatile boolean closed;
+
+    protected AbstractScopedCache(CacheConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Returns the cached value, or null if there is none (or it has expired).
+     * The `type` is the object type, driving the configuration and statistics.
+     */
+    protected @Nullable V get(@NotNull K key, @NotNull Class<?> type) {
+        if (closed || !supportsObjectType(type)) {
+            registerPass(type);
+            return null;
+        }
+        V value;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+                entries.remove(key);
+                entryRemoved(entry);
+                entry = null;
+            }
+            value = entry != null ? entry.value : null;
+        }
+        if (value != null) {
+            registerHit(type);
+        } else {
+            registerMiss(type);
+        }
+        return value;
+    }
+
+    /** Stores the value, evicting the least recently used entries if the cache is full. */
+    protected void put(@NotNull K key, @NotNull Class<?> type, @NotNull V value) {
+        if (!supportsObjectType(type)) {
+            return;
+        }
+        Integer timeToLive = getTimeToLive(type);
+        long expiresAt = timeToLive != null ? System.currentTimeMillis() + timeToLive * 1000L : Long.MAX_VALUE;
+        Integer typeMaxSize = getTypeMaxSize(type);
+        Integer maxSize = configuration.getMaxSize();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            Entry<V> previous = entries.put(key, new Entry<>(type, value, expiresAt));
+            if (previous != null) {
+                entryRemoved(previous);
+            }
+            typeSizes.merge(type, 1, Integer::sum);
+            sizeChanged(1);
+            if (typeMaxSize != null) {
+                evict(type, typeMaxSize);
+            }
+            if (maxSize != null) {
+                evict(null, maxSize);
+            }
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries of given type (or of any type, if null) until there are at most `maxSize`
+     * of them. The new entry is the most recently used one, so it is evicted only if there is no room at all.
+     */
+    private void evict(@Nullable Class<?> type, int maxSize) {
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (getSize(type) > maxSize && iterator.hasNext()) {
+            Entry<V> entry = iterator.next();
+            if (type == null || entry.type == type) {
+                iterator.remove();
+                entryRemoved(entry);
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private int getSize(@Nullable Class<?> type) {
+        return type != null ? typeSizes.getOrDefault(type, 0) : entries.size();
+    }
+
+    private void entryRemoved(Entry<V> entry) {
+        typeSizes.computeIfPresent(entry.type, (type, size) -> size > 1 ? size - 1 : null);
+        sizeChanged(-1);
+    }
+
+    protected synchronized void remove(@NotNull K key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            entryRemoved(removed);
+        }
+    }
+
+    public synchronized void clear() {
+        sizeChanged(-entries.size());
+        entries.clear();
+        typeSizes.clear();
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /** Called by the scope when the cache becomes bound to it. */
+    void open(@NotNull LongAdder scopeSize) {
+        this.scopeSize = scopeSize;
+    }
+
+    /** Called by the scope when the processing in the scope ends; the content is discarded. */
+    synchronized void close() {
+        closed = true;
+        clear();
+        scopeSize = null;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private void sizeChanged(int delta) {
+        LongAdder scopeSize = this.scopeSize;
+        if (scopeSize != null) {
+            scopeSize.add(delta);
+        }
+    }
+
+    private Integer getTypeMaxSize(Class<?> type) {
+        CacheObjectTypeConfiguration typeConfiguration = configuration.getForObjectType(type);
+        return typeConfiguration != null ? typeConfiguration.getMaxSize() : null;
+    }
+
+    private Integer getTimeToLive(Class<?> type) {
+        CacheObjectTypeConfiguration typeConfiguration = configuration.getForObjectType(type);
+        return typeConfiguration != null ? typeConfiguration.getEffectiveTimeToLive() : configuration.getTimeToLive();
+    }
+
+    public boolean supportsObjectType(Class<?> type) {
+        return configuration != null && configuration.supportsObjectType(type);
+    }
+
+    public CacheConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    private StatisticsLevel getStatisticsLevel(Class<?> type) {
+        return configuration != null
+                ? CacheConfiguration.getStatisticsLevel(configuration.getForObjectType(type), configuration)
+                : null;
+    }
+
+    private void registerHit(Class<?> type) {
+        hits.incrementAndGet();
+        CachePerformanceCollector.INSTANCE.registerHit(getClass(), type, getStatisticsLevel(type));
+    }
+
+    private void registerMiss(Class<?> type) {
+        misses.incrementAndGet();
+        CachePerformanceCollector.INSTANCE.registerMiss(getClass(), type, getStatisticsLevel(type));
+    }
+
+    private void registerPass(Class<?> type) {
+        passes.incrementAndGet();
+        CachePerformanceCollector.INSTANCE.registerPass(getClass(), type, getStatisticsLevel(type));
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    public int getPasses() {
+        return passes.get();
+    }
+
+    public int getEvictions() {
+        return evictions.get();
+    }
+
+    String getCacheStatisticsString() {
+        int hits = getHits();
+        int misses = getMisses();
+        int passes = getPasses();
+        return "hits: " + hits + ", misses: " + misses + ", passes: " + passes + ", evictions: " + getEvictions() +
+                (hits + misses + passes != 0 ? ", % of hits: " + (100.0f * hits / (hits + misses + passes)) : "");
+    }
+
+    /** Human-readable description of the content. */
+    public synchronized String description() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+            sb.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue().value);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" + getCacheStatisticsString() + "}";
+    }
+
+    private static class Entry<V> {
+
+        private final Class<?> type;
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(Class<?> type, V value, long expiresAt) {
+            this.type = type;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -15,6 +15,8 @@ import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Common supertype for various thread-local caches (parts of RepositoryCache but also others).
+ *
+ * For caches used by many short-lived (e.g. virtual) threads, see {@link AbstractScopedCache}.
  */
 public abstract class AbstractThreadLocalCache {
 
@@ -59,6 +59,7 @@ public class CacheConfiguration implements DebugDumpable {
     }
 
     public class CacheObjectTypeConfiguration {
+        private Integer maxSize;
         private Integer timeToLive;
         private Integer timeToVersionCheck;
         private Boolean traceMiss;
@@ -67,6 +68,15 @@ public class CacheConfiguration implements DebugDumpable {
         private Boolean clusterwideInvalidation;
         private Boolean safeRemoteInvalidation;
 
+        /** Maximum number of entries of this type; applied in addition to the overall {@link #getMaxSize()}. */
+        public Integer getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(Integer maxSize) {
+            this.maxSize = maxSize;
+        }
+
         public Integer getEffectiveTimeToLive() {
             return timeToLive != null ? timeToLive : CacheConfiguration.this.timeToLive;
         }
@@ -126,12 +136,13 @@ public class CacheConfiguration implements DebugDumpable {
         }
 
         public boolean supportsCaching() {
-            return timeToLive == null || timeToLive > 0;
+            return (maxSize == null || maxSize > 0) && (timeToLive == null || timeToLive > 0);
         }
 
         @Override
         public String toString() {
             StringBuilder sb = new StringBuilder();
+            append(sb, "maxSize", maxSize);
             append(sb, "timeToLive", timeToLive);
             append(sb, "timeToVersionCheck", timeToVersionCheck);
             append(sb, "traceMiss", traceMiss);
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.util.caching;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Binds {@link AbstractScopedCache} instances to the dynamic extent of a piece of code, similarly to `ScopedValue`:
+ * the cache is available (via {@link #get()}) only while {@link #call(Action)} executes, and it is discarded when
+ * the outermost call returns. Nested calls reuse the cache of the enclosing call.
+ *
+ * This is a replacement of the `enter`/`exit` pair of {@link AbstractThreadLocalCache}: the binding cannot leak,
+ * and there is no global map of threads. Work delegated to other threads (e.g. to virtual threads forked while
+ * processing a request) can be run in the same scope using {@link #wrap(Runnable)}.
+ *
+ * The aggregate figures ({@link #getTotalSize()}, {@link #getOpenCaches()}) are maintained incrementally, so they
+ * are cheap to get regardless of the number of threads.
+ *
+ * @param <C> the cache type
+ */
+public class CacheScope<C extends AbstractScopedCache<?, ?>> {
+
+    private static final Trace LOGGER = TraceManager.getTrace(CacheScope.class);
+
+    @NotNull private final Supplier<C> cacheFactory;
+
+    /**
+     * The binding of the current thread. It is always removed when the call ends, so it does not grow with the number
+     * of threads that have ever used the cache.
+     */
+    private final ThreadLocal<C> current = new ThreadLocal<>();
+
+    private final LongAdder totalSize = new LongAdder();
+    private final AtomicInteger openCaches = new AtomicInteger();
+
+    public CacheScope(@NotNull Supplier<C> cacheFactory) {
+        this.cacheFactory = cacheFactory;
+    }
+
+    /** Returns the cache bound to the current scope, or null if the code does not run in a scope. */
+    public @Nullable C get() {
+        return current.get();
+    }
+
+    public boolean exists() {
+        return current.get() != null;
+    }
+
+    /**
+     * Executes the action in a scope: either the current one (if there is any), or a new one, with a new cache
+     * that is discarded after the action finishes.
+     */
+    public <R, E extends Exception> R call(@NotNull Action<R, E> action) throws E {
+        C existing = current.get();
+        if (existing != null) {
+            return action.execute();
+        }
+        C cache = cacheFactory.get();
+        cache.open(totalSize);
+        openCaches.incrementAndGet();
+        LOGGER.trace("Cache: opened {}", cache);
+        try {
+            return callWith(cache, action);
+        } finally {
+            openCaches.decrementAndGet();
+            LOGGER.trace("Cache: closing {}", cache);
+            cache.close();
+        }
+    }
+
+    /**
+     * Returns a runnable that executes the original one in the current scope (if there is any), in any thread.
+     * If the scope has ended by the time the runnable is executed, it runs outside of any scope.
+     */
+    public @NotNull Runnable wrap(@NotNull Runnable runnable) {
+        C cache = current.get();
+        if (cache == null) {
+            return runnable;
+        }
+        return () -> {
+            if (cache.isClosed()) {
+                LOGGER.trace("Cache: scope of {} has ended, running {} without it", cache, runnable);
+                runnable.run();
+            } else {
+                callWith(cache, () -> {
+                    runnable.run();
+                    return null;
+                });
+            }
+        };
+    }
+
+    private <R, E extends Exception> R callWith(@NotNull C cache, @NotNull Action<R, E> action) throws E {
+        C previous = current.get();
+        current.set(cache);
+        try {
+            return action.execute();
+        } finally {
+            if (previous != null) {
+                current.set(previous);
+            } else {
+                current.remove();
+            }
+        }
+    }
+
+    /** Total number of entries in all caches currently open in this scope. */
+    public long getTotalSize() {
+        return totalSize.sum();
+    }
+
+    public int getOpenCaches() {
+        return openCaches.get();
+    }
+
+    public String debugDump() {
+        C cache = current.get();
+        StringBuilder sb = new StringBuilder("Cache ");
+        if (cache != null) {
+            sb.append("exists (").append(cache.getCacheStatisticsString()).append("), size ");
+            sb.append(cache.getSize());
+            sb.append(", content: ");
+            sb.append(cache.description());
+        } else {
+            sb.append("doesn't exist");
+        }
+        return sb.toString();
+    }
+
+    @FunctionalInterface
+    public interface Action<R, E extends Exception> {
+        R execute() throws E;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+
+public class TestObjectPool extends AbstractUnitTest {
+
+    private static final String XML = "<a xmlns='http://example.com/ns'><b>value</b><c x='1'/></a>";
+
+    private static final int SHORT_LIVED_THREADS = 2000;
+    private static final int CONCURRENCY = 16;
+
+    @Test
+    public void test100BorrowAndRelease() {
+        AtomicInteger resets = new AtomicInteger();
+        ObjectPool<StringBuilder> pool = new ObjectPool<>(StringBuilder::new, sb -> {
+            sb.setLength(0);
+            resets.incrementAndGet();
+        }, 2);
+
+        when("objects are borrowed and released");
+        StringBuilder first = pool.borrow();
+        first.append("dirty");
+        StringBuilder second = pool.borrow();
+        StringBuilder third = pool.borrow();
+        pool.release(first);
+        pool.release(second);
+        pool.release(third);
+
+        then("at most maxIdle objects are kept, and they are reset");
+        assertThat(pool.getCreatedCount()).isEqualTo(3);
+        assertThat(pool.getIdleCount()).isEqualTo(2);
+        assertThat(resets.get()).isEqualTo(2);
+        StringBuilder reused = pool.borrow();
+        assertThat(reused).isSameAs(first);
+        assertThat(reused.length()).isZero();
+        assertThat(pool.getCreatedCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void test110UseReturnsObjectOnException() {
+        ObjectPool<StringBuilder> pool = new ObjectPool<>(StringBuilder::new, sb -> sb.setLength(0), 2);
+
+        try {
+            pool.use(sb -> {
+                throw new IllegalStateException("expected");
+            });
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        assertThat(pool.getIdleCount()).isEqualTo(1);
+    }
+
+    /**
+     * Many short-lived threads parse and serialize XML. With the pooled infrastructure, the parsers are shared;
+     * thread-local ones would have to be created for each thread (simulated by the "fresh" variant).
+     */
+    @Test
+    public void test200ShortLivedThreads() throws Exception {
+        int createdBefore = DOMUtil.DOCUMENT_BUILDERS.getCreatedCount();
+
+        when("using pooled parsers");
+        long pooledTime = runInShortLivedThreads(() -> {
+            Document document = DOMUtil.parseDocument(XML);
+            assertThat(DOMUtil.serializeDOMToString(document)).contains("value");
+        });
+
+        and("creating parsers for each thread");
+        long freshTime = runInShortLivedThreads(() -> {
+            try {
+                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                factory.setNamespaceAware(true);
+                DocumentBuilder builder = factory.newDocumentBuilder();
+                builder.parse(new ByteArrayInputStream(XML.getBytes()));
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+
+        then();
+        displayValue("Short-lived threads, pooled parsers (ms)", pooledTime / 1_000_000);
+        displayValue("Short-lived threads, fresh parsers (ms)", freshTime / 1_000_000);
+        int created = DOMUtil.DOCUMENT_BUILDERS.getCreatedCount() - createdBefore;
+        displayValue("Document builders created", created);
+        assertThat(created).as("document builders created").isLessThanOrEqualTo(CONCURRENCY);
+    }
+
+    private long runInShortLivedThreads(Runnable task) throws InterruptedException {
+        long start = System.nanoTime();
+        List<Thread> running = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int i = 0; i < SHORT_LIVED_THREADS; i++) {
+            Thread thread = new Thread(task);
+            thread.setUncaughtExceptionHandler((t, e) -> {
+                synchronized (failures) {
+                    failures.add(e);
+                }
+            });
+            thread.start();
+            running.add(thread);
+            if (running.size() == CONCURRENCY) {
+                for (Thread t : running) {
+                    t.join();
+                }
+                running.clear();
+            }
+        }
+        for (Thread t : running) {
+            t.join();
+        }
+        assertThat(failures).as("failures").isEmpty();
+        return System.nanoTime() - start;
+    }
+}
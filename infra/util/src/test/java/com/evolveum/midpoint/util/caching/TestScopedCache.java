@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2023 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.util.caching;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+
+public class TestScopedCache extends AbstractUnitTest {
+
+    private static final int STRESS_TASKS = 100_000;
+    private static final int STRESS_THREADS = 64;
+
+    @Test
+    public void test100CacheBoundToScope() {
+        CacheScope<TestCache> scope = new CacheScope<>(() -> new TestCache(100));
+
+        given("no scope");
+        assertThat(scope.get()).isNull();
+
+        when("code runs in a scope");
+        TestCache cache = scope.call(() -> {
+            TestCache outer = scope.get();
+            outer.put("a", "A");
+            TestCache inner = scope.call(scope::get);
+            assertThat(inner).as("cache in nested call").isSameAs(outer);
+            assertThat(inner.get("a")).isEqualTo("A");
+            assertThat(scope.getTotalSize()).isEqualTo(1);
+            return outer;
+        });
+
+        then("cache is discarded after the scope ends");
+        assertThat(scope.get()).isNull();
+        assertThat(cache.getSize()).isZero();
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(scope.getOpenCaches()).isZero();
+        assertThat(scope.getTotalSize()).isZero();
+    }
+
+    @Test
+    public void test110LeastRecentlyUsedEviction() {
+        TestCache cache = new TestCache(2);
+
+        when("third entry is added after the first one was used");
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.get("a");
+        cache.put("c", "C");
+
+        then("the second one is evicted");
+        assertThat(cache.getSize()).isEqualTo(2);
+        assertThat(cache.get("a")).isEqualTo("A");
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo("C");
+        assertThat(cache.getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    public void test115PerTypeEviction() {
+        CacheConfiguration configuration = createConfiguration(10);
+        configuration.getForObjectType(String.class).setMaxSize(2);
+        configuration.getObjectTypes().put(Integer.class, configuration.new CacheObjectTypeConfiguration());
+        TestCache cache = new TestCache(configuration);
+
+        given("two entries of a limited type and two of an unlimited one");
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("x", Integer.class, "X");
+        cache.put("y", Integer.class, "Y");
+
+        when("third entry of the limited type is added after the first one was used");
+        cache.get("a");
+        cache.put("c", "C");
+
+        then("the least recently used entry of that type is evicted, although the cache is not full");
+        assertThat(cache.getSize()).isEqualTo(4);
+        assertThat(cache.get("a")).isEqualTo("A");
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo("C");
+        assertThat(cache.get("x", Integer.class)).isEqualTo("X");
+        assertThat(cache.get("y", Integer.class)).isEqualTo("Y");
+        assertThat(cache.getEvictions()).isEqualTo(1);
+
+        when("an entry of the limited type is removed and another one is added");
+        cache.remove("a");
+        cache.put("d", "D");
+
+        then("nothing is evicted");
+        assertThat(cache.getSize()).isEqualTo(4);
+        assertThat(cache.getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    public void test120StatisticsReported() {
+        CachePerformanceCollector.INSTANCE.clear();
+        TestCache cache = new TestCache(10);
+
+        when();
+        cache.put("a", "A");
+        cache.get("a");
+        cache.get("b");
+        cache.getUnsupported("a");
+
+        then();
+        CachePerformanceCollector.CacheData data =
+                CachePerformanceCollector.INSTANCE.getGlobalPerformanceMap().get(TestCache.class.getName());
+        assertThat(data).isNotNull();
+        assertThat(data.hits.get()).isEqualTo(1);
+        assertThat(data.misses.get()).isEqualTo(1);
+        assertThat(data.passes.get()).isEqualTo(1);
+    }
+
+    /**
+     * Many short-lived tasks, each in its own scope. (Virtual threads are not available on the current Java platform,
+     * so the tasks run on a thread pool; the scope handling is the same.)
+     */
+    @Test
+    public void test200ManyScopes() throws Exception {
+        CacheScope<TestCache> scope = new CacheScope<>(() -> new TestCache(8));
+        ExecutorService executor = Executors.newFixedThreadPool(STRESS_THREADS);
+
+        when();
+        long start = System.nanoTime();
+        List<Future<Boolean>> futures = new ArrayList<>(STRESS_TASKS);
+        try {
+            for (int i = 0; i < STRESS_TASKS; i++) {
+                String key = "key-" + i;
+                futures.add(executor.submit(() -> scope.call(() -> {
+                    TestCache cache = scope.get();
+                    boolean emptyAtStart = cache.get(key) == null;
+                    for (int j = 0; j < 16; j++) {
+                        cache.put(key + "-" + j, key);
+                    }
+                    return emptyAtStart && cache.getSize() == 8 && key.equals(cache.get(key + "-15"));
+                })));
+            }
+            for (Future<Boolean> future : futures) {
+                assertThat(future.get()).as("isolated cache content").isTrue();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        long duration = System.nanoTime() - start;
+
+        then();
+        displayValue("Scopes processed", STRESS_TASKS);
+        displayValue("Time (ms)", duration / 1_000_000);
+        assertThat(scope.getOpenCaches()).as("open caches").isZero();
+        assertThat(scope.getTotalSize()).as("total size").isZero();
+    }
+
+    @Test
+    public void test210WorkDelegatedToOtherThreads() throws Exception {
+        CacheScope<TestCache> scope = new CacheScope<>(() -> new TestCache(STRESS_THREADS * 10));
+        ExecutorService executor = Executors.newFixedThreadPool(STRESS_THREADS);
+
+        try {
+            when("work in the scope is forked to other threads");
+            TestCache cache = scope.call(() -> {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < STRESS_THREADS * 10; i++) {
+                    String key = "key-" + i;
+                    futures.add(executor.submit(scope.wrap(() -> scope.get().put(key, key))));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                assertThat(scope.getTotalSize()).isEqualTo(STRESS_THREADS * 10);
+                return scope.get();
+            });
+
+            then("all threads shared the cache of the scope");
+            assertThat(cache.getSize()).isZero();
+            assertThat(scope.getTotalSize()).isZero();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test220WorkOutlivingScope() throws Exception {
+        CacheScope<TestCache> scope = new CacheScope<>(() -> new TestCache(10));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            given("work wrapped in a scope and the cache of that scope");
+            List<Runnable> wrapped = new ArrayList<>();
+            TestCache cache = scope.call(() -> {
+                scope.get().put("a", "A");
+                wrapped.add(scope.wrap(() -> assertThat(scope.get()).as("cache in ended scope").isNull()));
+                return scope.get();
+            });
+
+            when("the work runs after the scope has ended");
+            executor.submit(wrapped.get(0)).get();
+
+            and("the cache of the ended scope is used directly");
+            cache.put("b", "B");
+
+            then("the closed cache neither serves nor stores entries");
+            assertThat(cache.isClosed()).isTrue();
+            assertThat(cache.get("a")).isNull();
+            assertThat(cache.get("b")).isNull();
+            assertThat(cache.getSize()).isZero();
+            assertThat(scope.getTotalSize()).isZero();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static CacheConfiguration createConfiguration(int maxSize) {
+        CacheConfiguration configuration = new CacheConfiguration();
+        configuration.setMaxSize(maxSize);
+        configuration.getObjectTypes().put(String.class, configuration.new CacheObjectTypeConfiguration());
+        return configuration;
+    }
+
+    private static class TestCache extends AbstractScopedCache<String, String> {
+
+        private TestCache(int maxSize) {
+            this(createConfiguration(maxSize));
+        }
+
+        private TestCache(CacheConfiguration configuration) {
+            super(configuration);
+        }
+
+        private String get(String key) {
+            return get(key, String.class);
+        }
+
+        private String getUnsupported(String key) {
+            return get(key, Integer.class);
+        }
+
+        private void put(String key, String value) {
+            put(key, String.class, value);
+        }
+    }
+}